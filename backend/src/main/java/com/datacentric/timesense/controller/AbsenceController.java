@@ -9,7 +9,6 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -18,7 +17,6 @@ import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -57,31 +55,37 @@ import com.datacentric.timesense.model.Absence;
 import com.datacentric.timesense.model.AbsenceAttachment;
 import com.datacentric.timesense.model.AbsenceSubType;
 import com.datacentric.timesense.model.AbsenceType;
+import com.datacentric.timesense.model.ApprovalCounter;
 import com.datacentric.timesense.model.AuditableTable;
 import com.datacentric.timesense.model.Status;
 import static com.datacentric.timesense.model.SystemAccessTypes.MANAGE_TIMEOFF;
 import com.datacentric.timesense.model.SystemSettings;
 import com.datacentric.timesense.model.User;
 import com.datacentric.timesense.model.UserRole;
+import com.datacentric.timesense.model.VacationBalanceEvent.Reason;
 import com.datacentric.timesense.repository.AbsenceAttachmentRepository;
 import com.datacentric.timesense.repository.AbsenceRepository;
-import com.datacentric.timesense.repository.AbsenceSubTypeRepository;
-import com.datacentric.timesense.repository.AbsenceTypeRepository;
 import com.datacentric.timesense.repository.HolidayRepository;
 import com.datacentric.timesense.repository.StatusRepository;
 import com.datacentric.timesense.repository.SystemSettingRepository;
 import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.ApprovalCounters;
+import com.datacentric.timesense.utils.OrgHierarchy;
+import com.datacentric.timesense.utils.ReferenceValidator;
+import com.datacentric.timesense.utils.ReferenceValidator.MissingReferences;
+import com.datacentric.timesense.utils.ReferenceValidator.References;
 import com.datacentric.timesense.utils.SecurityUtils;
 import static com.datacentric.timesense.utils.TimeoffManagementUtils.hoursToBusinessDays;
+import com.datacentric.timesense.utils.VacationBalances;
+import com.datacentric.timesense.utils.hibernate.JsonViewFetchPlans;
+import com.datacentric.timesense.utils.hibernate.Message;
 import com.datacentric.timesense.utils.i18n.MessagesCodes;
+import com.datacentric.timesense.utils.imports.AbsenceImportEngine;
+import com.datacentric.timesense.utils.imports.ImportResult;
 import com.datacentric.timesense.utils.rest.UserUtils;
 import com.datacentric.timesense.utils.security.UserSecurityData;
 import com.datacentric.timesense.utils.storage.IStorageProvider;
 import com.datacentric.utils.StringUtils;
-import com.datacentric.utils.imports.ColumnDescriptor;
-import com.datacentric.utils.imports.ColumnType;
-import com.datacentric.utils.imports.CsvImporter;
-import com.datacentric.utils.imports.CsvImporter.CsvImporterConfiguration;
 import com.datacentric.utils.rest.I18nResponses;
 import com.datacentric.utils.rest.JsonViewPage;
 import com.datacentric.utils.rest.RestUtils;
@@ -92,18 +96,10 @@ import com.fasterxml.jackson.annotation.JsonView;
 @RequestMapping("/api/absences")
 public class AbsenceController {
 
-    private static final int BATCH_SIZE = 100;
-
     private static final String STACK_TRACE = "Stack trace: ";
     private static final String SAVE_USER = "Save user: {}";
 
     private static final String FIELD_NAME = "name";
-    private static final String FIELD_YEAR = "year";
-    private static final String FIELD_START_DATE = "startDate";
-    private static final String FIELD_END_DATE = "endDate";
-    private static final String FIELD_USER_EMAIL = "userEmail";
-    private static final String FIELD_BUSINESS_DAYS = "businessDays";
-    private static final String FIELD_STATUS = "status";
     private static final String PARTNER_JOB_TITLE = "Partner";
 
     private Logger log = LoggerFactory.getLogger(AbsenceController.class);
@@ -127,8 +123,6 @@ public class AbsenceController {
     }
 
     private AbsenceRepository absenceRepository;
-    private AbsenceTypeRepository absenceTypeRepository;
-    private AbsenceSubTypeRepository absenceSubTypeRepository;
     private UserRepository userRepository;
     private UserUtils userUtils;
     private SecurityUtils securityUtils;
@@ -137,6 +131,12 @@ public class AbsenceController {
     private SystemSettingRepository systemSettingRepository;
     private AbsenceAttachmentRepository absenceAttachmentRepository;
     private IStorageProvider storageProvider;
+    private AbsenceImportEngine absenceImportEngine;
+    private VacationBalances vacationBalances;
+    private JsonViewFetchPlans fetchPlans;
+    private ApprovalCounters approvalCounters;
+    private ReferenceValidator referenceValidator;
+    private OrgHierarchy orgHierarchy;
 
     private static final int DEFAULT_FIRST_ROW = 0;
     private static final int DEFAULT_PAGE_SIZE = 100;
@@ -163,24 +163,26 @@ public class AbsenceController {
     private static final String DAILY_RECORD = "Day";
     private static final String SCOPE_COMPANY = "SCOPE-COMPANY";
     private static final String SCOPE_TEAM = "SCOPE-TEAM";
+    private static final String REPORTS_DIRECT = "direct";
     private static final double HALF_DAY_INCREMENT = 0.5;
     private static final double DAY_INCREMENT = 1.0;
     private static final double DEFAULT_HOURS = 8.0;
     private static final String ATTACHMENT_NOT_FOUND = "Attachment not found";
+    private static final String NO_OVERLAP_CONSTRAINT = "absences_approved_no_overlap";
 
     // CHECKSTYLE.OFF: ParameterNumber
     @Autowired
     public AbsenceController(AbsenceRepository absenceRepository,
-            AbsenceTypeRepository absenceTypeRepository,
-            AbsenceSubTypeRepository absenceSubTypeRepository, UserRepository userRepository,
+            UserRepository userRepository,
             UserUtils userUtils, SecurityUtils securityUtils,
             StatusRepository statusRepository, HolidayRepository holidayRepository,
             SystemSettingRepository systemSettingRepository,
             AbsenceAttachmentRepository absenceAttachmentRepository,
-            IStorageProvider storageProvider) {
+            IStorageProvider storageProvider, AbsenceImportEngine absenceImportEngine,
+            VacationBalances vacationBalances, JsonViewFetchPlans fetchPlans,
+            ApprovalCounters approvalCounters, ReferenceValidator referenceValidator,
+            OrgHierarchy orgHierarchy) {
         this.absenceRepository = absenceRepository;
-        this.absenceTypeRepository = absenceTypeRepository;
-        this.absenceSubTypeRepository = absenceSubTypeRepository;
         this.userRepository = userRepository;
         this.userUtils = userUtils;
         this.securityUtils = securityUtils;
@@ -189,6 +191,12 @@ public class AbsenceController {
         this.systemSettingRepository = systemSettingRepository;
         this.absenceAttachmentRepository = absenceAttachmentRepository;
         this.storageProvider = storageProvider;
+        this.absenceImportEngine = absenceImportEngine;
+        this.vacationBalances = vacationBalances;
+        this.fetchPlans = fetchPlans;
+        this.approvalCounters = approvalCounters;
+        this.referenceValidator = referenceValidator;
+        this.orgHierarchy = orgHierarchy;
     }
     // CHECKSTYLE.ON: ParameterNumber
 
@@ -198,7 +206,8 @@ public class AbsenceController {
             @RequestParam(defaultValue = DEFAULT_FIRST_ROW_STR, required = false) int firstRow,
             @RequestParam(defaultValue = DEFAULT_PAGE_SIZE_STR, required = false) int numRows,
             @RequestParam(defaultValue = FIELD_NAME, required = false) String sort,
-            @RequestParam(defaultValue = "", required = false) String filter) {
+            @RequestParam(defaultValue = "", required = false) String filter,
+            @RequestParam(defaultValue = REPORTS_DIRECT, required = false) String reports) {
 
         UserSecurityData currentUser = userUtils.getOrCreateUser();
         User user = userRepository.findById(currentUser.getId()).orElse(null);
@@ -223,9 +232,11 @@ public class AbsenceController {
                 // Admin sees all users
             } else if (userRoles.contains(MANAGER_ROLE)) {
                 // Manager sees users they manage
+                OrgHierarchy.Scope teamScope = OrgHierarchy.Scope.fromParam(reports);
                 spec = spec.and((root, query, cb) ->
                     cb.or(
-                        cb.equal(root.get(ATTR_USER).get("lineManagerId"), user.getId()),
+                        orgHierarchy.inTeam(root.get(ATTR_USER).get(ID), user.getId(),
+                                teamScope, query, cb),
                         cb.equal(root.get(ATTR_USER).get(ID), user.getId())
                     )
                 );
@@ -236,7 +247,8 @@ public class AbsenceController {
             }
         }
 
-        return new JsonViewPage<>(absenceRepository.findAll(spec, pageable));
+        return new JsonViewPage<>(fetchPlans.findAll(absenceRepository, Absence.class,
+                Views.GetAbsences.class, spec, pageable));
     }
 
     @JsonView(Views.GetAbsences.class)
@@ -259,7 +271,8 @@ public class AbsenceController {
         Specification<Absence> filterSpec = RestUtils
                 .getSpecificationFromFilter(BASIC, filter);
 
-        return new JsonViewPage<>(absenceRepository.findAll(filterSpec, pageable));
+        return new JsonViewPage<>(fetchPlans.findAll(absenceRepository, Absence.class,
+                Views.GetAbsences.class, filterSpec, pageable));
     }
 
     @JsonView(Views.GetAbsence.class)
@@ -293,26 +306,27 @@ public class AbsenceController {
             if (user == null) {
                 return I18nResponses.badRequest(MessagesCodes.USER_NOT_FOUND);
             }
-
-            if (!absenceTypeRepository.existsById(absence.getType().getId())) {
-                return I18nResponses.notFound(MessagesCodes.ABSENCE_TYPE_NOT_FOUND);
-            }
-            if (!userRepository.existsById(absence.getUser().getId())) {
-                return I18nResponses.notFound(MessagesCodes.USER_NOT_FOUND);
-            }
-
-            absence.setUser(user);
+            // The days left are checked against the balance with the latest events
+            vacationBalances.load(user);
 
             if (absence.getApprover() == null) {
                 TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
                 return I18nResponses.badRequest(MessagesCodes.MISSING_APPROVER);
             }
 
-            if (!userRepository.existsById(absence.getApprover().getId())) {
+            MissingReferences missing = referenceValidator.findMissing(new References()
+                    .add(AbsenceType.class, absence.getType().getId(),
+                            MessagesCodes.ABSENCE_TYPE_NOT_FOUND)
+                    .add(User.class, absence.getUser().getId(), MessagesCodes.USER_NOT_FOUND)
+                    .add(User.class, absence.getApprover().getId(),
+                            MessagesCodes.USER_NOT_FOUND));
+            if (!missing.isEmpty()) {
                 TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
-                return I18nResponses.notFound(MessagesCodes.USER_NOT_FOUND);
+                return missing.toResponse();
             }
 
+            absence.setUser(user);
+
             // Partner vacations are automatically approved
             if (user.getJobTitle() != null &&
                     user.getJobTitle().getName().equals(PARTNER_JOB_TITLE)) {
@@ -343,11 +357,15 @@ public class AbsenceController {
                         MessagesCodes.VALIDATION_FAILED, validationErrors);
             }
 
-            if (UPDATED_USER.equals(handleAbsenceCreate(absence))) {
-                // If the user was updated, we need to save it
-                userRepository.save(user);
+            String balanceResult = handleAbsenceCreate(absence);
+            // Flushed here so an overlap with an approved absence is answered below
+            Absence savedAbsence = absenceRepository.saveAndFlush(absence);
+            if (UPDATED_USER.equals(balanceResult)) {
+                // The days taken are recorded against the saved absence
+                vacationBalances.save(user, Reason.ABSENCE, savedAbsence.getId());
             }
-            Absence savedAbsence = absenceRepository.save(absence);
+            approvalCounters.record(ApprovalCounter.ABSENCES, Map.of(),
+                    approvalCounters.pendingAbsences(List.of(savedAbsence)));
 
             return I18nResponses.httpResponseWithData(HttpStatus.CREATED,
                     MessagesCodes.ABSENCE_CREATED_OK,
@@ -357,6 +375,10 @@ public class AbsenceController {
             return I18nResponses.badRequest(MessagesCodes.MALFORMED_REQUEST_BODY);
         } catch (DataIntegrityViolationException e) {
             TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            if (isOverlap(e)) {
+                return I18nResponses.httpResponse(HttpStatus.CONFLICT,
+                        MessagesCodes.ABSENCE_OVERLAP);
+            }
             return I18nResponses.badRequest(MessagesCodes.DATA_INTEGRITY_VIOLATION);
         }
     }
@@ -370,89 +392,18 @@ public class AbsenceController {
             return I18nResponses.forbidden(MessagesCodes.PERMISSIONS_DENIED);
         }
 
-        AbsenceType vacationType = absenceTypeRepository.findByName(VACATION).get();
-
-        CsvImporter importer = new CsvImporter();
-        CsvImporterConfiguration config = new CsvImporterConfiguration(",", true, null)
-                .withColumnDescriptors(
-                        new ColumnDescriptor(FIELD_USER_EMAIL, ColumnType.STRING, true),
-                        new ColumnDescriptor(FIELD_YEAR, ColumnType.STRING, true),
-                        new ColumnDescriptor(FIELD_NAME, ColumnType.STRING, true),
-                        new ColumnDescriptor(FIELD_START_DATE, ColumnType.STRING, true),
-                        new ColumnDescriptor(FIELD_END_DATE, ColumnType.STRING, true),
-                        new ColumnDescriptor(FIELD_BUSINESS_DAYS, ColumnType.STRING, true),
-                        new ColumnDescriptor(FIELD_STATUS, ColumnType.STRING, true));
-        importer.initialize(config);
-
-        List<Absence> buffer = new ArrayList<>();
-        Map<String, User> userCache = new HashMap<>();
-        AtomicInteger rowNumber = new AtomicInteger(0);
         try {
-            importer.importDataWithCustomCallback(file.getInputStream(), data -> {
-                try {
-                    rowNumber.incrementAndGet();
-
-                    Map<String, Object> row = (Map<String, Object>) data;
-                    String businessDays = (String) row.get(FIELD_BUSINESS_DAYS);
-                    if (businessDays == null || businessDays.isEmpty()) {
-                        log.warn("Row {}: Business days is empty or null.", rowNumber.get());
-                        return;
-                    }
-
-                    Absence absence = new Absence();
-                    absence.setName((String) row.get(FIELD_NAME));
-                    absence.setBusinessYear((String) row.get(FIELD_YEAR));
-                    absence.setStartDate(parseTimestamp((String) row.get(FIELD_START_DATE)));
-                    absence.setEndDate(parseTimestamp((String) row.get(FIELD_END_DATE)));
-                    absence.setType(vacationType);
-                    absence.setWorkDays(Double.parseDouble(businessDays));
-                    absence.setStatus(statusRepository
-                            .findByName(((String) row.get(FIELD_STATUS)).toUpperCase()));
-                    absence.setRecordType(DAILY_RECORD);
-
-                    String email = (String) row.get(FIELD_USER_EMAIL);
-                    User user;
-                    if (userCache.containsKey(email)) {
-                        user = userCache.get(email);
-                    } else {
-                        Optional<User> userOpt = userRepository.findByEmail(email);
-                        if (!userOpt.isPresent()) {
-                            // If user is not found in cache, try to find it in the database
-                            log.warn("User with email {} not found.", email);
-                            return;
-                        }
-                        user = userOpt.get();
-                    }
-
-                    absence.setUser(user);
-                    if (UPDATED_USER.equals(handleAbsenceCreate(absence))) {
-                        userCache.put(email, user);
-                    }
-                    buffer.add(absence);
-                    if (buffer.size() >= BATCH_SIZE) {
-                        absenceRepository.saveAll(buffer);
-                        for (User userRow : userCache.values()) {
-                            userRepository.save(userRow);
-                        }
-                        buffer.clear();
-                        userCache.clear();
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException(
-                            "Error processing row " + rowNumber.get() + ": " + e.getMessage(), e);
-                }
-            });
-            if (!buffer.isEmpty()) {
-                absenceRepository.saveAll(buffer);
-                for (User userRow : userCache.values()) {
-                    userRepository.save(userRow);
-                }
-
+            ImportResult result = absenceImportEngine.importAbsences(file.getInputStream(),
+                    currentUser, new ImportResult());
+            if (result.hasErrors()) {
+                Message message = new Message(MessagesCodes.IMPORT_ABSENCE_CSV_ERROR,
+                        result.getErrors());
+                return I18nResponses.httpResponseWithData(HttpStatus.BAD_REQUEST,
+                        MessagesCodes.IMPORT_ABSENCE_CSV_ERROR, message);
             }
             return I18nResponses.httpResponseWithData(HttpStatus.CREATED,
                     MessagesCodes.ABSENCE_CREATED_OK, null);
         } catch (IOException ex) {
-            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             log.error("Error reading file: {}", ex.getMessage());
             return I18nResponses.badRequest(MessagesCodes.IMPORT_ABSENCE_CSV_ERROR);
         }
@@ -491,7 +442,7 @@ public class AbsenceController {
                     absUser.setPrevYearVacationDays(absUser.getPrevYearVacationDays() +
                             absence.getWorkDays());
                 }
-                userRepository.save(absUser);
+                vacationBalances.save(absUser, Reason.ABSENCE, id);
             }
 
             List<AbsenceAttachment> attachments =
@@ -499,6 +450,8 @@ public class AbsenceController {
 
             absenceAttachmentRepository.deleteAll(attachments);
             absenceRepository.deleteById(id);
+            approvalCounters.record(ApprovalCounter.ABSENCES,
+                    approvalCounters.pendingAbsences(List.of(absence)), Map.of());
 
             for (AbsenceAttachment attachment : attachments) {
                 try {
@@ -534,12 +487,18 @@ public class AbsenceController {
                 return I18nResponses.notFound(MessagesCodes.ABSENCE_NOT_FOUND);
             }
 
-            if (!absenceTypeRepository.existsById(newAbsence.getType().getId())) {
-                return I18nResponses.badRequest(MessagesCodes.ABSENCE_TYPE_NOT_FOUND);
+            References references = new References()
+                    .add(AbsenceType.class, newAbsence.getType().getId(),
+                            HttpStatus.BAD_REQUEST, MessagesCodes.ABSENCE_TYPE_NOT_FOUND)
+                    .add(User.class, newAbsence.getUser().getId(),
+                            MessagesCodes.USER_NOT_FOUND);
+            if (newAbsence.getSubType() != null) {
+                references.add(AbsenceSubType.class, newAbsence.getSubType().getId(),
+                        HttpStatus.BAD_REQUEST, MessagesCodes.ABSENCE_SUB_TYPE_NOT_FOUND);
             }
-
-            if (!userRepository.existsById(newAbsence.getUser().getId())) {
-                return I18nResponses.notFound(MessagesCodes.USER_NOT_FOUND);
+            MissingReferences missing = referenceValidator.findMissing(references);
+            if (!missing.isEmpty()) {
+                return missing.toResponse();
             }
 
             Optional<User> absUser = userRepository.findById(newAbsence.getUser().getId());
@@ -548,7 +507,9 @@ public class AbsenceController {
             }
 
             User absenceUser = absUser.get();
+            vacationBalances.load(absenceUser);
             Absence absence = result.get();
+            Map<Long, Long> pendingBefore = approvalCounters.pendingAbsences(List.of(absence));
 
             boolean wasOriginallyVacation = isVacation(absence);
             String originalBusinessYear = absence.getBusinessYear();
@@ -581,8 +542,8 @@ public class AbsenceController {
             if (isVacation(newAbsence)) {
                 absence.setSubType(null);
             } else {
-                if (newAbsence.getSubType() == null ||
-                        !absenceSubTypeRepository.existsById(newAbsence.getSubType().getId())) {
+                // An existing sub type was checked with the other references
+                if (newAbsence.getSubType() == null) {
                     return I18nResponses.badRequest(MessagesCodes.ABSENCE_SUB_TYPE_NOT_FOUND);
                 }
                 absence.setSubType(newAbsence.getSubType());
@@ -652,11 +613,14 @@ public class AbsenceController {
                         MessagesCodes.VALIDATION_FAILED, validationErrors);
             }
 
-            Absence updatedAbsence = absenceRepository.save(absence);
+            Absence updatedAbsence = absenceRepository.saveAndFlush(absence);
+            approvalCounters.record(ApprovalCounter.ABSENCES, pendingBefore,
+                    approvalCounters.pendingAbsences(List.of(updatedAbsence)));
 
-            // Save the user if there was a change in type OR if handleAbsenceEdit changed
+            // Record the balance changes if there was a change in type OR if
+            // handleAbsenceEdit changed them
             if (needsToSaveUser || UPDATED_USER.equals(updateResult)) {
-                userRepository.save(absenceUser);
+                vacationBalances.save(absenceUser, Reason.ABSENCE, updatedAbsence.getId());
             }
 
             return I18nResponses.httpResponseWithData(HttpStatus.ACCEPTED,
@@ -668,6 +632,10 @@ public class AbsenceController {
             return I18nResponses.badRequest(MessagesCodes.MALFORMED_REQUEST_BODY);
         } catch (DataIntegrityViolationException e) {
             TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            if (isOverlap(e)) {
+                return I18nResponses.httpResponse(HttpStatus.CONFLICT,
+                        MessagesCodes.ABSENCE_OVERLAP);
+            }
             log.error("Data integrity violation: {}", e.getMessage());
             return I18nResponses.badRequest(MessagesCodes.DATA_INTEGRITY_VIOLATION);
         }
@@ -856,7 +824,8 @@ public class AbsenceController {
             @RequestParam(required = false) List<Long> statusFilter,
             @RequestParam(required = false) List<Long> typeFilter,
             @RequestParam(required = false) List<String> businessYearFilter,
-            @RequestParam(defaultValue = SCOPE_TEAM, required = false) String scope) {
+            @RequestParam(defaultValue = SCOPE_TEAM, required = false) String scope,
+            @RequestParam(defaultValue = REPORTS_DIRECT, required = false) String reports) {
 
         UserSecurityData currentUser = userUtils.getOrCreateUser();
         User user = userRepository.findById(currentUser.getId()).orElse(null);
@@ -884,15 +853,14 @@ public class AbsenceController {
         List<Absence> absencesList = absenceRepository.getOptimizedAbsencesByDateWithFilters(
                 start, end, userFilter, statusFilter, typeFilter, businessYearFilter);
 
-        List<Long> managerTeam = new ArrayList<>();
+        Set<Long> managerTeam = Set.of();
         List<String> userRoles = user.getUserRoles().stream()
                 .map(UserRole::getName)
                 .collect(Collectors.toList());
 
         if (!userRoles.contains(ADMIN_ROLE)) {
-            managerTeam = userRepository.findManagerTeam(user.getId());
-            // Add manager id so he can also see his absences
-            managerTeam.add(user.getId());
+            managerTeam = orgHierarchy.getTeam(user.getId(),
+                    OrgHierarchy.Scope.fromParam(reports));
         }
 
         Map<LocalDate, CalendarMatrixData> absencesByDate = new HashMap<>();
@@ -922,7 +890,7 @@ public class AbsenceController {
             // Security: Check permissions
             boolean isAbsenceForTeamOrSelf = isManager &&
                             (absenceType.equals(ABSENCE) &&
-                            (exactEquals(abs.getUser().getLineManagerId(), user.getId()) ||
+                            (managerTeam.contains(absenceUserId) ||
                             absenceUserId.equals(user.getId())));
 
             if (absenceType.equals(ABSENCE) &&
@@ -931,8 +899,8 @@ public class AbsenceController {
                 continue;
             }
 
-            // Scope: Check team visibility
-            if (!managerTeam.contains(absenceUserId) &&
+            // Scope: Check team visibility, the manager also sees their own absences
+            if (!managerTeam.contains(absenceUserId) && !absenceUserId.equals(user.getId()) &&
                     !isAdmin && scope.equals(SCOPE_TEAM)) {
                 continue;
             }
@@ -989,7 +957,8 @@ public class AbsenceController {
             @RequestParam(required = false) List<Long> statusFilter,
             @RequestParam(required = false) List<Long> typeFilter,
             @RequestParam(required = false) List<String> businessYearFilter,
-            @RequestParam(defaultValue = SCOPE_TEAM, required = false) String scope) {
+            @RequestParam(defaultValue = SCOPE_TEAM, required = false) String scope,
+            @RequestParam(defaultValue = REPORTS_DIRECT, required = false) String reports) {
 
         ZoneId dbZone = ZoneId.of(TIME_ZONE);
         LocalDate localDate = date.toInstant().atZone(dbZone).toLocalDate();
@@ -1008,6 +977,9 @@ public class AbsenceController {
         List<String> userRoles = user.getUserRoles().stream()
                 .map(UserRole::getName)
                 .collect(Collectors.toList());
+        Set<Long> managerTeam = userRoles.contains(MANAGER_ROLE)
+                ? orgHierarchy.getTeam(user.getId(), OrgHierarchy.Scope.fromParam(reports))
+                : Set.of();
 
         // TODO: Improve method performance in case there are a large number of records
         absencesList = absencesList.stream()
@@ -1020,8 +992,7 @@ public class AbsenceController {
                         return true;
                     } else if (userRoles.contains(MANAGER_ROLE)) {
                         // Only absences of users this manager manages
-                        return a.getUser().getLineManagerId() != null &&
-                                a.getUser().getLineManagerId().equals(user.getId())
+                        return managerTeam.contains(absenceUserId)
                                 || absenceUserId.equals(user.getId());
                     } else {
                         // Only their own absences
@@ -1055,7 +1026,7 @@ public class AbsenceController {
                 .filter(a -> {
                     Long absenceUserId = a.getUser().getId();
                     boolean isAbsenceForTeamOrSelf = a.getType().getName().equals(ABSENCE) &&
-                                (exactEquals(a.getUser().getLineManagerId(), user.getId()) ||
+                                (managerTeam.contains(absenceUserId) ||
                                 absenceUserId.equals(user.getId()));
                     return a.getType().getName().equals(VACATION) ||
                             userRoles.contains(ADMIN_ROLE) ||
@@ -1079,28 +1050,37 @@ public class AbsenceController {
             return I18nResponses.forbidden(MessagesCodes.PERMISSIONS_DENIED);
         }
 
-        for (TimeRecordPatch command : commands) {
-            Status newStatus;
-            switch (command.command) {
-                case CMD_APPROVE:
-                    newStatus = statusRepository.findByName(STATUS_APPROVED);
-                    updateAbsences(command.data.ids, newStatus, null, currentUser.getId(),
-                            CMD_APPROVE);
-                    break;
-                case CMD_DENY:
-                    newStatus = statusRepository.findByName(STATUS_DENIED);
-                    updateAbsences(command.data.ids, newStatus, command.data.reason,
-                            currentUser.getId(), CMD_DENY);
-                    break;
-                case CMD_PENDING:
-                    newStatus = statusRepository.findByName(STATUS_PENDING);
-                    updateAbsences(command.data.ids, newStatus, command.data.reason,
-                            currentUser.getId(), CMD_PENDING);
-                    break;
-                default:
-                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
-                    return I18nResponses.badRequest(MessagesCodes.INVALID_COMMAND);
+        try {
+            for (TimeRecordPatch command : commands) {
+                Status newStatus;
+                switch (command.command) {
+                    case CMD_APPROVE:
+                        newStatus = statusRepository.findByName(STATUS_APPROVED);
+                        updateAbsences(command.data.ids, newStatus, null, currentUser.getId(),
+                                CMD_APPROVE);
+                        break;
+                    case CMD_DENY:
+                        newStatus = statusRepository.findByName(STATUS_DENIED);
+                        updateAbsences(command.data.ids, newStatus, command.data.reason,
+                                currentUser.getId(), CMD_DENY);
+                        break;
+                    case CMD_PENDING:
+                        newStatus = statusRepository.findByName(STATUS_PENDING);
+                        updateAbsences(command.data.ids, newStatus, command.data.reason,
+                                currentUser.getId(), CMD_PENDING);
+                        break;
+                    default:
+                        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                        return I18nResponses.badRequest(MessagesCodes.INVALID_COMMAND);
+                }
             }
+        } catch (DataIntegrityViolationException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            if (isOverlap(e)) {
+                return I18nResponses.httpResponse(HttpStatus.CONFLICT,
+                        MessagesCodes.ABSENCE_OVERLAP);
+            }
+            return I18nResponses.badRequest(MessagesCodes.DATA_INTEGRITY_VIOLATION);
         }
 
         // TODO: Change to a better response returning the response for each command
@@ -1319,56 +1299,36 @@ public class AbsenceController {
         }
     }
 
+    /*
+     * Denied vacations give their work days back to the users, the refunds of all the
+     *  users involved are recorded in a single statement before the status update
+     */
     private void updateAbsences(List<Long> ids, Status newStatus, String observation,
             Long approverId, String cmd) {
 
-        String currentYear = systemSettingRepository
-                .findByName(SystemSettings.CURRENT_YEAR).getValue();
-        String prevYear = String.valueOf(Integer.parseInt(currentYear) - 1);
-        List<Absence> absencesList = absenceRepository.findAllAbsencesById(ids);
-        Map<Long, Map<String, Double>> userYearWorkDaysMap = new HashMap<>();
-
-        if (cmd.equals(CMD_PENDING)) {
-            absenceRepository.updateAbsencesStatus(newStatus, observation, ids, approverId);
-            return;
-        }
-
-        for (Absence abs : absencesList) {
-            if (!VACATION.equals(abs.getType().getName()) || cmd.equals(CMD_APPROVE))
-                continue;
-
-            Long userId = abs.getUser().getId();
-            String businessYear = abs.getBusinessYear();
-            Double workDays = abs.getWorkDays();
-
-            userYearWorkDaysMap
-                    .computeIfAbsent(userId, k -> new HashMap<>())
-                    .merge(businessYear, workDays, Double::sum);
+        if (cmd.equals(CMD_DENY)) {
+            String currentYear = systemSettingRepository
+                    .findByName(SystemSettings.CURRENT_YEAR).getValue();
+            vacationBalances.refundVacations(ids, currentYear);
         }
 
-        for (Map.Entry<Long, Map<String, Double>> userEntry : userYearWorkDaysMap.entrySet()) {
-            Long userId = userEntry.getKey();
-            User user = userRepository.findById(userId).orElse(null);
-            if (user == null)
-                continue;
-
-            Map<String, Double> yearMap = userEntry.getValue();
-            for (Map.Entry<String, Double> yearEntry : yearMap.entrySet()) {
-                String year = yearEntry.getKey();
-                Double totalDays = yearEntry.getValue();
+        // The bulk update leaves the loaded absences untouched, so the counts after it
+        // are derived from the new status
+        List<Absence> absences = absenceRepository.findAllById(ids);
+        Map<Long, Long> pendingBefore = approvalCounters.pendingAbsences(absences);
+        absenceRepository.updateAbsencesStatus(newStatus, observation, ids, approverId);
+        approvalCounters.record(ApprovalCounter.ABSENCES, pendingBefore,
+                cmd.equals(CMD_PENDING) ? countByApprover(absences) : Map.of());
+    }
 
-                if (year.equals(currentYear)) {
-                    user.setCurrentYearVacationDays(user.getCurrentYearVacationDays() + totalDays);
-                } else if (year.equals(prevYear)) {
-                    user.setPrevYearVacationDays(user.getPrevYearVacationDays() + totalDays);
-                }
+    private static Map<Long, Long> countByApprover(List<Absence> absences) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Absence absence : absences) {
+            if (absence.getApprover() != null) {
+                counts.merge(absence.getApprover().getId(), 1L, Long::sum);
             }
-            userRepository.save(user);
         }
-
-        // TODO - Sanity check of the given values
-        // TODO - Check for possible errors and handle optimistic locking
-        absenceRepository.updateAbsencesStatus(newStatus, observation, ids, approverId);
+        return counts;
     }
 
     private static <T> boolean filterMatches(List<T> filter, T item) {
@@ -1405,28 +1365,21 @@ public class AbsenceController {
                 absenceUser.setPrevYearVacationDays(absenceUser.getPrevYearVacationDays() +
                         newAbsence.getWorkDays());
             }
-            userRepository.save(absenceUser);
+            vacationBalances.save(absenceUser, Reason.REFUND, absence.getId());
         }
     }
 
-    private boolean isVacation(Absence absence) {
-        return VACATION.equals(absence.getType().getName());
+    // Approved full day absences of the same user on the same days, see the 040 changelog
+    private static boolean isOverlap(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.contains(NO_OVERLAP_CONSTRAINT);
     }
 
-    private Timestamp parseTimestamp(String date) {
-        try {
-            return Timestamp.valueOf(date);
-        } catch (IllegalArgumentException e) {
-            log.error("Invalid date format: {}", date);
-            return null;
-        }
+    private boolean isVacation(Absence absence) {
+        return VACATION.equals(absence.getType().getName());
     }
 
     private boolean canAdministerTimeoff(UserSecurityData user) {
         return securityUtils.hasSystemPermission(user, MANAGE_TIMEOFF);
     }
-
-    private boolean exactEquals(Object obj1, Object obj2) {
-        return obj1 != null && obj2.equals(obj1);
-    }
 }
@@ -0,0 +1,43 @@
+package com.datacentric.timesense.controller;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.datacentric.timesense.controller.payloads.ApprovalSummary;
+import com.datacentric.timesense.model.ApprovalCounter;
+import com.datacentric.timesense.utils.ApprovalCounters;
+import com.datacentric.timesense.utils.rest.UserUtils;
+import com.datacentric.timesense.utils.security.UserSecurityData;
+
+@RestController
+@RequestMapping("/api/approvals")
+public class ApprovalController {
+
+    private ApprovalCounters approvalCounters;
+    private UserUtils userUtils;
+
+    @Autowired
+    public ApprovalController(ApprovalCounters approvalCounters, UserUtils userUtils) {
+        this.approvalCounters = approvalCounters;
+        this.userUtils = userUtils;
+    }
+
+    /**
+     * Number of time records and absences waiting for the approval of the current user,
+     * read from the approval counters instead of counting the records.
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<?> getApprovalSummary() {
+        UserSecurityData currentUser = userUtils.getOrCreateUser();
+        Map<String, Long> counts = approvalCounters.getPendingCounts(currentUser.getId());
+
+        return ResponseEntity.ok(new ApprovalSummary(
+                counts.getOrDefault(ApprovalCounter.TIME_RECORDS, 0L),
+                counts.getOrDefault(ApprovalCounter.ABSENCES, 0L)));
+    }
+}
@@ -0,0 +1,108 @@
+package com.datacentric.timesense.controller;
+
+import static com.datacentric.timesense.model.SystemAccessTypes.CREATE_PROJECTS;
+import static com.datacentric.timesense.model.SystemAccessTypes.MANAGE_TIMEOFF;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.datacentric.timesense.utils.Archives;
+import com.datacentric.timesense.utils.SecurityUtils;
+import com.datacentric.timesense.utils.i18n.MessagesCodes;
+import com.datacentric.timesense.utils.rest.UserUtils;
+import com.datacentric.timesense.utils.security.UserSecurityData;
+import com.datacentric.utils.rest.I18nResponses;
+
+/**
+ * Audit lookups of the archived rows and their restore, see Archives.
+ */
+@RestController
+@RequestMapping("/api/archive")
+public class ArchiveController {
+
+    private Logger log = LoggerFactory.getLogger(ArchiveController.class);
+
+    // Archive in the URL, its table and the permission required to read and restore it
+    private static final Map<String, String> ARCHIVE_TABLES = Map.of(
+            "time-records", Archives.TIME_RECORDS,
+            "absences", Archives.ABSENCES,
+            "project-assignments", Archives.PROJECT_ASSIGNMENTS);
+    private static final Map<String, String> REQUIRED_PERMISSIONS = Map.of(
+            Archives.TIME_RECORDS, CREATE_PROJECTS,
+            Archives.ABSENCES, MANAGE_TIMEOFF,
+            Archives.PROJECT_ASSIGNMENTS, CREATE_PROJECTS);
+
+    private static final int DEFAULT_FIRST_ROW = 0;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final String DEFAULT_FIRST_ROW_STR = "0";
+    private static final String DEFAULT_PAGE_SIZE_STR = "100";
+
+    private Archives archives;
+    private SecurityUtils securityUtils;
+    private UserUtils userUtils;
+
+    @Autowired
+    public ArchiveController(Archives archives, SecurityUtils securityUtils,
+            UserUtils userUtils) {
+        this.archives = archives;
+        this.securityUtils = securityUtils;
+        this.userUtils = userUtils;
+    }
+
+    @GetMapping("/{type}")
+    public ResponseEntity<?> getArchivedRows(@PathVariable String type,
+            @RequestParam(defaultValue = DEFAULT_FIRST_ROW_STR, required = false) int firstRow,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE_STR, required = false) int numRows,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Long projectId) {
+        String table = ARCHIVE_TABLES.get(type);
+        if (table == null) {
+            return I18nResponses.badRequest(MessagesCodes.ARCHIVE_INVALID_TYPE);
+        }
+        UserSecurityData currentUser = userUtils.getOrCreateUser();
+        if (!securityUtils.hasSystemPermission(currentUser, REQUIRED_PERMISSIONS.get(table))) {
+            return I18nResponses.forbidden(MessagesCodes.PERMISSIONS_DENIED);
+        }
+
+        int pageSize = Math.max(Math.min(numRows, DEFAULT_PAGE_SIZE), 1);
+        int offset = Math.max(firstRow, DEFAULT_FIRST_ROW) * pageSize;
+        return ResponseEntity.ok(archives.find(table, userId, projectId, offset, pageSize));
+    }
+
+    @PostMapping("/{type}/{id}/restore")
+    public ResponseEntity<?> restoreArchivedRow(@PathVariable String type,
+            @PathVariable Long id) {
+        String table = ARCHIVE_TABLES.get(type);
+        if (table == null) {
+            return I18nResponses.badRequest(MessagesCodes.ARCHIVE_INVALID_TYPE);
+        }
+        UserSecurityData currentUser = userUtils.getOrCreateUser();
+        if (!securityUtils.hasSystemPermission(currentUser, REQUIRED_PERMISSIONS.get(table))) {
+            return I18nResponses.forbidden(MessagesCodes.PERMISSIONS_DENIED);
+        }
+
+        try {
+            if (!archives.restore(table, id)) {
+                return I18nResponses.notFound(MessagesCodes.ARCHIVE_NOT_FOUND);
+            }
+            log.info("Restored row {} of {}", id, table);
+            return I18nResponses.accepted(MessagesCodes.ARCHIVE_RESTORED_OK);
+        } catch (DataIntegrityViolationException e) {
+            // Another row took its place in a unique constraint meanwhile
+            return I18nResponses.httpResponse(HttpStatus.CONFLICT,
+                    MessagesCodes.ARCHIVE_RESTORE_CONFLICT);
+        }
+    }
+}
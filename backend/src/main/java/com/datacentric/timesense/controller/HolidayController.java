@@ -1,13 +1,9 @@
 package com.datacentric.timesense.controller;
 
-import java.io.InputStream;
-import java.sql.Date;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,16 +30,15 @@ import org.springframework.web.multipart.MultipartFile;
 import com.datacentric.exceptions.DataCentricException;
 import com.datacentric.timesense.model.Holiday;
 import com.datacentric.timesense.repository.HolidayRepository;
+import com.datacentric.timesense.utils.ProjectBudgets;
 import com.datacentric.timesense.utils.SecurityUtils;
 import com.datacentric.timesense.utils.TimeoffManagementUtils;
 import com.datacentric.timesense.utils.hibernate.Message;
 import com.datacentric.timesense.utils.i18n.MessagesCodes;
+import com.datacentric.timesense.utils.imports.HolidayImportEngine;
+import com.datacentric.timesense.utils.imports.ImportResult;
 import com.datacentric.timesense.utils.rest.UserUtils;
 import com.datacentric.timesense.utils.security.UserSecurityData;
-import com.datacentric.utils.imports.CsvImporter;
-import com.datacentric.utils.imports.CsvImporter.CsvImporterConfiguration;
-import com.datacentric.utils.imports.ColumnDescriptor;
-import com.datacentric.utils.imports.ColumnType;
 import com.datacentric.utils.rest.I18nResponses;
 import com.datacentric.utils.rest.JsonViewPage;
 import com.datacentric.utils.rest.RestUtils;
@@ -60,7 +55,6 @@ public class HolidayController {
     private static final String DEFAULT_PAGE_SIZE_STR = "10";
     private static final String REQUIRED_PERMISSION = "MANAGE_TIMEOFF";
     private static final String HOLIDAY_DATE = "holidayDate";
-    private static final String NAME = "name";
 
     private static final Logger log = LoggerFactory.getLogger(HolidayController.class);
 
@@ -75,14 +69,19 @@ public class HolidayController {
     private SecurityUtils securityUtils;
     private UserUtils userUtils;
     private HolidayRepository holidayRepository;
+    private HolidayImportEngine holidayImportEngine;
+    private ProjectBudgets projectBudgets;
 
     @Autowired
     public HolidayController(HolidayRepository holidayRepository,
-            SecurityUtils securityUtils, UserUtils userUtils, TimeoffManagementUtils timeoffUtils) {
+            SecurityUtils securityUtils, UserUtils userUtils, TimeoffManagementUtils timeoffUtils,
+            HolidayImportEngine holidayImportEngine, ProjectBudgets projectBudgets) {
         this.holidayRepository = holidayRepository;
         this.securityUtils = securityUtils;
         this.userUtils = userUtils;
         this.timeoffUtils = timeoffUtils;
+        this.holidayImportEngine = holidayImportEngine;
+        this.projectBudgets = projectBudgets;
     }
 
     @GetMapping
@@ -159,55 +158,24 @@ public class HolidayController {
             }
 
             log.info("Importing holidays from csv file: {} ", file.getOriginalFilename());
-            InputStream inputStream = file.getInputStream();
-
-            final List<Holiday> holidaysList = new ArrayList<>();
-            CsvImporter csvImporter = new CsvImporter();
-            csvImporter.initialize(new CsvImporterConfiguration(",", true, data -> {
-                Map<String, Object> row = (Map<String, Object>) data;
-                Date holidayDate = (Date) row.get(HOLIDAY_DATE);
-                String name = (String) row.get(NAME);
-                if (holidayDate != null && name != null) {
-                    Holiday day = new Holiday();
-                    day.setHolidayDate(holidayDate.toLocalDate());
-                    day.setName(name);
-                    holidaysList.add(day);
-                } else {
-                    throw new RuntimeException("Invalid data in CSV file: " + row);
-                }
-            }).withColumnDescriptors(
-                    new ColumnDescriptor(HOLIDAY_DATE, ColumnType.DATE, false),
-                    new ColumnDescriptor(NAME, ColumnType.STRING, false)));
-
-            csvImporter.importData(inputStream);
-
-            // Extract the dates
-            List<LocalDate> datesToCheck = holidaysList.stream()
-                    .map(Holiday::getHolidayDate)
-                    .collect(Collectors.toList());
-
-            List<LocalDate> duplicateHolidaysList = holidayRepository
-                    .findAllExistingDates(datesToCheck);
-
-            // Filter out the existing dates
-            List<Holiday> holidaysToSave = holidaysList.stream()
-                    .filter(holiday -> !duplicateHolidaysList.contains(holiday.getHolidayDate()))
-                    .collect(Collectors.toList());
-
-            if (holidaysToSave.isEmpty()) {
+            ImportResult result = holidayImportEngine.importHolidays(file.getInputStream(),
+                    new ImportResult());
+
+            if (result.hasErrors()) {
+                Message message = new Message(MessagesCodes.IMPORT_HOLIDAY_CSV_ERROR,
+                        result.getErrors());
+                return I18nResponses.httpResponseWithData(HttpStatus.BAD_REQUEST,
+                        MessagesCodes.IMPORT_HOLIDAY_CSV_ERROR, message);
+            }
+
+            if (result.getRowsImported() == 0) {
                 Message isEmptyMessage = new Message(MessagesCodes.IMPORT_HOLIDAY_CSV_ERROR,
                         List.of("The file does not include new holidays!"));
                 return I18nResponses.httpResponseWithData(HttpStatus.BAD_REQUEST,
                         MessagesCodes.IMPORT_HOLIDAY_CSV_ERROR, isEmptyMessage);
             }
 
-            List<LocalDate> newHolidaysDates = holidaysToSave.stream()
-                    .map(Holiday::getHolidayDate)
-                    .collect(Collectors.toList());
-
-            timeoffUtils.recalculateUsersAbsences(newHolidaysDates, null);
-
-            holidayRepository.saveAll(holidaysToSave);
+            projectBudgets.invalidateAll();
             Message successMessage = new Message(MessagesCodes.HOLIDAY_CREATED_OK,
                     List.of("Imported holidays configuration successfully!"));
             return I18nResponses.httpResponseWithData(HttpStatus.CREATED,
@@ -241,6 +209,7 @@ public class HolidayController {
 
             Holiday newHoliday = holidayRepository.save(holiday);
             timeoffUtils.recalculateUsersAbsences(List.of(newHoliday.getHolidayDate()), null);
+            projectBudgets.invalidateDays(List.of(newHoliday.getHolidayDate()));
             return I18nResponses.httpResponseWithData(HttpStatus.CREATED,
                     MessagesCodes.HOLIDAY_CREATED_OK,
                     newHoliday);
@@ -274,6 +243,7 @@ public class HolidayController {
 
             holidayRepository.deleteHolidayById(id);
             timeoffUtils.recalculateUsersAbsences(null, List.of(result.get().getHolidayDate()));
+            projectBudgets.invalidateDays(List.of(result.get().getHolidayDate()));
             return I18nResponses.accepted(MessagesCodes.HOLIDAY_DELETED_OK);
 
         } catch (AuthenticationException e) {
@@ -312,6 +282,7 @@ public class HolidayController {
 
             Holiday updatedHoliday = holidayRepository.save(holiday);
             timeoffUtils.recalculateUsersAbsences(List.of(holiday.getHolidayDate()), removedDate);
+            projectBudgets.invalidateDays(List.of(holiday.getHolidayDate(), removedDate.get(0)));
             return I18nResponses.httpResponseWithData(HttpStatus.ACCEPTED,
                     MessagesCodes.HOLIDAY_UPDATED_OK,
                     updatedHoliday);
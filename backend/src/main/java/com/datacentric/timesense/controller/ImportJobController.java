@@ -0,0 +1,149 @@
+package com.datacentric.timesense.controller;
+
+import static com.datacentric.timesense.model.SystemAccessTypes.CREATE_PROJECTS;
+import static com.datacentric.timesense.model.SystemAccessTypes.MANAGE_TIMEOFF;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.datacentric.timesense.model.AuditableTable;
+import com.datacentric.timesense.model.ImportJob;
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.utils.SecurityUtils;
+import com.datacentric.timesense.utils.hibernate.Message;
+import com.datacentric.timesense.utils.i18n.MessagesCodes;
+import com.datacentric.timesense.utils.imports.ImportJobService;
+import com.datacentric.timesense.utils.rest.UserUtils;
+import com.datacentric.timesense.utils.security.UserSecurityData;
+import com.datacentric.utils.rest.I18nResponses;
+import com.fasterxml.jackson.annotation.JsonView;
+
+/**
+ * Background CSV imports. The file is queued and the client polls the job for its
+ * progress, throughput and row errors.
+ */
+@RestController
+@RequestMapping("/api/import-jobs")
+public class ImportJobController {
+
+    private Logger log = LoggerFactory.getLogger(ImportJobController.class);
+
+    private interface Views {
+
+        interface GetImportJob extends ImportJob.Views.Public, AuditableTable.Views.List,
+                User.Views.Basic {
+        }
+    }
+
+    // Import type in the URL and the permission required to run it
+    private static final Map<String, String> IMPORT_TYPES = Map.of(
+            "projects", ImportJob.TYPE_PROJECTS,
+            "absences", ImportJob.TYPE_ABSENCES,
+            "holidays", ImportJob.TYPE_HOLIDAYS);
+    private static final Map<String, String> REQUIRED_PERMISSIONS = Map.of(
+            ImportJob.TYPE_PROJECTS, CREATE_PROJECTS,
+            ImportJob.TYPE_ABSENCES, MANAGE_TIMEOFF,
+            ImportJob.TYPE_HOLIDAYS, MANAGE_TIMEOFF);
+
+    private ImportJobService importJobService;
+    private SecurityUtils securityUtils;
+    private UserUtils userUtils;
+
+    @Autowired
+    public ImportJobController(ImportJobService importJobService, SecurityUtils securityUtils,
+            UserUtils userUtils) {
+        this.importJobService = importJobService;
+        this.securityUtils = securityUtils;
+        this.userUtils = userUtils;
+    }
+
+    @JsonView(Views.GetImportJob.class)
+    @PostMapping("/{type}")
+    public ResponseEntity<?> createImportJob(@PathVariable String type,
+            @RequestParam(value = "file") MultipartFile file) {
+        String importType = IMPORT_TYPES.get(type);
+        if (importType == null) {
+            return I18nResponses.badRequest(MessagesCodes.IMPORT_JOB_INVALID_TYPE);
+        }
+        if (file == null || file.isEmpty()) {
+            Message message = new Message(MessagesCodes.VALIDATION_FAILED,
+                    List.of("The file passed is null or empty!"));
+            return I18nResponses.httpResponseWithData(HttpStatus.BAD_REQUEST,
+                    MessagesCodes.VALIDATION_FAILED, message);
+        }
+
+        UserSecurityData currentUser = userUtils.getOrCreateUser();
+        if (!securityUtils.hasSystemPermission(currentUser,
+                REQUIRED_PERMISSIONS.get(importType))) {
+            return I18nResponses.forbidden(MessagesCodes.PERMISSIONS_DENIED);
+        }
+
+        try {
+            ImportJob job = importJobService.submit(importType, file, currentUser);
+            log.info("Queued import job {} for file {}", job.getId(),
+                    file.getOriginalFilename());
+            return I18nResponses.httpResponseWithData(HttpStatus.ACCEPTED,
+                    MessagesCodes.IMPORT_JOB_CREATED_OK, job);
+        } catch (RejectedExecutionException e) {
+            return I18nResponses.httpResponse(HttpStatus.SERVICE_UNAVAILABLE,
+                    MessagesCodes.IMPORT_JOB_QUEUE_FULL);
+        } catch (Exception e) {
+            log.error("Error spooling import file: {}", e.getMessage());
+            return I18nResponses.httpResponse(HttpStatus.INTERNAL_SERVER_ERROR,
+                    MessagesCodes.FILE_UPLOAD_FAILED);
+        }
+    }
+
+    @JsonView(Views.GetImportJob.class)
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getImportJob(@PathVariable Long id) {
+        Optional<ImportJob> job = findVisibleJob(id);
+        if (job.isEmpty()) {
+            return I18nResponses.notFound(MessagesCodes.IMPORT_JOB_NOT_FOUND);
+        }
+        return ResponseEntity.ok(job.get());
+    }
+
+    @GetMapping("/{id}/errors")
+    public ResponseEntity<?> getImportJobErrors(@PathVariable Long id) {
+        Optional<ImportJob> job = findVisibleJob(id);
+        if (job.isEmpty()) {
+            return I18nResponses.notFound(MessagesCodes.IMPORT_JOB_NOT_FOUND);
+        }
+        return ResponseEntity.ok(job.get().getErrors());
+    }
+
+    /*
+     * Jobs are visible to whoever started them and to the users allowed to run the same
+     * kind of import, anyone else gets a not found.
+     */
+    private Optional<ImportJob> findVisibleJob(Long id) {
+        UserSecurityData currentUser = userUtils.getOrCreateUser();
+        Optional<ImportJob> job = importJobService.getJob(id);
+        if (job.isEmpty()) {
+            return job;
+        }
+        boolean isOwner = job.get().getCreatedBy() != null
+                && job.get().getCreatedBy().getId() == currentUser.getId();
+        if (isOwner || securityUtils.hasSystemPermission(currentUser,
+                REQUIRED_PERMISSIONS.get(job.get().getImportType()))) {
+            return job;
+        }
+        return Optional.empty();
+    }
+}
@@ -1,5 +1,7 @@
 package com.datacentric.timesense.controller;
 
+import java.time.LocalDate;
+import java.util.Objects;
 import java.util.Optional;
 
 import org.slf4j.Logger;
@@ -10,6 +12,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -27,7 +30,10 @@ import org.springframework.web.bind.annotation.RestController;
 import com.datacentric.timesense.model.JobTitle;
 import com.datacentric.timesense.repository.JobTitleRepository;
 import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.CompanyZone;
+import com.datacentric.timesense.utils.ProjectBudgets;
 import com.datacentric.timesense.utils.SecurityUtils;
+import com.datacentric.timesense.utils.TimeRecordCosts;
 import com.datacentric.timesense.utils.i18n.MessagesCodes;
 import com.datacentric.timesense.utils.rest.UserUtils;
 import com.datacentric.timesense.utils.security.UserSecurityData;
@@ -57,15 +63,20 @@ public class JobTitleController {
     private UserRepository userRepository;
     private SecurityUtils securityUtils;
     private UserUtils userUtils;
+    private TimeRecordCosts timeRecordCosts;
+    private ProjectBudgets projectBudgets;
 
     @Autowired
     public JobTitleController(JobTitleRepository jobTitleRepository,
             SecurityUtils securityUtils, UserUtils userUtils,
-            UserRepository userRepository) {
+            UserRepository userRepository, TimeRecordCosts timeRecordCosts,
+            ProjectBudgets projectBudgets) {
         this.jobTitleRepository = jobTitleRepository;
         this.securityUtils = securityUtils;
         this.userUtils = userUtils;
         this.userRepository = userRepository;
+        this.timeRecordCosts = timeRecordCosts;
+        this.projectBudgets = projectBudgets;
     }
 
     private static final int DEFAULT_FIRST_ROW = 0;
@@ -144,6 +155,10 @@ public class JobTitleController {
                 return I18nResponses.badRequest(MessagesCodes.UNIQUE_NAME_VIOLATION);
             }
             JobTitle newJobTitle = jobTitleRepository.save(jobTitle);
+            if (newJobTitle.getRate() != null) {
+                timeRecordCosts.changeRate(newJobTitle.getId(), newJobTitle.getRate(),
+                        TimeRecordCosts.RATE_HISTORY_START);
+            }
             return I18nResponses.httpResponseWithData(HttpStatus.CREATED,
                     MessagesCodes.JOB_TITLE_CREATED_OK,
                     newJobTitle);
@@ -199,7 +214,9 @@ public class JobTitleController {
     @JsonView(Views.GetJobTitles.class)
     @PutMapping("/{id}")
     public ResponseEntity<?> updateJobTitle(@PathVariable Long id,
-            @RequestBody JobTitle newJobTitle) {
+            @RequestBody JobTitle newJobTitle,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate rateEffectiveFrom) {
         try {
             Optional<JobTitle> result = jobTitleRepository.findById(id);
 
@@ -221,12 +238,23 @@ public class JobTitleController {
                 }
             }
 
+            // The costs of the time records follow the rate from the given day on, today by
+            // default, the records before keep the rates they had
+            boolean rateChanged = !Objects.equals(jobTitle.getRate(), newJobTitle.getRate())
+                    || rateEffectiveFrom != null;
+
             jobTitle.setName(newJobTitle.getName());
             jobTitle.setRate(newJobTitle.getRate());
             jobTitle.setStartDate(newJobTitle.getStartDate());
             jobTitle.setEndDate(newJobTitle.getEndDate());
 
             JobTitle updatedJobTitle = jobTitleRepository.save(jobTitle);
+            if (rateChanged) {
+                timeRecordCosts.changeRate(id, newJobTitle.getRate(),
+                        rateEffectiveFrom != null ? rateEffectiveFrom
+                                : LocalDate.now(CompanyZone.TIME_ZONE));
+                projectBudgets.invalidateJobTitle(id);
+            }
             return I18nResponses.httpResponseWithData(HttpStatus.ACCEPTED,
                     MessagesCodes.JOB_TITLE_UPDATED_OK,
                     updatedJobTitle);
@@ -1,5 +1,6 @@
 package com.datacentric.timesense.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -11,6 +12,7 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -30,9 +32,13 @@ import com.datacentric.timesense.model.ProjectAssignment;
 import static com.datacentric.timesense.model.SystemAccessTypes.CREATE_PROJECTS;
 import com.datacentric.timesense.model.User;
 import com.datacentric.timesense.repository.ProjectAssignmentRepository;
-import com.datacentric.timesense.repository.ProjectRepository;
-import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.CapacityPlanning;
+import com.datacentric.timesense.utils.ProjectBudgets;
+import com.datacentric.timesense.utils.ReferenceValidator;
+import com.datacentric.timesense.utils.ReferenceValidator.MissingReferences;
+import com.datacentric.timesense.utils.ReferenceValidator.References;
 import com.datacentric.timesense.utils.SecurityUtils;
+import com.datacentric.timesense.utils.hibernate.JsonViewFetchPlans;
 import com.datacentric.timesense.utils.i18n.MessagesCodes;
 import com.datacentric.timesense.utils.rest.UserUtils;
 import com.datacentric.timesense.utils.security.UserSecurityData;
@@ -61,10 +67,12 @@ public class ProjectAssignmentController {
     }
 
     private ProjectAssignmentRepository projectAssignmentRepository;
-    private ProjectRepository projectRepository;
-    private UserRepository userRepository;
     private UserUtils userUtils;
     private SecurityUtils securityUtils;
+    private JsonViewFetchPlans fetchPlans;
+    private ReferenceValidator referenceValidator;
+    private ProjectBudgets projectBudgets;
+    private CapacityPlanning capacityPlanning;
 
     private static final int DEFAULT_FIRST_ROW = 0;
     private static final int DEFAULT_PAGE_SIZE = 10;
@@ -74,13 +82,16 @@ public class ProjectAssignmentController {
 
     @Autowired
     public ProjectAssignmentController(ProjectAssignmentRepository projectAssignmentRepository,
-            ProjectRepository projectRepository, UserRepository userRepository,
-            UserUtils userUtils, SecurityUtils securityUtils) {
+            UserUtils userUtils, SecurityUtils securityUtils, JsonViewFetchPlans fetchPlans,
+            ReferenceValidator referenceValidator, ProjectBudgets projectBudgets,
+            CapacityPlanning capacityPlanning) {
         this.projectAssignmentRepository = projectAssignmentRepository;
-        this.projectRepository = projectRepository;
-        this.userRepository = userRepository;
         this.userUtils = userUtils;
         this.securityUtils = securityUtils;
+        this.fetchPlans = fetchPlans;
+        this.referenceValidator = referenceValidator;
+        this.projectBudgets = projectBudgets;
+        this.capacityPlanning = capacityPlanning;
     }
 
     @JsonView(Views.GetProjectAssignments.class)
@@ -95,13 +106,29 @@ public class ProjectAssignmentController {
                 Math.max(Math.min(numRows, DEFAULT_PAGE_SIZE), 1),
                 RestUtils.getSortFromString(sort));
 
-        if (!filter.isEmpty()) {
-            Specification<ProjectAssignment> filterSpec = RestUtils
-                    .getSpecificationFromFilter("basic", filter);
-            return new JsonViewPage<>(projectAssignmentRepository.findAll(filterSpec, pageable));
-        } else {
-            return new JsonViewPage<>(projectAssignmentRepository.findAll(pageable));
+        Specification<ProjectAssignment> filterSpec = filter.isEmpty() ? null
+                : RestUtils.getSpecificationFromFilter("basic", filter);
+        return new JsonViewPage<>(fetchPlans.findAll(projectAssignmentRepository,
+                ProjectAssignment.class, Views.GetProjectAssignments.class, filterSpec,
+                pageable));
+    }
+
+    /**
+     * Allocation of every user by week between the given days, see CapacityPlanning.
+     */
+    @GetMapping("/capacity")
+    public ResponseEntity<?> getCapacity(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        UserSecurityData currentUser = userUtils.getOrCreateUser();
+        if (!securityUtils.hasSystemPermission(currentUser, CREATE_PROJECTS)) {
+            return I18nResponses.forbidden(MessagesCodes.PERMISSIONS_DENIED);
+        }
+        if (endDate.isBefore(startDate)
+                || CapacityPlanning.countWeeks(startDate, endDate) > CapacityPlanning.MAX_WEEKS) {
+            return I18nResponses.badRequest(MessagesCodes.INVALID_DATE_RANGE);
         }
+        return ResponseEntity.ok(capacityPlanning.build(startDate, endDate));
     }
 
     @JsonView(Views.GetProjectAssignment.class)
@@ -139,17 +166,20 @@ public class ProjectAssignmentController {
                 return I18nResponses.httpResponseWithColumnsValidation(HttpStatus.BAD_REQUEST,
                         MessagesCodes.VALIDATION_FAILED, validationErrors);
             }
-            if (!userRepository.existsById(projectAssignment.getUser().getId())) {
-                return I18nResponses.notFound(MessagesCodes.USER_NOT_FOUND);
-            }
-            if (!projectRepository.existsById(projectAssignment.getProject().getId())) {
-                return I18nResponses.notFound(MessagesCodes.PROJECT_NOT_FOUND);
+            MissingReferences missing = referenceValidator.findMissing(new References()
+                    .add(User.class, projectAssignment.getUser().getId(),
+                            MessagesCodes.USER_NOT_FOUND)
+                    .add(Project.class, projectAssignment.getProject().getId(),
+                            MessagesCodes.PROJECT_NOT_FOUND));
+            if (!missing.isEmpty()) {
+                return missing.toResponse();
             }
 
             currentUser.markCreatedBy(projectAssignment);
             currentUser.markUpdatedBy(projectAssignment);
             ProjectAssignment savedProjectAssignment =
                 projectAssignmentRepository.save(projectAssignment);
+            projectBudgets.invalidateProject(savedProjectAssignment.getProject().getId());
             return I18nResponses.httpResponseWithData(HttpStatus.CREATED,
                     MessagesCodes.PROJECT_ASSIGNMENT_CREATED_OK,
                     savedProjectAssignment);
@@ -177,6 +207,7 @@ public class ProjectAssignmentController {
             }
 
             projectAssignmentRepository.deleteById(id);
+            projectBudgets.invalidateProject(result.get().getProject().getId());
             return I18nResponses.accepted(MessagesCodes.PROJECT_ASSIGNMENT_DELETED_OK);
         } catch (DataIntegrityViolationException e) {
             return I18nResponses.badRequest(MessagesCodes.DATA_INTEGRITY_VIOLATION);
@@ -204,6 +235,7 @@ public class ProjectAssignmentController {
             }
 
             ProjectAssignment projectAssignment = result.get();
+            Long previousProjectId = projectAssignment.getProject().getId();
             projectAssignment.setUser(newProjectAssignment.getUser());
             projectAssignment.setProject(newProjectAssignment.getProject());
             projectAssignment.setAllocation(newProjectAssignment.getAllocation());
@@ -216,15 +248,19 @@ public class ProjectAssignmentController {
                 return I18nResponses.httpResponseWithColumnsValidation(HttpStatus.BAD_REQUEST,
                         MessagesCodes.VALIDATION_FAILED, validationErrors);
             }
-            if (!projectRepository.existsById(projectAssignment.getProject().getId())) {
-                return I18nResponses.notFound(MessagesCodes.PROJECT_NOT_FOUND);
-            }
-            if (!userRepository.existsById(projectAssignment.getUser().getId())) {
-                return I18nResponses.notFound(MessagesCodes.USER_NOT_FOUND);
+            MissingReferences missing = referenceValidator.findMissing(new References()
+                    .add(Project.class, projectAssignment.getProject().getId(),
+                            MessagesCodes.PROJECT_NOT_FOUND)
+                    .add(User.class, projectAssignment.getUser().getId(),
+                            MessagesCodes.USER_NOT_FOUND));
+            if (!missing.isEmpty()) {
+                return missing.toResponse();
             }
 
             ProjectAssignment updatedProjectAssignment =
                 projectAssignmentRepository.save(projectAssignment);
+            projectBudgets.invalidateProject(previousProjectId);
+            projectBudgets.invalidateProject(updatedProjectAssignment.getProject().getId());
             return I18nResponses.httpResponseWithData(HttpStatus.ACCEPTED,
                     MessagesCodes.PROJECT_ASSIGNMENT_UPDATED_OK,
                     updatedProjectAssignment);
@@ -4,11 +4,8 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.time.DayOfWeek;
 import java.time.Instant;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -20,7 +17,9 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,25 +59,27 @@ import static com.datacentric.timesense.model.SystemAccessTypes.CREATE_PROJECTS;
 import com.datacentric.timesense.model.User;
 import com.datacentric.timesense.model.UserRole;
 import com.datacentric.timesense.repository.ClientRepository;
-import com.datacentric.timesense.repository.HolidayRepository;
 import com.datacentric.timesense.repository.ProjectAssignmentRepository;
 import com.datacentric.timesense.repository.ProjectRepository;
 import com.datacentric.timesense.repository.ProjectTaskRepository;
-import com.datacentric.timesense.repository.ProjectTypeRepository;
 import com.datacentric.timesense.repository.StatusRepository;
 import com.datacentric.timesense.repository.TimeRecordRepository;
 import com.datacentric.timesense.repository.UserRepository;
 import com.datacentric.timesense.repository.UserRoleRepository;
+import com.datacentric.timesense.utils.ApprovalCounters;
+import com.datacentric.timesense.utils.ProjectBudgets;
+import com.datacentric.timesense.utils.RecentProjects;
+import com.datacentric.timesense.utils.ReferenceValidator;
+import com.datacentric.timesense.utils.ReferenceValidator.MissingReferences;
+import com.datacentric.timesense.utils.ReferenceValidator.References;
 import com.datacentric.timesense.utils.SecurityUtils;
 import com.datacentric.timesense.utils.hibernate.Message;
 import com.datacentric.timesense.utils.i18n.MessagesCodes;
+import com.datacentric.timesense.utils.imports.ImportResult;
+import com.datacentric.timesense.utils.imports.ProjectImportPipeline;
 import com.datacentric.timesense.utils.rest.UserUtils;
 import com.datacentric.timesense.utils.security.UserSecurityData;
 import com.datacentric.utils.FileParseUtils;
-import com.datacentric.utils.imports.ColumnDescriptor;
-import com.datacentric.utils.imports.ColumnType;
-import com.datacentric.utils.imports.CsvImporter;
-import com.datacentric.utils.imports.CsvImporter.CsvImporterConfiguration;
 import com.datacentric.utils.rest.BasicFilterSpecification;
 import com.datacentric.utils.rest.I18nResponses;
 import com.datacentric.utils.rest.JsonViewPage;
@@ -115,14 +116,17 @@ public class ProjectController {
 
     private ProjectAssignmentRepository projectAssignmentRepository;
     private ProjectTaskRepository projectTaskRepository;
-    private ProjectTypeRepository projectTypeRepository;
     private TimeRecordRepository timeRecordRepository;
-    private HolidayRepository holidayRepository;
+    private ProjectBudgets projectBudgets;
+    private RecentProjects recentProjects;
     private ProjectRepository projectRepository;
     private UserRoleRepository userRoleRepository;
     private ClientRepository clientRepository;
     private StatusRepository statusRepository;
     private UserRepository userRepository;
+    private ProjectImportPipeline projectImportPipeline;
+    private ApprovalCounters approvalCounters;
+    private ReferenceValidator referenceValidator;
     private SecurityUtils securityUtils;
     private UserUtils userUtils;
 
@@ -132,7 +136,6 @@ public class ProjectController {
     private static final String DEFAULT_PAGE_SIZE_STR = "100";
     private static final int MAX_PAGE_SIZE = 1000;
     private static final String TIME_ZONE = "Europe/Lisbon";
-    private static final int BUSINESS_DAY_HOURS = 8;
     private static final String PROJ_RESOURCE_TYPE = "Project";
     private static final String ROLE_USER = "User";
     private static final String CLOSED_STATUS = "FINISHED";
@@ -145,14 +148,9 @@ public class ProjectController {
     private static final String PAGE = "page";
     private static final String PAGE_SIZE = "pageSize";
     private static final String ID = "id";
-    private static final String FIELD_PROJECT_CODE = "proj_code";
-    private static final String FIELD_PROJECT_NAME = "proj_name";
-    private static final String FIELD_PROJECT_TYPE = "proj_type";
     private static final String FIELD_PROJECT_MANAGER = "manager";
     private static final String FIELD_CLIENT = "client";
     private static final String FIELD_START_DATE = "start_date";
-    private static final String FIELD_EXPECTED_DUE_DATE = "expected_due_date";
-    private static final String FIELD_BUDGET = "budget";
     private static final String SCOPE_USER = "SCOPE-USER";
     private static final String SCOPE_COMPANY = "SCOPE-COMPANY";
     private static final String COLUMN_PROJECT = "project";
@@ -168,25 +166,29 @@ public class ProjectController {
     // CHECKSTYLE.OFF: ParameterNumber
     @Autowired
     public ProjectController(ProjectRepository projectRepository, UserRepository userRepository,
-            ProjectTypeRepository projectTypeRepository,
             UserUtils userUtils, SecurityUtils securityUtils,
             TimeRecordRepository timeRecordRepository,
             ProjectAssignmentRepository projectAssignmentRepository,
             UserRoleRepository userRoleRepository, StatusRepository statusRepository,
-            HolidayRepository holidayRepository, ClientRepository clientRepository,
-            ProjectTaskRepository projectTaskRepository) {
+            ProjectBudgets projectBudgets, ClientRepository clientRepository,
+            ProjectTaskRepository projectTaskRepository,
+            ProjectImportPipeline projectImportPipeline, ApprovalCounters approvalCounters,
+            ReferenceValidator referenceValidator, RecentProjects recentProjects) {
         this.projectRepository = projectRepository;
         this.userRepository = userRepository;
         this.userUtils = userUtils;
         this.securityUtils = securityUtils;
-        this.projectTypeRepository = projectTypeRepository;
         this.timeRecordRepository = timeRecordRepository;
         this.projectAssignmentRepository = projectAssignmentRepository;
         this.userRoleRepository = userRoleRepository;
         this.statusRepository = statusRepository;
-        this.holidayRepository = holidayRepository;
+        this.projectBudgets = projectBudgets;
         this.clientRepository = clientRepository;
         this.projectTaskRepository = projectTaskRepository;
+        this.projectImportPipeline = projectImportPipeline;
+        this.approvalCounters = approvalCounters;
+        this.referenceValidator = referenceValidator;
+        this.recentProjects = recentProjects;
     }
     // CHECKSTYLE.ON: ParameterNumber
 
@@ -285,11 +287,7 @@ public class ProjectController {
     public ResponseEntity<?> getLastUsedProjectsByUser() {
         try {
             UserSecurityData currentUser = userUtils.getOrCreateUser();
-            Timestamp twoWeeksAgoDate = Timestamp.valueOf(LocalDateTime.now().minusWeeks(2));
-
-            User user = userRepository.findById(currentUser.getId()).get();
-            List<Project> projectsList = projectRepository
-                    .findUserTimeRecordsFromDate(twoWeeksAgoDate, user.getId());
+            List<Project> projectsList = recentProjects.getLastUsed(currentUser.getId());
 
             return ResponseEntity.ok(projectsList);
 
@@ -441,6 +439,9 @@ public class ProjectController {
         } else {
             projectCostsByWeek = timeRecordRepository.getWeeklyProjectCosts(id);
         }
+        Map<Long, User> reporters = includeReporter
+                ? findUsersById(projectCostsByWeek)
+                : Map.of();
         List<Map<String, Object>> costByWeek = new ArrayList<>();
 
         for (Object[] row : projectCostsByWeek) {
@@ -450,7 +451,7 @@ public class ProjectController {
             BigDecimal cost = null;
             int column = 0;
             if (includeReporter) {
-                user = userRepository.findById((Long) row[column++]).orElse(null);
+                user = reporters.get((Long) row[column++]);
             }
             startWeek = (Instant)row[column++];
             Object hoursObj = row[column++];
@@ -496,6 +497,7 @@ public class ProjectController {
             .getMonthlyProjectCostsWithUserFiltered(id, firstRow, numRows, sort,
                     reporterFilter, startDateFilter, endDateFilter);
 
+        Map<Long, User> reporters = findUsersById(projectCostsByWeekPage.getContent());
         List<Map<String, Object>> content =
             projectCostsByWeekPage.getContent().stream().map(row -> {
                 int i = 0;
@@ -506,7 +508,7 @@ public class ProjectController {
                 Object hoursObj = row[i++];
                 Object costObj = row[i++];
 
-                map.put("user", userRepository.findById(userId).orElse(null));
+                map.put("user", reporters.get(userId));
                 map.put("month", month);
                 map.put(HOURS_STR, convertToBigDecimal(hoursObj));
                 map.put(COST_STR, convertToBigDecimal(costObj));
@@ -552,6 +554,7 @@ public class ProjectController {
             .getWeeklyProjectCostsWithUserFiltered(id, firstRow, numRows, sort,
                     reporterFilter, startDateFilter, endDateFilter);
 
+        Map<Long, User> reporters = findUsersById(projectCostsByWeekPage.getContent());
         List<Map<String, Object>> content =
             projectCostsByWeekPage.getContent().stream().map(row -> {
                 int i = 0;
@@ -562,7 +565,7 @@ public class ProjectController {
                 Object hoursObj = row[i++];
                 Object costObj = row[i++];
 
-                map.put("user", userRepository.findById(userId).orElse(null));
+                map.put("user", reporters.get(userId));
                 map.put("startWeek", startWeek);
                 map.put(HOURS_STR, convertToBigDecimal(hoursObj));
                 map.put(COST_STR, convertToBigDecimal(costObj));
@@ -598,53 +601,36 @@ public class ProjectController {
             return I18nResponses.forbidden(MessagesCodes.PERMISSIONS_DENIED);
         }
 
-        ZoneId zone = ZoneId.of(TIME_ZONE);
-        Double projectBudget = 0.0;
-        List<ProjectAssignment> projectAssignments = projectAssignmentRepository
-                .getProjectAssignments(id);
+        return ResponseEntity.ok(projectBudgets.getBudget(id).getCost());
+    }
 
-        LocalDate projStartDate = project.getStartDate().toInstant().atZone(zone).toLocalDate();
-        LocalDate projEndDate;
+    @GetMapping("/{id}/budget/monthly")
+    public ResponseEntity<?> getProjectMonthlyBudget(@PathVariable Long id) {
 
-        // TODO: Calculate the maximum end date from all assignments end dates
-        // for the project end date. Right now I just wanted to prevent an NPE
-        if (project.getExpectedDueDate() == null) {
-            projEndDate = projStartDate;
-        } else {
-            projEndDate = project.getExpectedDueDate().toInstant().atZone(zone)
-                .toLocalDate();
+        Project project = projectRepository.findById(id).orElse(null);
+        if (project == null) {
+            return I18nResponses.notFound(MessagesCodes.PROJECT_NOT_FOUND);
         }
 
-        List<LocalDate> holidaysList = holidayRepository
-                .findAllHolidaysDatesByDateInterval(projStartDate, projEndDate);
-
-        for (ProjectAssignment pa : projectAssignments) {
-
-            if (pa.getUser() == null || pa.getUser().getJobTitle() == null) {
-                log.warn("INCONSISTENCY! Skipping project assignment id {} for project id {} "
-                        + "because user or user job title is null",
-                        pa.getId(), id);
-                continue;
-            }
-            double rate = pa.getUser().getJobTitle().getRate();
-
-            if (pa.getStartDate() == null || pa.getEndDate() == null) {
-                log.warn("INCONSISTENCY! Skipping project assignment id {} for project id {} "
-                        + "because start date or end date is null",
-                        pa.getId(), id);
-                continue;
-            }
+        UserSecurityData currentUser = userUtils.getOrCreateUser();
+        if (!securityUtils.hasSystemPermission(currentUser, CREATE_PROJECTS) &&
+                !canEditProject(id, currentUser) &&
+                !Objects.equals(project.getManager().getId(), currentUser.getId())) {
 
-            Long businessDaysAllocated = countBusinessDaysBetween(
-                    pa.getStartDate().toInstant().atZone(zone).toLocalDate(),
-                    pa.getEndDate().toInstant().atZone(zone).toLocalDate(),
-                    holidaysList);
-            Double userDaysAllocation = businessDaysAllocated * BUSINESS_DAY_HOURS
-                    * pa.getAllocationPercentage();
-            Double userCostAllocation = userDaysAllocation * rate;
-            projectBudget += userCostAllocation;
+            return I18nResponses.forbidden(MessagesCodes.PERMISSIONS_DENIED);
         }
-        return ResponseEntity.ok(projectBudget);
+
+        List<Map<String, Object>> content = projectBudgets.getMonthlyBudget(id).stream()
+                .map(month -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("month", month.getMonth().toString());
+                    map.put("budgetHours", month.getBudgetHours());
+                    map.put("budgetCost", month.getBudgetCost());
+                    map.put("actualHours", month.getActualHours());
+                    map.put("actualCost", month.getActualCost());
+                    return map;
+                }).toList();
+        return ResponseEntity.ok(content);
     }
 
     // TODO: Add condition to return weekly or daily allocations?
@@ -659,16 +645,21 @@ public class ProjectController {
             return I18nResponses.notFound(MessagesCodes.PROJECT_NOT_FOUND);
         }
 
+        // Copies with the start and end dates set to the first day of the week they represent,
+        // changing the loaded assignments would write the new dates when they are flushed
         List<ProjectAssignment> projectAssignments = projectAssignmentRepository
-                .getProjectAssignments(id);
-
-        for (ProjectAssignment pa : projectAssignments) {
-            // set start and end dates to the first day of the week they are representing
-            Timestamp startDayOfWeekStart = getStartOfWeek(pa.getStartDate());
-            Timestamp startDayOfWeekEnd = getStartOfWeek(pa.getEndDate());
-            pa.setStartDate(startDayOfWeekStart);
-            pa.setEndDate(startDayOfWeekEnd);
-        }
+                .getProjectAssignments(id).stream()
+                .map(pa -> {
+                    ProjectAssignment weekly = new ProjectAssignment();
+                    weekly.setId(pa.getId());
+                    weekly.setUser(pa.getUser());
+                    weekly.setProject(pa.getProject());
+                    weekly.setAllocation(pa.getAllocation());
+                    weekly.setDescription(pa.getDescription());
+                    weekly.setStartDate(getStartOfWeek(pa.getStartDate()));
+                    weekly.setEndDate(getStartOfWeek(pa.getEndDate()));
+                    return weekly;
+                }).toList();
 
         return ResponseEntity.ok(projectAssignments);
     }
@@ -693,11 +684,12 @@ public class ProjectController {
                         project.getName());
             }
 
-            if (!userRepository.existsById(project.getManager().getId())) {
-                return I18nResponses.notFound(MessagesCodes.USER_NOT_FOUND);
-            }
-            if (!projectTypeRepository.existsById(project.getProjectType().getId())) {
-                return I18nResponses.notFound(MessagesCodes.PROJECT_TYPE_NOT_FOUND);
+            MissingReferences missing = referenceValidator.findMissing(new References()
+                    .add(User.class, project.getManager().getId(), MessagesCodes.USER_NOT_FOUND)
+                    .add(ProjectType.class, project.getProjectType().getId(),
+                            MessagesCodes.PROJECT_TYPE_NOT_FOUND));
+            if (!missing.isEmpty()) {
+                return missing.toResponse();
             }
 
             currentUser.markCreatedBy(project);
@@ -761,6 +753,7 @@ public class ProjectController {
 
     @JsonView(Views.GetProject.class)
     @PutMapping("/{id}")
+    @Transactional
     public ResponseEntity<?> updateProjectById(@PathVariable Long id,
             @RequestBody Project newProject) {
         try {
@@ -787,6 +780,11 @@ public class ProjectController {
                 }
             }
 
+            Long previousManagerId = project.getManager() != null
+                    ? project.getManager().getId() : null;
+            Long previousTypeId = project.getProjectType() != null
+                    ? project.getProjectType().getId() : null;
+
             project.setName(newProject.getName());
             project.setDescription(newProject.getDescription());
             project.setProjectType(newProject.getProjectType());
@@ -799,31 +797,42 @@ public class ProjectController {
             project.setRealBudget(newProject.getRealBudget());
             project.setProjectTasks(newProject.getProjectTasks());
 
+            // The project is changed in memory, a refused update must not flush it
             List<ValidationFailure> validationErrors = project.getValidationFailures();
             if (!validationErrors.isEmpty()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
                 return I18nResponses.httpResponseWithColumnsValidation(HttpStatus.BAD_REQUEST,
                         MessagesCodes.VALIDATION_FAILED, validationErrors);
             }
-            if (!userRepository.existsById(project.getManager().getId())) {
-                return I18nResponses.notFound(MessagesCodes.USER_NOT_FOUND);
-            }
-            if (!projectTypeRepository.existsById(project.getProjectType().getId())) {
-                return I18nResponses.notFound(MessagesCodes.PROJECT_TYPE_NOT_FOUND);
+            MissingReferences missing = referenceValidator.findMissing(new References()
+                    .add(User.class, project.getManager().getId(), MessagesCodes.USER_NOT_FOUND)
+                    .add(ProjectType.class, project.getProjectType().getId(),
+                            MessagesCodes.PROJECT_TYPE_NOT_FOUND));
+            if (!missing.isEmpty()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return missing.toResponse();
             }
 
             currentUser.markUpdatedBy(project);
-            Project updatedProject = projectRepository.save(project);
+            Project updatedProject = projectRepository.saveAndFlush(project);
+            if (!Objects.equals(previousManagerId, project.getManager().getId())
+                    || !Objects.equals(previousTypeId, project.getProjectType().getId())) {
+                approvalCounters.updateApproversByProject(id);
+            }
             return I18nResponses.httpResponseWithData(HttpStatus.ACCEPTED,
                     MessagesCodes.PROJECT_UPDATED_OK,
                     updatedProject);
 
         } catch (HttpMessageNotReadableException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return I18nResponses.badRequest(MessagesCodes.MALFORMED_REQUEST_BODY);
         } catch (DataIntegrityViolationException e) {
             log.error("Data integrity violation: {}", e.getMessage());
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return I18nResponses.badRequest(MessagesCodes.DATA_INTEGRITY_VIOLATION);
         } catch (Exception e) {
             log.error("Error updating project! {}", e.getMessage());
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return I18nResponses.httpResponse(HttpStatus.INTERNAL_SERVER_ERROR,
                     MessagesCodes.INTERNAL_SERVER_ERROR);
         }
@@ -883,113 +892,29 @@ public class ProjectController {
         }
 
         log.info("Importing projects from csv file: {} ", file.getOriginalFilename());
-        CsvImporter importer = new CsvImporter();
-        CsvImporterConfiguration config = new CsvImporterConfiguration(CSV_DELIMITER, true, null)
-                .withColumnDescriptors(
-                        new ColumnDescriptor(FIELD_PROJECT_CODE, ColumnType.STRING, false),
-                        new ColumnDescriptor(FIELD_PROJECT_NAME, ColumnType.STRING, false),
-                        new ColumnDescriptor(FIELD_PROJECT_TYPE, ColumnType.STRING, false),
-                        new ColumnDescriptor(FIELD_START_DATE, ColumnType.STRING, false),
-                        new ColumnDescriptor(FIELD_PROJECT_MANAGER, ColumnType.STRING, false),
-                        new ColumnDescriptor(FIELD_CLIENT, ColumnType.STRING, false),
-                        new ColumnDescriptor(FIELD_EXPECTED_DUE_DATE, ColumnType.STRING, true),
-                        new ColumnDescriptor(FIELD_BUDGET, ColumnType.STRING, true));
-        importer.initialize(config);
-
-        final List<Project> projectsList = new ArrayList<>();
-        AtomicInteger rowNumber = new AtomicInteger(0);
         try {
-            importer.importDataWithCustomCallback(file.getInputStream(), data -> {
-                try {
-                    rowNumber.incrementAndGet();
-
-                    Map<String, Object> row = (Map<String, Object>) data;
-                    Project project = new Project();
-                    String projCode = (String) row.get(FIELD_PROJECT_CODE);
-                    project.setName(projCode);
-
-                    Optional<Project> p = projectRepository.findByCode(projCode);
-                    if (!p.isEmpty()) {
-                        // TODO: Skip or update existing projects ?
-                        return;
-                    }
-
-                    project.setDescription((String) row.get(FIELD_PROJECT_NAME));
-
-                    String typeName = (String) row.get(FIELD_PROJECT_TYPE);
-                    ProjectType type = projectTypeRepository.findByName(typeName)
-                            .orElseThrow(() ->
-                                new DataCentricException("Project type not found: " + typeName));
-
-                    project.setProjectType(type);
-
-                    project.setStartDate(parseTimestamp((String) row.get(FIELD_START_DATE)));
-                    String userName = (String) row.get(FIELD_PROJECT_MANAGER);
-                    User projManager = userRepository.findByName(userName)
-                            .orElseThrow(() ->
-                                new DataCentricException("Manager not found: " + userName));
-                    project.setManager(projManager);
-
-                    String clientName = (String) row.get(FIELD_CLIENT);
-                    Client client = clientRepository.findByName(clientName)
-                        .orElseThrow(() ->
-                            new DataCentricException("Client not found: " + clientName));
-                    project.setClient(client);
-
-                    project.setExpectedDueDate(parseTimestamp(
-                            (String) row.get(FIELD_EXPECTED_DUE_DATE)));
-                    String budgetStr = (String) row.get(FIELD_BUDGET);
-                    if (budgetStr != null && !budgetStr.equals("")) {
-                        project.setRealBudget(Double.parseDouble(
-                            (String) row.get(FIELD_BUDGET)));
-                    }
-
-                    Status openStatus = statusRepository.findByName("OPEN");
-                    project.setStatus(openStatus);
-                    currentUser.markCreatedBy(project);
-                    currentUser.markUpdatedBy(project);
-
-                    List<ValidationFailure> validationErrors = project.getValidationFailures();
-                    if (!validationErrors.isEmpty()) {
-                        log.error("Validation error {}", validationErrors);
-                        throw new DataCentricException("Validation failed at row " +
-                                rowNumber.get());
-                    }
-
-                    projectsList.add(project);
-
-                } catch (Exception e) {
-                    throw new RuntimeException(
-                            "Error processing row " + rowNumber.get() + ": " + e.getMessage(), e);
-                }
-            });
-
-            if (!projectsList.isEmpty()) {
-                projectRepository.saveAll(projectsList);
+            ImportResult result = projectImportPipeline.importProjects(file.getInputStream(),
+                    currentUser);
+            if (result.hasErrors()) {
+                Message message = new Message(MessagesCodes.IMPORT_PROJ_CSV_ERROR,
+                        result.getErrors());
+                return I18nResponses.httpResponseWithData(HttpStatus.BAD_REQUEST,
+                        MessagesCodes.IMPORT_PROJ_CSV_ERROR, message);
             }
 
             Message successMessage = new Message(MessagesCodes.PROJECT_CREATED_OK,
-                    List.of("Imported jobs successfully!"));
+                    List.of("Imported " + result.getRowsImported() + " projects, skipped " +
+                            result.getRowsSkipped() + " existing projects!"));
             return I18nResponses.httpResponseWithData(HttpStatus.CREATED,
                     MessagesCodes.PROJECT_CREATED_OK,
                     successMessage);
 
         } catch (IOException ex) {
-            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             log.error("Error reading file: {}", ex.getMessage());
             return I18nResponses.badRequest(MessagesCodes.IMPORT_PROJ_CSV_ERROR);
         }
     }
 
-    private static Long countBusinessDaysBetween(LocalDate start, LocalDate end,
-            List<LocalDate> holidays) {
-        return start.datesUntil(end.plusDays(1))
-                .filter(d -> !d.getDayOfWeek().equals(DayOfWeek.SATURDAY) &&
-                        !d.getDayOfWeek().equals(DayOfWeek.SUNDAY) &&
-                        (holidays == null || !holidays.contains(d)))
-                .count();
-    }
-
     private static Timestamp getStartOfWeek(Timestamp timestamp) {
         ZoneId zone = ZoneId.of(TIME_ZONE);
         LocalDateTime dateTime = timestamp.toInstant().atZone(zone).toLocalDateTime();
@@ -1002,6 +927,18 @@ public class ProjectController {
         return Timestamp.valueOf(monday);
     }
 
+    /*
+     * Loads the users of the report rows, identified by their first column, in a single
+     * query instead of one query per row.
+     */
+    private Map<Long, User> findUsersById(List<Object[]> rows) {
+        Set<Long> userIds = rows.stream()
+                .map(row -> (Long) row[0])
+                .collect(Collectors.toSet());
+        return userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+
     private BigDecimal convertToBigDecimal(Object value) {
         if (value == null) return null;
         if (value instanceof BigDecimal) {
@@ -1015,23 +952,6 @@ public class ProjectController {
         }
     }
 
-    private Timestamp parseTimestamp(String date) {
-        if (date == null) {
-            log.warn("Trying to parse null date!");
-            return null;
-        }
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-            return new Timestamp(sdf.parse(date).getTime());
-        } catch (IllegalArgumentException e) {
-            log.error("Invalid date format: {}", date);
-            return null;
-        } catch (ParseException ignored) {
-            log.error("Invalid date format: {}", date);
-            return null;
-        }
-    }
-
     private Specification<Project> userProjectRestriction(Long userId) {
         return (root, query, cb) -> {
 
@@ -3,6 +3,7 @@ package com.datacentric.timesense.controller;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +15,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -27,6 +30,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.datacentric.timesense.model.ProjectType;
 import com.datacentric.timesense.model.User;
 import com.datacentric.timesense.repository.ProjectTypeRepository;
+import com.datacentric.timesense.utils.ApprovalCounters;
 import com.datacentric.timesense.utils.SecurityUtils;
 import com.datacentric.timesense.utils.i18n.MessagesCodes;
 import com.datacentric.timesense.utils.rest.UserUtils;
@@ -54,13 +58,15 @@ public class ProjectTypeController {
     }
 
     private ProjectTypeRepository projectTypeRepository;
+    private ApprovalCounters approvalCounters;
     private SecurityUtils securityUtils;
     private UserUtils userUtils;
 
     @Autowired
     public ProjectTypeController(ProjectTypeRepository projectTypeRepository,
-            SecurityUtils securityUtils, UserUtils userUtils) {
+            ApprovalCounters approvalCounters, SecurityUtils securityUtils, UserUtils userUtils) {
         this.projectTypeRepository = projectTypeRepository;
+        this.approvalCounters = approvalCounters;
         this.securityUtils = securityUtils;
         this.userUtils = userUtils;
     }
@@ -218,6 +224,7 @@ public class ProjectTypeController {
 
     @JsonView(Views.GetProjectType.class)
     @PutMapping("/{id}")
+    @Transactional
     public ResponseEntity<?> updateProjectTypeById(@PathVariable Long id,
             @RequestBody ProjectType newProjectType) {
         try {
@@ -241,23 +248,33 @@ public class ProjectTypeController {
                 }
             }
 
+            boolean approverChanged = !Objects.equals(projectType.getLineManager(),
+                    newProjectType.getLineManager());
+
             projectType.setName(newProjectType.getName());
             projectType.setDescription(newProjectType.getDescription());
             projectType.setLineManager(newProjectType.getLineManager());
 
-            ProjectType updatedProjectType = projectTypeRepository.save(projectType);
+            ProjectType updatedProjectType = projectTypeRepository.saveAndFlush(projectType);
+            if (approverChanged) {
+                approvalCounters.updateApproversByProjectType(id);
+            }
             return I18nResponses.httpResponseWithData(HttpStatus.ACCEPTED,
                     MessagesCodes.PROJECT_TYPE_UPDATED_OK,
                     updatedProjectType);
 
         } catch (AuthenticationException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return I18nResponses.httpResponse(HttpStatus.UNAUTHORIZED,
                     MessagesCodes.UNAUTHORIZED_USER);
         } catch (HttpMessageNotReadableException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return I18nResponses.badRequest(MessagesCodes.MALFORMED_REQUEST_BODY);
         } catch (DataIntegrityViolationException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return I18nResponses.badRequest(MessagesCodes.DATA_INTEGRITY_VIOLATION);
         } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return I18nResponses.httpResponse(HttpStatus.INTERNAL_SERVER_ERROR,
                     MessagesCodes.INTERNAL_SERVER_ERROR);
         }
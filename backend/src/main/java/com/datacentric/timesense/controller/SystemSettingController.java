@@ -26,6 +26,7 @@ import com.datacentric.timesense.model.User;
 import com.datacentric.timesense.repository.SystemSettingRepository;
 import com.datacentric.timesense.repository.UserRepository;
 import com.datacentric.timesense.utils.SecurityUtils;
+import com.datacentric.timesense.utils.VacationBalances;
 import com.datacentric.timesense.utils.i18n.MessagesCodes;
 import com.datacentric.timesense.utils.rest.UserUtils;
 import com.datacentric.timesense.utils.security.UserSecurityData;
@@ -49,14 +50,17 @@ public class SystemSettingController {
     private UserRepository userRepository;
     private SecurityUtils securityUtils;
     private UserUtils userUtils;
+    private VacationBalances vacationBalances;
 
     @Autowired
     public SystemSettingController(SystemSettingRepository systemSettingRepository,
-            SecurityUtils securityUtils, UserUtils userUtils, UserRepository userRepository) {
+            SecurityUtils securityUtils, UserUtils userUtils, UserRepository userRepository,
+            VacationBalances vacationBalances) {
         this.systemSettingRepository = systemSettingRepository;
         this.userRepository = userRepository;
         this.securityUtils = securityUtils;
         this.userUtils = userUtils;
+        this.vacationBalances = vacationBalances;
     }
 
     private static final int DEFAULT_FIRST_ROW = 0;
@@ -231,15 +235,9 @@ public class SystemSettingController {
                 return I18nResponses.forbidden(MessagesCodes.PERMISSIONS_DENIED);
             }
 
-            SystemSetting currentYearSetting = systemSettingRepository
-                    .findByName(SystemSettings.CURRENT_YEAR);
-
-            String newYear = String.valueOf(Integer.parseInt(currentYearSetting.getValue()) + 1);
-            currentYearSetting.setValue(newYear);
-            systemSettingRepository.save(currentYearSetting);
             Double defaultVacationDays = Double.parseDouble(systemSettingRepository
                     .findByName(SystemSettings.DEFAULT_VACATION_DAYS).getValue());
-            userRepository.newBusinessYearVacations(defaultVacationDays);
+            vacationBalances.closeBusinessYear(defaultVacationDays);
 
             return I18nResponses.accepted(MessagesCodes.CLOSED_BUSINESS_YEAR_OK, null);
 
@@ -7,11 +7,14 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -28,6 +31,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -40,12 +45,15 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.datacentric.timesense.controller.payloads.BatchUpdateRequest;
 import com.datacentric.timesense.controller.payloads.TimeRecordPatch;
+import com.datacentric.timesense.controller.payloads.TimeRecordPatchResult;
+import com.datacentric.timesense.model.ApprovalCounter;
 import com.datacentric.timesense.model.AuditableTable;
 import com.datacentric.timesense.model.Project;
 import com.datacentric.timesense.model.ProjectTask;
@@ -61,7 +69,19 @@ import com.datacentric.timesense.repository.StatusRepository;
 import com.datacentric.timesense.repository.SystemSettingRepository;
 import com.datacentric.timesense.repository.TimeRecordRepository;
 import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.ApprovalCounters;
+import com.datacentric.timesense.utils.DailyHoursExceededException;
+import com.datacentric.timesense.utils.DailyHoursLedger;
+import com.datacentric.timesense.utils.OrgHierarchy;
+import com.datacentric.timesense.utils.RecentProjects;
+import com.datacentric.timesense.utils.ReferenceValidator;
+import com.datacentric.timesense.utils.ReferenceValidator.MissingReferences;
+import com.datacentric.timesense.utils.ReferenceValidator.References;
 import com.datacentric.timesense.utils.SecurityUtils;
+import com.datacentric.timesense.utils.TimeRecordApprovals;
+import com.datacentric.timesense.utils.TimeRecordCosts;
+import com.datacentric.timesense.utils.TimesheetGrid;
+import com.datacentric.timesense.utils.hibernate.JsonViewFetchPlans;
 import com.datacentric.timesense.utils.i18n.MessagesCodes;
 import com.datacentric.timesense.utils.rest.UserUtils;
 import com.datacentric.timesense.utils.security.UserSecurityData;
@@ -110,6 +130,15 @@ public class TimeRecordController {
     private SecurityUtils securityUtils;
     private StatusRepository statusRepository;
     private SystemSettingRepository systemSettingRepository;
+    private JsonViewFetchPlans fetchPlans;
+    private ApprovalCounters approvalCounters;
+    private TimeRecordApprovals timeRecordApprovals;
+    private ReferenceValidator referenceValidator;
+    private DailyHoursLedger dailyHoursLedger;
+    private OrgHierarchy orgHierarchy;
+    private TimeRecordCosts timeRecordCosts;
+    private RecentProjects recentProjects;
+    private TimesheetGrid timesheetGrid;
 
     private static final int DEFAULT_FIRST_ROW = 0;
     private static final int DEFAULT_PAGE_SIZE = 100;
@@ -136,10 +165,11 @@ public class TimeRecordController {
     private static final String SEMICOLON_SEPARATOR = ";";
     private static final String SCOPE_TEAM = "SCOPE-TEAM";
     private static final String SCOPE_USER = "SCOPE-USER";
+    private static final String REPORTS_DIRECT = "direct";
     private static final String PROJECT_NAME = "ProjectName";
     private static final String MANAGER = "manager";
-    private static final String LINE_MANAGER = "lineManager";
-    private static final String LINE_MANAGER_ID = "lineManagerId";
+    private static final String APPROVER_USER_ID = "approverUserId";
+    private static final String APPROVAL_KIND = "approvalKind";
 
 
     private static final String COMPANY_SCOPE = "company";
@@ -149,8 +179,8 @@ public class TimeRecordController {
 
     private static final String ERR_PROJECT = "PROJECT";
     private static final String PROJECT_FIELD = "project";
-    private static final String TYPE_FIELD = "type";
     private static final String USER_FIELD = "user";
+    private static final String START_DATE = "startDate";
 
     private static final String ERR_TASK = "TASK";
 
@@ -162,12 +192,18 @@ public class TimeRecordController {
 
     DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
+    // CHECKSTYLE.OFF: ParameterNumber
     @Autowired
     public TimeRecordController(TimeRecordRepository timeRecordRepository,
             UserRepository userRepository, ProjectRepository projectRepository,
             ProjectTaskRepository projectTaskRepository,
             UserUtils userUtils, SecurityUtils securityUtils,
-            StatusRepository statusRepository, SystemSettingRepository systemSettingRepository) {
+            StatusRepository statusRepository, SystemSettingRepository systemSettingRepository,
+            JsonViewFetchPlans fetchPlans, ApprovalCounters approvalCounters,
+            TimeRecordApprovals timeRecordApprovals, ReferenceValidator referenceValidator,
+            DailyHoursLedger dailyHoursLedger, OrgHierarchy orgHierarchy,
+            TimeRecordCosts timeRecordCosts, RecentProjects recentProjects,
+            TimesheetGrid timesheetGrid) {
         this.timeRecordRepository = timeRecordRepository;
         this.userRepository = userRepository;
         this.projectRepository = projectRepository;
@@ -176,7 +212,17 @@ public class TimeRecordController {
         this.securityUtils = securityUtils;
         this.statusRepository = statusRepository;
         this.systemSettingRepository = systemSettingRepository;
+        this.fetchPlans = fetchPlans;
+        this.approvalCounters = approvalCounters;
+        this.timeRecordApprovals = timeRecordApprovals;
+        this.referenceValidator = referenceValidator;
+        this.dailyHoursLedger = dailyHoursLedger;
+        this.orgHierarchy = orgHierarchy;
+        this.timeRecordCosts = timeRecordCosts;
+        this.recentProjects = recentProjects;
+        this.timesheetGrid = timesheetGrid;
     }
+    // CHECKSTYLE.ON: ParameterNumber
 
     @JsonView(Views.GetTimeRecords.class)
     @GetMapping
@@ -206,35 +252,24 @@ public class TimeRecordController {
             finalSpec = RestUtils.getSpecificationFromFilter("basic", filter);
         }
 
-        if (!isAdmin) {
-            // A "normal user can see for approval the records that he manages
-            Specification<TimeRecord> isProjectManagerSpec = (root, query, cb) ->
-                cb.equal(root.get(PROJECT_FIELD).get(MANAGER).get(ID), user.getId());
-
-            Specification<TimeRecord> isTeamManagerSpec = (root, query, cb) ->
-                cb.and(
-                    cb.isTrue(root.get(PROJECT_FIELD).get(TYPE_FIELD).get(LINE_MANAGER)),
-                    cb.equal(root.get(USER_FIELD).get(LINE_MANAGER_ID), user.getId())
-                );
-
-            finalSpec = (finalSpec != null)
-                ? finalSpec.and(isProjectManagerSpec.or(isTeamManagerSpec))
-                : isProjectManagerSpec.or(isTeamManagerSpec);
-        }
+        // Records whose approver is the user, a range scan of idx_time_records_approver_status
+        Specification<TimeRecord> isApproverSpec = (root, query, cb) ->
+                cb.equal(root.get(APPROVER_USER_ID), user.getId());
 
         Specification<TimeRecord> isProjectManagerSpec = (root, query, cb) ->
                 cb.equal(root.get(PROJECT_FIELD).get(MANAGER).get(ID), user.getId());
 
         Specification<TimeRecord> isTeamManagerSpec = (root, query, cb) ->
                 cb.and(
-                        cb.isTrue(root.get(PROJECT_FIELD).get(TYPE_FIELD).get(LINE_MANAGER)),
-                        cb.equal(root.get(USER_FIELD).get(LINE_MANAGER_ID), user.getId())
+                        cb.equal(root.get(APPROVER_USER_ID), user.getId()),
+                        cb.equal(root.get(APPROVAL_KIND), TimeRecord.LINE_MANAGER_APPROVAL)
                 );
 
         Specification<TimeRecord> scopeSpec;
 
         switch (scope.toLowerCase()) {
             case MY_PROJECT_SCOPE:
+                // The records of the projects of the user, whoever approves them
                 scopeSpec = isProjectManagerSpec;
                 break;
 
@@ -244,7 +279,8 @@ public class TimeRecordController {
 
             case COMPANY_SCOPE:
             default:
-                scopeSpec = null;
+                // A normal user only sees the records they approve
+                scopeSpec = isAdmin ? null : isApproverSpec;
                 break;
         }
 
@@ -252,11 +288,8 @@ public class TimeRecordController {
             finalSpec = (finalSpec != null) ? finalSpec.and(scopeSpec) : scopeSpec;
         }
 
-        return new JsonViewPage<>(
-                (finalSpec != null)
-                    ? timeRecordRepository.findAll(finalSpec, pageable)
-                    : timeRecordRepository.findAll(pageable)
-        );
+        return new JsonViewPage<>(fetchPlans.findAll(timeRecordRepository, TimeRecord.class,
+                Views.GetTimeRecords.class, finalSpec, pageable));
     }
 
     @JsonView(Views.GetTimeRecords.class)
@@ -273,8 +306,12 @@ public class TimeRecordController {
                 Math.max(Math.min(numRows, DEFAULT_PAGE_SIZE), 1),
                 RestUtils.getSortFromString(sort));
 
-        return new JsonViewPage<>(timeRecordRepository.findByUserIdAndDateRange(
-            currentUser.getId(), startDate, pageable));
+        Specification<TimeRecord> userSpec = (root, query, cb) -> cb.and(
+                cb.equal(root.get(USER_FIELD).get(ID), currentUser.getId()),
+                cb.greaterThanOrEqualTo(root.get(START_DATE), startDate));
+
+        return new JsonViewPage<>(fetchPlans.findAll(timeRecordRepository, TimeRecord.class,
+                Views.GetTimeRecords.class, userSpec, pageable));
     }
 
     @JsonView(Views.GetTimeRecord.class)
@@ -315,6 +352,33 @@ public class TimeRecordController {
         }
     }
 
+    /**
+     * Timesheet of the current user between the given days as a grid, see TimesheetGrid.
+     * Answers 304 when the If-None-Match header holds the version of the grid.
+     */
+    @GetMapping("/grid")
+    public ResponseEntity<?> getTimesheetGrid(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                    String ifNoneMatch) {
+        if (endDate.isBefore(startDate)
+                || ChronoUnit.DAYS.between(startDate, endDate) >= TimesheetGrid.MAX_DAYS) {
+            return I18nResponses.badRequest(MessagesCodes.INVALID_DATE_RANGE);
+        }
+        UserSecurityData currentUser = userUtils.getOrCreateUser();
+
+        // Read before the grid, a write in between changes the version of the next request
+        String version = timesheetGrid.getVersion(currentUser.getId(), startDate, endDate);
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (TimesheetGrid.matches(ifNoneMatch, version)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(version)
+                    .cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(version).cacheControl(cacheControl)
+                .body(timesheetGrid.build(currentUser.getId(), startDate, endDate));
+    }
+
     /**
      * Returns the list of time records to be shown in the time approval screen
      * of the frontend.
@@ -330,7 +394,8 @@ public class TimeRecordController {
             @RequestParam(required = false) List<Long> projectFilter,
             @RequestParam(required = false) List<Long> reporterFilter,
             @RequestParam(required = false) Timestamp startDateFilter,
-            @RequestParam(required = false) Timestamp endDateFilter) {
+            @RequestParam(required = false) Timestamp endDateFilter,
+            @RequestParam(defaultValue = REPORTS_DIRECT, required = false) String reports) {
 
         UserSecurityData currentUser = userUtils.getOrCreateUser();
         User user = userRepository.findById(currentUser.getId()).orElseThrow();
@@ -340,7 +405,8 @@ public class TimeRecordController {
 
         boolean isAdmin = userRoles.contains(ADMIN_ROLE);
 
-        List<Long> effectiveReporterFilter = getManagerTeam(user, reporterFilter);
+        List<Long> effectiveReporterFilter = getManagerTeam(user, reporterFilter,
+                OrgHierarchy.Scope.fromParam(reports));
 
         // Admins can see all records, managers only see their own projects
         Long approverId = isAdmin ? null : currentUser.getId();
@@ -388,7 +454,8 @@ public class TimeRecordController {
             @RequestParam(required = false) List<Long> reporterFilter,
             @RequestParam(required = false) Timestamp startDateFilter,
             @RequestParam(required = false) Timestamp endDateFilter,
-            @RequestParam(defaultValue = SCOPE_TEAM, required = false) String scope) {
+            @RequestParam(defaultValue = SCOPE_TEAM, required = false) String scope,
+            @RequestParam(defaultValue = REPORTS_DIRECT, required = false) String reports) {
 
         UserSecurityData currentUser = userUtils.getOrCreateUser();
         User user = userRepository.findById(currentUser.getId()).orElseThrow();
@@ -397,7 +464,8 @@ public class TimeRecordController {
         if (scope.equals(SCOPE_USER)) {
             effectiveReporterFilter.add(user.getId());
         } else {
-            effectiveReporterFilter = getManagerTeam(user, reporterFilter);
+            effectiveReporterFilter = getManagerTeam(user, reporterFilter,
+                    OrgHierarchy.Scope.fromParam(reports));
         }
 
         String delimiter = COMMA_SEPARATOR;
@@ -477,22 +545,41 @@ public class TimeRecordController {
             Status pendingStatus = statusRepository.findByName(STATUS_PENDING);
             timeRecord.setStatus(pendingStatus);
 
-            if (!projectRepository.existsById(timeRecord.getProject().getId())) {
-                return I18nResponses.notFound(MessagesCodes.PROJECT_NOT_FOUND);
-            }
-            if (!userRepository.existsById(timeRecord.getApprovedBy().getId())) {
-                return I18nResponses.notFound(MessagesCodes.PROJECT_NOT_FOUND);
+            MissingReferences missing = referenceValidator.findMissing(new References()
+                    .add(Project.class, timeRecord.getProject().getId(),
+                            MessagesCodes.PROJECT_NOT_FOUND)
+                    .add(User.class, timeRecord.getApprovedBy().getId(),
+                            MessagesCodes.USER_NOT_FOUND));
+            if (!missing.isEmpty()) {
+                return missing.toResponse();
             }
+            // The approver is computed from the manager and the type of the stored project
+            timeRecord.setProject(projectRepository.getReferenceById(
+                    timeRecord.getProject().getId()));
             User user = userRepository.findById(currentUser.getId()).orElse(null);
             if (user == null) {
                 return I18nResponses.notFound(MessagesCodes.USER_NOT_FOUND);
             }
             timeRecord.setUser(user);
 
-            TimeRecord savedTimeRecord = timeRecordRepository.save(timeRecord);
+            DailyHoursLedger.Changes hoursChanges = new DailyHoursLedger.Changes()
+                    .add(user.getId(), timeRecord.getStartDate(), timeRecord.getHours());
+            Double maxHours = dailyHoursLedger.getMaxHours();
+            timeRecordCosts.assignCosts(List.of(timeRecord));
+
+            TimeRecord savedTimeRecord = approvalCounters.write(ApprovalCounter.TIME_RECORDS,
+                    Map.of(), () -> {
+                        dailyHoursLedger.apply(hoursChanges, maxHours);
+                        TimeRecord saved = timeRecordRepository.save(timeRecord);
+                        recentProjects.touch(List.of(saved));
+                        return saved;
+                    }, saved -> approvalCounters.pendingTimeRecords(List.of(saved)));
             return I18nResponses.httpResponseWithData(HttpStatus.CREATED,
                     MessagesCodes.TIME_RECORD_CREATED_OK,
                     savedTimeRecord);
+        } catch (DailyHoursExceededException e) {
+            return I18nResponses.badRequest(MessagesCodes.TIME_RECORD_INVALID_HOURS,
+                    e.getMessage());
         } catch (HttpMessageNotReadableException e) {
             return I18nResponses.badRequest(MessagesCodes.MALFORMED_REQUEST_BODY);
         } catch (DataIntegrityViolationException e) {
@@ -554,17 +641,12 @@ public class TimeRecordController {
             List<TimeRecord> existingRecords = timeRecordRepository
                 .findByUserAndProjectsAndTasksAndDates(
                     user.getId(), projectIds, taskIds, dates);
+            Map<Long, Long> pendingBefore = approvalCounters.pendingTimeRecords(existingRecords);
 
-            // Step 3: Create a map of existing hours by date
-            Map<Timestamp, Double> existingHoursByDate = existingRecords.stream()
-                .collect(Collectors.groupingBy(
-                    TimeRecord::getStartDate,
-                    Collectors.summingDouble(TimeRecord::getHours)
-                ));
-
-            // Step 4: Process timeRecords and validate hours
+            // Step 3: Process timeRecords, the hours they add and remove per day are checked
+            // against the daily limit by the ledger when saving
             List<TimeRecord> timeRecordsToSave = new ArrayList<>();
-            Map<Timestamp, Double> newHoursByDate = new HashMap<>();
+            DailyHoursLedger.Changes hoursChanges = new DailyHoursLedger.Changes();
 
             for (TimeRecord t : timeRecords) {
                 Optional<TimeRecord> existingTimeRecord = existingRecords.stream()
@@ -576,11 +658,9 @@ public class TimeRecordController {
                 TimeRecord recordToSave;
                 if (existingTimeRecord.isPresent()) {
                     recordToSave = existingTimeRecord.get();
-                    // Subtract existing hours before adding new ones
-                    newHoursByDate.compute(
-                        t.getStartDate(),
-                        (k, v) -> (v == null ? 0.0 : v) - recordToSave.getHours() + t.getHours()
-                    );
+                    // Replace the existing hours by the new ones
+                    hoursChanges.remove(user.getId(), recordToSave.getStartDate(),
+                            recordToSave.getHours());
                     recordToSave.setHours(t.getHours());
                     recordToSave.setEndDate(t.getEndDate());
                     recordToSave.setDescription(t.getDescription());
@@ -592,31 +672,36 @@ public class TimeRecordController {
                 } else {
                     recordToSave = t;
                     recordToSave.setUser(user);
+                    recordToSave.setProject(projectRepository.getReferenceById(
+                            t.getProject().getId()));
                     if (submit) {
                         recordToSave.setStatus(pendingStatus);
                     } else {
                         recordToSave.setStatus(draftStatus);
                     }
-                    newHoursByDate.merge(t.getStartDate(), t.getHours(), Double::sum);
                 }
+                hoursChanges.add(user.getId(), t.getStartDate(), t.getHours());
                 timeRecordsToSave.add(recordToSave);
-
-                // Check total hours for the date (existing + new)
-                Timestamp date = t.getStartDate();
-                double totalHours = existingHoursByDate.getOrDefault(date, 0.0)
-                    + newHoursByDate.getOrDefault(date, 0.0);
-                if (totalHours > maxHours) {
-                    return I18nResponses.badRequest(MessagesCodes.TIME_RECORD_INVALID_HOURS,
-                        String.format(
-                            "Total hours (%.2f) for date %s exceeds maximum allowed hours (%.2f)",
-                            totalHours, date, maxHours));
-                }
             }
 
-            // Step 5: Save all valid records
-            List<TimeRecord> savedRecords = timeRecordRepository.saveAll(timeRecordsToSave);
+            // Step 4: Save all valid records
+            timeRecordCosts.assignCosts(timeRecordsToSave);
+            List<TimeRecord> savedRecords = approvalCounters.write(ApprovalCounter.TIME_RECORDS,
+                    pendingBefore, () -> {
+                        dailyHoursLedger.apply(hoursChanges, maxHours);
+                        List<TimeRecord> saved = timeRecordRepository.saveAll(timeRecordsToSave);
+                        recentProjects.touch(saved);
+                        return saved;
+                    }, saved -> {
+                        Set<TimeRecord> touched = new HashSet<>(existingRecords);
+                        touched.addAll(saved);
+                        return approvalCounters.pendingTimeRecords(touched);
+                    });
             return I18nResponses.httpResponseWithData(HttpStatus.CREATED,
                     MessagesCodes.TIME_RECORD_CREATED_OK, savedRecords);
+        } catch (DailyHoursExceededException e) {
+            return I18nResponses.badRequest(MessagesCodes.TIME_RECORD_INVALID_HOURS,
+                    e.getMessage());
         } catch (HttpMessageNotReadableException e) {
             return I18nResponses.badRequest(MessagesCodes.MALFORMED_REQUEST_BODY);
         } catch (DataIntegrityViolationException e) {
@@ -645,7 +730,16 @@ public class TimeRecordController {
                             MessagesCodes.PERMISSIONS_DENIED);
                 }
             }
-            timeRecordRepository.deleteById(id);
+            TimeRecord timeRecord = result.get();
+            DailyHoursLedger.Changes hoursChanges = new DailyHoursLedger.Changes()
+                    .remove(timeRecord.getUser().getId(), timeRecord.getStartDate(),
+                            timeRecord.getHours());
+            approvalCounters.write(ApprovalCounter.TIME_RECORDS,
+                    approvalCounters.pendingTimeRecords(List.of(timeRecord)), () -> {
+                        dailyHoursLedger.apply(hoursChanges, null);
+                        timeRecordRepository.deleteById(id);
+                        return null;
+                    }, deleted -> Map.of());
             return I18nResponses.accepted(MessagesCodes.TIME_RECORD_DELETED_OK);
         } catch (DataIntegrityViolationException e) {
             return I18nResponses.badRequest(MessagesCodes.DATA_INTEGRITY_VIOLATION);
@@ -679,6 +773,7 @@ public class TimeRecordController {
             if (records.size() != request.getTimeRecordIds().size()) {
                 return I18nResponses.notFound(MessagesCodes.TIME_RECORD_NOT_FOUND);
             }
+            Map<Long, Long> pendingBefore = approvalCounters.pendingTimeRecords(records);
 
             for (TimeRecord tr : records) {
                 if (!securityUtils.hasPermissionByIds(
@@ -709,7 +804,14 @@ public class TimeRecordController {
                 record.setTask(projectTask);
             }
 
-            List<TimeRecord> updatedRecords = timeRecordRepository.saveAll(records);
+            List<TimeRecord> updatedRecords = approvalCounters.write(
+                    ApprovalCounter.TIME_RECORDS, pendingBefore,
+                    () -> {
+                        List<TimeRecord> saved = timeRecordRepository.saveAll(records);
+                        recentProjects.touch(saved);
+                        return saved;
+                    },
+                    approvalCounters::pendingTimeRecords);
 
             return I18nResponses.httpResponseWithData(
                     HttpStatus.ACCEPTED,
@@ -759,6 +861,11 @@ public class TimeRecordController {
                 }
             }
             TimeRecord timeRecord = result.get();
+            Map<Long, Long> pendingBefore = approvalCounters.pendingTimeRecords(
+                    List.of(timeRecord));
+            DailyHoursLedger.Changes hoursChanges = new DailyHoursLedger.Changes()
+                    .remove(timeRecord.getUser().getId(), timeRecord.getStartDate(),
+                            timeRecord.getHours());
             if (!manage.equals(CMD_DRAFT)) {
                 timeRecord.setUser(newTimeRecord.getUser());
                 timeRecord.setProject(newTimeRecord.getProject());
@@ -807,24 +914,40 @@ public class TimeRecordController {
                 return I18nResponses.httpResponseWithColumnsValidation(HttpStatus.BAD_REQUEST,
                         MessagesCodes.VALIDATION_FAILED, validationErrors);
             }
-            if (!userRepository.existsById(timeRecord.getUser().getId())) {
-                return I18nResponses.notFound(
-                        MessagesCodes.USER_NOT_FOUND);
-            }
-            if (!projectRepository.existsById(timeRecord.getProject().getId())) {
-                return I18nResponses.notFound(
-                        MessagesCodes.PROJECT_NOT_FOUND);
-            }
-            if (!userRepository.existsById(timeRecord.getApprovedBy().getId())) {
-                return I18nResponses.notFound(
-                        MessagesCodes.PROJECT_NOT_FOUND);
+            MissingReferences missing = referenceValidator.findMissing(new References()
+                    .add(User.class, timeRecord.getUser().getId(),
+                            MessagesCodes.USER_NOT_FOUND)
+                    .add(Project.class, timeRecord.getProject().getId(),
+                            MessagesCodes.PROJECT_NOT_FOUND)
+                    .add(User.class, timeRecord.getApprovedBy().getId(),
+                            MessagesCodes.USER_NOT_FOUND));
+            if (!missing.isEmpty()) {
+                return missing.toResponse();
             }
-
-            TimeRecord updatedTimeRecord = timeRecordRepository.save(timeRecord);
+            // The approver is computed from the stored user and project
+            timeRecord.setUser(userRepository.getReferenceById(timeRecord.getUser().getId()));
+            timeRecord.setProject(projectRepository.getReferenceById(
+                    timeRecord.getProject().getId()));
+
+            hoursChanges.add(timeRecord.getUser().getId(), timeRecord.getStartDate(),
+                    timeRecord.getHours());
+            Double maxHours = dailyHoursLedger.getMaxHours();
+            timeRecordCosts.assignCosts(List.of(timeRecord));
+
+            TimeRecord updatedTimeRecord = approvalCounters.write(ApprovalCounter.TIME_RECORDS,
+                    pendingBefore, () -> {
+                        dailyHoursLedger.apply(hoursChanges, maxHours);
+                        TimeRecord saved = timeRecordRepository.save(timeRecord);
+                        recentProjects.touch(List.of(saved));
+                        return saved;
+                    }, saved -> approvalCounters.pendingTimeRecords(List.of(saved)));
             return I18nResponses.httpResponseWithData(HttpStatus.ACCEPTED,
                     MessagesCodes.TIME_RECORD_UPDATED_OK,
                     updatedTimeRecord);
 
+        } catch (DailyHoursExceededException e) {
+            return I18nResponses.badRequest(MessagesCodes.TIME_RECORD_INVALID_HOURS,
+                    e.getMessage());
         } catch (HttpMessageNotReadableException e) {
             return I18nResponses.badRequest(MessagesCodes.MALFORMED_REQUEST_BODY);
         } catch (DataIntegrityViolationException e) {
@@ -856,49 +979,42 @@ public class TimeRecordController {
 
         boolean isAdmin = userRoles.contains(ADMIN_ROLE);
 
+        // The statuses are resolved once and every command is checked before running any
+        Map<String, Status> statuses = new HashMap<>();
         for (TimeRecordPatch command : commands) {
-            Status newStatus;
-            switch (command.command) {
+            String statusName;
+            switch (command.command == null ? "" : command.command) {
                 case CMD_APPROVE:
-                    newStatus = statusRepository.findByName(STATUS_APPROVED);
+                    statusName = STATUS_APPROVED;
                     break;
                 case CMD_DENY:
-                    newStatus = statusRepository.findByName(STATUS_DENIED);
+                    statusName = STATUS_DENIED;
                     break;
                 case CMD_DRAFT:
-                    newStatus = statusRepository.findByName(STATUS_DRAFT);
+                    statusName = STATUS_DRAFT;
                     break;
                 default:
                     return I18nResponses.badRequest(MessagesCodes.INVALID_COMMAND);
             }
-
-            // Load all time records before checking
-            List<TimeRecord> records = timeRecordRepository.findAllById(command.data.ids);
-
-            // Check user permissions
-            for (TimeRecord record : records) {
-                Project project = record.getProject();
-                if (!isAdmin && (project == null || project.getManager() == null ||
-                        !project.getManager().getId().equals(user.getId()))) {
-                    return I18nResponses.forbidden(
-                            MessagesCodes.TIME_RECORD_PROJECT_ACCESS_DENIED,
-                            Map.of(PROJECT_NAME, project != null ? project.getName() : "unknown")
-                    );
-                }
+            Status newStatus = statuses.computeIfAbsent(command.command,
+                    name -> statusRepository.findByName(statusName));
+            if (newStatus == null) {
+                return I18nResponses.notFound(MessagesCodes.STATUS_NOT_FOUND);
             }
-            // update records
-            updateTimeRecords(command.data.ids, newStatus, command.data.reason, user);
         }
 
-        // TODO: Change to a better response returning the response for each command
-        return I18nResponses.accepted(MessagesCodes.TIME_RECORD_UPDATED_OK);
-    }
-
-    private void updateTimeRecords(List<Long> ids, Status newStatus, String reason, User user) {
+        // Each command is a single statement that only updates the records the user may
+        // approve, the outcome of each id is returned
+        List<TimeRecordPatchResult> results = new ArrayList<>();
+        for (TimeRecordPatch command : commands) {
+            results.add(timeRecordApprovals.setStatus(command.command,
+                    command.data != null ? command.data.ids : null,
+                    statuses.get(command.command),
+                    command.data != null ? command.data.reason : null, user, isAdmin));
+        }
 
-        // TODO - Sanity check of the given values
-        // TODO - Check for possible errors and handle optimistic locking
-        timeRecordRepository.updateTimeRecordStatus(newStatus, reason, ids, user);
+        return I18nResponses.httpResponseWithData(HttpStatus.ACCEPTED,
+                MessagesCodes.TIME_RECORD_UPDATED_OK, results);
     }
 
     private BigDecimal convertToBigDecimal(Object value) {
@@ -921,11 +1037,14 @@ public class TimeRecordController {
      *      The user for whom to get the managed team.
      * @param argUsersFilter
      *      The initial user filter provided as argument.
+     * @param reports
+     *      Whether the team is the direct reports of the user or everyone below them.
      *
      * @return
      *    The effective user filter including only the users managed by the given user.
      */
-    private List<Long> getManagerTeam (User user, List<Long> argUsersFilter) {
+    private List<Long> getManagerTeam(User user, List<Long> argUsersFilter,
+            OrgHierarchy.Scope reports) {
         List<String> userRoles = user.getUserRoles().stream()
                 .map(UserRole::getName)
                 .collect(Collectors.toList());
@@ -938,13 +1057,13 @@ public class TimeRecordController {
         if (!isAdmin) {
             if (isManager) {
                 // Manager sees their own records + their subordinates
-                List<Long> managedUsers = userRepository.findManagerTeam(user.getId());
-                managedUsers.add(user.getId());
+                Set<Long> managedUsers = orgHierarchy.getTeam(user.getId(), reports);
                 if (effectiveReporterFilter == null || effectiveReporterFilter.isEmpty()) {
-                    effectiveReporterFilter = managedUsers;
+                    effectiveReporterFilter = new ArrayList<>(managedUsers);
+                    effectiveReporterFilter.add(user.getId());
                 } else {
                     effectiveReporterFilter = effectiveReporterFilter.stream()
-                            .filter(managedUsers::contains)
+                            .filter(id -> id.equals(user.getId()) || managedUsers.contains(id))
                             .toList();
                 }
             } else {
@@ -3,6 +3,7 @@ package com.datacentric.timesense.controller;
 import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -10,12 +11,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -33,9 +37,14 @@ import com.datacentric.timesense.model.SystemSettings;
 import com.datacentric.timesense.model.User;
 import com.datacentric.timesense.model.UserGroup;
 import com.datacentric.timesense.model.UserRole;
+import com.datacentric.timesense.model.VacationBalanceEvent.Reason;
 import com.datacentric.timesense.repository.SystemSettingRepository;
 import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.ApprovalCounters;
+import com.datacentric.timesense.utils.OrgHierarchy;
+import com.datacentric.timesense.utils.ProjectBudgets;
 import com.datacentric.timesense.utils.SecurityUtils;
+import com.datacentric.timesense.utils.VacationBalances;
 import com.datacentric.timesense.utils.i18n.MessagesCodes;
 import com.datacentric.timesense.utils.rest.UserUtils;
 import com.datacentric.timesense.utils.security.UserSecurityCache;
@@ -56,12 +65,12 @@ public class UserController {
         interface GetBasicInfo extends User.Views.Basic {
         }
 
-        interface GetUsers extends User.Views.Public, JsonViewPage.Views.Public,
-                JobTitle.Views.Public {
+        interface GetUsers extends User.Views.Public, User.Views.Balances,
+                JsonViewPage.Views.Public, JobTitle.Views.Public {
         }
 
-        interface GetUser extends User.Views.Complete, UserRole.Views.Minimal,
-                UserGroup.Views.Minimal, JobTitle.Views.Public {
+        interface GetUser extends User.Views.Complete, User.Views.Balances,
+                UserRole.Views.Minimal, UserGroup.Views.Minimal, JobTitle.Views.Public {
         }
     }
 
@@ -70,6 +79,10 @@ public class UserController {
     private SecurityUtils securityUtils;
     private UserSecurityCache userSecurityCache;
     private SystemSettingRepository systemSettingRepository;
+    private ApprovalCounters approvalCounters;
+    private OrgHierarchy orgHierarchy;
+    private VacationBalances vacationBalances;
+    private ProjectBudgets projectBudgets;
 
     private static final String SYSTEM = "System";
     private static final int DEFAULT_FIRST_ROW = 0;
@@ -86,17 +99,26 @@ public class UserController {
     private static final String SCOPE_TEAM = "SCOPE-TEAM";
     private static final String SCOPE_MANAGER = "SCOPE-MANAGER";
     private static final String SCOPE_COMPANY = "SCOPE-COMPANY";
+    private static final String REPORTS_DIRECT = "direct";
 
+    // CHECKSTYLE.OFF: ParameterNumber
     @Autowired
     public UserController(UserRepository userRepository, UserUtils userUtils,
             SecurityUtils securityUtils, UserSecurityCache userSecurityCache,
-            SystemSettingRepository systemSettingRepository) {
+            SystemSettingRepository systemSettingRepository, ApprovalCounters approvalCounters,
+            OrgHierarchy orgHierarchy, VacationBalances vacationBalances,
+            ProjectBudgets projectBudgets) {
         this.userRepository = userRepository;
         this.userUtils = userUtils;
         this.securityUtils = securityUtils;
         this.userSecurityCache = userSecurityCache;
         this.systemSettingRepository = systemSettingRepository;
+        this.approvalCounters = approvalCounters;
+        this.orgHierarchy = orgHierarchy;
+        this.vacationBalances = vacationBalances;
+        this.projectBudgets = projectBudgets;
     }
+    // CHECKSTYLE.ON: ParameterNumber
 
     @JsonView(Views.GetUsers.class)
     @GetMapping
@@ -105,7 +127,8 @@ public class UserController {
             @RequestParam(defaultValue = DEFAULT_PAGE_SIZE_STR, required = false) int numRows,
             @RequestParam(defaultValue = "name", required = false) String sort,
             @RequestParam(defaultValue = "", required = false) String filter,
-            @RequestParam(defaultValue = SCOPE_TEAM, required = false) String scope) {
+            @RequestParam(defaultValue = SCOPE_TEAM, required = false) String scope,
+            @RequestParam(defaultValue = REPORTS_DIRECT, required = false) String reports) {
 
         UserSecurityData currentUser = userUtils.getOrCreateUser();
         User user = userRepository.findById(currentUser.getId()).orElse(null);
@@ -130,9 +153,11 @@ public class UserController {
                 // Admin sees all users — no additional filtering
             } else if (roleNames.contains(MANAGER_ROLE) || roleNames.contains(ADMIN_ROLE)) {
                 // Manager sees users they manage OR themselves
+                OrgHierarchy.Scope teamScope = OrgHierarchy.Scope.fromParam(reports);
                 spec = spec.and((root, query, cb) ->
                         cb.or(
-                            cb.equal(root.get("lineManagerId"), user.getId()),
+                            orgHierarchy.inTeam(root.get(ID), user.getId(), teamScope,
+                                    query, cb),
                             cb.equal(root.get(ID), user.getId())
                         )
                 );
@@ -143,7 +168,9 @@ public class UserController {
             }
         }
 
-        return new JsonViewPage<>(userRepository.findAll(spec, pageable));
+        Page<User> users = userRepository.findAll(spec, pageable);
+        vacationBalances.load(users.getContent());
+        return new JsonViewPage<>(users);
     }
 
     @JsonView(Views.GetUser.class)
@@ -154,6 +181,7 @@ public class UserController {
             if (user == null) {
                 return I18nResponses.notFound(MessagesCodes.USER_NOT_FOUND);
             }
+            vacationBalances.load(user);
             User lineManager = null;
 
             if (user.getLineManagerId() != null) {
@@ -183,6 +211,7 @@ public class UserController {
             if (user == null) {
                 return I18nResponses.notFound(MessagesCodes.USER_NOT_FOUND);
             }
+            vacationBalances.load(user);
 
             return ResponseEntity.ok(user);
         } catch (NumberFormatException | NoSuchElementException e) {
@@ -233,6 +262,9 @@ public class UserController {
             }
 
             User savedUser = userRepository.save(user);
+            if (savedUser.getLineManagerId() != null) {
+                orgHierarchy.moveUser(savedUser.getId(), savedUser.getLineManagerId());
+            }
             return I18nResponses.httpResponseWithData(HttpStatus.CREATED,
                     MessagesCodes.USER_CREATED_OK,
                     savedUser);
@@ -278,6 +310,7 @@ public class UserController {
 
     @JsonView(Views.GetUser.class)
     @PutMapping("/{id}")
+    @Transactional
     public ResponseEntity<?> updateUserById(@PathVariable Long id,
             @RequestBody User newUser) {
         UserSecurityData currentUser = userUtils.getOrCreateUser();
@@ -295,37 +328,69 @@ public class UserController {
             }
 
             User user = result.get();
+            String previousEmail = user.getEmail();
+            vacationBalances.load(user);
+            boolean approverChanged = !Objects.equals(user.getLineManagerId(),
+                    newUser.getLineManagerId());
+            // The move locks the users involved, a loop refuses the whole update
+            if (approverChanged && !orgHierarchy.moveUser(id, newUser.getLineManagerId())) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return I18nResponses.badRequest(MessagesCodes.USER_MANAGER_CYCLE);
+            }
+            boolean jobTitleChanged = !Objects.equals(
+                    user.getJobTitle() != null ? user.getJobTitle().getId() : null,
+                    newUser.getJobTitle() != null ? newUser.getJobTitle().getId() : null);
             user.setName(newUser.getName());
             user.setBirthdate(newUser.getBirthdate());
             user.setEmail(newUser.getEmail());
             user.setLineManagerId(newUser.getLineManagerId());
             user.setLineManager(newUser.getLineManager());
             user.setJobTitle(newUser.getJobTitle());
-            user.setCurrentYearVacationDays(newUser.getCurrentYearVacationDays());
-            user.setPrevYearVacationDays(newUser.getPrevYearVacationDays());
+            // The balances given are recorded as an adjustment from the ones loaded
+            if (newUser.getCurrentYearVacationDays() != null) {
+                user.setCurrentYearVacationDays(newUser.getCurrentYearVacationDays());
+            }
+            if (newUser.getPrevYearVacationDays() != null) {
+                user.setPrevYearVacationDays(newUser.getPrevYearVacationDays());
+            }
             user.setUserRoles(newUser.getUserRoles());
             user.setUserGroups(newUser.getUserGroups());
             user.setAdmissionDate(newUser.getAdmissionDate());
             user.setExitDate(newUser.getExitDate());
 
+            // The user is changed in memory, a refused update must not flush it
             List<ValidationFailure> validationErrors = user.getValidationFailures();
             if (!validationErrors.isEmpty()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
                 return I18nResponses.httpResponseWithColumnsValidation(HttpStatus.BAD_REQUEST,
                         MessagesCodes.VALIDATION_FAILED, validationErrors);
             }
 
-            User updatedUser = userRepository.save(user);
+            User updatedUser = userRepository.saveAndFlush(user);
+            // The roles, groups and synchronized claim of the user are loaded again
+            userSecurityCache.invalidateUser(previousEmail);
+            userSecurityCache.invalidateUser(updatedUser.getEmail());
+            vacationBalances.save(user, Reason.ADJUSTMENT, null);
+            if (jobTitleChanged) {
+                projectBudgets.invalidateUser(id);
+            }
+            if (approverChanged) {
+                approvalCounters.updateApproversByUser(id);
+            }
             return I18nResponses.httpResponseWithData(HttpStatus.ACCEPTED,
                     MessagesCodes.USER_UPDATED_OK,
                     updatedUser);
 
         } catch (HttpMessageNotReadableException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return I18nResponses.badRequest(MessagesCodes.MALFORMED_REQUEST_BODY);
         } catch (DataIntegrityViolationException e) {
             log.error("Data integrity violation: {}", e.getMessage());
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return I18nResponses.badRequest(
                     MessagesCodes.DATA_INTEGRITY_VIOLATION);
         } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return I18nResponses.httpResponse(HttpStatus.INTERNAL_SERVER_ERROR,
                     MessagesCodes.INTERNAL_SERVER_ERROR);
         }
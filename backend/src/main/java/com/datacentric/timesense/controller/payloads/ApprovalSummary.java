@@ -0,0 +1,19 @@
+package com.datacentric.timesense.controller.payloads;
+
+public class ApprovalSummary {
+    private long pendingTimeRecords;
+    private long pendingAbsences;
+
+    public ApprovalSummary(long pendingTimeRecords, long pendingAbsences) {
+        this.pendingTimeRecords = pendingTimeRecords;
+        this.pendingAbsences = pendingAbsences;
+    }
+
+    public long getPendingTimeRecords() {
+        return pendingTimeRecords;
+    }
+
+    public long getPendingAbsences() {
+        return pendingAbsences;
+    }
+}
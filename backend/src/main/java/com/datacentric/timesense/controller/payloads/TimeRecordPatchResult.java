@@ -0,0 +1,35 @@
+package com.datacentric.timesense.controller.payloads;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a time record patch command for each of its ids.
+ */
+public class TimeRecordPatchResult {
+
+    private String command;
+    private List<Long> updated = new ArrayList<>();
+    private List<Long> forbidden = new ArrayList<>();
+    private List<Long> notFound = new ArrayList<>();
+
+    public TimeRecordPatchResult(String command) {
+        this.command = command;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public List<Long> getUpdated() {
+        return updated;
+    }
+
+    public List<Long> getForbidden() {
+        return forbidden;
+    }
+
+    public List<Long> getNotFound() {
+        return notFound;
+    }
+}
@@ -7,6 +7,7 @@ import java.util.List;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.SQLRestriction;
 
+import com.datacentric.timesense.utils.i18n.MessagesCodes;
 import com.datacentric.timesense.utils.rest.ValidationUtils;
 import com.datacentric.utils.rest.ValidationFailure;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -21,6 +22,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
@@ -43,7 +45,9 @@ public class Absence extends AuditableTable {
 
     @JsonView(Views.Basic.class)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "absences_id_seq")
+    @SequenceGenerator(name = "absences_id_seq", sequenceName = "absences_id_seq",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     @JsonView(Views.Basic.class)
@@ -291,6 +295,10 @@ public class Absence extends AuditableTable {
         ValidationUtils.checkFieldFilled(approver, "approver", failedValidations);
         ValidationUtils.checkFieldFilled(status, "status", failedValidations);
         ValidationUtils.checkFieldFilled(name, "name", failedValidations);
+        if (startDate != null && endDate != null && endDate.before(startDate)) {
+            failedValidations.add(new ValidationFailure("end_date",
+                    MessagesCodes.INVALID_DATE_RANGE));
+        }
 
         if (type != null && "ABSENCES".equals(type.getName())) {
             ValidationUtils.checkFieldFilled(absenceHours, "absence_hours", failedValidations);
@@ -10,6 +10,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
@@ -24,7 +25,10 @@ public class AbsenceAttachment {
 
     @JsonView(Views.Basic.class)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "absence_attachments_id_seq")
+    @SequenceGenerator(name = "absence_attachments_id_seq",
+            sequenceName = "absence_attachments_id_seq",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     @JsonView(Views.Basic.class)
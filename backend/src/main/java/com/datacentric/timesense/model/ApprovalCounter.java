@@ -0,0 +1,62 @@
+package com.datacentric.timesense.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+/**
+ * A change to the number of items waiting for the approval of a user. The number of pending
+ * items of an approver is the sum of its rows, see ApprovalCounters.
+ */
+@Entity
+@Table(name = "approval_counters")
+public class ApprovalCounter {
+
+    public static final String TIME_RECORDS = "TIME_RECORD";
+    public static final String ABSENCES = "ABSENCE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "approval_counters_id_seq")
+    @SequenceGenerator(name = "approval_counters_id_seq",
+            sequenceName = "approval_counters_id_seq",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "approver_user_id", nullable = false)
+    private Long approverUserId;
+
+    @Column(name = "item_type", nullable = false)
+    private String itemType;
+
+    @Column(name = "delta", nullable = false)
+    private long delta;
+
+    public ApprovalCounter() {
+    }
+
+    public ApprovalCounter(Long approverUserId, String itemType, long delta) {
+        this.approverUserId = approverUserId;
+        this.itemType = itemType;
+        this.delta = delta;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getApproverUserId() {
+        return approverUserId;
+    }
+
+    public String getItemType() {
+        return itemType;
+    }
+
+    public long getDelta() {
+        return delta;
+    }
+}
@@ -12,6 +12,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
@@ -28,7 +29,9 @@ public class Holiday {
 
     @JsonView(Views.Public.class)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "holidays_id_seq")
+    @SequenceGenerator(name = "holidays_id_seq", sequenceName = "holidays_id_seq",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     @JsonView(Views.Public.class)
@@ -0,0 +1,17 @@
+package com.datacentric.timesense.model;
+
+/**
+ * Settings shared by the sequence generators of the entities.
+ */
+public final class IdGenerators {
+
+    /**
+     * Ids reserved by each call to a sequence, so bulk inserts do not go to the database for
+     * every id and can be sent in JDBC batches. It must match the INCREMENT BY of the
+     * database sequences.
+     */
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGenerators() {
+    }
+}
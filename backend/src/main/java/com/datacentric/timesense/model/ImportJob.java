@@ -0,0 +1,253 @@
+package com.datacentric.timesense.model;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonView;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+
+/**
+ * A CSV import running in the background. The uploaded file is kept in the storage
+ * provider until the import finishes, and the counters are saved after every committed
+ * chunk so an interrupted job can resume from its checkpoint.
+ */
+@Entity
+@Table(name = "import_jobs")
+public class ImportJob extends AuditableTable {
+
+    public static final String TYPE_PROJECTS = "PROJECTS";
+    public static final String TYPE_ABSENCES = "ABSENCES";
+    public static final String TYPE_HOLIDAYS = "HOLIDAYS";
+
+    public static final String STATE_QUEUED = "QUEUED";
+    public static final String STATE_RUNNING = "RUNNING";
+    public static final String STATE_DONE = "DONE";
+    public static final String STATE_FAILED = "FAILED";
+
+    private static final String ERRORS_SEPARATOR = "\n";
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    public static final class Views {
+
+        public interface Public {
+        }
+
+        public interface Complete extends Public {
+        }
+    }
+
+    @JsonView(Views.Public.class)
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonView(Views.Public.class)
+    @Column(name = "import_type")
+    private String importType;
+
+    @JsonView(Views.Public.class)
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "storage_object_id")
+    private String storageObjectId;
+
+    @JsonView(Views.Public.class)
+    @Column(name = "state")
+    private String state;
+
+    @Column(name = "checkpoint_row")
+    private long checkpointRow;
+
+    @JsonView(Views.Public.class)
+    @Column(name = "rows_read")
+    private long rowsRead;
+
+    @JsonView(Views.Public.class)
+    @Column(name = "rows_imported")
+    private long rowsImported;
+
+    @JsonView(Views.Public.class)
+    @Column(name = "rows_skipped")
+    private long rowsSkipped;
+
+    @JsonView(Views.Public.class)
+    @Column(name = "error_count")
+    private long errorCount;
+
+    @Column(name = "errors")
+    private String errors;
+
+    @JsonView(Views.Public.class)
+    @Column(name = "failure_reason")
+    private String failureReason;
+
+    @JsonView(Views.Public.class)
+    @Column(name = "started_at")
+    private Timestamp startedAt;
+
+    @JsonView(Views.Public.class)
+    @Column(name = "finished_at")
+    private Timestamp finishedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getImportType() {
+        return importType;
+    }
+
+    public void setImportType(String importType) {
+        this.importType = importType;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getStorageObjectId() {
+        return storageObjectId;
+    }
+
+    public void setStorageObjectId(String storageObjectId) {
+        this.storageObjectId = storageObjectId;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public long getCheckpointRow() {
+        return checkpointRow;
+    }
+
+    public void setCheckpointRow(long checkpointRow) {
+        this.checkpointRow = checkpointRow;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public long getRowsImported() {
+        return rowsImported;
+    }
+
+    public void setRowsImported(long rowsImported) {
+        this.rowsImported = rowsImported;
+    }
+
+    public long getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    public void setRowsSkipped(long rowsSkipped) {
+        this.rowsSkipped = rowsSkipped;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public void setErrorCount(long errorCount) {
+        this.errorCount = errorCount;
+    }
+
+    @JsonView(Views.Complete.class)
+    @Transient
+    public List<String> getErrors() {
+        if (errors == null || errors.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList(errors.split(ERRORS_SEPARATOR)));
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors == null || errors.isEmpty() ? null
+                : String.join(ERRORS_SEPARATOR, errors);
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+
+    public Timestamp getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Timestamp startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Timestamp getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Timestamp finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    /**
+     * Rows read per second since the job started, until it finished.
+     */
+    @JsonView(Views.Public.class)
+    @Transient
+    public double getThroughput() {
+        if (startedAt == null) {
+            return 0.0;
+        }
+        long end = finishedAt != null ? finishedAt.getTime() : System.currentTimeMillis();
+        long elapsed = Math.max(1, end - startedAt.getTime());
+        return rowsRead * MILLIS_PER_SECOND / elapsed;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (id == null) {
+            return false;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        ImportJob that = (ImportJob) other;
+        return id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : 0;
+    }
+}
@@ -0,0 +1,89 @@
+package com.datacentric.timesense.model;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+/**
+ * Rate of a job title from a date on, until the next rate of the same job title. The cost of
+ * a time record is its hours times the rate of the job title of the user on the day of the
+ * record, see TimeRecordCosts.
+ */
+@Entity
+@Table(name = "job_title_rate_history", indexes = @Index(
+        name = "idx_job_title_rate_history_job_title",
+        columnList = "job_title_id, effective_from"))
+public class JobTitleRate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "job_title_rate_history_id_seq")
+    @SequenceGenerator(name = "job_title_rate_history_id_seq",
+            sequenceName = "job_title_rate_history_id_seq",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "job_title_id", nullable = false)
+    private Long jobTitleId;
+
+    @Column(name = "rate")
+    private Double rate;
+
+    @Column(name = "effective_from", nullable = false)
+    private LocalDate effectiveFrom;
+
+    @Column(name = "created_at", updatable = false)
+    @CreationTimestamp
+    private Timestamp createdAt;
+
+    // Set once the costs of the records from the effective date on use this rate
+    @Column(name = "recalculated_at")
+    private Timestamp recalculatedAt;
+
+    public JobTitleRate() {
+    }
+
+    public JobTitleRate(Long jobTitleId, Double rate, LocalDate effectiveFrom) {
+        this.jobTitleId = jobTitleId;
+        this.rate = rate;
+        this.effectiveFrom = effectiveFrom;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getJobTitleId() {
+        return jobTitleId;
+    }
+
+    public Double getRate() {
+        return rate;
+    }
+
+    public LocalDate getEffectiveFrom() {
+        return effectiveFrom;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public Timestamp getRecalculatedAt() {
+        return recalculatedAt;
+    }
+
+    public void setRecalculatedAt(Timestamp recalculatedAt) {
+        this.recalculatedAt = recalculatedAt;
+    }
+}
@@ -21,6 +21,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
@@ -42,7 +43,10 @@ public class ProjectAssignment extends AuditableTable {
 
     @JsonView(Views.Public.class)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "project_assignments_id_seq")
+    @SequenceGenerator(name = "project_assignments_id_seq",
+            sequenceName = "project_assignments_id_seq",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     @JsonView(Views.Public.class)
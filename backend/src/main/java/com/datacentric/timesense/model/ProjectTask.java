@@ -1,9 +1,11 @@
 package com.datacentric.timesense.model;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import com.fasterxml.jackson.annotation.JsonView;
 
@@ -20,7 +22,7 @@ import jakarta.persistence.Table;
 
 @Entity
 @Table(name = "tasks")
-@SQLDelete(sql = "UPDATE tasks SET deleted = true WHERE id=?")
+@SQLDelete(sql = "UPDATE tasks SET deleted = true, updated_at = CURRENT_TIMESTAMP WHERE id=?")
 @SQLRestriction(value = "deleted=false")
 public class ProjectTask {
 
@@ -48,6 +50,11 @@ public class ProjectTask {
     @JoinColumn(name = "updated_by", referencedColumnName = "id")
     private User updatedBy;
 
+    // Part of the version of the timesheet grids, which show the task name
+    @Column(name = "updated_at")
+    @UpdateTimestamp
+    private Timestamp updatedAt;
+
     @Column(name = "deleted")
     private boolean deleted;
 
@@ -90,6 +97,14 @@ public class ProjectTask {
     public void setUpdatedBy(User updatedBy) {
         this.updatedBy = updatedBy;
     }
+
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Timestamp updatedAt) {
+        this.updatedAt = updatedAt;
+    }
     
     public boolean getDeleted() {
         return deleted;
@@ -21,6 +21,9 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
@@ -29,6 +32,8 @@ import jakarta.persistence.Table;
 @SQLRestriction(value = "deleted=false")
 public class TimeRecord extends AuditableTable {
 
+    public static final String LINE_MANAGER_APPROVAL = "LINE_MANAGER";
+    public static final String PROJECT_MANAGER_APPROVAL = "PROJECT_MANAGER";
 
     public static final class Views {
 
@@ -41,7 +46,9 @@ public class TimeRecord extends AuditableTable {
 
     @JsonView(Views.Public.class)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "time_records_id_seq")
+    @SequenceGenerator(name = "time_records_id_seq", sequenceName = "time_records_id_seq",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     @JsonView(Views.Public.class)
@@ -98,6 +105,21 @@ public class TimeRecord extends AuditableTable {
             foreignKey = @ForeignKey(name = "time_records_approved_by_fk"))
     private User approvedBy;
 
+    // Computed from the project and the user, see assignApprover()
+    @Column(name = "approver_user_id")
+    private Long approverUserId;
+
+    @Column(name = "approval_kind")
+    private String approvalKind;
+
+    // Job title of the user when the record was written, the cost is taken from its rates
+    @Column(name = "job_title_id")
+    private Long jobTitleId;
+
+    // Hours times the rate of the job title of the user, see TimeRecordCosts
+    @Column(name = "cost")
+    private Double cost;
+
     @Column(name = "deleted")
     private boolean deleted;
 
@@ -141,6 +163,22 @@ public class TimeRecord extends AuditableTable {
         this.hours = hours;
     }
 
+    public Long getJobTitleId() {
+        return jobTitleId;
+    }
+
+    public void setJobTitleId(Long jobTitleId) {
+        this.jobTitleId = jobTitleId;
+    }
+
+    public Double getCost() {
+        return cost;
+    }
+
+    public void setCost(Double cost) {
+        this.cost = cost;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -197,6 +235,39 @@ public class TimeRecord extends AuditableTable {
         this.approvedBy = approvedBy;
     }
 
+    public Long getApproverUserId() {
+        return approverUserId;
+    }
+
+    public String getApprovalKind() {
+        return approvalKind;
+    }
+
+    /**
+     * Sets who approves the record: the line manager of the user when the project type is
+     * approved by line managers and the user has one, the project manager otherwise.
+     *
+     * Changes to the project, its type or the line manager of the user made elsewhere are
+     * applied with the updateApproversBy* queries of TimeRecordRepository, which implement
+     * the same rule in SQL.
+     */
+    @PrePersist
+    @PreUpdate
+    void assignApprover() {
+        if (project == null) {
+            return;
+        }
+        ProjectType projectType = project.getProjectType();
+        if (projectType != null && Boolean.TRUE.equals(projectType.getLineManager())
+                && user != null && user.getLineManagerId() != null) {
+            approverUserId = user.getLineManagerId();
+            approvalKind = LINE_MANAGER_APPROVAL;
+        } else {
+            approverUserId = project.getManager() != null ? project.getManager().getId() : null;
+            approvalKind = PROJECT_MANAGER_APPROVAL;
+        }
+    }
+
     public boolean getDeleted() {
         return deleted;
     }
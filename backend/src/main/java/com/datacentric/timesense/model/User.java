@@ -26,6 +26,9 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 
@@ -44,11 +47,17 @@ public class User {
 
         public interface Complete extends Public {
         }
+
+        // The vacation balances, only in the responses that load the events after the snapshot
+        public interface Balances {
+        }
     }
 
     @JsonView(Views.Basic.class)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     @JsonView(Views.Basic.class)
@@ -80,14 +89,30 @@ public class User {
             foreignKey = @ForeignKey(name = "user_job_title_fk"))
     private JobTitle jobTitle;
 
-    @JsonView(Views.Basic.class)
-    @Column(name = "current_year_vacation_days", nullable = false)
+    /*
+     * Snapshot of the vacation balances, written only by VacationBalances. The events after
+     * it are not included, VacationBalances.load sets the balances with them where they are
+     * shown or checked. Only the views of the user endpoints, which load them, include them.
+     */
+    @JsonView(Views.Balances.class)
+    @Column(name = "current_year_vacation_days", nullable = false, updatable = false)
     private Double currentYearVacationDays;
 
-    @JsonView(Views.Basic.class)
-    @Column(name = "prev_year_vacation_days")
+    @JsonView(Views.Balances.class)
+    @Column(name = "prev_year_vacation_days", updatable = false)
     private Double prevYearVacationDays;
 
+    @JsonIgnore
+    @Column(name = "vacation_balance_event_id", nullable = false, updatable = false)
+    private long vacationBalanceEventId;
+
+    // Balances as loaded, the changes made since then are recorded as events when saved
+    @Transient
+    private Double loadedCurrentYearVacationDays;
+
+    @Transient
+    private Double loadedPrevYearVacationDays;
+
     @JsonView(Views.Basic.class)
     @Column(name = "admission_date")
     private LocalDate admissionDate;
@@ -187,6 +212,41 @@ public class User {
         this.prevYearVacationDays = prevYearVacationDays;
     }
 
+    /**
+     * Days added to the current year balance since it was loaded or last saved.
+     */
+    @JsonIgnore
+    public double getCurrentYearVacationDaysChange() {
+        return toDays(currentYearVacationDays) - toDays(loadedCurrentYearVacationDays);
+    }
+
+    /**
+     * Days added to the previous year balance since it was loaded or last saved.
+     */
+    @JsonIgnore
+    public double getPrevYearVacationDaysChange() {
+        return toDays(prevYearVacationDays) - toDays(loadedPrevYearVacationDays);
+    }
+
+    /**
+     * Sets the balances including the events after the snapshot, the changes are counted
+     * from them.
+     */
+    public void setVacationBalances(Double currentYearVacationDays,
+            Double prevYearVacationDays) {
+        this.currentYearVacationDays = currentYearVacationDays;
+        this.prevYearVacationDays = prevYearVacationDays;
+        vacationDaysChangesSaved();
+    }
+
+    /**
+     * Called once the balance changes were recorded.
+     */
+    public void vacationDaysChangesSaved() {
+        loadedCurrentYearVacationDays = currentYearVacationDays;
+        loadedPrevYearVacationDays = prevYearVacationDays;
+    }
+
     public JobTitle getJobTitle() {
         return jobTitle;
     }
@@ -258,6 +318,16 @@ public class User {
         this.id = id;
     }
 
+    @PostLoad
+    @PostPersist
+    void loadVacationBalances() {
+        vacationDaysChangesSaved();
+    }
+
+    private static double toDays(Double days) {
+        return days == null ? 0.0 : days;
+    }
+
     @JsonIgnore
     public List<ValidationFailure> getValidationFailures() {
         List<ValidationFailure> failedValidations = new ArrayList<>();
@@ -0,0 +1,62 @@
+package com.datacentric.timesense.model;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * Hours recorded by a user on a day, over all of their time records. Kept up to date by the
+ * time record writes, see DailyHoursLedger.
+ */
+@Entity
+@Table(name = "user_day_hours", uniqueConstraints = @UniqueConstraint(
+        name = "user_day_hours_user_day_uk", columnNames = {"user_id", "work_day"}))
+public class UserDayHours {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_day_hours_id_seq")
+    @SequenceGenerator(name = "user_day_hours_id_seq", sequenceName = "user_day_hours_id_seq",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "work_day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "hours", nullable = false)
+    private double hours;
+
+    public UserDayHours() {
+    }
+
+    public UserDayHours(Long userId, LocalDate day, double hours) {
+        this.userId = userId;
+        this.day = day;
+        this.hours = hours;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public double getHours() {
+        return hours;
+    }
+}
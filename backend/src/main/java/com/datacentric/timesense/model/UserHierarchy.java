@@ -0,0 +1,61 @@
+package com.datacentric.timesense.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * Link between a user and someone below them in the line manager hierarchy, with the number
+ * of levels between them (1 for direct reports). Kept up to date by OrgHierarchy.
+ */
+@Entity
+@Table(name = "user_hierarchy", uniqueConstraints = @UniqueConstraint(
+        name = "user_hierarchy_ancestor_descendant_uk",
+        columnNames = {"ancestor_id", "descendant_id"}))
+public class UserHierarchy {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_hierarchy_id_seq")
+    @SequenceGenerator(name = "user_hierarchy_id_seq", sequenceName = "user_hierarchy_id_seq",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "ancestor_id", nullable = false)
+    private Long ancestorId;
+
+    @Column(name = "descendant_id", nullable = false)
+    private Long descendantId;
+
+    @Column(name = "depth", nullable = false)
+    private int depth;
+
+    public UserHierarchy() {
+    }
+
+    public UserHierarchy(Long ancestorId, Long descendantId, int depth) {
+        this.ancestorId = ancestorId;
+        this.descendantId = descendantId;
+        this.depth = depth;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAncestorId() {
+        return ancestorId;
+    }
+
+    public Long getDescendantId() {
+        return descendantId;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+}
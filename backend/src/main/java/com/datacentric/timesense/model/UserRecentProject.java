@@ -0,0 +1,63 @@
+package com.datacentric.timesense.model;
+
+import java.sql.Timestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * Last time a user recorded time on a project. Kept up to date by the time record writes,
+ * see RecentProjects.
+ */
+@Entity
+@Table(name = "user_recent_projects", uniqueConstraints = @UniqueConstraint(
+        name = "user_recent_projects_user_project_uk", columnNames = {"user_id", "project_id"}))
+public class UserRecentProject {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_recent_projects_id_seq")
+    @SequenceGenerator(name = "user_recent_projects_id_seq",
+            sequenceName = "user_recent_projects_id_seq",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    @Column(name = "last_used_at", nullable = false)
+    private Timestamp lastUsedAt;
+
+    public UserRecentProject() {
+    }
+
+    public UserRecentProject(Long userId, Long projectId, Timestamp lastUsedAt) {
+        this.userId = userId;
+        this.projectId = projectId;
+        this.lastUsedAt = lastUsedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public Timestamp getLastUsedAt() {
+        return lastUsedAt;
+    }
+}
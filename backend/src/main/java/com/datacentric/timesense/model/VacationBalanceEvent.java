@@ -0,0 +1,92 @@
+package com.datacentric.timesense.model;
+
+import java.sql.Timestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+/**
+ * Change of the vacation balance of a user for a business year. The events are only ever
+ * inserted, the balance of a user is the snapshot kept in the users row plus the events
+ * after it, see VacationBalances.
+ */
+@Entity
+@Table(name = "vacation_balance_events", indexes = @Index(
+        name = "idx_vacation_balance_events_user", columnList = "user_id, id"))
+public class VacationBalanceEvent {
+
+    /**
+     * What changed the balance.
+     */
+    public enum Reason {
+        ABSENCE,
+        REFUND,
+        ADJUSTMENT,
+        IMPORT,
+        HOLIDAYS
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "vacation_balance_events_id_seq")
+    @SequenceGenerator(name = "vacation_balance_events_id_seq",
+            sequenceName = "vacation_balance_events_id_seq",
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "business_year", nullable = false)
+    private String businessYear;
+
+    // Days added to the balance, negative when they are taken from it
+    @Column(name = "days", nullable = false)
+    private double days;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "reason", nullable = false)
+    private Reason reason;
+
+    @Column(name = "absence_id")
+    private Long absenceId;
+
+    @Column(name = "created_at", nullable = false)
+    private Timestamp createdAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getBusinessYear() {
+        return businessYear;
+    }
+
+    public double getDays() {
+        return days;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public Long getAbsenceId() {
+        return absenceId;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -17,7 +17,8 @@ import com.datacentric.timesense.model.Status;
 public interface AbsenceRepository extends JpaRepository<Absence, Long>,
         JpaSpecificationExecutor<Absence> {
 
-    @Query("SELECT a FROM Absence a WHERE ?1 BETWEEN a.startDate AND a.endDate ")            
+    // The period functions are defined in PeriodFunctions and use the GiST index on PostgreSQL
+    @Query("SELECT a FROM Absence a WHERE period_contains(a.startDate, a.endDate, ?1) = true ")
     List<Absence> findAllAbsencesByDate(Timestamp date);
 
     @Query("SELECT a FROM Absence a WHERE a.id IN ?1 AND a.deleted = false ")
@@ -25,7 +26,7 @@ public interface AbsenceRepository extends JpaRepository<Absence, Long>,
 
     @Query("SELECT a " + 
         "  FROM Absence a " +
-        "  WHERE a.startDate <= ?2 AND a.endDate >= ?1 AND a.deleted = false " + 
+        "  WHERE period_overlaps(a.startDate, a.endDate, ?1, ?2) = true AND a.deleted = false " +
         "       AND a.status.name != 'DENIED' ")
     List<Absence> getAllAbsencesByDate(Timestamp start, Timestamp end);
 
@@ -34,7 +35,7 @@ public interface AbsenceRepository extends JpaRepository<Absence, Long>,
         "JOIN FETCH a.user u " +
         "JOIN FETCH a.status s " +
         "JOIN FETCH a.type t " +
-        "WHERE a.startDate <= ?2 AND a.endDate >= ?1 " +
+        "WHERE period_overlaps(a.startDate, a.endDate, ?1, ?2) = true " +
         "AND a.deleted = false " +
         "AND s.name != 'DENIED' " +
         "AND (?3 IS NULL OR u.id IN ?3) " +
@@ -55,9 +56,20 @@ public interface AbsenceRepository extends JpaRepository<Absence, Long>,
     List<Absence> getPassedAbsences(Timestamp date);
 
     @Query("SELECT a FROM Absence a WHERE a.deleted = false " + 
-            " AND a.endDate >= ?1 AND a.startDate <= ?2 ")
+            " AND period_overlaps(a.startDate, a.endDate, ?1, ?2) = true ")
     List<Absence> getAbsencesFromDate(Timestamp start, Timestamp end);
 
+    // Ordered by user for the sweep of CapacityPlanning
+    @Query("SELECT a.user.id, a.startDate, a.endDate, a.recordType, a.absenceHours, t.name " +
+        "FROM Absence a " +
+        "JOIN a.type t " +
+        "JOIN a.status s " +
+        "WHERE period_overlaps(a.startDate, a.endDate, ?1, ?2) = true " +
+        "AND a.deleted = false " +
+        "AND s.name IN ('APPROVED', 'DONE') " +
+        "ORDER BY a.user.id, a.startDate ")
+    List<Object[]> getCapacityAbsences(Timestamp start, Timestamp end);
+
     @Modifying
     @Query("UPDATE Absence a SET status = ?1, observations = ?2, approvedBy.id = ?4, " +
             " approvedDate = CURRENT_TIMESTAMP WHERE a.id IN ?3 ")
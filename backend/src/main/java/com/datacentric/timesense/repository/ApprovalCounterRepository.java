@@ -0,0 +1,47 @@
+package com.datacentric.timesense.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.datacentric.timesense.model.ApprovalCounter;
+
+@Repository
+public interface ApprovalCounterRepository extends JpaRepository<ApprovalCounter, Long> {
+
+    @Query("SELECT c.itemType, SUM(c.delta) FROM ApprovalCounter c " +
+            " WHERE c.approverUserId = ?1 GROUP BY c.itemType")
+    List<Object[]> sumByItemType(Long approverUserId);
+
+    @Query("SELECT t.approverUserId, COUNT(t) FROM TimeRecord t " +
+            " WHERE t.status.id = ?1 AND t.approverUserId IS NOT NULL " +
+            " GROUP BY t.approverUserId")
+    List<Object[]> countTimeRecordsByApprover(Long statusId);
+
+    // The pending records of the bulk approver changes of TimeRecordRepository, per approver
+
+    @Query("SELECT t.approverUserId, COUNT(t) FROM TimeRecord t " +
+            " WHERE t.status.id = ?1 AND t.approverUserId IS NOT NULL " +
+            " AND t.project.id = ?2 AND t.deleted = false " +
+            " GROUP BY t.approverUserId")
+    List<Object[]> countTimeRecordsByApproverOfProject(Long statusId, Long projectId);
+
+    @Query("SELECT t.approverUserId, COUNT(t) FROM TimeRecord t " +
+            " WHERE t.status.id = ?1 AND t.approverUserId IS NOT NULL " +
+            " AND t.project.type.id = ?2 AND t.deleted = false " +
+            " GROUP BY t.approverUserId")
+    List<Object[]> countTimeRecordsByApproverOfProjectType(Long statusId, Long projectTypeId);
+
+    @Query("SELECT t.approverUserId, COUNT(t) FROM TimeRecord t " +
+            " WHERE t.status.id = ?1 AND t.approverUserId IS NOT NULL " +
+            " AND t.user.id = ?2 AND t.deleted = false " +
+            " GROUP BY t.approverUserId")
+    List<Object[]> countTimeRecordsByApproverOfUser(Long statusId, Long userId);
+
+    @Query("SELECT a.approver.id, COUNT(a) FROM Absence a " +
+            " WHERE a.status.id = ?1 AND a.approver IS NOT NULL " +
+            " GROUP BY a.approver.id")
+    List<Object[]> countAbsencesByApprover(Long statusId);
+}
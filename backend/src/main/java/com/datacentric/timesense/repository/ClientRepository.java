@@ -1,5 +1,7 @@
 package com.datacentric.timesense.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -23,6 +25,9 @@ public interface ClientRepository extends JpaRepository<Client, Long>,
     @Query("SELECT c FROM Client c WHERE c.name = ?1 ")
     Optional<Client> findByName(String name);
 
+    @Query("SELECT c.name, c.id FROM Client c WHERE c.name IN ?1 ")
+    List<Object[]> findIdsByNameIn(Collection<String> names);
+
     @Modifying
     @Transactional
     @Query("UPDATE Client c " + 
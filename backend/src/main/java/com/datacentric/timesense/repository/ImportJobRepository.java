@@ -0,0 +1,19 @@
+package com.datacentric.timesense.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.datacentric.timesense.model.ImportJob;
+
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long>,
+        JpaSpecificationExecutor<ImportJob> {
+
+    @Query("SELECT j FROM ImportJob j WHERE j.state IN ?1 ORDER BY j.id ")
+    List<ImportJob> findByStateIn(Collection<String> states);
+}
@@ -0,0 +1,19 @@
+package com.datacentric.timesense.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.datacentric.timesense.model.JobTitleRate;
+
+@Repository
+public interface JobTitleRateRepository extends JpaRepository<JobTitleRate, Long> {
+
+    List<JobTitleRate> findByJobTitleIdInOrderByJobTitleIdAscEffectiveFromAscIdAsc(
+            Collection<Long> jobTitleIds);
+
+    // Rates whose time records still have the costs of the previous rates
+    List<JobTitleRate> findByRecalculatedAtIsNullOrderByIdAsc();
+}
@@ -1,5 +1,6 @@
 package com.datacentric.timesense.repository;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -19,4 +20,19 @@ public interface ProjectAssignmentRepository extends JpaRepository<ProjectAssign
            " FROM ProjectAssignment pa " + 
            " WHERE pa.project.id = ?1 AND pa.deleted = false ")
     List<ProjectAssignment> getProjectAssignments(Long projectId);
+
+    // Columns read by ProjectBudgets, without loading the users and job titles
+    @Query("SELECT pa.id, u.id, j.id, j.rate, pa.startDate, pa.endDate, pa.allocation " +
+           " FROM ProjectAssignment pa " +
+           " LEFT JOIN pa.user u " +
+           " LEFT JOIN u.jobTitle j " +
+           " WHERE pa.project.id = ?1 AND pa.deleted = false ")
+    List<Object[]> getBudgetAssignments(Long projectId);
+
+    // Ordered by user for the sweep of CapacityPlanning
+    @Query("SELECT pa.user.id, pa.startDate, pa.endDate, pa.allocation " +
+           " FROM ProjectAssignment pa " +
+           " WHERE pa.deleted = false AND pa.startDate < ?2 AND pa.endDate >= ?1 " +
+           " ORDER BY pa.user.id, pa.startDate ")
+    List<Object[]> getCapacityAssignments(Timestamp start, Timestamp end);
 }
@@ -1,6 +1,6 @@
 package com.datacentric.timesense.repository;
 
-import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,15 +15,10 @@ import com.datacentric.timesense.model.Project;
 public interface ProjectRepository extends JpaRepository<Project, Long>,
         JpaSpecificationExecutor<Project> {
 
-    @Query("SELECT p " +
-        "FROM Project p " +
-        "INNER JOIN TimeRecord t ON " +
-        "       t.deleted = false AND t.user.id = ?2 AND t.project.id = p.id AND " +
-        "                               (t.updatedAt >= ?1 OR t.createdAt >= ?1) " +
-        "WHERE p.deleted = false ")
-    List<Project> findUserTimeRecordsFromDate(Timestamp date, Long userId);
-
     @Query("SELECT p FROM Project p WHERE p.name = ?1 ")
     Optional<Project> findByCode(String code);
 
+    @Query("SELECT p.name FROM Project p WHERE p.name IN ?1 ")
+    List<String> findExistingCodes(Collection<String> codes);
+
 }
@@ -21,7 +21,7 @@ public interface ProjectTaskRepository extends JpaRepository<ProjectTask, Long>,
     @Modifying
     @Transactional
     @Query("UPDATE ProjectTask c " + 
-             "SET c.deleted = true " + 
+             "SET c.deleted = true, c.updatedAt = CURRENT_TIMESTAMP " + 
              "WHERE c.id = ?1 ")
      void deleteSystemSettingById(Long id);
 
@@ -1,5 +1,7 @@
 package com.datacentric.timesense.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -25,6 +27,9 @@ public interface ProjectTypeRepository extends JpaRepository<ProjectType, Long>,
            "FROM ProjectType t WHERE t.name = ?1 ")
     Optional<ProjectType> findByName(String name);
 
+    @Query("SELECT t.name, t.id FROM ProjectType t WHERE t.name IN ?1 ")
+    List<Object[]> findIdsByNameIn(Collection<String> names);
+
     @Query("SELECT CASE WHEN COUNT(a) > 0 THEN true ELSE false END " +
             "FROM Project a WHERE a.type.id = :typeId")
     boolean existsInProjectByTypeId(@Param("typeId") Long typeId);
@@ -35,17 +35,14 @@ public class TimeRecordCustomRepositoryImpl implements TimeRecordCustomRepositor
         query.append("SELECT t.user_id, ")
              .append("DATE_TRUNC('week', t.start_date) AS week_start, ")
              .append("SUM(t.hours) AS total_hours, ")
-             .append("SUM(t.hours * j.rate) AS total_cost ")
+             .append("SUM(t.cost) AS total_cost ")
              .append("FROM time_records t ")
-             .append("INNER JOIN users u ON u.id = t.user_id ")
-             .append("INNER JOIN projects p ON p.id = t.project_id ")
              .append("INNER JOIN status s ON s.id = t.status_id ")
-             .append("LEFT OUTER JOIN job_titles j ON j.id = u.job_title ")
-             .append("WHERE p.id = :projectId ")
+             .append("WHERE t.project_id = :projectId ")
              .append("AND s.name <> 'DRAFT' ");
 
         if (userId != null && !userId.isEmpty()) {
-            query.append("AND u.id in ( :userId ) ");
+            query.append("AND t.user_id in ( :userId ) ");
         }
 
         if (startDate != null) {
@@ -117,19 +114,17 @@ public class TimeRecordCustomRepositoryImpl implements TimeRecordCustomRepositor
              .append("pt.name, ")
              .append("t.description, ")
              .append("t.hours, ")
-             .append("t.hours * j.rate AS total_cost, ")
+             .append("t.cost AS total_cost, ")
              .append("t.start_date ")
              .append("FROM time_records t ")
              .append("INNER JOIN users u ON u.id = t.user_id ")
-             .append("INNER JOIN projects p ON p.id = t.project_id ")
              .append("INNER JOIN status s ON s.id = t.status_id ")
              .append("INNER JOIN tasks pt ON pt.id = t.task_id ")
-             .append("LEFT OUTER JOIN job_titles j ON j.id = u.job_title ")
-             .append("WHERE p.id = :projectId ")
+             .append("WHERE t.project_id = :projectId ")
              .append("AND s.name <> 'DRAFT' ");
 
         if (userId != null && !userId.isEmpty()) {
-            query.append("AND u.id in ( :userId ) ");
+            query.append("AND t.user_id in ( :userId ) ");
         }
 
         if (startDate != null) {
@@ -234,7 +229,6 @@ public class TimeRecordCustomRepositoryImpl implements TimeRecordCustomRepositor
              .append("INNER JOIN projects p ON p.id = t.project_id ")
              .append("INNER JOIN status s ON s.id = t.status_id ")
              .append("INNER JOIN tasks pt ON pt.id = t.task_id ")
-             .append("LEFT OUTER JOIN job_titles j ON j.id = u.job_title ")
              .append("WHERE s.name = 'APPROVED' ");
 
         if (projectId != null && !projectId.isEmpty()) {
@@ -337,17 +331,14 @@ public class TimeRecordCustomRepositoryImpl implements TimeRecordCustomRepositor
         query.append("SELECT t.user_id, ")
              .append("DATE_TRUNC('month', t.start_date) AS month_start, ")
              .append("SUM(t.hours) AS total_hours, ")
-             .append("SUM(t.hours * j.rate) AS total_cost ")
+             .append("SUM(t.cost) AS total_cost ")
              .append("FROM time_records t ")
-             .append("INNER JOIN users u ON u.id = t.user_id ")
-             .append("INNER JOIN projects p ON p.id = t.project_id ")
              .append("INNER JOIN status s ON s.id = t.status_id ")
-             .append("LEFT OUTER JOIN job_titles j ON j.id = u.job_title ")
-             .append("WHERE p.id = :projectId ")
+             .append("WHERE t.project_id = :projectId ")
              .append("AND s.name <> 'DRAFT' ");
 
         if (userId != null && !userId.isEmpty()) {
-            query.append("AND u.id in ( :userId ) ");
+            query.append("AND t.user_id in ( :userId ) ");
         }
 
         if (startDate != null) {
@@ -14,9 +14,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.datacentric.timesense.model.Status;
 import com.datacentric.timesense.model.TimeRecord;
-import com.datacentric.timesense.model.User;
 
 @Repository
 public interface TimeRecordRepository extends JpaRepository<TimeRecord, Long>,
@@ -35,6 +33,20 @@ public interface TimeRecordRepository extends JpaRepository<TimeRecord, Long>,
             Pageable pageable
     );
 
+    // Timesheet grid of a user, see TimesheetGrid
+    @Query("SELECT t.id, p.id, p.name, k.id, k.name, t.startDate, t.hours, s.name " +
+            " FROM TimeRecord t LEFT JOIN t.project p LEFT JOIN t.task k " +
+            " LEFT JOIN t.status s " +
+            " WHERE t.user.id = ?1 AND t.startDate >= ?2 AND t.startDate < ?3 " +
+            " ORDER BY p.name, p.id, k.name, k.id, t.startDate, t.id")
+    List<Object[]> getTimesheetRecords(Long userId, Timestamp start, Timestamp end);
+
+    @Query("SELECT COUNT(t), SUM(t.id), MAX(t.updatedAt), MAX(p.updatedAt), " +
+            " MAX(k.updatedAt) " +
+            " FROM TimeRecord t LEFT JOIN t.project p LEFT JOIN t.task k " +
+            " WHERE t.user.id = ?1 AND t.startDate >= ?2 AND t.startDate < ?3")
+    List<Object[]> getTimesheetVersion(Long userId, Timestamp start, Timestamp end);
+
     @Query("SELECT t FROM TimeRecord t WHERE t.user.id = :userId " +
             "AND t.project.id IN :projectIds " +
             "AND t.task.id IN :taskIds " +
@@ -56,13 +68,10 @@ public interface TimeRecordRepository extends JpaRepository<TimeRecord, Long>,
     @Query(value = " SELECT " +
                     "  DATE_TRUNC('week', t.start_date) AS week_start, " +
                     "  SUM(t.hours) AS total_hours, " +
-                    "  SUM(t.hours * j.rate) AS total_cost " +
+                    "  SUM(t.cost) AS total_cost " +
                     "FROM time_records t " +
-                    "INNER JOIN users u ON u.id = t.user_id " +
-                    "INNER JOIN job_titles j ON j.id = u.job_title " +
-                    "INNER JOIN projects p on p.id = t.project_id " +
                     "INNER JOIN status s on s.id = t.status_id " +
-                    "WHERE p.id = ?1 " +
+                    "WHERE t.project_id = ?1 " +
                     "AND s.name <> 'DRAFT' " +
                     "GROUP BY " +
                     "  DATE_TRUNC('week', t.start_date) " +
@@ -74,13 +83,10 @@ public interface TimeRecordRepository extends JpaRepository<TimeRecord, Long>,
                     "  t.user_id, " +
                     "  DATE_TRUNC('week', t.start_date) AS week_start, " +
                     "  SUM(t.hours) AS total_hours, " +
-                    "  SUM(t.hours * j.rate) AS total_cost " +
+                    "  SUM(t.cost) AS total_cost " +
                     "FROM time_records t " +
-                    "INNER JOIN users u ON u.id = t.user_id " +
-                    "INNER JOIN job_titles j ON j.id = u.job_title " +
-                    "INNER JOIN projects p on p.id = t.project_id " +
                     "INNER JOIN status s on s.id = t.status_id " +
-                    "WHERE p.id = ?1 " +
+                    "WHERE t.project_id = ?1 " +
                     "AND s.name <> 'DRAFT' " +
                     "GROUP BY " +
                     "  DATE_TRUNC('week', t.start_date), " +
@@ -89,10 +95,53 @@ public interface TimeRecordRepository extends JpaRepository<TimeRecord, Long>,
         nativeQuery = true)
     List<Object[]> getWeeklyProjectCostsWithUser(Long projectId);
 
+    @Query(value = " SELECT " +
+                    "  EXTRACT(YEAR FROM t.start_date) AS year, " +
+                    "  EXTRACT(MONTH FROM t.start_date) AS month, " +
+                    "  SUM(t.hours) AS total_hours, " +
+                    "  SUM(t.cost) AS total_cost " +
+                    "FROM time_records t " +
+                    "INNER JOIN status s on s.id = t.status_id " +
+                    "WHERE t.project_id = ?1 " +
+                    "AND t.deleted = false " +
+                    "AND s.name <> 'DRAFT' " +
+                    "GROUP BY " +
+                    "  EXTRACT(YEAR FROM t.start_date), " +
+                    "  EXTRACT(MONTH FROM t.start_date) ",
+        nativeQuery = true)
+    List<Object[]> getMonthlyProjectCosts(Long projectId);
+
+    // Same rule as TimeRecord.assignApprover(), for the records of a changed project, project
+    // type or user
+    String SET_APPROVER = "UPDATE time_records t SET " +
+            " approver_user_id = (SELECT CASE WHEN pt.line_manager AND u.line_manager IS NOT NULL" +
+            "       THEN u.line_manager ELSE p.manager END " +
+            "   FROM projects p LEFT JOIN project_types pt ON pt.id = p.type_id, users u " +
+            "   WHERE p.id = t.project_id AND u.id = t.user_id), " +
+            " approval_kind = (SELECT CASE WHEN pt.line_manager AND u.line_manager IS NOT NULL" +
+            "       THEN '" + TimeRecord.LINE_MANAGER_APPROVAL + "' " +
+            "       ELSE '" + TimeRecord.PROJECT_MANAGER_APPROVAL + "' END " +
+            "   FROM projects p LEFT JOIN project_types pt ON pt.id = p.type_id, users u " +
+            "   WHERE p.id = t.project_id AND u.id = t.user_id) ";
+
+    @Modifying
+    @Transactional
+    @Query(value = SET_APPROVER + "WHERE t.project_id = ?1 AND t.deleted = false",
+            nativeQuery = true)
+    int updateApproversByProject(Long projectId);
+
     @Modifying
-    @Query("UPDATE TimeRecord t SET t.status = ?1, reason = ?2, approvedBy = ?4, " +
-            " approvedAt = CURRENT_TIMESTAMP  WHERE t.id in ?3")
-    int updateTimeRecordStatus(Status status, String reason, List<Long> ids, User approvedBy);
+    @Transactional
+    @Query(value = SET_APPROVER + "WHERE t.project_id IN " +
+            "   (SELECT id FROM projects WHERE type_id = ?1) AND t.deleted = false",
+            nativeQuery = true)
+    int updateApproversByProjectType(Long projectTypeId);
+
+    @Modifying
+    @Transactional
+    @Query(value = SET_APPROVER + "WHERE t.user_id = ?1 AND t.deleted = false",
+            nativeQuery = true)
+    int updateApproversByUser(Long userId);
 
     @Modifying
     @Transactional
@@ -0,0 +1,40 @@
+package com.datacentric.timesense.repository;
+
+import java.time.LocalDate;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.datacentric.timesense.model.UserDayHours;
+
+@Repository
+public interface UserDayHoursRepository extends JpaRepository<UserDayHours, Long> {
+
+    UserDayHours findByUserIdAndDay(Long userId, LocalDate day);
+
+    @Modifying
+    @Query("UPDATE UserDayHours h SET h.hours = h.hours + ?3 " +
+            " WHERE h.userId = ?1 AND h.day = ?2")
+    int addHours(Long userId, LocalDate day, double hours);
+
+    /**
+     * Inserts the day with the given hours, or adds them to the day when it exists and stays
+     * within the limit, relying on the unique (user_id, work_day) key. No limit is checked
+     * when maxHours is null.
+     *
+     * @return 0 if the day exists and would go over the limit
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_day_hours (id, user_id, work_day, hours)
+            VALUES (?1, ?2, ?3, ?4)
+            ON CONFLICT (user_id, work_day)
+            DO UPDATE SET hours = user_day_hours.hours + EXCLUDED.hours
+            WHERE CAST(?5 AS DOUBLE PRECISION) IS NULL
+                OR user_day_hours.hours + EXCLUDED.hours <= ?5
+        """,
+        nativeQuery = true)
+    int upsertHours(Long id, Long userId, LocalDate day, double hours, Double maxHours);
+}
@@ -17,6 +17,19 @@ public interface UserGroupRepository extends JpaRepository<UserGroup, Long>,
 
     List<UserGroup> findByTokenIdIn(List<String> tokenIds);
 
+    /**
+     * Inserts the group unless a group with the same token id exists, relying on the unique
+     * token id index so concurrent logins create each group only once.
+     *
+     * @return 1 if the group was inserted, 0 if it already existed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO user_groups (token_id, name, created_at, updated_at, deleted) " +
+            "VALUES (?1, ?2, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, false) " +
+            "ON CONFLICT DO NOTHING ", nativeQuery = true)
+    int insertUserGroupIfAbsent(String tokenId, String name);
+
     @Modifying
     @Transactional
     @Query("UPDATE UserGroup ug " + 
@@ -0,0 +1,28 @@
+package com.datacentric.timesense.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.datacentric.timesense.model.UserHierarchy;
+
+@Repository
+public interface UserHierarchyRepository extends JpaRepository<UserHierarchy, Long> {
+
+    // Users below the given one
+    List<UserHierarchy> findByAncestorId(Long ancestorId);
+
+    // Users above the given one
+    List<UserHierarchy> findByDescendantId(Long descendantId);
+
+    boolean existsByAncestorIdAndDescendantId(Long ancestorId, Long descendantId);
+
+    @Modifying
+    @Query("DELETE FROM UserHierarchy h " +
+            " WHERE h.ancestorId IN ?1 AND h.descendantId IN ?2")
+    int deleteLinks(Collection<Long> ancestorIds, Collection<Long> descendantIds);
+}
@@ -0,0 +1,40 @@
+package com.datacentric.timesense.repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.datacentric.timesense.model.Project;
+import com.datacentric.timesense.model.UserRecentProject;
+
+@Repository
+public interface UserRecentProjectRepository extends JpaRepository<UserRecentProject, Long> {
+
+    /**
+     * Inserts the row of the user and project, or moves its last use when it exists, relying
+     * on the unique (user_id, project_id) key.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_recent_projects (id, user_id, project_id, last_used_at)
+            VALUES (?1, ?2, ?3, ?4)
+            ON CONFLICT (user_id, project_id)
+            DO UPDATE SET last_used_at = EXCLUDED.last_used_at
+        """,
+        nativeQuery = true)
+    int upsert(Long id, Long userId, Long projectId, Timestamp usedAt);
+
+    @Query("SELECT p FROM UserRecentProject r JOIN Project p ON p.id = r.projectId " +
+            " WHERE r.userId = ?1 AND r.lastUsedAt >= ?2 " +
+            " ORDER BY r.lastUsedAt DESC, r.id DESC")
+    List<Project> findLastUsedProjects(Long userId, Timestamp since, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM UserRecentProject r WHERE r.lastUsedAt < ?1")
+    int deleteUsedBefore(Timestamp before);
+}
@@ -1,5 +1,6 @@
 package com.datacentric.timesense.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,12 +21,37 @@ public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificat
             "FROM User a WHERE a.jobTitle.id = ?1")
     boolean existsInUserByJobTitleId(Long jobTitleId);
 
-    @Query("SELECT u.id FROM User u WHERE u.lineManagerId = ?1 AND u.deleted = false")
-    List<Long> findManagerTeam(Long managerId);
-
     @Query("SELECT u FROM User u WHERE u.name = ?1 ")
     Optional<User> findByName(String name);
 
+    @Query("SELECT u.name, u.id FROM User u WHERE u.name IN ?1 ")
+    List<Object[]> findIdsByNameIn(Collection<String> names);
+
+    @Query("SELECT u.id, u.name FROM User u ORDER BY u.id ")
+    List<Object[]> getCapacityUsers();
+
+    @Query("SELECT u.email, u.id FROM User u WHERE u.email IN ?1 ")
+    List<Object[]> findIdsByEmailIn(Collection<String> emails);
+
+    /**
+     * Inserts the user unless a user with the same email exists, relying on the unique email
+     * index so concurrent first logins of the same user create it only once.
+     *
+     * @return 1 if the user was inserted, 0 if it already existed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO users (id, name, email, current_year_vacation_days,
+                prev_year_vacation_days, created_at, updated_at, deleted)
+            VALUES (nextval('users_id_seq'), ?1, ?2, ?3, ?4, CURRENT_TIMESTAMP,
+                CURRENT_TIMESTAMP, false)
+            ON CONFLICT DO NOTHING
+        """,
+        nativeQuery = true)
+    int insertUserIfAbsent(String name, String email, Double currentYearVacationDays,
+            Double prevYearVacationDays);
+
     // TODO: Add flag to JobTitle instead of using job title names
     @Modifying
     @Transactional
@@ -0,0 +1,260 @@
+package com.datacentric.timesense.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.datacentric.timesense.model.Absence;
+import com.datacentric.timesense.model.ApprovalCounter;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.TimeRecord;
+import com.datacentric.timesense.repository.ApprovalCounterRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.TimeRecordRepository;
+
+import jakarta.persistence.EntityManager;
+
+/*
+ * Number of pending time records and absences per approver.
+ *
+ * The writes append the change they made to the count of each approver, in the same
+ * transaction, so concurrent writes never wait for each other and a rolled back write
+ * leaves no trace. The bulk approver changes of a project, project type or user count the
+ * pending records they move before and after, so only the approvers they touch change. The
+ * nightly rebuild replaces the rows by the real counts, which also picks up the changes made
+ * by bulk statements that do not go through here.
+ */
+@Service
+public class ApprovalCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(ApprovalCounters.class);
+
+    private static final String STATUS_PENDING = "PENDING";
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
+    private ApprovalCounterRepository approvalCounterRepository;
+    private StatusRepository statusRepository;
+    private TimeRecordRepository timeRecordRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate rebuildTransactionTemplate;
+
+    @Autowired
+    public ApprovalCounters(ApprovalCounterRepository approvalCounterRepository,
+            StatusRepository statusRepository, TimeRecordRepository timeRecordRepository,
+            EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.approvalCounterRepository = approvalCounterRepository;
+        this.statusRepository = statusRepository;
+        this.timeRecordRepository = timeRecordRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // The counts and the rows they replace must be read from the same snapshot
+        this.rebuildTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildTransactionTemplate.setIsolationLevel(
+                TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Number of pending time records per approver.
+     */
+    public Map<Long, Long> pendingTimeRecords(Collection<TimeRecord> timeRecords) {
+        Long pendingStatusId = getPendingStatusId();
+        Map<Long, Long> pending = new HashMap<>();
+        for (TimeRecord timeRecord : timeRecords) {
+            if (timeRecord.getApproverUserId() != null
+                    && hasStatus(timeRecord.getStatus(), pendingStatusId)) {
+                pending.merge(timeRecord.getApproverUserId(), 1L, Long::sum);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Number of pending absences per approver.
+     */
+    public Map<Long, Long> pendingAbsences(Collection<Absence> absences) {
+        Long pendingStatusId = getPendingStatusId();
+        Map<Long, Long> pending = new HashMap<>();
+        for (Absence absence : absences) {
+            if (absence.getApprover() != null
+                    && hasStatus(absence.getStatus(), pendingStatusId)) {
+                pending.merge(absence.getApprover().getId(), 1L, Long::sum);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Runs the write in a transaction and moves the counters of itemType from pendingBefore
+     * to the counts pendingAfter returns for its result. The session is flushed first, so the
+     * approvers computed by the entities on update are up to date.
+     */
+    public <T> T write(String itemType, Map<Long, Long> pendingBefore, Supplier<T> write,
+            Function<T, Map<Long, Long>> pendingAfter) {
+        return transactionTemplate.execute(status -> {
+            T result = write.get();
+            entityManager.flush();
+            record(itemType, pendingBefore, pendingAfter.apply(result));
+            return result;
+        });
+    }
+
+    /**
+     * Records the difference between the pending counts of each approver before and after a
+     * change. It must run in the transaction of the change.
+     */
+    @Transactional
+    public void record(String itemType, Map<Long, Long> pendingBefore,
+            Map<Long, Long> pendingAfter) {
+        Set<Long> approvers = new HashSet<>(pendingBefore.keySet());
+        approvers.addAll(pendingAfter.keySet());
+
+        List<ApprovalCounter> changes = new ArrayList<>();
+        for (Long approverId : approvers) {
+            long delta = pendingAfter.getOrDefault(approverId, 0L)
+                    - pendingBefore.getOrDefault(approverId, 0L);
+            if (delta != 0) {
+                changes.add(new ApprovalCounter(approverId, itemType, delta));
+            }
+        }
+        approvalCounterRepository.saveAll(changes);
+    }
+
+    /**
+     * Recomputes the approvers of the time records of a project, after a change of its
+     * manager or type, and moves the counters of the approvers involved.
+     *
+     * @return the number of records updated
+     */
+    @Transactional
+    public int updateApproversByProject(Long projectId) {
+        return updateApprovers(statusId -> approvalCounterRepository
+                .countTimeRecordsByApproverOfProject(statusId, projectId),
+                () -> timeRecordRepository.updateApproversByProject(projectId));
+    }
+
+    /**
+     * Recomputes the approvers of the time records of the projects of a type, after a change
+     * of the type, and moves the counters of the approvers involved.
+     *
+     * @return the number of records updated
+     */
+    @Transactional
+    public int updateApproversByProjectType(Long projectTypeId) {
+        return updateApprovers(statusId -> approvalCounterRepository
+                .countTimeRecordsByApproverOfProjectType(statusId, projectTypeId),
+                () -> timeRecordRepository.updateApproversByProjectType(projectTypeId));
+    }
+
+    /**
+     * Recomputes the approvers of the time records of a user, after a change of their line
+     * manager, and moves the counters of the approvers involved.
+     *
+     * @return the number of records updated
+     */
+    @Transactional
+    public int updateApproversByUser(Long userId) {
+        return updateApprovers(statusId -> approvalCounterRepository
+                .countTimeRecordsByApproverOfUser(statusId, userId),
+                () -> timeRecordRepository.updateApproversByUser(userId));
+    }
+
+    private int updateApprovers(LongFunction<List<Object[]>> pendingCounts,
+            Supplier<Integer> update) {
+        Long pendingStatusId = getPendingStatusId();
+        if (pendingStatusId == null) {
+            return update.get();
+        }
+        Map<Long, Long> pendingBefore = toMap(pendingCounts.apply(pendingStatusId));
+        int updated = update.get();
+        record(ApprovalCounter.TIME_RECORDS, pendingBefore,
+                toMap(pendingCounts.apply(pendingStatusId)));
+        return updated;
+    }
+
+    private static Map<Long, Long> toMap(List<Object[]> counts) {
+        Map<Long, Long> pending = new HashMap<>();
+        for (Object[] row : counts) {
+            pending.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return pending;
+    }
+
+    /**
+     * Pending items of the approver, by item type.
+     */
+    public Map<String, Long> getPendingCounts(Long approverUserId) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : approvalCounterRepository.sumByItemType(approverUserId)) {
+            counts.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    /**
+     * Replaces the counter rows by the current number of pending items of each approver.
+     *
+     * Only the rows read by the rebuild are deleted, the rows appended meanwhile by other
+     * transactions belong to changes the counts did not see yet and are kept.
+     */
+    public void rebuild() {
+        rebuildTransactionTemplate.executeWithoutResult(status -> {
+            List<Long> previousIds = approvalCounterRepository.findAll().stream()
+                    .map(ApprovalCounter::getId)
+                    .collect(Collectors.toList());
+
+            List<ApprovalCounter> counters = new ArrayList<>();
+            Long pendingStatusId = getPendingStatusId();
+            if (pendingStatusId != null) {
+                addCounters(counters, ApprovalCounter.TIME_RECORDS,
+                        approvalCounterRepository.countTimeRecordsByApprover(pendingStatusId));
+                addCounters(counters, ApprovalCounter.ABSENCES,
+                        approvalCounterRepository.countAbsencesByApprover(pendingStatusId));
+            }
+
+            for (int i = 0; i < previousIds.size(); i += DELETE_CHUNK_SIZE) {
+                approvalCounterRepository.deleteAllByIdInBatch(previousIds.subList(i,
+                        Math.min(i + DELETE_CHUNK_SIZE, previousIds.size())));
+            }
+            approvalCounterRepository.saveAll(counters);
+
+            log.info("Approval counters rebuilt: {} rows replaced by {}", previousIds.size(),
+                    counters.size());
+        });
+    }
+
+    private static void addCounters(List<ApprovalCounter> counters, String itemType,
+            List<Object[]> counts) {
+        for (Object[] row : counts) {
+            counters.add(new ApprovalCounter((Long) row[0], itemType,
+                    ((Number) row[1]).longValue()));
+        }
+    }
+
+    private Long getPendingStatusId() {
+        Status pendingStatus = statusRepository.findByName(STATUS_PENDING);
+        return pendingStatus != null ? pendingStatus.getId() : null;
+    }
+
+    // Compared by id, the statuses of request bodies only carry the id
+    private static boolean hasStatus(Status status, Long statusId) {
+        return status != null && statusId != null && statusId.equals(status.getId());
+    }
+}
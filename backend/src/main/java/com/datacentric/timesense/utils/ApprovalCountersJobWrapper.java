@@ -0,0 +1,35 @@
+package com.datacentric.timesense.utils;
+
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class ApprovalCountersJobWrapper implements Job {
+
+    private static Logger log = LoggerFactory.getLogger(ScheduleRuntimeService.class);
+
+    private ApprovalCounters approvalCounters;
+
+    public ApprovalCountersJobWrapper() {
+        // Required by Quartz
+    }
+
+    @Autowired
+    public ApprovalCountersJobWrapper(ApprovalCounters approvalCounters) {
+        this.approvalCounters = approvalCounters;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        log.info("Quartz Job started. Rebuilding the pending approval counters.");
+
+        try {
+            approvalCounters.rebuild();
+        } catch (Exception e) {
+            log.error("Error trying to rebuild the approval counters!", e);
+        }
+    }
+}
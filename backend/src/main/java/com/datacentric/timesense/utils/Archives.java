@@ -0,0 +1,220 @@
+package com.datacentric.timesense.utils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Archive tier of the tables with soft deletes. The rows no longer read by the application
+ * are moved to an archive table with the same columns, so the hot tables and their indexes
+ * only hold the active rows. The archived rows can still be read for audits and moved back.
+ *
+ * The archive job (see ArchivesJobWrapper) moves the soft deleted time records, absences and
+ * project assignments, and the time records of the projects finished before the retention
+ * period. The absences with attachments and the pending time records are left in place.
+ * Projects and users are not archived, archived and active rows still reference them.
+ *
+ * The rows are moved with the columns listed in COLUMNS, a column added to an archived table
+ * must be added to its archive table and to the list.
+ */
+@Service
+public class Archives {
+
+    public static final String TIME_RECORDS = "time_records";
+    public static final String ABSENCES = "absences";
+    public static final String PROJECT_ASSIGNMENTS = "project_assignments";
+
+    private static final Logger log = LoggerFactory.getLogger(Archives.class);
+
+    private static final long DEFAULT_RETENTION_DAYS = 730L;
+    private static final int DEFAULT_MOVE_BATCH_SIZE = 5000;
+    private static final String ARCHIVE_SUFFIX = "_archive";
+
+    // Columns moved between each table and its archive table
+    private static final Map<String, String> COLUMNS = Map.of(
+            TIME_RECORDS, "id, user_id, project_id, hours, description, status_id, "
+                    + "start_date, end_date, approved_by, approved_at, created_at, updated_at, "
+                    + "created_by, updated_by, deleted, reason, task_id, approver_user_id, "
+                    + "approval_kind, cost, job_title_id",
+            ABSENCES, "id, type_id, user_id, name, approved_date, start_date, end_date, "
+                    + "approver, approved_by, status_id, reason, work_days, business_year, "
+                    + "observations, created_at, updated_at, created_by, updated_by, deleted, "
+                    + "sub_type_id, record_type, absence_hours, has_attachments",
+            PROJECT_ASSIGNMENTS, "id, user_id, project_id, allocation, description, "
+                    + "start_date, end_date, created_at, updated_at, created_by, updated_by, "
+                    + "deleted");
+
+    /*
+     * Moves the next batch of rows selected by the given query. Each batch runs on its own,
+     * so archiving a large backlog does not hold the locks of every row until the end.
+     */
+    private static final String MOVE_SQL = """
+            WITH moved AS (
+                DELETE FROM %1$s h
+                WHERE h.id IN (%3$s ORDER BY c.id LIMIT ?)
+                RETURNING %4$s
+            )
+            INSERT INTO %2$s (%4$s)
+            SELECT %4$s FROM moved
+            RETURNING id
+            """;
+
+    private static final String RESTORE_SQL = """
+            WITH restored AS (
+                DELETE FROM %2$s a
+                WHERE a.id = ?
+                RETURNING %3$s
+            )
+            INSERT INTO %1$s (%3$s)
+            SELECT %3$s FROM restored
+            """;
+
+    private static final String DELETED_ROWS_SQL =
+            "SELECT c.id FROM %s c WHERE c.deleted = true";
+
+    private static final String DELETED_ABSENCES_SQL = """
+            SELECT c.id FROM absences c
+            WHERE c.deleted = true
+                AND NOT EXISTS (SELECT 1 FROM absence_attachments a WHERE a.absence_id = c.id)
+            """;
+
+    // Pending records are left in place, they are still counted by the approval counters
+    private static final String CLOSED_PROJECT_RECORDS_SQL = """
+            SELECT c.id FROM time_records c
+            JOIN projects p ON p.id = c.project_id
+            JOIN status ps ON ps.id = p.status_id
+            LEFT JOIN status s ON s.id = c.status_id
+            WHERE ps.name = 'FINISHED'
+                AND p.end_date < ?
+                AND COALESCE(s.name, '') <> 'PENDING'
+            """;
+
+    private static final String FIND_SQL = """
+            SELECT a.* FROM %s a
+            WHERE (CAST(? AS BIGINT) IS NULL OR a.user_id = ?)
+            %s
+            ORDER BY a.id DESC
+            LIMIT ? OFFSET ?
+            """;
+
+    private static final String PROJECT_FILTER =
+            "AND (CAST(? AS BIGINT) IS NULL OR a.project_id = ?)";
+
+    private Environment env;
+    private JdbcTemplate jdbcTemplate;
+    private ProjectBudgets projectBudgets;
+
+    private long retentionDays = DEFAULT_RETENTION_DAYS;
+    private int moveBatchSize = DEFAULT_MOVE_BATCH_SIZE;
+
+    @Autowired
+    public Archives(Environment env, JdbcTemplate jdbcTemplate, ProjectBudgets projectBudgets) {
+        this.env = env;
+        this.jdbcTemplate = jdbcTemplate;
+        this.projectBudgets = projectBudgets;
+    }
+
+    @PostConstruct
+    public void init() {
+        String retentionDaysStr = env.getProperty("server.archive.closed-project-retention-days");
+        if (retentionDaysStr != null) {
+            retentionDays = Long.parseLong(retentionDaysStr);
+        }
+        String moveBatchSizeStr = env.getProperty("server.archive.batch-size");
+        if (moveBatchSizeStr != null) {
+            moveBatchSize = Integer.parseInt(moveBatchSizeStr);
+        }
+    }
+
+    /**
+     * Moves the rows no longer read by the application to the archive tables.
+     *
+     * @return the number of rows archived
+     */
+    public int archive() {
+        Timestamp closedBefore = Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays));
+        int archived = move(TIME_RECORDS, String.format(DELETED_ROWS_SQL, TIME_RECORDS))
+                + move(TIME_RECORDS, CLOSED_PROJECT_RECORDS_SQL, closedBefore)
+                + move(ABSENCES, DELETED_ABSENCES_SQL)
+                + move(PROJECT_ASSIGNMENTS,
+                        String.format(DELETED_ROWS_SQL, PROJECT_ASSIGNMENTS));
+        if (archived > 0) {
+            // The actual costs of the finished projects no longer include the archived records
+            projectBudgets.invalidateAll();
+        }
+        return archived;
+    }
+
+    /**
+     * Archived rows of a table, the latest archived first.
+     *
+     * @param table one of the archived tables
+     * @param userId the user of the rows, any user when null
+     * @param projectId the project of the rows, any project when null. Ignored for the
+     *          absences
+     */
+    public List<Map<String, Object>> find(String table, Long userId, Long projectId,
+            int firstRow, int numRows) {
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        params.add(userId);
+        String projectFilter = "";
+        if (!ABSENCES.equals(table)) {
+            projectFilter = PROJECT_FILTER;
+            params.add(projectId);
+            params.add(projectId);
+        }
+        params.add(numRows);
+        params.add(firstRow);
+        return jdbcTemplate.queryForList(
+                String.format(FIND_SQL, table + ARCHIVE_SUFFIX, projectFilter),
+                params.toArray());
+    }
+
+    /**
+     * Moves an archived row back to its table, as it was when archived. A time record of a
+     * project finished before the retention period is archived again by the next run.
+     *
+     * @return whether the row was found in the archive
+     */
+    @Transactional
+    public boolean restore(String table, Long id) {
+        int restored = jdbcTemplate.update(String.format(RESTORE_SQL, table,
+                table + ARCHIVE_SUFFIX, COLUMNS.get(table)), id);
+        if (restored > 0) {
+            projectBudgets.invalidateAll();
+        }
+        return restored > 0;
+    }
+
+    private int move(String table, String selectSql, Object... params) {
+        String sql = String.format(MOVE_SQL, table, table + ARCHIVE_SUFFIX, selectSql,
+                COLUMNS.get(table));
+        Object[] batchParams = new Object[params.length + 1];
+        System.arraycopy(params, 0, batchParams, 0, params.length);
+        batchParams[params.length] = moveBatchSize;
+
+        int moved = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(sql, Long.class, batchParams);
+            if (ids.isEmpty()) {
+                break;
+            }
+            moved += ids.size();
+        }
+        log.info("Archived {} rows of {}", moved, table);
+        return moved;
+    }
+}
@@ -0,0 +1,37 @@
+package com.datacentric.timesense.utils;
+
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+@DisallowConcurrentExecution
+public class ArchivesJobWrapper implements Job {
+
+    private static Logger log = LoggerFactory.getLogger(ScheduleRuntimeService.class);
+
+    private Archives archives;
+
+    public ArchivesJobWrapper() {
+        // Required by Quartz
+    }
+
+    @Autowired
+    public ArchivesJobWrapper(Archives archives) {
+        this.archives = archives;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        log.info("Quartz Job started. Moving the inactive rows to the archive tables.");
+
+        try {
+            archives.archive();
+        } catch (Exception e) {
+            log.error("Error trying to archive the inactive rows!", e);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.datacentric.timesense.utils;
+
+import static com.datacentric.timesense.utils.CompanyZone.TIME_ZONE;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.datacentric.timesense.repository.AbsenceRepository;
+import com.datacentric.timesense.repository.HolidayRepository;
+import com.datacentric.timesense.repository.ProjectAssignmentRepository;
+import com.datacentric.timesense.repository.UserRepository;
+
+/**
+ * Capacity of the company by user and week: how much of each user is allocated to projects,
+ * the days they are absent and whether their allocation goes over the days they have left.
+ *
+ * The assignments and the approved absences of the weeks are read ordered by user, in one
+ * query each, and swept in a single pass: each user adds the intervals of its rows to a
+ * difference array over the days, and a running sum over it gives the allocation of every
+ * day. Nothing is loaded as an entity and the result only holds arrays.
+ */
+@Service
+public class CapacityPlanning {
+
+    /**
+     * Longest range served, two years of weeks.
+     */
+    public static final int MAX_WEEKS = 106;
+
+    private static final int DAYS_IN_WEEK = 7;
+    private static final double FULL_DAY = 1.0;
+    private static final double HALF_DAY = 0.5;
+    private static final double BUSINESS_DAY_HOURS = 8.0;
+    private static final double HUNDRED = 100.0;
+    private static final double EPSILON = 1e-9;
+    private static final String DAILY_RECORD = "Day";
+    private static final String VACATION = "VACATION";
+
+    /**
+     * Allocation matrix, the rows are the users and the columns the weeks.
+     */
+    public static final class Matrix {
+        private final LocalDate[] weeks;
+        private final long[] userIds;
+        private final String[] userNames;
+        private final int[] businessDays;
+        // Sum of the allocations of the user, averaged over the business days of the week
+        private final double[][] allocation;
+        private final double[][] absentDays;
+        // Allocated to more business days than the ones the user is not absent
+        private final boolean[][] overAllocated;
+
+        private Matrix(LocalDate[] weeks, long[] userIds, String[] userNames,
+                int[] businessDays) {
+            this.weeks = weeks;
+            this.userIds = userIds;
+            this.userNames = userNames;
+            this.businessDays = businessDays;
+            this.allocation = new double[userIds.length][weeks.length];
+            this.absentDays = new double[userIds.length][weeks.length];
+            this.overAllocated = new boolean[userIds.length][weeks.length];
+        }
+
+        public LocalDate[] getWeeks() {
+            return weeks;
+        }
+
+        public long[] getUserIds() {
+            return userIds;
+        }
+
+        public String[] getUserNames() {
+            return userNames;
+        }
+
+        public int[] getBusinessDays() {
+            return businessDays;
+        }
+
+        public double[][] getAllocation() {
+            return allocation;
+        }
+
+        public double[][] getAbsentDays() {
+            return absentDays;
+        }
+
+        public boolean[][] getOverAllocated() {
+            return overAllocated;
+        }
+    }
+
+    private UserRepository userRepository;
+    private ProjectAssignmentRepository projectAssignmentRepository;
+    private AbsenceRepository absenceRepository;
+    private HolidayRepository holidayRepository;
+
+    @Autowired
+    public CapacityPlanning(UserRepository userRepository,
+            ProjectAssignmentRepository projectAssignmentRepository,
+            AbsenceRepository absenceRepository, HolidayRepository holidayRepository) {
+        this.userRepository = userRepository;
+        this.projectAssignmentRepository = projectAssignmentRepository;
+        this.absenceRepository = absenceRepository;
+        this.holidayRepository = holidayRepository;
+    }
+
+    /**
+     * Number of weeks of the matrix of the given range, from the Monday of its first day.
+     */
+    public static long countWeeks(LocalDate from, LocalDate to) {
+        LocalDate firstDay = from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return ChronoUnit.DAYS.between(firstDay, to) / DAYS_IN_WEEK + 1;
+    }
+
+    /**
+     * Builds the matrix of the weeks from the one of the first day to the one of the last.
+     */
+    public Matrix build(LocalDate from, LocalDate to) {
+        LocalDate firstDay = from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        int weekCount = (int) countWeeks(from, to);
+        int days = weekCount * DAYS_IN_WEEK;
+        LocalDate lastDay = firstDay.plusDays(days - 1L);
+
+        boolean[] businessDay = new boolean[days];
+        int[] businessDays = new int[weekCount];
+        Set<LocalDate> holidays = new HashSet<>(
+                holidayRepository.findAllHolidaysDatesByDateInterval(firstDay, lastDay));
+        LocalDate[] weeks = new LocalDate[weekCount];
+        for (int d = 0; d < days; d++) {
+            LocalDate day = firstDay.plusDays(d);
+            if (d % DAYS_IN_WEEK == 0) {
+                weeks[d / DAYS_IN_WEEK] = day;
+            }
+            businessDay[d] = day.getDayOfWeek() != DayOfWeek.SATURDAY
+                    && day.getDayOfWeek() != DayOfWeek.SUNDAY && !holidays.contains(day);
+            if (businessDay[d]) {
+                businessDays[d / DAYS_IN_WEEK]++;
+            }
+        }
+
+        List<Object[]> users = userRepository.getCapacityUsers();
+        long[] userIds = new long[users.size()];
+        String[] userNames = new String[users.size()];
+        for (int i = 0; i < users.size(); i++) {
+            userIds[i] = (Long) users.get(i)[0];
+            userNames[i] = (String) users.get(i)[1];
+        }
+        Matrix matrix = new Matrix(weeks, userIds, userNames, businessDays);
+
+        Timestamp start = Timestamp.from(firstDay.atStartOfDay(TIME_ZONE).toInstant());
+        Timestamp end = Timestamp.from(lastDay.plusDays(1).atStartOfDay(TIME_ZONE).toInstant());
+        List<Object[]> assignments = projectAssignmentRepository.getCapacityAssignments(start,
+                end);
+        List<Object[]> absences = absenceRepository.getCapacityAbsences(start, end);
+
+        // Allocation added on the day of each index and removed on the day after
+        double[] allocationChanges = new double[days + 1];
+        double[] absent = new double[days];
+        double[] weekAllocation = new double[weekCount];
+        double[] weekAbsent = new double[weekCount];
+        int nextAssignment = 0;
+        int nextAbsence = 0;
+        for (int u = 0; u < userIds.length; u++) {
+            long userId = userIds[u];
+            Arrays.fill(allocationChanges, 0.0);
+            Arrays.fill(absent, 0.0);
+            Arrays.fill(weekAllocation, 0.0);
+            Arrays.fill(weekAbsent, 0.0);
+
+            // Both lists are ordered by user like the users, the rows of users left out of
+            // the matrix are skipped
+            while (nextAssignment < assignments.size()
+                    && (Long) assignments.get(nextAssignment)[0] < userId) {
+                nextAssignment++;
+            }
+            while (nextAssignment < assignments.size()
+                    && (Long) assignments.get(nextAssignment)[0] == userId) {
+                Object[] row = assignments.get(nextAssignment++);
+                Double percentage = (Double) row[3];
+                if (percentage == null) {
+                    continue;
+                }
+                int first = Math.max(dayIndex(firstDay, (Timestamp) row[1]), 0);
+                int last = Math.min(dayIndex(firstDay, (Timestamp) row[2]), days - 1);
+                if (first <= last) {
+                    allocationChanges[first] += percentage;
+                    allocationChanges[last + 1] -= percentage;
+                }
+            }
+
+            while (nextAbsence < absences.size()
+                    && (Long) absences.get(nextAbsence)[0] < userId) {
+                nextAbsence++;
+            }
+            while (nextAbsence < absences.size()
+                    && (Long) absences.get(nextAbsence)[0] == userId) {
+                Object[] row = absences.get(nextAbsence++);
+                double fraction = absentFraction((String) row[3], (Double) row[4],
+                        (String) row[5]);
+                int first = Math.max(dayIndex(firstDay, (Timestamp) row[1]), 0);
+                int last = Math.min(dayIndex(firstDay, (Timestamp) row[2]), days - 1);
+                for (int d = first; d <= last; d++) {
+                    absent[d] = Math.min(FULL_DAY, absent[d] + fraction);
+                }
+            }
+
+            double running = 0.0;
+            for (int d = 0; d < days; d++) {
+                running += allocationChanges[d];
+                if (businessDay[d]) {
+                    weekAllocation[d / DAYS_IN_WEEK] += running;
+                    weekAbsent[d / DAYS_IN_WEEK] += absent[d];
+                }
+            }
+
+            for (int w = 0; w < weekCount; w++) {
+                if (businessDays[w] == 0) {
+                    continue;
+                }
+                matrix.allocation[u][w] = weekAllocation[w] / businessDays[w];
+                matrix.absentDays[u][w] = weekAbsent[w];
+                double allocatedDays = weekAllocation[w] / HUNDRED;
+                matrix.overAllocated[u][w] =
+                        allocatedDays > businessDays[w] - weekAbsent[w] + EPSILON;
+            }
+        }
+        return matrix;
+    }
+
+    private static int dayIndex(LocalDate firstDay, Timestamp timestamp) {
+        LocalDate day = timestamp.toInstant().atZone(TIME_ZONE).toLocalDate();
+        return (int) ChronoUnit.DAYS.between(firstDay, day);
+    }
+
+    /*
+     * Part of each day of the absence the user is away, as counted for the balances
+     */
+    private static double absentFraction(String recordType, Double absenceHours,
+            String typeName) {
+        if (DAILY_RECORD.equals(recordType)) {
+            return FULL_DAY;
+        }
+        if (VACATION.equals(typeName)) {
+            return HALF_DAY;
+        }
+        if (absenceHours == null) {
+            return FULL_DAY;
+        }
+        return Math.max(0.0, Math.min(FULL_DAY, absenceHours / BUSINESS_DAY_HOURS));
+    }
+}
@@ -0,0 +1,17 @@
+package com.datacentric.timesense.utils;
+
+import java.time.ZoneId;
+
+/**
+ * Zone of the company. The days of the time records, absences, rates and plans are the days
+ * of the company, whatever the zone of the server.
+ */
+public final class CompanyZone {
+
+    public static final String TIME_ZONE_NAME = "Europe/Lisbon";
+    public static final ZoneId TIME_ZONE = ZoneId.of(TIME_ZONE_NAME);
+
+    private CompanyZone() {
+        // Prevent instantiation
+    }
+}
@@ -0,0 +1,34 @@
+package com.datacentric.timesense.utils;
+
+import java.time.LocalDate;
+
+/**
+ * Thrown by DailyHoursLedger when a write would take the hours of a user on a day over the
+ * daily limit, so the transaction of the write rolls back.
+ */
+public class DailyHoursExceededException extends RuntimeException {
+
+    private final LocalDate day;
+    private final double hours;
+    private final double maxHours;
+
+    public DailyHoursExceededException(LocalDate day, double hours, double maxHours) {
+        super(String.format("Total hours (%.2f) for date %s exceeds maximum allowed hours (%.2f)",
+                hours, day, maxHours));
+        this.day = day;
+        this.hours = hours;
+        this.maxHours = maxHours;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public double getHours() {
+        return hours;
+    }
+
+    public double getMaxHours() {
+        return maxHours;
+    }
+}
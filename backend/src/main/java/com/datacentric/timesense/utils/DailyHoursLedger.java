@@ -0,0 +1,132 @@
+package com.datacentric.timesense.utils;
+
+import static com.datacentric.timesense.utils.CompanyZone.TIME_ZONE;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.datacentric.timesense.model.SystemSetting;
+import com.datacentric.timesense.model.SystemSettings;
+import com.datacentric.timesense.model.UserDayHours;
+import com.datacentric.timesense.repository.SystemSettingRepository;
+import com.datacentric.timesense.repository.UserDayHoursRepository;
+
+/*
+ * Hours of each user per day, moved by every write of time records so the daily limit is
+ * checked with a keyed update instead of adding up the records of the day.
+ *
+ * The limit is checked by the update itself, a day over the limit is left untouched and the
+ * write fails, so two concurrent writes can not both fit in the same remaining hours. The
+ * hours are added with a single upsert on the (user_id, work_day) unique key, so two
+ * concurrent first writes of a day do not both insert it.
+ */
+@Service
+public class DailyHoursLedger {
+
+    private static final String USER_DAY_HOURS_ID_SEQ = "user_day_hours_id_seq";
+
+    private UserDayHoursRepository userDayHoursRepository;
+    private SystemSettingRepository systemSettingRepository;
+    private PooledIds pooledIds;
+
+    @Autowired
+    public DailyHoursLedger(UserDayHoursRepository userDayHoursRepository,
+            SystemSettingRepository systemSettingRepository, PooledIds pooledIds) {
+        this.userDayHoursRepository = userDayHoursRepository;
+        this.systemSettingRepository = systemSettingRepository;
+        this.pooledIds = pooledIds;
+    }
+
+    /**
+     * Hours added and removed by a write, per user and day.
+     */
+    public static final class Changes {
+
+        // Sorted, so concurrent writes lock the rows of the ledger in the same order
+        private final Map<Long, Map<LocalDate, Double>> hoursByUser = new TreeMap<>();
+
+        public Changes add(Long userId, Timestamp startDate, Double hours) {
+            return change(userId, startDate, hours, 1);
+        }
+
+        public Changes remove(Long userId, Timestamp startDate, Double hours) {
+            return change(userId, startDate, hours, -1);
+        }
+
+        private Changes change(Long userId, Timestamp startDate, Double hours, int sign) {
+            if (userId != null && startDate != null && hours != null) {
+                hoursByUser.computeIfAbsent(userId, id -> new TreeMap<>())
+                        .merge(dayOf(startDate), sign * hours, Double::sum);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Daily limit of hours of a user, null when the setting does not exist.
+     */
+    public Double getMaxHours() {
+        SystemSetting maxSetting = systemSettingRepository
+                .findByName(SystemSettings.PROJ_DAILLY_MAX_HOURS);
+        return maxSetting != null ? Double.valueOf(maxSetting.getValue()) : null;
+    }
+
+    /**
+     * Applies the changes of a write to the ledger, in the transaction of the write.
+     *
+     * @param changes the hours added and removed by the write
+     * @param maxHours the daily limit, the days the write adds hours to must stay within it.
+     *          No limit is checked when null
+     * @throws DailyHoursExceededException if a day goes over the limit
+     */
+    @Transactional
+    public void apply(Changes changes, Double maxHours) {
+        int added = (int) changes.hoursByUser.values().stream()
+                .flatMap(days -> days.values().stream())
+                .filter(hours -> hours > 0)
+                .count();
+        // The ids of the days already there are left unused
+        long[] ids = added > 0 ? pooledIds.next(USER_DAY_HOURS_ID_SEQ, added) : new long[0];
+        int next = 0;
+        for (Map.Entry<Long, Map<LocalDate, Double>> user : changes.hoursByUser.entrySet()) {
+            for (Map.Entry<LocalDate, Double> day : user.getValue().entrySet()) {
+                Long userId = user.getKey();
+                double hours = day.getValue();
+                if (hours <= 0) {
+                    remove(userId, day.getKey(), hours);
+                    continue;
+                }
+                // A day without a row is inserted as is, the limit is checked before
+                boolean exceeded = maxHours != null && hours > maxHours;
+                if (exceeded || userDayHoursRepository.upsertHours(ids[next++], userId,
+                        day.getKey(), hours, maxHours) == 0) {
+                    throw exceeded(userId, day.getKey(), hours, maxHours);
+                }
+            }
+        }
+    }
+
+    // Hours taken off a day never go over the limit, a day without a row has nothing to take
+    private void remove(Long userId, LocalDate day, double hours) {
+        if (hours < 0) {
+            userDayHoursRepository.addHours(userId, day, hours);
+        }
+    }
+
+    private DailyHoursExceededException exceeded(Long userId, LocalDate day, double hours,
+            double maxHours) {
+        UserDayHours current = userDayHoursRepository.findByUserIdAndDay(userId, day);
+        double currentHours = current != null ? current.getHours() : 0;
+        return new DailyHoursExceededException(day, currentHours + hours, maxHours);
+    }
+
+    private static LocalDate dayOf(Timestamp startDate) {
+        return startDate.toInstant().atZone(TIME_ZONE).toLocalDate();
+    }
+}
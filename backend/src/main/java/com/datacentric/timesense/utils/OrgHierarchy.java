@@ -0,0 +1,288 @@
+package com.datacentric.timesense.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.datacentric.timesense.model.UserHierarchy;
+import com.datacentric.timesense.repository.UserHierarchyRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+
+/**
+ * The org hierarchy answers who is below a manager in the line manager hierarchy, either
+ * their direct reports or everyone under them.
+ *
+ * The links between managers and the users below them are kept in the user_hierarchy
+ * closure table, so the team filters of the queries are a join on its index instead of a
+ * walk up the hierarchy. For the membership checks done in Java the hierarchy is also kept
+ * in memory, reloaded after a time to live or when a line manager changes.
+ */
+@Service
+public class OrgHierarchy {
+
+    private static final Logger log = LoggerFactory.getLogger(OrgHierarchy.class);
+
+    private static final long DEFAULT_CACHE_LIFETIME_MILLIS = 60_000L;
+
+    // Deleted users are kept so the users below them are still reached through them
+    private static final String LOAD_USERS_SQL =
+            "SELECT id, line_manager, deleted FROM users";
+
+    // The user, the new manager and everyone above them, locked in the order of their ids.
+    // Two moves that touch the same branch of the hierarchy lock at least one common row,
+    // so the second one waits and reads the links left by the first.
+    private static final String LOCK_USERS_SQL = "SELECT id FROM users "
+            + " WHERE id IN (?, ?) OR id IN (SELECT ancestor_id FROM user_hierarchy "
+            + " WHERE descendant_id IN (?, ?)) ORDER BY id FOR UPDATE";
+
+    /**
+     * How far below the manager a team goes.
+     */
+    public enum Scope {
+        DIRECT(1),
+        ALL(Integer.MAX_VALUE);
+
+        private final int maxDepth;
+
+        Scope(int maxDepth) {
+            this.maxDepth = maxDepth;
+        }
+
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        /**
+         * Scope asked for in a request parameter, the direct reports unless it is "all".
+         */
+        public static Scope fromParam(String value) {
+            return ALL.name().equalsIgnoreCase(value) ? ALL : DIRECT;
+        }
+    }
+
+    private Environment env;
+    private JdbcTemplate jdbcTemplate;
+    private UserHierarchyRepository userHierarchyRepository;
+
+    private long cacheTimeToLive = DEFAULT_CACHE_LIFETIME_MILLIS;
+
+    private volatile Tree tree;
+
+    @Autowired
+    public OrgHierarchy(Environment env, JdbcTemplate jdbcTemplate,
+            UserHierarchyRepository userHierarchyRepository) {
+        this.env = env;
+        this.jdbcTemplate = jdbcTemplate;
+        this.userHierarchyRepository = userHierarchyRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        String cacheTimeToLiveStr = env.getProperty("server.org-hierarchy.time-to-live");
+        if (cacheTimeToLiveStr != null) {
+            cacheTimeToLive = Long.parseLong(cacheTimeToLiveStr);
+        }
+    }
+
+    /**
+     * Users below the manager in the given scope, leaving out deleted users and the manager.
+     * The set is shared and must not be changed.
+     */
+    public Set<Long> getTeam(Long managerId, Scope scope) {
+        return getTree().getTeam(managerId, scope);
+    }
+
+    public boolean isInTeam(Long managerId, Long userId, Scope scope) {
+        return getTeam(managerId, scope).contains(userId);
+    }
+
+    /**
+     * Restricts a query to the users below the manager in the given scope, through the
+     * closure table.
+     *
+     * @param userId
+     *                Id of the user the rows of the query belong to
+     */
+    public Predicate inTeam(Expression<Long> userId, Long managerId, Scope scope,
+            CriteriaQuery<?> query, CriteriaBuilder cb) {
+        Subquery<Long> team = query.subquery(Long.class);
+        Root<UserHierarchy> link = team.from(UserHierarchy.class);
+        team.select(link.get("descendantId"))
+                .where(cb.equal(link.get("ancestorId"), managerId),
+                        cb.le(link.get("depth"), scope.getMaxDepth()));
+        return userId.in(team);
+    }
+
+    /**
+     * Checks if the manager is the user or someone below them, which would close a loop in
+     * the hierarchy.
+     */
+    public boolean wouldCreateCycle(Long userId, Long managerId) {
+        return managerId != null && (managerId.equals(userId)
+                || userHierarchyRepository.existsByAncestorIdAndDescendantId(userId, managerId));
+    }
+
+    /**
+     * Moves the user, with everyone below them, under a new line manager. The links from the
+     * previous managers above the user are replaced by links from the new manager and the
+     * ones above them. Must be called when the line manager of a user changes, in the
+     * transaction that saves the new manager so a refused move can roll the change back.
+     *
+     * The users involved are locked before the links are read, so concurrent moves in the
+     * same branch run one after the other and the loop check sees the links of the others.
+     *
+     * @param managerId
+     *                  Id of the new line manager, or null to leave the user without one
+     * @return false if the move would close a loop, in which case nothing changes
+     */
+    @Transactional
+    public boolean moveUser(Long userId, Long managerId) {
+        jdbcTemplate.queryForList(LOCK_USERS_SQL, Long.class, userId, managerId, userId,
+                managerId);
+        if (wouldCreateCycle(userId, managerId)) {
+            log.warn("Not moving user {} below user {}, who is below them", userId, managerId);
+            return false;
+        }
+
+        // The user and everyone below them, by number of levels below the user
+        Map<Long, Integer> subtree = new HashMap<>();
+        subtree.put(userId, 0);
+        for (UserHierarchy link : userHierarchyRepository.findByAncestorId(userId)) {
+            subtree.put(link.getDescendantId(), link.getDepth());
+        }
+
+        List<Long> previousAncestors = userHierarchyRepository.findByDescendantId(userId)
+                .stream().map(UserHierarchy::getAncestorId).toList();
+        if (!previousAncestors.isEmpty()) {
+            userHierarchyRepository.deleteLinks(previousAncestors, subtree.keySet());
+        }
+
+        if (managerId != null) {
+            // The new manager and everyone above them, by number of levels above the user
+            Map<Long, Integer> ancestors = new HashMap<>();
+            ancestors.put(managerId, 1);
+            for (UserHierarchy link : userHierarchyRepository.findByDescendantId(managerId)) {
+                ancestors.put(link.getAncestorId(), link.getDepth() + 1);
+            }
+
+            List<UserHierarchy> links = new ArrayList<>();
+            for (Map.Entry<Long, Integer> ancestor : ancestors.entrySet()) {
+                for (Map.Entry<Long, Integer> descendant : subtree.entrySet()) {
+                    links.add(new UserHierarchy(ancestor.getKey(), descendant.getKey(),
+                            ancestor.getValue() + descendant.getValue()));
+                }
+            }
+            userHierarchyRepository.saveAll(links);
+        }
+
+        invalidate();
+        return true;
+    }
+
+    public void invalidate() {
+        tree = null;
+    }
+
+    private Tree getTree() {
+        Tree current = tree;
+        if (current != null
+                && System.currentTimeMillis() - current.loadedTimestamp < cacheTimeToLive) {
+            return current;
+        }
+
+        Map<Long, List<Long>> reports = new HashMap<>();
+        Set<Long> deleted = new HashSet<>();
+        jdbcTemplate.query(LOAD_USERS_SQL, rs -> {
+            long id = rs.getLong(1);
+            long managerId = rs.getLong(2);
+            if (!rs.wasNull() && managerId != id) {
+                reports.computeIfAbsent(managerId, manager -> new ArrayList<>()).add(id);
+            }
+            if (rs.getBoolean(3)) {
+                deleted.add(id);
+            }
+        });
+        current = new Tree(reports, deleted);
+        tree = current;
+        return current;
+    }
+
+    /*
+     * The direct reports of every manager, with the teams worked out the first time they
+     * are asked for
+     */
+    private static final class Tree {
+
+        private final Map<Long, List<Long>> reports;
+        private final Set<Long> deleted;
+        private final long loadedTimestamp = System.currentTimeMillis();
+
+        private final ConcurrentHashMap<Long, Set<Long>> directTeams = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Long, Set<Long>> allTeams = new ConcurrentHashMap<>();
+
+        private Tree(Map<Long, List<Long>> reports, Set<Long> deleted) {
+            this.reports = reports;
+            this.deleted = deleted;
+        }
+
+        private Set<Long> getTeam(Long managerId, Scope scope) {
+            if (managerId == null) {
+                return Set.of();
+            }
+            return scope == Scope.DIRECT
+                    ? directTeams.computeIfAbsent(managerId, this::loadDirectTeam)
+                    : allTeams.computeIfAbsent(managerId, this::loadAllTeam);
+        }
+
+        private Set<Long> loadDirectTeam(Long managerId) {
+            Set<Long> team = new HashSet<>();
+            for (Long id : reports.getOrDefault(managerId, List.of())) {
+                if (!deleted.contains(id)) {
+                    team.add(id);
+                }
+            }
+            return Collections.unmodifiableSet(team);
+        }
+
+        private Set<Long> loadAllTeam(Long managerId) {
+            Set<Long> visited = new HashSet<>();
+            visited.add(managerId);
+            Deque<Long> pending = new ArrayDeque<>(List.of(managerId));
+            Set<Long> team = new HashSet<>();
+            while (!pending.isEmpty()) {
+                for (Long id : reports.getOrDefault(pending.pop(), List.of())) {
+                    // Loops in the line managers are walked only once
+                    if (visited.add(id)) {
+                        pending.push(id);
+                        if (!deleted.contains(id)) {
+                            team.add(id);
+                        }
+                    }
+                }
+            }
+            return Collections.unmodifiableSet(team);
+        }
+    }
+}
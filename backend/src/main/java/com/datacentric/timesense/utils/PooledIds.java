@@ -0,0 +1,53 @@
+package com.datacentric.timesense.utils;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.datacentric.timesense.model.IdGenerators;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Ids for the rows written with JDBC into the tables whose entities use pooled sequence
+ * generators.
+ *
+ * The sequences advance by IdGenerators.ALLOCATION_SIZE, so a column default would take a
+ * whole block for a single row. The JDBC inserts take their ids from here instead, with
+ * one sequence call per block of rows, the same way Hibernate does for the entities.
+ */
+@Service
+public class PooledIds {
+
+    private JdbcTemplate jdbcTemplate;
+    private Dialect dialect;
+
+    @Autowired
+    public PooledIds(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+    }
+
+    /**
+     * Reserves count ids from the given sequence.
+     *
+     * Every value returned by the sequence is the last id of a block nobody else uses, the
+     * block ends at 1 for the first value of a new sequence.
+     */
+    public long[] next(String sequenceName, int count) {
+        String nextValueSql = dialect.getSequenceSupport().getSequenceNextValString(sequenceName);
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            long last = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+            long first = Math.max(1L, last - IdGenerators.ALLOCATION_SIZE + 1);
+            for (long id = first; id <= last && filled < count; id++) {
+                ids[filled++] = id;
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,386 @@
+package com.datacentric.timesense.utils;
+
+import static com.datacentric.timesense.utils.CompanyZone.TIME_ZONE;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import com.datacentric.timesense.repository.HolidayRepository;
+import com.datacentric.timesense.repository.ProjectAssignmentRepository;
+import com.datacentric.timesense.repository.TimeRecordRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Budget of the projects, the hours and cost of their assignments.
+ *
+ * An assignment budgets its allocation of the business days between its start and end
+ * dates, at the rate of the job title of its user. The budget of a project is computed once
+ * and kept until something it was computed from changes: the assignments of the project, a
+ * holiday within its dates, the rate of one of its job titles or the job title of one of its
+ * users. The writers of those call the invalidate methods, the time to live only covers the
+ * changes made elsewhere, like the users synchronization.
+ */
+@Service
+public class ProjectBudgets {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectBudgets.class);
+
+    private static final long DEFAULT_CACHE_LIFETIME_MILLIS = 600_000L;
+    private static final double BUSINESS_DAY_HOURS = 8.0;
+    private static final double HUNDRED = 100.0;
+
+    /**
+     * Hours and cost budgeted for an assignment.
+     */
+    public static final class AssignmentBudget {
+        private final Long assignmentId;
+        private final Long userId;
+        private final double hours;
+        private final double cost;
+
+        private AssignmentBudget(Long assignmentId, Long userId, double hours, double cost) {
+            this.assignmentId = assignmentId;
+            this.userId = userId;
+            this.hours = hours;
+            this.cost = cost;
+        }
+
+        public Long getAssignmentId() {
+            return assignmentId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public double getHours() {
+            return hours;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+    }
+
+    /**
+     * Hours and cost budgeted for a month of a project next to the ones recorded in it.
+     */
+    public static final class MonthBudget {
+        private final YearMonth month;
+        private double budgetHours;
+        private double budgetCost;
+        private double actualHours;
+        private double actualCost;
+
+        private MonthBudget(YearMonth month) {
+            this.month = month;
+        }
+
+        public YearMonth getMonth() {
+            return month;
+        }
+
+        public double getBudgetHours() {
+            return budgetHours;
+        }
+
+        public double getBudgetCost() {
+            return budgetCost;
+        }
+
+        public double getActualHours() {
+            return actualHours;
+        }
+
+        public double getActualCost() {
+            return actualCost;
+        }
+    }
+
+    /**
+     * Budget of a project. Shared between the requests, so it is never changed once built.
+     */
+    public static final class Budget {
+        private final double hours;
+        private final double cost;
+        private final List<AssignmentBudget> assignments;
+        // Hours and cost by month, the months without budget are left out
+        private final Map<YearMonth, double[]> months;
+        private final LocalDate firstDay;
+        private final LocalDate lastDay;
+        private final Set<Long> userIds;
+        private final Set<Long> jobTitleIds;
+        private final long loadedTimestamp = System.currentTimeMillis();
+
+        private Budget(List<AssignmentBudget> assignments, Map<YearMonth, double[]> months,
+                LocalDate firstDay, LocalDate lastDay, Set<Long> userIds,
+                Set<Long> jobTitleIds) {
+            this.assignments = Collections.unmodifiableList(assignments);
+            this.months = Collections.unmodifiableMap(months);
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+            this.userIds = userIds;
+            this.jobTitleIds = jobTitleIds;
+            this.hours = assignments.stream().mapToDouble(AssignmentBudget::getHours).sum();
+            this.cost = assignments.stream().mapToDouble(AssignmentBudget::getCost).sum();
+        }
+
+        public double getHours() {
+            return hours;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+
+        public List<AssignmentBudget> getAssignments() {
+            return assignments;
+        }
+
+        private boolean includesDay(LocalDate day) {
+            return firstDay != null && !day.isBefore(firstDay) && !day.isAfter(lastDay);
+        }
+    }
+
+    /*
+     * An assignment as loaded for the budget
+     */
+    private static final class Assignment {
+        private Long id;
+        private Long userId;
+        private Long jobTitleId;
+        private Double rate;
+        private LocalDate start;
+        private LocalDate end;
+        private double allocation;
+    }
+
+    private Environment env;
+    private ProjectAssignmentRepository projectAssignmentRepository;
+    private HolidayRepository holidayRepository;
+    private TimeRecordRepository timeRecordRepository;
+
+    private long cacheTimeToLive = DEFAULT_CACHE_LIFETIME_MILLIS;
+
+    private final Map<Long, Budget> budgets = new ConcurrentHashMap<>();
+
+    // Changed by every invalidation, a budget computed while one ran may be stale and is not
+    // kept
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public ProjectBudgets(Environment env,
+            ProjectAssignmentRepository projectAssignmentRepository,
+            HolidayRepository holidayRepository, TimeRecordRepository timeRecordRepository) {
+        this.env = env;
+        this.projectAssignmentRepository = projectAssignmentRepository;
+        this.holidayRepository = holidayRepository;
+        this.timeRecordRepository = timeRecordRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        String cacheTimeToLiveStr = env.getProperty("server.project-budgets.time-to-live");
+        if (cacheTimeToLiveStr != null) {
+            cacheTimeToLive = Long.parseLong(cacheTimeToLiveStr);
+        }
+    }
+
+    public Budget getBudget(Long projectId) {
+        Budget budget = budgets.get(projectId);
+        if (budget != null
+                && System.currentTimeMillis() - budget.loadedTimestamp < cacheTimeToLive) {
+            return budget;
+        }
+
+        long invalidationsBefore = invalidations.get();
+        budget = compute(projectId);
+        if (invalidations.get() == invalidationsBefore) {
+            budgets.put(projectId, budget);
+        }
+        return budget;
+    }
+
+    /**
+     * Hours and cost budgeted for each month of the project next to the hours and cost
+     * recorded in it, by month. The recorded ones are always read from the time records.
+     */
+    public List<MonthBudget> getMonthlyBudget(Long projectId) {
+        Map<YearMonth, MonthBudget> months = new TreeMap<>();
+        for (Map.Entry<YearMonth, double[]> entry : getBudget(projectId).months.entrySet()) {
+            MonthBudget month = months.computeIfAbsent(entry.getKey(), MonthBudget::new);
+            month.budgetHours = entry.getValue()[0];
+            month.budgetCost = entry.getValue()[1];
+        }
+        for (Object[] row : timeRecordRepository.getMonthlyProjectCosts(projectId)) {
+            int i = 0;
+            YearMonth key = YearMonth.of(((Number) row[i++]).intValue(),
+                    ((Number) row[i++]).intValue());
+            Number hours = (Number) row[i++];
+            Number cost = (Number) row[i++];
+            MonthBudget month = months.computeIfAbsent(key, MonthBudget::new);
+            month.actualHours = hours != null ? hours.doubleValue() : 0.0;
+            month.actualCost = cost != null ? cost.doubleValue() : 0.0;
+        }
+        return new ArrayList<>(months.values());
+    }
+
+    public void invalidateProject(Long projectId) {
+        invalidations.incrementAndGet();
+        budgets.remove(projectId);
+    }
+
+    /**
+     * Invalidates the budgets of the projects with assignments over any of the given days,
+     * after holidays were added or removed.
+     */
+    public void invalidateDays(Collection<LocalDate> days) {
+        invalidate(budget -> days.stream().anyMatch(budget::includesDay));
+    }
+
+    public void invalidateJobTitle(Long jobTitleId) {
+        invalidate(budget -> budget.jobTitleIds.contains(jobTitleId));
+    }
+
+    public void invalidateUser(Long userId) {
+        invalidate(budget -> budget.userIds.contains(userId));
+    }
+
+    public void invalidateAll() {
+        invalidate(budget -> true);
+    }
+
+    private void invalidate(Predicate<Budget> affected) {
+        invalidations.incrementAndGet();
+        budgets.values().removeIf(affected);
+    }
+
+    private Budget compute(Long projectId) {
+        List<Assignment> assignments = loadAssignments(projectId);
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> jobTitleIds = new HashSet<>();
+        LocalDate firstDay = null;
+        LocalDate lastDay = null;
+        for (Assignment assignment : assignments) {
+            userIds.add(assignment.userId);
+            jobTitleIds.add(assignment.jobTitleId);
+            if (firstDay == null || assignment.start.isBefore(firstDay)) {
+                firstDay = assignment.start;
+            }
+            if (lastDay == null || assignment.end.isAfter(lastDay)) {
+                lastDay = assignment.end;
+            }
+        }
+        if (firstDay == null) {
+            return new Budget(List.of(), Map.of(), null, null, userIds, jobTitleIds);
+        }
+
+        int[] businessDaysBefore = countBusinessDays(firstDay, lastDay);
+        List<AssignmentBudget> assignmentBudgets = new ArrayList<>(assignments.size());
+        Map<YearMonth, double[]> months = new TreeMap<>();
+        for (Assignment assignment : assignments) {
+            double hourlyRate = assignment.rate != null ? assignment.rate : 0.0;
+            double hours = 0.0;
+            // The assignment split by the months it goes through
+            LocalDate from = assignment.start;
+            while (!from.isAfter(assignment.end)) {
+                YearMonth month = YearMonth.from(from);
+                LocalDate to = month.atEndOfMonth().isBefore(assignment.end)
+                        ? month.atEndOfMonth() : assignment.end;
+                int businessDays = businessDaysBefore[offset(firstDay, to) + 1]
+                        - businessDaysBefore[offset(firstDay, from)];
+                double monthHours = businessDays * BUSINESS_DAY_HOURS * assignment.allocation;
+                if (monthHours != 0.0) {
+                    double[] monthBudget = months.computeIfAbsent(month, m -> new double[2]);
+                    monthBudget[0] += monthHours;
+                    monthBudget[1] += monthHours * hourlyRate;
+                }
+                hours += monthHours;
+                from = to.plusDays(1);
+            }
+            assignmentBudgets.add(new AssignmentBudget(assignment.id, assignment.userId, hours,
+                    hours * hourlyRate));
+        }
+        return new Budget(assignmentBudgets, months, firstDay, lastDay, userIds, jobTitleIds);
+    }
+
+    private List<Assignment> loadAssignments(Long projectId) {
+        List<Assignment> assignments = new ArrayList<>();
+        for (Object[] row : projectAssignmentRepository.getBudgetAssignments(projectId)) {
+            int i = 0;
+            Assignment assignment = new Assignment();
+            assignment.id = (Long) row[i++];
+            assignment.userId = (Long) row[i++];
+            assignment.jobTitleId = (Long) row[i++];
+            assignment.rate = (Double) row[i++];
+            Timestamp start = (Timestamp) row[i++];
+            Timestamp end = (Timestamp) row[i++];
+            Double allocation = (Double) row[i++];
+
+            if (assignment.userId == null || assignment.jobTitleId == null) {
+                log.warn("INCONSISTENCY! Skipping project assignment id {} for project id {} "
+                        + "because user or user job title is null",
+                        assignment.id, projectId);
+                continue;
+            }
+            if (start == null || end == null || allocation == null) {
+                log.warn("INCONSISTENCY! Skipping project assignment id {} for project id {} "
+                        + "because start date, end date or allocation is null",
+                        assignment.id, projectId);
+                continue;
+            }
+            assignment.start = start.toInstant().atZone(TIME_ZONE).toLocalDate();
+            assignment.end = end.toInstant().atZone(TIME_ZONE).toLocalDate();
+            assignment.allocation = allocation / HUNDRED;
+            if (assignment.end.isBefore(assignment.start)) {
+                continue;
+            }
+            assignments.add(assignment);
+        }
+        return assignments;
+    }
+
+    /*
+     * Business days before each day from the first one, up to the day after the last one, so
+     * the business days between two days are a subtraction
+     */
+    private int[] countBusinessDays(LocalDate firstDay, LocalDate lastDay) {
+        Set<LocalDate> holidays = new HashSet<>(
+                holidayRepository.findAllHolidaysDatesByDateInterval(firstDay, lastDay));
+        int days = offset(firstDay, lastDay) + 1;
+        int[] businessDaysBefore = new int[days + 1];
+        LocalDate day = firstDay;
+        for (int i = 0; i < days; i++) {
+            boolean businessDay = day.getDayOfWeek() != DayOfWeek.SATURDAY
+                    && day.getDayOfWeek() != DayOfWeek.SUNDAY && !holidays.contains(day);
+            businessDaysBefore[i + 1] = businessDaysBefore[i] + (businessDay ? 1 : 0);
+            day = day.plusDays(1);
+        }
+        return businessDaysBefore;
+    }
+
+    private static int offset(LocalDate firstDay, LocalDate day) {
+        return (int) ChronoUnit.DAYS.between(firstDay, day);
+    }
+}
@@ -0,0 +1,113 @@
+package com.datacentric.timesense.utils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.datacentric.timesense.model.Project;
+import com.datacentric.timesense.model.TimeRecord;
+import com.datacentric.timesense.repository.UserRecentProjectRepository;
+
+/**
+ * Projects each user recorded time on lately, kept in user_recent_projects by the time record
+ * writes so the timesheet reads them with a short index scan instead of going through the
+ * time records of the user.
+ *
+ * A row is kept per user and project with the last time it was used. The rows older than
+ * the recent weeks are no longer read and are removed by trim, see TimeRecordsJobWrapper.
+ *
+ * Each row is written with a single upsert on the (user_id, project_id) unique key, so
+ * concurrent first uses of a project by the same user do not both insert it.
+ */
+@Service
+public class RecentProjects {
+
+    /**
+     * Weeks a project stays in the recent projects of a user after it was last used.
+     */
+    public static final int RECENT_WEEKS = 2;
+
+    /**
+     * Most recent projects returned to a user.
+     */
+    public static final int MAX_RECENT_PROJECTS = 20;
+
+    private static final Logger log = LoggerFactory.getLogger(RecentProjects.class);
+
+    private static final String USER_RECENT_PROJECTS_ID_SEQ = "user_recent_projects_id_seq";
+
+    private UserRecentProjectRepository userRecentProjectRepository;
+    private PooledIds pooledIds;
+
+    @Autowired
+    public RecentProjects(UserRecentProjectRepository userRecentProjectRepository,
+            PooledIds pooledIds) {
+        this.userRecentProjectRepository = userRecentProjectRepository;
+        this.pooledIds = pooledIds;
+    }
+
+    /**
+     * Marks the projects of the given records as used now by the users of the records, in
+     * the transaction of the write.
+     */
+    @Transactional
+    public void touch(Collection<TimeRecord> records) {
+        // Sorted, so concurrent writes lock the rows in the same order
+        Map<Long, Set<Long>> projectsByUser = new TreeMap<>();
+        for (TimeRecord record : records) {
+            if (record.getUser() != null && record.getUser().getId() != null
+                    && record.getProject() != null && record.getProject().getId() != null) {
+                projectsByUser.computeIfAbsent(record.getUser().getId(), id -> new TreeSet<>())
+                        .add(record.getProject().getId());
+            }
+        }
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int count = projectsByUser.values().stream().mapToInt(Set::size).sum();
+        if (count == 0) {
+            return;
+        }
+        // The ids of the rows already there are left unused
+        long[] ids = pooledIds.next(USER_RECENT_PROJECTS_ID_SEQ, count);
+        int next = 0;
+        for (Map.Entry<Long, Set<Long>> user : projectsByUser.entrySet()) {
+            for (Long projectId : user.getValue()) {
+                userRecentProjectRepository.upsert(ids[next++], user.getKey(), projectId, now);
+            }
+        }
+    }
+
+    /**
+     * Projects the user recorded time on in the recent weeks, the last used first.
+     */
+    public List<Project> getLastUsed(Long userId) {
+        Timestamp since = Timestamp.valueOf(LocalDateTime.now().minusWeeks(RECENT_WEEKS));
+        return userRecentProjectRepository.findLastUsedProjects(userId, since,
+                PageRequest.of(0, MAX_RECENT_PROJECTS));
+    }
+
+    /**
+     * Removes the projects not used in the recent weeks.
+     *
+     * @return the number of rows removed
+     */
+    @Transactional
+    public int trim() {
+        Timestamp before = Timestamp.valueOf(LocalDateTime.now().minusWeeks(RECENT_WEEKS));
+        int removed = userRecentProjectRepository.deleteUsedBefore(before);
+        log.info("Removed {} recent projects not used since {}", removed, before);
+        return removed;
+    }
+}
@@ -0,0 +1,152 @@
+package com.datacentric.timesense.utils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.datacentric.utils.rest.I18nResponses;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+/*
+ * Checks that the entities referenced by a write exist, all of them in a single query
+ * instead of one existsById per reference
+ */
+@Service
+public class ReferenceValidator {
+
+    private static final String MISSING = "missing";
+
+    private EntityManager entityManager;
+
+    @Autowired
+    public ReferenceValidator(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * References of a write, each with the response to give when it does not exist.
+     */
+    public static class References {
+
+        private final List<Reference> references = new ArrayList<>();
+
+        public References add(Class<?> entity, Long id, String messageCode) {
+            return add(entity, id, HttpStatus.NOT_FOUND, messageCode);
+        }
+
+        public References add(Class<?> entity, Long id, HttpStatus status, String messageCode) {
+            references.add(new Reference(entity, id, status, messageCode));
+            return this;
+        }
+    }
+
+    /**
+     * References that do not exist, by entity name.
+     */
+    public static class MissingReferences {
+
+        private final Map<String, List<Long>> ids = new LinkedHashMap<>();
+        private Reference first;
+
+        public boolean isEmpty() {
+            return first == null;
+        }
+
+        public Map<String, List<Long>> getIds() {
+            return ids;
+        }
+
+        /**
+         * Response of the first missing reference, with the ids of all of them.
+         */
+        public ResponseEntity<?> toResponse() {
+            return I18nResponses.httpResponseWithData(first.status, first.messageCode,
+                    Map.of(MISSING, ids));
+        }
+
+        private void add(String entityName, Reference reference) {
+            if (first == null) {
+                first = reference;
+            }
+            List<Long> entityIds = ids.computeIfAbsent(entityName, name -> new ArrayList<>());
+            if (!entityIds.contains(reference.id)) {
+                entityIds.add(reference.id);
+            }
+        }
+    }
+
+    private static final class Reference {
+        private final Class<?> entity;
+        private final Long id;
+        private final HttpStatus status;
+        private final String messageCode;
+
+        private Reference(Class<?> entity, Long id, HttpStatus status, String messageCode) {
+            this.entity = entity;
+            this.id = id;
+            this.status = status;
+            this.messageCode = messageCode;
+        }
+    }
+
+    /**
+     * Looks up every reference in a single query, one select per entity joined with UNION
+     * ALL, and returns the ones not found. The entity filters apply as in existsById, so
+     * soft deleted rows are missing too. A reference without id is always missing.
+     */
+    public MissingReferences findMissing(References references) {
+        Map<Class<?>, Set<Long>> idsByEntity = new LinkedHashMap<>();
+        for (Reference reference : references.references) {
+            if (reference.id != null) {
+                idsByEntity.computeIfAbsent(reference.entity, entity -> new LinkedHashSet<>())
+                        .add(reference.id);
+            }
+        }
+
+        Set<String> found = new HashSet<>();
+        if (!idsByEntity.isEmpty()) {
+            List<Class<?>> entities = new ArrayList<>(idsByEntity.keySet());
+            List<String> selects = new ArrayList<>();
+            for (int i = 0; i < entities.size(); i++) {
+                selects.add("SELECT " + i + ", e.id FROM " + entityName(entities.get(i))
+                        + " e WHERE e.id IN (:ids" + i + ")");
+            }
+            Query query = entityManager.createQuery(String.join(" UNION ALL ", selects));
+            for (int i = 0; i < entities.size(); i++) {
+                query.setParameter("ids" + i, idsByEntity.get(entities.get(i)));
+            }
+            for (Object row : query.getResultList()) {
+                Object[] values = (Object[]) row;
+                Class<?> entity = entities.get(((Number) values[0]).intValue());
+                found.add(key(entity, ((Number) values[1]).longValue()));
+            }
+        }
+
+        MissingReferences missing = new MissingReferences();
+        for (Reference reference : references.references) {
+            if (reference.id == null || !found.contains(key(reference.entity, reference.id))) {
+                missing.add(entityName(reference.entity), reference);
+            }
+        }
+        return missing;
+    }
+
+    private String entityName(Class<?> entity) {
+        return entityManager.getMetamodel().entity(entity).getName();
+    }
+
+    private static String key(Class<?> entity, Long id) {
+        return entity.getName() + "#" + id;
+    }
+}
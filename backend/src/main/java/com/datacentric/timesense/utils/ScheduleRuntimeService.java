@@ -25,7 +25,11 @@ public class ScheduleRuntimeService implements AutoCloseable {
     private static Logger log = LoggerFactory.getLogger(ScheduleRuntimeService.class);
     private static final int ELEVEN = 23;
     private static final int ZERO = 0;
+    private static final int THIRTY = 30;
+    private static final int FORTY_FIVE = 45;
+    private static final int FIFTY = 50;
     private static final String TZ = "Europe/Lisbon";
+    private static final String EVERY_FIFTEEN_MINUTES = "0 0/15 * ? * *";
 
     private Scheduler scheduler;
 
@@ -45,6 +49,10 @@ public class ScheduleRuntimeService implements AutoCloseable {
 
             scheduleAbsenceCheckerJob();
             scheduleTimeRecordsJob();
+            scheduleApprovalCountersJob();
+            scheduleVacationBalancesJob();
+            scheduleTimeRecordCostsJob();
+            scheduleArchivesJob();
             
         } catch (SchedulerException e) {
             log.error("Scheduler failed to initialize.", e);
@@ -83,6 +91,76 @@ public class ScheduleRuntimeService implements AutoCloseable {
         log.info("Quartz job scheduled to run at {}:{}", ELEVEN, ZERO);
     }
 
+    // Runs after the jobs above, which change the status of absences and delete time records
+    // without going through the approval counters
+    public void scheduleApprovalCountersJob() throws SchedulerException {
+        Trigger trigger = TriggerBuilder.newTrigger()
+                .withIdentity("Approval Counters Trigger")
+                .withSchedule(CronScheduleBuilder.dailyAtHourAndMinute(ELEVEN, THIRTY)
+                        .inTimeZone(TimeZone.getTimeZone(TZ)))
+                .build();
+
+        JobDetail jobDetail = JobBuilder.newJob()
+                .withIdentity("Rebuild Approval Counters")
+                .ofType(ApprovalCountersJobWrapper.class)
+                .build();
+
+        scheduler.scheduleJob(jobDetail, trigger);
+        log.info("Quartz job scheduled to run at {}:{}", ELEVEN, THIRTY);
+    }
+
+    // Folds the vacation balance events of the day into the users balance snapshots
+    public void scheduleVacationBalancesJob() throws SchedulerException {
+        Trigger trigger = TriggerBuilder.newTrigger()
+                .withIdentity("Vacation Balances Trigger")
+                .withSchedule(CronScheduleBuilder.dailyAtHourAndMinute(ELEVEN, FORTY_FIVE)
+                        .inTimeZone(TimeZone.getTimeZone(TZ)))
+                .build();
+
+        JobDetail jobDetail = JobBuilder.newJob()
+                .withIdentity("Compact Vacation Balances")
+                .ofType(VacationBalancesJobWrapper.class)
+                .build();
+
+        scheduler.scheduleJob(jobDetail, trigger);
+        log.info("Quartz job scheduled to run at {}:{}", ELEVEN, FORTY_FIVE);
+    }
+
+    // Recalculates the costs of the time records after a job title rate changed in the past,
+    // so the cost reports catch up with the change within minutes
+    public void scheduleTimeRecordCostsJob() throws SchedulerException {
+        Trigger trigger = TriggerBuilder.newTrigger()
+                .withIdentity("Time Record Costs Trigger")
+                .withSchedule(CronScheduleBuilder.cronSchedule(EVERY_FIFTEEN_MINUTES)
+                        .inTimeZone(TimeZone.getTimeZone(TZ)))
+                .build();
+
+        JobDetail jobDetail = JobBuilder.newJob()
+                .withIdentity("Recalculate Time Record Costs")
+                .ofType(TimeRecordCostsJobWrapper.class)
+                .build();
+
+        scheduler.scheduleJob(jobDetail, trigger);
+        log.info("Quartz job scheduled to run with {}", EVERY_FIFTEEN_MINUTES);
+    }
+
+    // Runs after the jobs above, so the rows they delete are archived the same night
+    public void scheduleArchivesJob() throws SchedulerException {
+        Trigger trigger = TriggerBuilder.newTrigger()
+                .withIdentity("Archives Trigger")
+                .withSchedule(CronScheduleBuilder.dailyAtHourAndMinute(ELEVEN, FIFTY)
+                        .inTimeZone(TimeZone.getTimeZone(TZ)))
+                .build();
+
+        JobDetail jobDetail = JobBuilder.newJob()
+                .withIdentity("Archive Inactive Rows")
+                .ofType(ArchivesJobWrapper.class)
+                .build();
+
+        scheduler.scheduleJob(jobDetail, trigger);
+        log.info("Quartz job scheduled to run at {}:{}", ELEVEN, FIFTY);
+    }
+
     @Override
     public void close() throws Exception {
         try {
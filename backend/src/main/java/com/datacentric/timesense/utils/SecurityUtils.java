@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
@@ -34,6 +35,7 @@ import com.datacentric.timesense.repository.ResourcePermissionRepository;
 import com.datacentric.timesense.repository.UserGroupRepository;
 import com.datacentric.timesense.repository.UserRepository;
 import com.datacentric.timesense.repository.UserRoleRepository;
+import com.datacentric.timesense.utils.security.GroupMetadataCache;
 import com.datacentric.timesense.utils.security.UserSecurityData;
 
 import jakarta.annotation.PostConstruct;
@@ -59,6 +61,8 @@ public class SecurityUtils {
     private static final String ERROR_SYNCHRONIZING_USERS = "Error synchronizing users";
     private static final String USER_INVALID_JOB_TITLE = "User {} has no valid role '{}', skipping";
 
+    private static final int GROUP_CREATION_LOCK_STRIPES = 64;
+
     private static final String UNKNOWN_USER = "Unknown user";
     private static final String SUBJECT_TYPE_USER = "user";
 
@@ -76,14 +80,21 @@ public class SecurityUtils {
     private UserRoleRepository userRoleRepository;
     private GroupMetadataProvider groupMetadataProvider;
     private JobTitleRepository jobTitleRepository;
+    private GroupMetadataCache groupMetadataCache;
+    private ApprovalCounters approvalCounters;
+    private OrgHierarchy orgHierarchy;
+
+    private StripedLocks groupCreationLocks = new StripedLocks(GROUP_CREATION_LOCK_STRIPES);
 
     boolean updateGroupsBasedOnToken;
 
+    // CHECKSTYLE.OFF: ParameterNumber
     @Autowired
     public SecurityUtils(Environment env, ResourcePermissionRepository resourcePermissionRepository,
             UserRepository userRepository, UserGroupRepository userGroupRepository,
             GroupMetadataProvider groupMetadataProvider, JobTitleRepository jobTitleRepository,
-            UserRoleRepository userRoleRepository) {
+            UserRoleRepository userRoleRepository, GroupMetadataCache groupMetadataCache,
+            ApprovalCounters approvalCounters, OrgHierarchy orgHierarchy) {
         this.updateGroupsBasedOnToken = false;
         this.env = env;
         this.resourcePermissionRepository = resourcePermissionRepository;
@@ -92,7 +103,11 @@ public class SecurityUtils {
         this.groupMetadataProvider = groupMetadataProvider;
         this.jobTitleRepository = jobTitleRepository;
         this.userRoleRepository = userRoleRepository;
+        this.groupMetadataCache = groupMetadataCache;
+        this.approvalCounters = approvalCounters;
+        this.orgHierarchy = orgHierarchy;
     }
+    // CHECKSTYLE.ON: ParameterNumber
 
     @PostConstruct
     public void start() {
@@ -105,10 +120,12 @@ public class SecurityUtils {
 
     /**
      * Updates the user groups based on the token information.
+     *
+     * @return true if the user groups changed
      */
-    public void updateUserGroups(User user, List<String> userGroups) {
+    public boolean updateUserGroups(User user, List<String> userGroups) {
         if (!updateGroupsBasedOnToken || userGroups == null) {
-            return;
+            return false;
         }
 
         List<UserGroup> userGroupsWithTokenList = updateUserGroupsFromRemoteProvider(userGroups);
@@ -129,11 +146,12 @@ public class SecurityUtils {
         userGroupsChanged = userGroupsChanged || !userGroupsWithTokenList.isEmpty();
 
         if (userGroupsChanged) {
-            user.setUserGroups(userGroupsWithTokenList);
+            user.setUserGroups(userGroupsList);
             log.info("Saving the user information with the updated user groups for user: {}",
                     user.getName());
             userRepository.save(user);
         }
+        return userGroupsChanged;
     }
 
     /**
@@ -146,15 +164,19 @@ public class SecurityUtils {
         Set<String> groupsSet = new HashSet<>(userGroups);
         List<UserGroup> userGroupsWithTokenList = userGroupRepository.findByTokenIdIn(userGroups);
 
-        // Update already known groups if our data is too old
+        // Update already known groups if our data is too old. The metadata comes from the
+        // cache, so a warm cache does not call the remote provider
+        Map<String, UserGroupData> knownGroupsMetadata = groupMetadataCache.getUserGroups(
+                userGroupsWithTokenList.stream().map(UserGroup::getTokenId).toList());
         for (UserGroup group : userGroupsWithTokenList) {
             String prevGroupName = group.getName();
             groupsSet.remove(group.getTokenId());
 
             String newTokenId = group.getTokenId();
-            UserGroupData newGroup = groupMetadataProvider.getUserGroup(newTokenId);
+            UserGroupData newGroup = knownGroupsMetadata.get(newTokenId);
 
-            if (prevGroupName != null && !prevGroupName.equals(newGroup.getName())) {
+            if (newGroup != null && prevGroupName != null
+                    && !prevGroupName.equals(newGroup.getName())) {
                 log.info("Updating group name for tokenId {}", newTokenId);
                 group.setName(newGroup.getName());
                 userGroupRepository.save(group);
@@ -163,35 +185,30 @@ public class SecurityUtils {
 
         // Create missing groups in the database
         if (!groupsSet.isEmpty()) {
-            // Synchronize this block so that we don't end up with duplicate groups
-            // with the same external uuid on the database when multiple requests
-            // are being executed at the same time.
-            synchronized (this) {
-                // check if some of the groups have been created meanwhile and
-                // remove them so that we don't download their metadata from
-                // the third party service again. This is only executed when a
-                // new group is created which is a rare event.
-                List<UserGroup> newUserGroups = userGroupRepository
-                        .findByTokenIdIn(new ArrayList<>(groupsSet));
-                for (UserGroup group : userGroupsWithTokenList) {
-                    groupsSet.remove(group.getTokenId());
-                }
-
-                newUserGroups = new ArrayList<>(groupsSet.size());
-                for (String groupId : groupsSet) {
-                    UserGroupData group = groupMetadataProvider.getUserGroup(groupId);
-                    UserGroup newGroup = new UserGroup();
-                    newGroup.setTokenId(group.getExternalId());
-                    newGroup.setName(group.getName());
-
-                    newUserGroups.add(newGroup);
+            // The metadata is downloaded without holding any lock, concurrent requests for
+            // the same group share the download in the metadata cache
+            Map<String, UserGroupData> newGroupsMetadata = groupMetadataCache
+                    .getUserGroups(groupsSet);
+            List<String> newTokenIds = newGroupsMetadata.values().stream()
+                    .map(UserGroupData::getExternalId)
+                    .toList();
+
+            // Only the requests creating the same groups wait for each other. The unique
+            // token id index turns the insert of a group created meanwhile, possibly by
+            // another instance, into a no-op so the group is never duplicated.
+            List<UserGroup> newUserGroups = groupCreationLocks.withLocks(newTokenIds, () -> {
+                int createdGroups = 0;
+                for (UserGroupData group : newGroupsMetadata.values()) {
+                    createdGroups += userGroupRepository.insertUserGroupIfAbsent(
+                            group.getExternalId(), group.getName());
                 }
-                if (!newUserGroups.isEmpty()) {
-                    log.info("Adding {} new groups to the database", newUserGroups.size());
-                    newUserGroups = userGroupRepository.saveAll(newUserGroups);
+                if (createdGroups > 0) {
+                    log.info("Added {} new groups to the database", createdGroups);
                 }
-                userGroupsWithTokenList.addAll(newUserGroups);
-            }
+                return newTokenIds.isEmpty() ? List.<UserGroup>of()
+                        : userGroupRepository.findByTokenIdIn(newTokenIds);
+            });
+            userGroupsWithTokenList.addAll(newUserGroups);
         }
         return userGroupsWithTokenList;
     }
@@ -315,6 +332,7 @@ public class SecurityUtils {
                 }
                 Optional<User> userInDb = userRepository.findByEmail(user.getEmail());
                 User userToUpdate = null;
+                Long previousLineManagerId = null;
                 if (!userInDb.isPresent()) {
                     userToUpdate = new User();
                     userToUpdate.setName(user.getName());
@@ -333,6 +351,7 @@ public class SecurityUtils {
                     populateUserManager(user, userToUpdate);
                 } else {
                     userToUpdate = userInDb.get();
+                    previousLineManagerId = userToUpdate.getLineManagerId();
                     userToUpdate.setName(user.getName());
                     userToUpdate.setEmail(user.getEmail());
                     userToUpdate.setBirthdate(user.getBirthdate());
@@ -370,9 +389,30 @@ public class SecurityUtils {
                     }
                 }
 
+                // A loop coming from the directory is not saved, the user keeps their manager.
+                // The move locks the users involved and checks for the loop under the lock.
+                boolean moved = false;
+                boolean managerChanged = !Objects.equals(previousLineManagerId,
+                        userToUpdate.getLineManagerId());
+                if (userInDb.isPresent() && managerChanged) {
+                    moved = orgHierarchy.moveUser(userToUpdate.getId(),
+                            userToUpdate.getLineManagerId());
+                    if (!moved) {
+                        log.warn("Keeping the line manager of user {}, user {} is below them",
+                                userToUpdate.getEmail(), userToUpdate.getLineManagerId());
+                        userToUpdate.setLineManagerId(previousLineManagerId);
+                    }
+                }
+
                 userToUpdate.setUserRoles(currentUserRoles);
                 userToUpdate.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
                 userRepository.save(userToUpdate);
+                if (moved) {
+                    approvalCounters.updateApproversByUser(userToUpdate.getId());
+                } else if (!userInDb.isPresent() && userToUpdate.getLineManagerId() != null) {
+                    // A new user has no one below them, placing them cannot close a loop
+                    orgHierarchy.moveUser(userToUpdate.getId(), userToUpdate.getLineManagerId());
+                }
             });
         } catch (DataCentricException | InterruptedException e) {
             log.error(ERROR_SYNCHRONIZING_USERS, e);
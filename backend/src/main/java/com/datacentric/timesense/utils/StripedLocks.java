@@ -0,0 +1,67 @@
+package com.datacentric.timesense.utils;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A fixed set of locks shared by keys. Work on the same key is serialized while work on
+ * different keys only waits when both keys fall on the same stripe, instead of
+ * serializing everything behind a single monitor.
+ */
+public class StripedLocks {
+
+    private final ReentrantLock[] stripes;
+
+    public StripedLocks(int stripesCount) {
+        stripes = new ReentrantLock[stripesCount];
+        for (int i = 0; i < stripesCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Runs the action holding the lock of the given key.
+     */
+    public <T> T withLock(String key, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeOf(key)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the action holding the locks of all the given keys. The locks are always taken in
+     * the same order so two callers with overlapping keys can not deadlock.
+     */
+    public <T> T withLocks(Collection<String> keys, Supplier<T> action) {
+        TreeSet<Integer> stripeIndexes = new TreeSet<>();
+        for (String key : keys) {
+            stripeIndexes.add(stripeOf(key));
+        }
+
+        int locked = 0;
+        try {
+            for (int index : stripeIndexes) {
+                stripes[index].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int index : stripeIndexes) {
+                if (locked-- == 0) {
+                    break;
+                }
+                stripes[index].unlock();
+            }
+        }
+    }
+
+    private int stripeOf(String key) {
+        return Math.floorMod(key.hashCode(), stripes.length);
+    }
+}
@@ -0,0 +1,215 @@
+package com.datacentric.timesense.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.datacentric.timesense.controller.payloads.TimeRecordPatchResult;
+import com.datacentric.timesense.model.ApprovalCounter;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.User;
+
+/*
+ * Changes the status of a set of time records in a single statement, checking in the same
+ * statement that the user may approve each of them.
+ */
+@Service
+public class TimeRecordApprovals {
+
+    private static final Logger log = LoggerFactory.getLogger(TimeRecordApprovals.class);
+
+    /*
+     * The requested records, marked as allowed when the user is an admin or the manager of
+     * their project, with their status before the update
+     */
+    private static final String REQUESTED_SQL = """
+            SELECT t.id, t.approver_user_id,
+                COALESCE(s.name = 'PENDING', false) AS was_pending,
+                COALESCE(CAST(? AS BOOLEAN) OR p.manager = ?, false) AS allowed
+            FROM time_records t
+            LEFT JOIN projects p ON p.id = t.project_id
+            LEFT JOIN status s ON s.id = t.status_id
+            WHERE t.id IN (%s)
+                AND t.deleted = false
+            """;
+
+    /*
+     * The requested records are locked and only the allowed ones are updated. Every
+     * requested record that exists is returned with its status before the update, so the
+     * caller can tell the forbidden ids from the missing ones and move the approval counters.
+     */
+    private static final String SET_STATUS_SQL = """
+            WITH requested AS (
+                %s
+                FOR UPDATE OF t
+            ),
+            updated AS (
+                UPDATE time_records t
+                SET status_id = ?,
+                    reason = ?,
+                    approved_by = ?,
+                    approved_at = CURRENT_TIMESTAMP,
+                    updated_by = ?,
+                    updated_at = CURRENT_TIMESTAMP
+                FROM requested r
+                WHERE t.id = r.id
+                    AND r.allowed
+                RETURNING t.id
+            )
+            SELECT r.id, r.approver_user_id, r.was_pending, u.id IS NOT NULL AS updated
+            FROM requested r
+            LEFT JOIN updated u ON u.id = r.id
+            """;
+
+    private static final RowMapper<RequestedRecord> REQUESTED_RECORD_MAPPER = (rs, rowNum) -> {
+        long approverUserId = rs.getLong("approver_user_id");
+        Long approver = rs.wasNull() ? null : approverUserId;
+        return new RequestedRecord(rs.getLong("id"), approver, rs.getBoolean("was_pending"),
+                rs.getBoolean("updated"));
+    };
+
+    private JdbcTemplate jdbcTemplate;
+    private ApprovalCounters approvalCounters;
+
+    @Autowired
+    public TimeRecordApprovals(JdbcTemplate jdbcTemplate, ApprovalCounters approvalCounters) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.approvalCounters = approvalCounters;
+    }
+
+    /**
+     * A requested time record that exists, as returned by the update.
+     */
+    public static final class RequestedRecord {
+
+        private final long id;
+        private final Long approverUserId;
+        private final boolean wasPending;
+        private final boolean updated;
+
+        public RequestedRecord(long id, Long approverUserId, boolean wasPending,
+                boolean updated) {
+            this.id = id;
+            this.approverUserId = approverUserId;
+            this.wasPending = wasPending;
+            this.updated = updated;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Long getApproverUserId() {
+            return approverUserId;
+        }
+
+        public boolean getWasPending() {
+            return wasPending;
+        }
+
+        public boolean getUpdated() {
+            return updated;
+        }
+    }
+
+    /**
+     * Sets the status of the time records the user may approve, the ones of projects they
+     * manage or any of them for admins. None of the statuses set here is pending, so the
+     * records updated leave the pending counts of their approvers.
+     *
+     * @param command the command being run, returned with the outcome
+     * @param ids the time records to update
+     * @param status the new status of the records
+     * @param reason the reason of the change, kept in the records
+     * @param user the user approving the records
+     * @param isAdmin whether the user may approve the records of any project
+     * @return the ids updated, the ids the user may not approve and the ids not found
+     */
+    @Transactional
+    public TimeRecordPatchResult setStatus(String command, List<Long> ids, Status status,
+            String reason, User user, boolean isAdmin) {
+        if (ids == null || ids.isEmpty()) {
+            return new TimeRecordPatchResult(command);
+        }
+        Set<Long> requestedIds = new LinkedHashSet<>(ids);
+        requestedIds.remove(null);
+        if (requestedIds.isEmpty()) {
+            return new TimeRecordPatchResult(command);
+        }
+
+        List<Object> params = new ArrayList<>();
+        params.add(isAdmin);
+        params.add(user.getId());
+        params.addAll(requestedIds);
+        params.add(status.getId());
+        params.add(reason);
+        params.add(user.getId());
+        params.add(user.getId());
+        String requestedSql = String.format(REQUESTED_SQL,
+                String.join(", ", Collections.nCopies(requestedIds.size(), "?")));
+
+        List<RequestedRecord> rows = jdbcTemplate.query(
+                String.format(SET_STATUS_SQL, requestedSql), REQUESTED_RECORD_MAPPER,
+                params.toArray());
+
+        TimeRecordPatchResult result = toResult(command, requestedIds, rows);
+        approvalCounters.record(ApprovalCounter.TIME_RECORDS, pendingBefore(rows), Map.of());
+
+        log.info("Time records set to {} by user {}: {} updated, {} forbidden, {} not found",
+                status.getName(), user.getId(), result.getUpdated().size(),
+                result.getForbidden().size(), result.getNotFound().size());
+        return result;
+    }
+
+    /**
+     * Outcome of each requested id: updated, found but not allowed, or not found.
+     */
+    public static TimeRecordPatchResult toResult(String command, Collection<Long> requestedIds,
+            List<RequestedRecord> rows) {
+        TimeRecordPatchResult result = new TimeRecordPatchResult(command);
+        Set<Long> foundIds = new HashSet<>();
+        for (RequestedRecord row : rows) {
+            foundIds.add(row.getId());
+            if (row.getUpdated()) {
+                result.getUpdated().add(row.getId());
+            } else {
+                result.getForbidden().add(row.getId());
+            }
+        }
+        for (Long id : requestedIds) {
+            if (!foundIds.contains(id)) {
+                result.getNotFound().add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Pending records updated, by approver. The updated records are no longer pending, so
+     * these are the counts the approvers lose.
+     */
+    public static Map<Long, Long> pendingBefore(List<RequestedRecord> rows) {
+        Map<Long, Long> pendingBefore = new HashMap<>();
+        for (RequestedRecord row : rows) {
+            if (row.getUpdated() && row.getWasPending() && row.getApproverUserId() != null) {
+                pendingBefore.merge(row.getApproverUserId(), 1L, Long::sum);
+            }
+        }
+        return pendingBefore;
+    }
+
+}
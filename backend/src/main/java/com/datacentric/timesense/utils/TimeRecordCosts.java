@@ -0,0 +1,193 @@
+package com.datacentric.timesense.utils;
+
+import static com.datacentric.timesense.utils.CompanyZone.TIME_ZONE;
+import static com.datacentric.timesense.utils.CompanyZone.TIME_ZONE_NAME;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.datacentric.timesense.model.JobTitleRate;
+import com.datacentric.timesense.model.TimeRecord;
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.repository.JobTitleRateRepository;
+
+/**
+ * Cost of the time records, kept in the cost column of each record so the cost reports sum
+ * a single table.
+ *
+ * The cost is the hours of the record times the rate of the job title of the user on the
+ * day of the record, taken from the job_title_rate_history table, and is set by the time
+ * record writes together with the job title it was taken from. The writes read the rates
+ * of their job titles from the table, so a rate changed on any instance applies to the
+ * next write. A rate changed from a date in the past leaves the records from that date
+ * on with the costs of the previous rate until recalculatePending runs, see
+ * TimeRecordCostsJobWrapper.
+ */
+@Service
+public class TimeRecordCosts {
+
+    /**
+     * Rates since always, for the job titles whose rate was set before the history was kept.
+     */
+    public static final LocalDate RATE_HISTORY_START = LocalDate.of(1970, 1, 1);
+
+    private static final Logger log = LoggerFactory.getLogger(TimeRecordCosts.class);
+
+    private static final int RECALCULATE_BATCH_SIZE = 5000;
+
+    /*
+     * Recomputes the costs of the next batch of records, by id, written with the job title
+     * from the given day on. Each batch runs on its own, so recalculating years of
+     * records does not hold their locks until the end.
+     */
+    private static final String RECALCULATE_COSTS_SQL = """
+            UPDATE time_records t
+            SET cost = t.hours * (
+                SELECT r.rate
+                FROM job_title_rate_history r
+                WHERE r.job_title_id = ?
+                    AND r.effective_from <= CAST(t.start_date AT TIME ZONE '%s' AS date)
+                ORDER BY r.effective_from DESC, r.id DESC
+                LIMIT 1)
+            WHERE t.id IN (
+                SELECT b.id
+                FROM time_records b
+                WHERE b.job_title_id = ?
+                    AND b.start_date >= ?
+                    AND b.id > ?
+                    AND b.deleted = false
+                ORDER BY b.id
+                LIMIT ?)
+            RETURNING t.id
+            """;
+
+    private JdbcTemplate jdbcTemplate;
+    private JobTitleRateRepository jobTitleRateRepository;
+
+    @Autowired
+    public TimeRecordCosts(JdbcTemplate jdbcTemplate,
+            JobTitleRateRepository jobTitleRateRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jobTitleRateRepository = jobTitleRateRepository;
+    }
+
+    /**
+     * Sets the job title and the cost of the given records from their user, day and hours.
+     * Called by the writes of time records before saving them.
+     */
+    public void assignCosts(Collection<TimeRecord> records) {
+        Set<Long> jobTitleIds = new HashSet<>();
+        for (TimeRecord record : records) {
+            User user = record.getUser();
+            Long jobTitleId = user == null || user.getJobTitle() == null ? null
+                    : user.getJobTitle().getId();
+            record.setJobTitleId(jobTitleId);
+            if (jobTitleId != null) {
+                jobTitleIds.add(jobTitleId);
+            }
+        }
+
+        Rates rates = loadRates(jobTitleIds);
+        for (TimeRecord record : records) {
+            record.setCost(rates.costOf(record.getJobTitleId(), record.getStartDate(),
+                    record.getHours()));
+        }
+    }
+
+    /**
+     * Changes the rate of a job title from the given day on. The costs of the records already
+     * written from that day on are recalculated by the next run of recalculatePending.
+     */
+    @Transactional
+    public JobTitleRate changeRate(Long jobTitleId, Double rate, LocalDate effectiveFrom) {
+        return jobTitleRateRepository.save(new JobTitleRate(jobTitleId, rate, effectiveFrom));
+    }
+
+    /**
+     * Recalculates the costs of the records affected by the rates changed since the last run.
+     *
+     * @return the number of records recalculated
+     */
+    public int recalculatePending() {
+        int recalculated = 0;
+        for (JobTitleRate rate : jobTitleRateRepository.findByRecalculatedAtIsNullOrderByIdAsc()) {
+            recalculated += recalculate(rate.getJobTitleId(), rate.getEffectiveFrom());
+            rate.setRecalculatedAt(new Timestamp(System.currentTimeMillis()));
+            jobTitleRateRepository.save(rate);
+        }
+        return recalculated;
+    }
+
+    private int recalculate(Long jobTitleId, LocalDate from) {
+        String sql = String.format(RECALCULATE_COSTS_SQL, TIME_ZONE_NAME);
+        Timestamp fromTimestamp = Timestamp.from(from.atStartOfDay(TIME_ZONE).toInstant());
+        long lastId = 0;
+        int recalculated = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(sql, Long.class, jobTitleId, jobTitleId,
+                    fromTimestamp, lastId, RECALCULATE_BATCH_SIZE);
+            if (ids.isEmpty()) {
+                break;
+            }
+            recalculated += ids.size();
+            lastId = ids.stream().mapToLong(Long::longValue).max().getAsLong();
+        }
+        log.info("Recalculated the cost of {} time records of job title {} from {}",
+                recalculated, jobTitleId, from);
+        return recalculated;
+    }
+
+    private Rates loadRates(Collection<Long> jobTitleIds) {
+        Map<Long, TreeMap<LocalDate, Double>> byJobTitle = new HashMap<>();
+        if (jobTitleIds.isEmpty()) {
+            return new Rates(byJobTitle);
+        }
+        for (JobTitleRate rate : jobTitleRateRepository
+                .findByJobTitleIdInOrderByJobTitleIdAscEffectiveFromAscIdAsc(jobTitleIds)) {
+            // The latest rate of a day wins, as in the recalculation
+            byJobTitle.computeIfAbsent(rate.getJobTitleId(), id -> new TreeMap<>())
+                    .put(rate.getEffectiveFrom(), rate.getRate());
+        }
+        return new Rates(byJobTitle);
+    }
+
+    /*
+     * The rates of the job titles of a write by the day they start
+     */
+    private static final class Rates {
+
+        private final Map<Long, TreeMap<LocalDate, Double>> byJobTitle;
+
+        private Rates(Map<Long, TreeMap<LocalDate, Double>> byJobTitle) {
+            this.byJobTitle = byJobTitle;
+        }
+
+        private Double costOf(Long jobTitleId, Timestamp startDate, Double hours) {
+            if (jobTitleId == null || startDate == null || hours == null) {
+                return null;
+            }
+            TreeMap<LocalDate, Double> jobTitleRates = byJobTitle.get(jobTitleId);
+            if (jobTitleRates == null) {
+                return null;
+            }
+            Entry<LocalDate, Double> rate = jobTitleRates.floorEntry(
+                    startDate.toInstant().atZone(TIME_ZONE).toLocalDate());
+            return rate == null || rate.getValue() == null ? null : hours * rate.getValue();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.datacentric.timesense.utils;
+
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+@DisallowConcurrentExecution
+public class TimeRecordCostsJobWrapper implements Job {
+
+    private static Logger log = LoggerFactory.getLogger(ScheduleRuntimeService.class);
+
+    private TimeRecordCosts timeRecordCosts;
+
+    public TimeRecordCostsJobWrapper() {
+        // Required by Quartz
+    }
+
+    @Autowired
+    public TimeRecordCostsJobWrapper(TimeRecordCosts timeRecordCosts) {
+        this.timeRecordCosts = timeRecordCosts;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        try {
+            int recalculated = timeRecordCosts.recalculatePending();
+            if (recalculated > 0) {
+                log.info("Quartz Job recalculated the costs of {} time records.", recalculated);
+            }
+        } catch (Exception e) {
+            log.error("Error trying to recalculate the time record costs!", e);
+        }
+    }
+}
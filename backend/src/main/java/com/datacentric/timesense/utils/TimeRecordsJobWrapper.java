@@ -14,14 +14,17 @@ public class TimeRecordsJobWrapper implements Job {
     private static Logger log = LoggerFactory.getLogger(ScheduleRuntimeService.class);
 
     private TimeRecordRepository timeRecordRepository;
+    private RecentProjects recentProjects;
 
     public TimeRecordsJobWrapper() {
         // Required by Quartz
     }   
 
     @Autowired
-    public TimeRecordsJobWrapper(TimeRecordRepository timeRecordRepository) {
+    public TimeRecordsJobWrapper(TimeRecordRepository timeRecordRepository,
+            RecentProjects recentProjects) {
         this.timeRecordRepository = timeRecordRepository;
+        this.recentProjects = recentProjects;
     }
 
     @Override
@@ -30,12 +33,18 @@ public class TimeRecordsJobWrapper implements Job {
 
         try {
 
+            // Records without hours do not count for the daily hours ledger
             timeRecordRepository.deleteByHourValue(0.0);
             
         } catch (Exception e) {
             log.error("Error trying to delete time records!", e);
         }
-        
+
+        try {
+            recentProjects.trim();
+        } catch (Exception e) {
+            log.error("Error trying to trim the recent projects!", e);
+        }
     }
     
 }
@@ -1,23 +1,26 @@
 package com.datacentric.timesense.utils;
 
+import static com.datacentric.timesense.utils.CompanyZone.TIME_ZONE_NAME;
+
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.sql.Timestamp;
+import java.sql.Date;
 import java.time.LocalDate;
-import java.time.Year;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import com.datacentric.exceptions.DataCentricException;
-import com.datacentric.timesense.model.Absence;
-import com.datacentric.timesense.model.User;
-import com.datacentric.timesense.repository.AbsenceRepository;
-import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.model.SystemSettings;
+import com.datacentric.timesense.repository.SystemSettingRepository;
 
 /*
  * Utility class to guarantee the useres remaining vacation days maintain consistent
@@ -30,15 +33,65 @@ public class TimeoffManagementUtils {
     private static final double ZERO = 0.0;
     private static final double BUSINESS_DAY_HOURS = 8.0;
     private static final int DECIMAL_PLACES = 2;
+    private static final int NEW_HOLIDAY = -1;
+    private static final int REMOVED_HOLIDAY = 1;
 
-    private UserRepository userRepository;
-    private AbsenceRepository absenceRepository;
+    /*
+     * Single statement recalculation. The changed dates are matched against every absence
+     * they overlap to get the business days delta of each absence (weekend dates are not
+     * business days, so they are ignored). The first UPDATE applies the deltas to the
+     * absences and returns the days effectively changed, which are recorded as a balance
+     * event of each vacation of the current or previous business year. Denied and cancelled
+     * vacations were already given back, so they do not touch the balance.
+     */
+    private static final String RECALCULATE_ABSENCES_SQL = """
+            WITH changed_dates AS (
+                SELECT CAST(c.holiday_date AS date) AS holiday_date,
+                    SUM(CAST(c.delta AS integer)) AS delta
+                FROM (VALUES %s) AS c(holiday_date, delta)
+                WHERE EXTRACT(ISODOW FROM CAST(c.holiday_date AS date)) < 6
+                GROUP BY CAST(c.holiday_date AS date)
+            ),
+            absence_deltas AS (
+                SELECT a.id, SUM(cd.delta) AS delta
+                FROM absences a
+                JOIN changed_dates cd
+                    ON cd.holiday_date BETWEEN CAST(a.start_date AT TIME ZONE '%2$s' AS date)
+                        AND CAST(a.end_date AT TIME ZONE '%2$s' AS date)
+                WHERE a.deleted = false
+                GROUP BY a.id
+                HAVING SUM(cd.delta) <> 0
+            ),
+            updated_absences AS (
+                UPDATE absences a
+                SET work_days = GREATEST(a.work_days + d.delta, 0),
+                    updated_at = CURRENT_TIMESTAMP
+                FROM absence_deltas d, absences old
+                WHERE a.id = d.id AND old.id = d.id
+                RETURNING a.id, a.user_id, a.business_year, a.type_id, a.status_id,
+                    GREATEST(old.work_days + d.delta, 0) - old.work_days AS applied_delta
+            )
+            INSERT INTO vacation_balance_events (id, user_id, business_year, days, reason,
+                absence_id, created_at)
+            SELECT nextval('vacation_balance_events_id_seq'), ua.user_id, ua.business_year,
+                -ua.applied_delta, 'HOLIDAYS', ua.id, CURRENT_TIMESTAMP
+            FROM updated_absences ua
+            JOIN absence_types t ON t.id = ua.type_id
+            JOIN status s ON s.id = ua.status_id
+            WHERE t.name = 'VACATION'
+                AND s.name NOT IN ('DENIED', 'CANCELLED')
+                AND ua.business_year IN (?, ?)
+                AND ua.applied_delta <> 0
+            """;
+
+    private JdbcTemplate jdbcTemplate;
+    private SystemSettingRepository systemSettingRepository;
 
     @Autowired
-    public TimeoffManagementUtils(UserRepository userRepository,
-            AbsenceRepository absenceRepository) {
-        this.userRepository = userRepository;
-        this.absenceRepository = absenceRepository;
+    public TimeoffManagementUtils(JdbcTemplate jdbcTemplate,
+            SystemSettingRepository systemSettingRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.systemSettingRepository = systemSettingRepository;
     }
 
     /*
@@ -47,96 +100,54 @@ public class TimeoffManagementUtils {
      *      Receives a list of the new holidays dates and a list of the holidays dates removed
      *          and based on that calculates the new work days balance to update each affected
      *          absence and user
+     *      Runs as a constant number of statements whatever the number of dates, absences
+     *          and users involved
      */
     public void recalculateUsersAbsences(List<LocalDate> newHolidays,
             List<LocalDate> removedDates) throws DataCentricException {
         try {
-            if (newHolidays != null && !newHolidays.isEmpty()) {
-                handleNewHolidays(newHolidays);
+            Map<LocalDate, Integer> changedDates = new LinkedHashMap<>();
+            if (newHolidays != null) {
+                for (LocalDate date : new HashSet<>(newHolidays)) {
+                    changedDates.merge(date, NEW_HOLIDAY, Integer::sum);
+                }
+            }
+            if (removedDates != null) {
+                for (LocalDate date : new HashSet<>(removedDates)) {
+                    changedDates.merge(date, REMOVED_HOLIDAY, Integer::sum);
+                }
             }
-            if (removedDates != null && !removedDates.isEmpty()) {
-                handleRemovedHolidays(removedDates);
+            changedDates.values().removeIf(delta -> delta == 0);
+            if (changedDates.isEmpty()) {
+                return;
             }
 
-        } catch (Exception e) {
-            throw new DataCentricException(
-                "Error Recalculating the Users Absences and Remaining Vacations Days", e);
-        }
-    }
+            String currentYear = systemSettingRepository
+                    .findByName(SystemSettings.CURRENT_YEAR).getValue();
+            String prevYear = String.valueOf(Integer.parseInt(currentYear) - 1);
 
-    private void handleNewHolidays(List<LocalDate> newHolidays) {
-        // handle new vacation days
-        for (LocalDate newDate: newHolidays) {
-            Timestamp refDate = Timestamp.valueOf(newDate.atStartOfDay());
-            List<Absence> influencedAbsences = absenceRepository
-                    .findAllAbsencesByDate(refDate);
-            List<User> usersToUpdate = new ArrayList<>();
-            List<Absence> absensecesToUpdate = new ArrayList<>();
-
-            for (Absence abs : influencedAbsences) {
-                String currentYear = String.valueOf(Year.now().getValue());
-                String prevYear = String.valueOf(Year.now().getValue() - 1);
-                double newWorkDays = abs.getWorkDays() - 1.0;
-                log.info("Updating absence {} because it was impacted " +
-                        "by the new holidays configuration", abs.getName());
-                abs.setWorkDays(newWorkDays);
-                abs.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
-                absensecesToUpdate.add(abs);
-
-                User user = userRepository.findById(abs.getUser().getId()).get();
-                if (abs.getBusinessYear().equals(currentYear)) {
-                    log.info("Updating user current year remaining vacation days because it was" +
-                        " impacted by the new holidays configuration", abs.getName());
-                    double newRemainingDays = user.getCurrentYearVacationDays() + 1.0;
-                    user.setCurrentYearVacationDays(newRemainingDays);
-                    user.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
-                    usersToUpdate.add(user);
-                } else if (abs.getBusinessYear().equals(prevYear)) {
-                    log.info("Updating user previous year remaining vacation days because it " +
-                        "was impacted by the new holidays configuration", abs.getName());
-                    double newRemainingDays = user.getCurrentYearVacationDays() + 1.0;
-                    user.setCurrentYearVacationDays(newRemainingDays);
-                    user.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
-                    usersToUpdate.add(user);
+            StringBuilder values = new StringBuilder();
+            List<Object> params = new ArrayList<>();
+            for (Map.Entry<LocalDate, Integer> changed : changedDates.entrySet()) {
+                if (values.length() > 0) {
+                    values.append(", ");
                 }
+                values.append("(?, ?)");
+                params.add(Date.valueOf(changed.getKey()));
+                params.add(changed.getValue());
             }
-            absenceRepository.saveAll(absensecesToUpdate);
-            userRepository.saveAll(usersToUpdate);
-        }
-    }
+            params.add(currentYear);
+            params.add(prevYear);
 
-    private void handleRemovedHolidays(List<LocalDate> removedHolidays) {
-        // handle removed vacation days
-        for (LocalDate newDate: removedHolidays) {
-            Timestamp refDate = Timestamp.valueOf(newDate.atStartOfDay());
-            List<Absence> influencedAbsences = absenceRepository
-                    .findAllAbsencesByDate(refDate);
-            List<User> usersToUpdate = new ArrayList<>();
-            List<Absence> absensecesToUpdate = new ArrayList<>();
-
-            for (Absence abs : influencedAbsences) {
-                String currentYear = String.valueOf(Year.now().getValue());
-                String prevYear = String.valueOf(Year.now().getValue() - 1);
-                double newWorkDays = abs.getWorkDays() + 1.0;
-                abs.setWorkDays(newWorkDays);
-                abs.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
-                absensecesToUpdate.add(abs);
-
-                User user = userRepository.findById(abs.getUser().getId()).get();
-                if (abs.getBusinessYear().equals(currentYear)) {
-                    double newRemainingDays = user.getCurrentYearVacationDays() - 1.0;
-                    user.setCurrentYearVacationDays(newRemainingDays);
-                    user.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
-                    usersToUpdate.add(user);
-                } else if (abs.getBusinessYear().equals(prevYear)) {
-                    double newRemainingDays = user.getCurrentYearVacationDays() - 1.0;
-                    user.setCurrentYearVacationDays(newRemainingDays);
-                    user.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
-                    usersToUpdate.add(user);
-                }
-            }
-            absenceRepository.saveAll(absensecesToUpdate);
-            userRepository.saveAll(usersToUpdate);
+            int balanceEvents = jdbcTemplate.update(
+                    String.format(RECALCULATE_ABSENCES_SQL, values, TIME_ZONE_NAME),
+                    params.toArray());
+            log.info("Recalculated the absences of {} holiday dates, {} vacation balances "
+                    + "changed", changedDates.size(), balanceEvents);
+
+        } catch (Exception e) {
+            throw new DataCentricException(
+                "Error Recalculating the Users Absences and Remaining Vacations Days", e);
         }
     }
 
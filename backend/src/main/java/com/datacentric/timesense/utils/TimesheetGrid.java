@@ -0,0 +1,210 @@
+package com.datacentric.timesense.utils;
+
+import static com.datacentric.timesense.utils.CompanyZone.TIME_ZONE;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import com.datacentric.timesense.repository.TimeRecordRepository;
+
+/**
+ * Timesheet of a user as a grid, with a row per project and task and a column per day, built
+ * on the server from a projection of the records so the screen does not pivot the records.
+ *
+ * The grid has a version computed from the records of the user in its days, returned as the
+ * ETag of the grid. The version only reads an aggregate of those records, so a timesheet that
+ * did not change is revalidated without building the grid.
+ */
+@Service
+public class TimesheetGrid {
+
+    /**
+     * Most days of a grid, the six weeks shown by a month.
+     */
+    public static final int MAX_DAYS = 42;
+
+    private static final String WEAK_PREFIX = "W/";
+    private static final String ANY = "*";
+
+    /**
+     * Row of the grid, the cells of a day are null when there is no record on it. A project
+     * and task with two records on the same day take two rows.
+     */
+    public static final class Row {
+        private final Long projectId;
+        private final String projectName;
+        private final Long taskId;
+        private final String taskName;
+        private final Long[] ids;
+        private final Double[] hours;
+        private final String[] status;
+
+        private Row(Long projectId, String projectName, Long taskId, String taskName,
+                int days) {
+            this.projectId = projectId;
+            this.projectName = projectName;
+            this.taskId = taskId;
+            this.taskName = taskName;
+            this.ids = new Long[days];
+            this.hours = new Double[days];
+            this.status = new String[days];
+        }
+
+        public Long getProjectId() {
+            return projectId;
+        }
+
+        public String getProjectName() {
+            return projectName;
+        }
+
+        public Long getTaskId() {
+            return taskId;
+        }
+
+        public String getTaskName() {
+            return taskName;
+        }
+
+        public Long[] getIds() {
+            return ids;
+        }
+
+        public Double[] getHours() {
+            return hours;
+        }
+
+        public String[] getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * Grid of the days of a timesheet.
+     */
+    public static final class Grid {
+        private final LocalDate[] days;
+        private final List<Row> rows = new ArrayList<>();
+        // Hours of every row by day
+        private final double[] totals;
+
+        private Grid(LocalDate[] days) {
+            this.days = days;
+            this.totals = new double[days.length];
+        }
+
+        public LocalDate[] getDays() {
+            return days;
+        }
+
+        public List<Row> getRows() {
+            return rows;
+        }
+
+        public double[] getTotals() {
+            return totals;
+        }
+    }
+
+    private TimeRecordRepository timeRecordRepository;
+
+    @Autowired
+    public TimesheetGrid(TimeRecordRepository timeRecordRepository) {
+        this.timeRecordRepository = timeRecordRepository;
+    }
+
+    /**
+     * Version of the grid of the user between the given days. Every write of a record of the
+     * user in those days, or of one of their projects or tasks, changes the count, the ids
+     * or the latest update of the records it is computed from.
+     */
+    public String getVersion(Long userId, LocalDate from, LocalDate to) {
+        Object[] version = timeRecordRepository.getTimesheetVersion(userId, startOf(from),
+                startOf(to.plusDays(1))).get(0);
+        String key = userId + ":" + from + ":" + to + ":" + Arrays.toString(version);
+        return "\"" + DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Whether the If-None-Match header of a request holds the given version.
+     */
+    public static boolean matches(String ifNoneMatch, String version) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.startsWith(WEAK_PREFIX)) {
+                trimmed = trimmed.substring(WEAK_PREFIX.length());
+            }
+            if (trimmed.equals(version) || trimmed.equals(ANY)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the grid of the user from the first to the last of the given days.
+     */
+    public Grid build(Long userId, LocalDate from, LocalDate to) {
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        LocalDate[] dayColumns = new LocalDate[days];
+        for (int d = 0; d < days; d++) {
+            dayColumns[d] = from.plusDays(d);
+        }
+        Grid grid = new Grid(dayColumns);
+
+        // The records come ordered by project and task, so the rows keep that order
+        Map<List<Long>, List<Row>> rowsByTask = new LinkedHashMap<>();
+        for (Object[] record : timeRecordRepository.getTimesheetRecords(userId, startOf(from),
+                startOf(to.plusDays(1)))) {
+            Long projectId = (Long) record[1];
+            Long taskId = (Long) record[3];
+            int day = (int) ChronoUnit.DAYS.between(from,
+                    ((Timestamp) record[5]).toInstant().atZone(TIME_ZONE).toLocalDate());
+            if (day < 0 || day >= days) {
+                continue;
+            }
+
+            List<Row> taskRows = rowsByTask.computeIfAbsent(Arrays.asList(projectId, taskId),
+                    key -> new ArrayList<>());
+            Row row = null;
+            for (Row taskRow : taskRows) {
+                if (taskRow.ids[day] == null) {
+                    row = taskRow;
+                    break;
+                }
+            }
+            if (row == null) {
+                row = new Row(projectId, (String) record[2], taskId, (String) record[4], days);
+                taskRows.add(row);
+            }
+
+            Double hours = (Double) record[6];
+            row.ids[day] = (Long) record[0];
+            row.hours[day] = hours;
+            row.status[day] = (String) record[7];
+            if (hours != null) {
+                grid.totals[day] += hours;
+            }
+        }
+        rowsByTask.values().forEach(grid.rows::addAll);
+        return grid;
+    }
+
+    private static Timestamp startOf(LocalDate day) {
+        return Timestamp.from(day.atStartOfDay(TIME_ZONE).toInstant());
+    }
+}
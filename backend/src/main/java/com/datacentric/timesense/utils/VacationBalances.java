@@ -0,0 +1,324 @@
+package com.datacentric.timesense.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.datacentric.timesense.model.SystemSetting;
+import com.datacentric.timesense.model.SystemSettings;
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.model.VacationBalanceEvent.Reason;
+import com.datacentric.timesense.repository.SystemSettingRepository;
+import com.datacentric.timesense.repository.UserRepository;
+
+/**
+ * Ledger of the users vacation balances.
+ *
+ * Every change of a balance is inserted in vacation_balance_events as the days added to or
+ * taken from a business year, the users row is never updated by the writers. Concurrent
+ * changes of the same balance are both kept instead of the last one overwriting the other,
+ * and no lock is held on the user while a request runs.
+ *
+ * The users row keeps a snapshot of the balances of the current and previous business
+ * years together with the id of the last event folded into it, which compact folds the
+ * newer events into periodically so that tail stays short. Loading a User only reads the
+ * snapshot, the balances with the events after it are read with getBalances or set on the
+ * entity with load, only where they are shown or checked.
+ */
+@Service
+public class VacationBalances {
+
+    private static final Logger log = LoggerFactory.getLogger(VacationBalances.class);
+
+    private static final String INSERT_EVENT_SQL = """
+            INSERT INTO vacation_balance_events (id, user_id, business_year, days, reason,
+                absence_id, created_at)
+            VALUES (nextval('vacation_balance_events_id_seq'), ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
+            """;
+
+    /*
+     * One event per vacation giving back its work days. Vacations already denied or
+     * cancelled were given back before, so they are left out. The absences are locked, so
+     * a concurrent denial of the same vacation waits and then finds it denied.
+     */
+    private static final String REFUND_VACATIONS_SQL = """
+            INSERT INTO vacation_balance_events (id, user_id, business_year, days, reason,
+                absence_id, created_at)
+            SELECT nextval('vacation_balance_events_id_seq'), a.user_id, a.business_year,
+                a.work_days, 'REFUND', a.id, CURRENT_TIMESTAMP
+            FROM absences a
+            JOIN absence_types t ON t.id = a.type_id
+            JOIN status s ON s.id = a.status_id
+            WHERE a.id IN (%s)
+                AND a.deleted = false
+                AND t.name = 'VACATION'
+                AND s.name NOT IN ('DENIED', 'CANCELLED')
+                AND a.business_year IN (?, ?)
+                AND a.work_days <> 0
+            FOR UPDATE OF a
+            """;
+
+    // The snapshot plus the events after it, by business year as folded by compact
+    private static final String BALANCES_SQL = """
+            SELECT u.id,
+                u.current_year_vacation_days
+                    + COALESCE(SUM(CASE WHEN e.business_year = cy.value THEN e.days END), 0),
+                COALESCE(u.prev_year_vacation_days, 0)
+                    + COALESCE(SUM(CASE WHEN e.business_year <> cy.value THEN e.days END), 0)
+            FROM users u
+            JOIN system_settings cy ON cy.name = ? AND cy.deleted = false
+            LEFT JOIN vacation_balance_events e
+                ON e.user_id = u.id AND e.id > u.vacation_balance_event_id
+            WHERE u.id IN (%s)
+            GROUP BY u.id, u.current_year_vacation_days, u.prev_year_vacation_days
+            """;
+
+    /*
+     * Inserts take a lock that conflicts with this one, so while the events are folded none
+     * is being written and every event below the new snapshot id is part of the snapshot.
+     */
+    private static final String LOCK_EVENTS_SQL =
+            "LOCK TABLE vacation_balance_events IN SHARE MODE";
+
+    private static final String COMPACT_SQL = """
+            WITH tails AS (
+                SELECT e.user_id,
+                    SUM(CASE WHEN e.business_year = ? THEN e.days ELSE 0 END) AS current_days,
+                    SUM(CASE WHEN e.business_year <> ? THEN e.days ELSE 0 END) AS prev_days,
+                    MAX(e.id) AS last_event_id
+                FROM vacation_balance_events e
+                JOIN users u ON u.id = e.user_id
+                WHERE e.id > u.vacation_balance_event_id
+                GROUP BY e.user_id
+            )
+            UPDATE users u
+            SET current_year_vacation_days = u.current_year_vacation_days + t.current_days,
+                prev_year_vacation_days = COALESCE(u.prev_year_vacation_days, 0)
+                    + t.prev_days,
+                vacation_balance_event_id = t.last_event_id
+            FROM tails t
+            WHERE u.id = t.user_id
+            """;
+
+    /**
+     * Days added to the balance of a user for a business year.
+     */
+    public static final class Change {
+        private final Long userId;
+        private final String businessYear;
+        private final double days;
+        private final Reason reason;
+        private final Long absenceId;
+
+        public Change(Long userId, String businessYear, double days, Reason reason,
+                Long absenceId) {
+            this.userId = userId;
+            this.businessYear = businessYear;
+            this.days = days;
+            this.reason = reason;
+            this.absenceId = absenceId;
+        }
+    }
+
+    /**
+     * Vacation days left of a user in the current and the previous business year.
+     */
+    public static final class Balance {
+        private final double currentYearDays;
+        private final double prevYearDays;
+
+        public Balance(double currentYearDays, double prevYearDays) {
+            this.currentYearDays = currentYearDays;
+            this.prevYearDays = prevYearDays;
+        }
+
+        public double getCurrentYearDays() {
+            return currentYearDays;
+        }
+
+        public double getPrevYearDays() {
+            return prevYearDays;
+        }
+    }
+
+    private JdbcTemplate jdbcTemplate;
+    private SystemSettingRepository systemSettingRepository;
+    private UserRepository userRepository;
+
+    @Autowired
+    public VacationBalances(JdbcTemplate jdbcTemplate,
+            SystemSettingRepository systemSettingRepository, UserRepository userRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.systemSettingRepository = systemSettingRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Balances of the given users, with a single query.
+     *
+     * @return the balance by user id, the users that do not exist are left out
+     */
+    public Map<Long, Balance> getBalances(Collection<Long> userIds) {
+        Map<Long, Balance> balances = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return balances;
+        }
+        List<Object> params = new ArrayList<>();
+        params.add(SystemSettings.CURRENT_YEAR);
+        params.addAll(userIds);
+        String placeholders = String.join(", ", Collections.nCopies(userIds.size(), "?"));
+
+        jdbcTemplate.query(String.format(BALANCES_SQL, placeholders), rs -> {
+            balances.put(rs.getLong(1), new Balance(rs.getDouble(2), rs.getDouble(3)));
+        }, params.toArray());
+        return balances;
+    }
+
+    /**
+     * Balance of a user, null when the user does not exist.
+     */
+    public Balance getBalance(Long userId) {
+        return getBalances(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Sets the balances of the given users, loaded with their snapshot only, to include the
+     * events after it. Changes made to the balances before are discarded.
+     */
+    public void load(Collection<User> users) {
+        Map<Long, User> usersById = new HashMap<>();
+        for (User user : users) {
+            if (user != null) {
+                usersById.put(user.getId(), user);
+            }
+        }
+        for (Map.Entry<Long, Balance> balance : getBalances(usersById.keySet()).entrySet()) {
+            usersById.get(balance.getKey()).setVacationBalances(
+                    balance.getValue().getCurrentYearDays(),
+                    balance.getValue().getPrevYearDays());
+        }
+    }
+
+    public void load(User user) {
+        load(Collections.singletonList(user));
+    }
+
+    /**
+     * Records the changes made to the balances of the user since it was loaded, as one
+     * event per business year. Replaces saving the user after changing its balances.
+     *
+     * @param absenceId
+     *                  Absence that changed the balances, if any
+     */
+    public void save(User user, Reason reason, Long absenceId) {
+        double currentChange = user.getCurrentYearVacationDaysChange();
+        double prevChange = user.getPrevYearVacationDaysChange();
+        if (currentChange == 0.0 && prevChange == 0.0) {
+            return;
+        }
+
+        String currentYear = systemSettingRepository
+                .findByName(SystemSettings.CURRENT_YEAR).getValue();
+        String prevYear = String.valueOf(Integer.parseInt(currentYear) - 1);
+        List<Change> changes = new ArrayList<>();
+        if (currentChange != 0.0) {
+            changes.add(new Change(user.getId(), currentYear, currentChange, reason, absenceId));
+        }
+        if (prevChange != 0.0) {
+            changes.add(new Change(user.getId(), prevYear, prevChange, reason, absenceId));
+        }
+        record(changes);
+        user.vacationDaysChangesSaved();
+    }
+
+    /**
+     * Records the given changes with a single batch insert.
+     */
+    public void record(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(changes.size());
+        for (Change change : changes) {
+            batch.add(new Object[] {change.userId, change.businessYear, change.days,
+                change.reason.name(), change.absenceId});
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, batch);
+    }
+
+    /**
+     * Gives back the work days of the given vacations to the balances of their users.
+     * Absences of other types and of business years before the previous one are ignored.
+     *
+     * @param absenceIds the absences being denied
+     * @param currentYear the current business year
+     * @return the number of vacations refunded
+     */
+    public int refundVacations(List<Long> absenceIds, String currentYear) {
+        if (absenceIds == null || absenceIds.isEmpty()) {
+            return 0;
+        }
+        String prevYear = String.valueOf(Integer.parseInt(currentYear) - 1);
+
+        List<Object> params = new ArrayList<>(absenceIds);
+        params.add(currentYear);
+        params.add(prevYear);
+        String placeholders = String.join(", ", Collections.nCopies(absenceIds.size(), "?"));
+
+        int refunded = jdbcTemplate.update(String.format(REFUND_VACATIONS_SQL, placeholders),
+                params.toArray());
+        log.info("Refunded the vacation days of {} of {} absences", refunded,
+                absenceIds.size());
+        return refunded;
+    }
+
+    /**
+     * Folds the events recorded since the last snapshot into the snapshot of each user.
+     * Writers wait while it runs, which is a single statement.
+     */
+    @Transactional
+    public int compact() {
+        jdbcTemplate.execute(LOCK_EVENTS_SQL);
+        String currentYear = systemSettingRepository
+                .findByName(SystemSettings.CURRENT_YEAR).getValue();
+        return fold(currentYear);
+    }
+
+    /**
+     * Moves the balances to a new business year: the events so far are folded into the
+     * snapshots, the current year balance becomes the previous year balance and the
+     * eligible users get the default vacation days for the new year. No event is written
+     * meanwhile, so none is counted in the wrong year.
+     *
+     * @return the new business year
+     */
+    @Transactional
+    public String closeBusinessYear(Double defaultVacationDays) {
+        jdbcTemplate.execute(LOCK_EVENTS_SQL);
+        SystemSetting currentYearSetting = systemSettingRepository
+                .findByName(SystemSettings.CURRENT_YEAR);
+        fold(currentYearSetting.getValue());
+
+        String newYear = String.valueOf(Integer.parseInt(currentYearSetting.getValue()) + 1);
+        currentYearSetting.setValue(newYear);
+        systemSettingRepository.save(currentYearSetting);
+        userRepository.newBusinessYearVacations(defaultVacationDays);
+        return newYear;
+    }
+
+    private int fold(String currentYear) {
+        int users = jdbcTemplate.update(COMPACT_SQL, currentYear, currentYear);
+        log.info("Folded the vacation balance events of {} users into their snapshot", users);
+        return users;
+    }
+}
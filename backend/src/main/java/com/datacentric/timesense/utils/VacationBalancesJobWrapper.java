@@ -0,0 +1,35 @@
+package com.datacentric.timesense.utils;
+
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class VacationBalancesJobWrapper implements Job {
+
+    private static Logger log = LoggerFactory.getLogger(ScheduleRuntimeService.class);
+
+    private VacationBalances vacationBalances;
+
+    public VacationBalancesJobWrapper() {
+        // Required by Quartz
+    }
+
+    @Autowired
+    public VacationBalancesJobWrapper(VacationBalances vacationBalances) {
+        this.vacationBalances = vacationBalances;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        log.info("Quartz Job started. Compacting the vacation balances.");
+
+        try {
+            vacationBalances.compact();
+        } catch (Exception e) {
+            log.error("Error trying to compact the vacation balances!", e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.datacentric.timesense.utils.hibernate;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.annotation.JsonView;
+
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Transient;
+
+/**
+ * Derives the fetch plan of a query from the JSON view used to serialize its result.
+ *
+ * The entities are returned directly by the controllers and their lazy associations are
+ * loaded one by one while Jackson writes the response. The associations serialized by a
+ * view are known from the @JsonView annotations, so they are fetched in the same query
+ * through an entity graph instead.
+ *
+ * Only single valued associations are part of the plan. Fetching collections would
+ * multiply the rows and break the pagination done by the database, they are loaded in
+ * batches instead (see hibernate.default_batch_fetch_size).
+ */
+@Component
+public class JsonViewFetchPlans {
+
+    // Deep enough for the nested objects returned by the current views
+    private static final int MAX_DEPTH = 3;
+
+    private Map<PlanKey, String[]> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the paths of the associations serialized by the view, for instance
+     * "user", "user.jobTitle" and "project".
+     */
+    public String[] getAttributePaths(Class<?> entityClass, Class<?> view) {
+        return plans.computeIfAbsent(new PlanKey(entityClass, view), key -> {
+            List<String> paths = new ArrayList<>();
+            Set<Class<?>> visiting = new HashSet<>();
+            visiting.add(entityClass);
+            collectPaths(entityClass, view, "", 1, visiting, paths);
+            return paths.toArray(new String[0]);
+        });
+    }
+
+    /**
+     * Page of the entities matching the specification, fetching the associations
+     * serialized by the view.
+     */
+    public <T> Page<T> findAll(JpaSpecificationExecutor<T> repository, Class<T> entityClass,
+            Class<?> view, Specification<T> spec, Pageable pageable) {
+        String[] paths = getAttributePaths(entityClass, view);
+        return repository.findBy(nullSafe(spec), query -> query
+                .sortBy(pageable.getSort())
+                .project(paths)
+                .page(pageable));
+    }
+
+    /**
+     * The entity matching the specification, fetching the associations serialized by the
+     * view.
+     */
+    public <T> Optional<T> findOne(JpaSpecificationExecutor<T> repository,
+            Class<T> entityClass, Class<?> view, Specification<T> spec) {
+        String[] paths = getAttributePaths(entityClass, view);
+        return repository.findBy(nullSafe(spec), query -> query
+                .project(paths)
+                .one());
+    }
+
+    private static <T> Specification<T> nullSafe(Specification<T> spec) {
+        return spec != null ? spec : Specification.where(null);
+    }
+
+    private static void collectPaths(Class<?> type, Class<?> view, String prefix, int depth,
+            Set<Class<?>> visiting, List<String> paths) {
+        for (Class<?> current = type; current != null && current != Object.class;
+                current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!isSerializedAssociation(field, view)) {
+                    continue;
+                }
+                String path = prefix + field.getName();
+                paths.add(path);
+
+                Class<?> target = field.getType();
+                if (depth < MAX_DEPTH && visiting.add(target)) {
+                    collectPaths(target, view, path + ".", depth + 1, visiting, paths);
+                    visiting.remove(target);
+                }
+            }
+        }
+    }
+
+    private static boolean isSerializedAssociation(Field field, Class<?> view) {
+        if (field.isAnnotationPresent(Transient.class)
+                || !(field.isAnnotationPresent(ManyToOne.class)
+                        || field.isAnnotationPresent(OneToOne.class))) {
+            return false;
+        }
+        // Fields without a view are not serialized when a view is active
+        JsonView jsonView = field.getAnnotation(JsonView.class);
+        if (jsonView == null) {
+            return false;
+        }
+        for (Class<?> fieldView : jsonView.value()) {
+            if (fieldView.isAssignableFrom(view)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class PlanKey {
+
+        private final Class<?> entityClass;
+        private final Class<?> view;
+
+        private PlanKey(Class<?> entityClass, Class<?> view) {
+            this.entityClass = entityClass;
+            this.view = view;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            PlanKey that = (PlanKey) other;
+            return entityClass.equals(that.entityClass) && view.equals(that.view);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * entityClass.hashCode() + view.hashCode();
+        }
+    }
+}
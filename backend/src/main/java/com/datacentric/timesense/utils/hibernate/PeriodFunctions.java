@@ -0,0 +1,48 @@
+package com.datacentric.timesense.utils.hibernate;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.query.sqm.function.SqmFunctionRegistry;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * HQL functions to compare periods given by a start and an end date, both included.
+ *
+ * On PostgreSQL they are range operators over tstzrange(start, end, '[]'), the expression
+ * of the GiST indexes of the period tables (see 040_absence_period_index.sql), so a lookup
+ * over many years of rows walks the index instead of filtering one side of the period.
+ * Other databases get the equivalent comparisons.
+ *
+ * <ul>
+ * <li>period_overlaps(start, end, from, to): the period shares at least an instant with
+ * [from, to]</li>
+ * <li>period_contains(start, end, at): the period includes the instant at</li>
+ * </ul>
+ *
+ * Registered through META-INF/services.
+ */
+public class PeriodFunctions implements FunctionContributor {
+
+    public static final String OVERLAPS = "period_overlaps";
+    public static final String CONTAINS = "period_contains";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        SqmFunctionRegistry registry = functionContributions.getFunctionRegistry();
+        BasicType<Boolean> booleanType = functionContributions.getTypeConfiguration()
+                .getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN);
+
+        if (functionContributions.getDialect() instanceof PostgreSQLDialect) {
+            registry.registerPattern(OVERLAPS, "(tstzrange(?1, ?2, '[]') && "
+                    + "tstzrange(cast(?3 as timestamptz), cast(?4 as timestamptz), '[]'))",
+                    booleanType);
+            registry.registerPattern(CONTAINS,
+                    "(tstzrange(?1, ?2, '[]') @> cast(?3 as timestamptz))", booleanType);
+        } else {
+            registry.registerPattern(OVERLAPS, "(?1 <= ?4 and ?2 >= ?3)", booleanType);
+            registry.registerPattern(CONTAINS, "(?3 between ?1 and ?2)", booleanType);
+        }
+    }
+}
@@ -22,12 +22,14 @@ public final class MessagesCodes {
     public static final String INVALID_COMMAND = "API_INTERNAL_400_07";
     public static final String MISSING_APPROVER = "API_INTERNAL_400_08";
     public static final String NO_FILES_UPLOADED = "API_INTERNAL_400_09";
+    public static final String INVALID_DATE_RANGE = "API_INTERNAL_400_10";
 
     // --------------------- USER ---------------------
     public static final String USER_CREATED_OK = "API_USER_201_01";
     public static final String USER_DELETED_OK = "API_USER_202_01";
     public static final String USER_UPDATED_OK = "API_USER_202_02";
     public static final String USER_NOT_FOUND = "API_USER_404_01";
+    public static final String USER_MANAGER_CYCLE = "API_USER_400_01";
     public static final String USER_CREATED_ERROR = "API_USER_500_01";
     public static final String USERS_SYNCHRONIZED_OK = "API_USER_200_01";
 
@@ -101,6 +103,7 @@ public final class MessagesCodes {
     public static final String ABSENCE_BY_DATE_MAP_OK = "API_ABSENCE_200_01";
     public static final String ABSENCE_ATTACHMENTS_UPLOADED_OK = "API_ABSENCE_200_02";
     public static final String ABSENCE_NOT_FOUND = "API_ABSENCE_404_01";
+    public static final String ABSENCE_OVERLAP = "API_ABSENCE_409_01";
     public static final String ABSENCE_CREATED_ERROR = "API_ABSENCE_500_01";
     public static final String INSUFFICIENT_VACS_DAYS = "API_INVALID_VACS_400_01";
     public static final String IMPORT_ABSENCE_CSV_ERROR = "API_ABSENCE_IMPORT_400_01";
@@ -157,6 +160,18 @@ public final class MessagesCodes {
     public static final String SYSTEM_SETTING_CREATED_ERROR = "API_SYSTEM_SETTING_500_01";
     public static final String SYSTEM_SETTING_NOT_EDITABLE = "API_SYSTEM_SETTING_403_01";
 
+    // --------------------- IMPORT_JOB ---------------------
+    public static final String IMPORT_JOB_CREATED_OK = "API_IMPORT_JOB_202_01";
+    public static final String IMPORT_JOB_INVALID_TYPE = "API_IMPORT_JOB_400_01";
+    public static final String IMPORT_JOB_NOT_FOUND = "API_IMPORT_JOB_404_01";
+    public static final String IMPORT_JOB_QUEUE_FULL = "API_IMPORT_JOB_503_01";
+
+    // --------------------- ARCHIVE ---------------------
+    public static final String ARCHIVE_RESTORED_OK = "API_ARCHIVE_202_01";
+    public static final String ARCHIVE_INVALID_TYPE = "API_ARCHIVE_400_01";
+    public static final String ARCHIVE_NOT_FOUND = "API_ARCHIVE_404_01";
+    public static final String ARCHIVE_RESTORE_CONFLICT = "API_ARCHIVE_409_01";
+
     private MessagesCodes() {
     }
 }
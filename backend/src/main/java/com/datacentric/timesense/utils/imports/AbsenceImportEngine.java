@@ -0,0 +1,475 @@
+package com.datacentric.timesense.utils.imports;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.datacentric.timesense.model.AbsenceType;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.SystemSettings;
+import com.datacentric.timesense.model.VacationBalanceEvent.Reason;
+import com.datacentric.timesense.repository.AbsenceTypeRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.SystemSettingRepository;
+import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.PooledIds;
+import com.datacentric.timesense.utils.VacationBalances;
+import com.datacentric.timesense.utils.VacationBalances.Balance;
+import com.datacentric.timesense.utils.VacationBalances.Change;
+import com.datacentric.timesense.utils.security.UserSecurityData;
+import com.datacentric.utils.imports.ColumnDescriptor;
+import com.datacentric.utils.imports.ColumnType;
+import com.datacentric.utils.imports.CsvImporter;
+import com.datacentric.utils.imports.CsvImporter.CsvImporterConfiguration;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Import engine for the vacations CSV file, used to migrate the HR history.
+ *
+ * Statuses, the vacation type and the current business year are loaded once per import.
+ * The file is processed in chunks: the users referenced by a chunk that were not seen
+ * before are loaded by email with a single query and their balances with another, the
+ * vacation balances are updated in memory and the absences of the chunk are written with
+ * a JDBC batch insert. The balance deltas of every affected user are recorded at the end
+ * as vacation balance events, with a single batch insert instead of one save per user.
+ *
+ * Progress, with the throughput so far, is logged after every chunk and is also visible
+ * through the ImportResult given by the caller. Import jobs commit every chunk together
+ * with its balance deltas, see importAbsencesInChunks.
+ */
+@Service
+public class AbsenceImportEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(AbsenceImportEngine.class);
+
+    public static final String FIELD_USER_EMAIL = "userEmail";
+    public static final String FIELD_YEAR = "year";
+    public static final String FIELD_NAME = "name";
+    public static final String FIELD_START_DATE = "startDate";
+    public static final String FIELD_END_DATE = "endDate";
+    public static final String FIELD_BUSINESS_DAYS = "businessDays";
+    public static final String FIELD_STATUS = "status";
+
+    private static final String VACATION = "VACATION";
+    private static final String DAILY_RECORD = "Day";
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final double MILLIS_PER_SECOND = 1000.0;
+    private static final String ABSENCES_ID_SEQ = "absences_id_seq";
+
+    private static final String INSERT_ABSENCE_SQL = """
+            INSERT INTO absences (id, type_id, user_id, name, start_date, end_date, status_id,
+                work_days, business_year, record_type, created_at, updated_at, created_by,
+                updated_by, deleted)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false)
+            """;
+
+    private static final int[] INSERT_TYPES = {Types.BIGINT, Types.BIGINT, Types.BIGINT,
+        Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT, Types.DOUBLE,
+        Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT,
+        Types.BIGINT};
+
+    private Environment env;
+    private JdbcTemplate jdbcTemplate;
+    private UserRepository userRepository;
+    private StatusRepository statusRepository;
+    private AbsenceTypeRepository absenceTypeRepository;
+    private SystemSettingRepository systemSettingRepository;
+    private VacationBalances vacationBalances;
+    private PooledIds pooledIds;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private TransactionTemplate transactionTemplate;
+
+    // CHECKSTYLE.OFF: ParameterNumber
+    @Autowired
+    public AbsenceImportEngine(Environment env, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            UserRepository userRepository, StatusRepository statusRepository,
+            AbsenceTypeRepository absenceTypeRepository,
+            SystemSettingRepository systemSettingRepository,
+            VacationBalances vacationBalances, PooledIds pooledIds) {
+        this.env = env;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userRepository = userRepository;
+        this.statusRepository = statusRepository;
+        this.absenceTypeRepository = absenceTypeRepository;
+        this.systemSettingRepository = systemSettingRepository;
+        this.vacationBalances = vacationBalances;
+        this.pooledIds = pooledIds;
+    }
+    // CHECKSTYLE.ON: ParameterNumber
+
+    @PostConstruct
+    public void init() {
+        String chunkSizeStr = env.getProperty("server.import.chunk-size");
+        if (chunkSizeStr != null) {
+            chunkSize = Integer.parseInt(chunkSizeStr);
+        }
+    }
+
+    /**
+     * Import the vacations in the given CSV stream.
+     *
+     * Rows without business days or whose user does not exist are skipped. Vacations that
+     * exceed the user balance are imported without changing the balance. If any row is
+     * invalid the transaction is rolled back and the result holds the row errors.
+     */
+    @Transactional
+    public ImportResult importAbsences(InputStream input, UserSecurityData currentUser,
+            ImportResult result) throws IOException {
+        ImportContext context = loadContext(currentUser, result, 0, null);
+        runImport(input, context);
+
+        if (result.hasErrors()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        } else {
+            flushBalances(context.balances.values(), context);
+        }
+        logProgress(context, "finished");
+        return result;
+    }
+
+    /**
+     * Import the vacations in the given CSV stream committing each chunk, with the balance
+     * updates of its rows, in its own transaction. Used by the import jobs.
+     *
+     * Invalid rows are reported in the result and the valid rows of the same chunk are
+     * still imported. The first skipRows rows are ignored, which allows resuming an
+     * import from its last checkpoint.
+     */
+    public ImportResult importAbsencesInChunks(InputStream input, UserSecurityData currentUser,
+            ImportResult result, long skipRows, ImportCheckpoint checkpoint) throws IOException {
+        ImportContext context = loadContext(currentUser, result, skipRows, checkpoint);
+        runImport(input, context);
+        logProgress(context, "finished");
+        return result;
+    }
+
+    private void runImport(InputStream input, ImportContext context) throws IOException {
+        CsvImporter importer = new CsvImporter();
+        CsvImporterConfiguration config = new CsvImporterConfiguration(",", true, null)
+                .withColumnDescriptors(
+                        new ColumnDescriptor(FIELD_USER_EMAIL, ColumnType.STRING, true),
+                        new ColumnDescriptor(FIELD_YEAR, ColumnType.STRING, true),
+                        new ColumnDescriptor(FIELD_NAME, ColumnType.STRING, true),
+                        new ColumnDescriptor(FIELD_START_DATE, ColumnType.STRING, true),
+                        new ColumnDescriptor(FIELD_END_DATE, ColumnType.STRING, true),
+                        new ColumnDescriptor(FIELD_BUSINESS_DAYS, ColumnType.STRING, true),
+                        new ColumnDescriptor(FIELD_STATUS, ColumnType.STRING, true));
+        importer.initialize(config);
+
+        List<CsvRow> chunk = new ArrayList<>(chunkSize);
+        importer.importDataWithCustomCallback(input, data -> {
+            long rowNumber = ++context.rowNumber;
+            if (rowNumber <= context.skipRows) {
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> row = (Map<String, Object>) data;
+            chunk.add(new CsvRow(rowNumber, row));
+            if (chunk.size() >= chunkSize) {
+                commitChunk(chunk, context);
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            commitChunk(chunk, context);
+            chunk.clear();
+        }
+    }
+
+    private void commitChunk(List<CsvRow> chunk, ImportContext context) {
+        if (context.checkpoint == null) {
+            processChunk(chunk, context);
+            return;
+        }
+        // The checkpoint is saved with the chunk, a chunk is never committed without it
+        transactionTemplate.executeWithoutResult(status -> {
+            processChunk(chunk, context);
+            flushBalances(context.balances.values(), context);
+            context.checkpoint.chunkCommitted(context.rowNumber, context.result);
+        });
+        for (UserBalance balance : context.balances.values()) {
+            balance.markFlushed();
+        }
+    }
+
+    private ImportContext loadContext(UserSecurityData currentUser, ImportResult result,
+            long skipRows, ImportCheckpoint checkpoint) {
+        AbsenceType vacationType = absenceTypeRepository.findByName(VACATION).get();
+        String currentYear = systemSettingRepository
+                .findByName(SystemSettings.CURRENT_YEAR).getValue();
+
+        ImportContext context = new ImportContext(result, currentUser.getId(),
+                vacationType.getId(), currentYear,
+                String.valueOf(Integer.parseInt(currentYear) - 1), skipRows, checkpoint);
+        for (Status status : statusRepository.findAll()) {
+            context.statusIds.put(status.getName(), status.getId());
+        }
+        return context;
+    }
+
+    private void processChunk(List<CsvRow> chunk, ImportContext context) {
+        loadMissingBalances(chunk, context);
+
+        List<Object[]> batch = new ArrayList<>(chunk.size());
+        for (CsvRow row : chunk) {
+            Object[] params = toInsertParams(row.rowNumber, row.values, context);
+            if (params != null) {
+                batch.add(params);
+            }
+        }
+        context.result.addRowsRead(chunk.size());
+
+        // Without checkpoints a single error discards the whole file, so stop writing
+        boolean discarded = context.checkpoint == null && context.result.hasErrors();
+        if (!discarded && !batch.isEmpty()) {
+            long[] ids = pooledIds.next(ABSENCES_ID_SEQ, batch.size());
+            for (int i = 0; i < ids.length; i++) {
+                batch.get(i)[0] = ids[i];
+            }
+            jdbcTemplate.batchUpdate(INSERT_ABSENCE_SQL, batch, INSERT_TYPES);
+            context.result.addRowsImported(batch.size());
+        }
+        logProgress(context, "in progress");
+    }
+
+    private void loadMissingBalances(List<CsvRow> chunk, ImportContext context) {
+        Set<String> emails = new HashSet<>();
+        for (CsvRow row : chunk) {
+            String email = (String) row.values.get(FIELD_USER_EMAIL);
+            if (email != null && !context.balances.containsKey(email)
+                    && !context.unknownEmails.contains(email)) {
+                emails.add(email);
+            }
+        }
+        if (emails.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> userIds = new HashMap<>();
+        for (Object[] emailAndId : userRepository.findIdsByEmailIn(emails)) {
+            userIds.put((String) emailAndId[0], ((Number) emailAndId[1]).longValue());
+        }
+        Map<Long, Balance> balances = vacationBalances.getBalances(userIds.values());
+        for (Map.Entry<String, Long> user : userIds.entrySet()) {
+            Balance balance = balances.get(user.getValue());
+            context.balances.put(user.getKey(), new UserBalance(user.getValue(),
+                    balance.getCurrentYearDays(), balance.getPrevYearDays()));
+            emails.remove(user.getKey());
+        }
+        context.unknownEmails.addAll(emails);
+    }
+
+    /*
+     * Validates the row and applies its vacation days to the user balance. Returns null
+     * when the row is skipped or invalid.
+     */
+    private Object[] toInsertParams(long rowNumber, Map<String, Object> row,
+            ImportContext context) {
+        String businessDaysStr = (String) row.get(FIELD_BUSINESS_DAYS);
+        if (businessDaysStr == null || businessDaysStr.isEmpty()) {
+            log.warn("Row {}: Business days is empty or null.", rowNumber);
+            context.result.addRowsSkipped(1);
+            return null;
+        }
+        String email = (String) row.get(FIELD_USER_EMAIL);
+        UserBalance balance = email == null ? null : context.balances.get(email);
+        if (balance == null) {
+            log.warn("User with email {} not found.", email);
+            context.result.addRowsSkipped(1);
+            return null;
+        }
+
+        List<String> errors = new ArrayList<>();
+        Double workDays = null;
+        try {
+            workDays = Double.parseDouble(businessDaysStr);
+        } catch (NumberFormatException e) {
+            errors.add("Invalid " + FIELD_BUSINESS_DAYS + ": " + businessDaysStr);
+        }
+        String statusName = (String) row.get(FIELD_STATUS);
+        Long statusId = statusName == null ? null
+                : context.statusIds.get(statusName.toUpperCase());
+        if (statusId == null) {
+            errors.add("Status not found: " + statusName);
+        }
+        String name = (String) row.get(FIELD_NAME);
+        if (name == null || name.isBlank()) {
+            errors.add(FIELD_NAME + " is required");
+        }
+        Timestamp startDate = parseTimestamp((String) row.get(FIELD_START_DATE),
+                FIELD_START_DATE, errors);
+        Timestamp endDate = parseTimestamp((String) row.get(FIELD_END_DATE),
+                FIELD_END_DATE, errors);
+        if (startDate != null && endDate != null && endDate.before(startDate)) {
+            errors.add(FIELD_END_DATE + " is before " + FIELD_START_DATE);
+        }
+        if (!errors.isEmpty()) {
+            context.result.addError(rowNumber, String.join("; ", errors));
+            return null;
+        }
+
+        String businessYear = (String) row.get(FIELD_YEAR);
+        if (!balance.apply(businessYear, workDays, context)) {
+            log.warn("Row {}: User {} does not have enough vacation days for {}, " +
+                    "the balance was not updated.", rowNumber, email, name);
+        }
+
+        // The id is set when the chunk is written
+        return new Object[] {null, context.vacationTypeId, balance.userId, name, startDate,
+            endDate, statusId, workDays, businessYear, DAILY_RECORD, context.now, context.now,
+            context.userId, context.userId};
+    }
+
+    /*
+     * Records the accumulated deltas as balance events, taken from the balance of their
+     * business year.
+     */
+    private void flushBalances(Iterable<UserBalance> balances, ImportContext context) {
+        List<Change> changes = new ArrayList<>();
+        int changedUsers = 0;
+        for (UserBalance balance : balances) {
+            if (!balance.isChanged()) {
+                continue;
+            }
+            changedUsers++;
+            if (balance.currentDelta != 0.0) {
+                changes.add(new Change(balance.userId, context.currentYear,
+                        -balance.currentDelta, Reason.IMPORT, null));
+            }
+            if (balance.prevDelta != 0.0) {
+                changes.add(new Change(balance.userId, context.prevYear,
+                        -balance.prevDelta, Reason.IMPORT, null));
+            }
+        }
+        vacationBalances.record(changes);
+        log.info("Updated the vacation balance of {} users", changedUsers);
+    }
+
+    private static Timestamp parseTimestamp(String date, String field, List<String> errors) {
+        if (date == null) {
+            errors.add(field + " is required");
+            return null;
+        }
+        try {
+            return Timestamp.valueOf(date);
+        } catch (IllegalArgumentException e) {
+            errors.add("Invalid " + field + ": " + date);
+            return null;
+        }
+    }
+
+    private static void logProgress(ImportContext context, String state) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - context.now.getTime());
+        long rows = context.result.getRowsRead();
+        log.info("Absence import {}: {} rows read, {} imported, {} skipped, {} errors " +
+                "({} rows/s)", state, rows, context.result.getRowsImported(),
+                context.result.getRowsSkipped(), context.result.getErrorCount(),
+                Math.round(rows * MILLIS_PER_SECOND / elapsed));
+    }
+
+    private static final class ImportContext {
+        private final ImportResult result;
+        private final Map<String, Long> statusIds = new HashMap<>();
+        private final Map<String, UserBalance> balances = new HashMap<>();
+        private final Set<String> unknownEmails = new HashSet<>();
+        private final Timestamp now = new Timestamp(System.currentTimeMillis());
+        private final Long userId;
+        private final Long vacationTypeId;
+        private final String currentYear;
+        private final String prevYear;
+        private final long skipRows;
+        private final ImportCheckpoint checkpoint;
+        private long rowNumber;
+
+        // CHECKSTYLE.OFF: ParameterNumber
+        private ImportContext(ImportResult result, Long userId, Long vacationTypeId,
+                String currentYear, String prevYear, long skipRows,
+                ImportCheckpoint checkpoint) {
+            this.result = result;
+            this.userId = userId;
+            this.vacationTypeId = vacationTypeId;
+            this.currentYear = currentYear;
+            this.prevYear = prevYear;
+            this.skipRows = skipRows;
+            this.checkpoint = checkpoint;
+        }
+        // CHECKSTYLE.ON: ParameterNumber
+    }
+
+    private static final class CsvRow {
+        private final long rowNumber;
+        private final Map<String, Object> values;
+
+        private CsvRow(long rowNumber, Map<String, Object> values) {
+            this.rowNumber = rowNumber;
+            this.values = values;
+        }
+    }
+
+    /*
+     * Vacation balance of a user as loaded from the database plus the days consumed by
+     * the imported rows, which are the deltas written at the end of the import.
+     */
+    private static final class UserBalance {
+        private final long userId;
+        private double currentYearDays;
+        private double prevYearDays;
+        private double currentDelta;
+        private double prevDelta;
+
+        private UserBalance(long userId, double currentYearDays, double prevYearDays) {
+            this.userId = userId;
+            this.currentYearDays = currentYearDays;
+            this.prevYearDays = prevYearDays;
+        }
+
+        private boolean apply(String businessYear, double workDays, ImportContext context) {
+            if (context.currentYear.equals(businessYear)) {
+                if (currentYearDays - currentDelta - workDays < 0.0) {
+                    return false;
+                }
+                currentDelta += workDays;
+            } else if (context.prevYear.equals(businessYear)) {
+                if (prevYearDays - prevDelta - workDays < 0.0) {
+                    return false;
+                }
+                prevDelta += workDays;
+            }
+            return true;
+        }
+
+        private boolean isChanged() {
+            return currentDelta != 0.0 || prevDelta != 0.0;
+        }
+
+        // The deltas were written, they are now part of the loaded balance
+        private void markFlushed() {
+            currentYearDays -= currentDelta;
+            prevYearDays -= prevDelta;
+            currentDelta = 0.0;
+            prevDelta = 0.0;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.datacentric.timesense.utils.imports;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import com.datacentric.exceptions.DataCentricException;
+import com.datacentric.timesense.model.Holiday;
+import com.datacentric.timesense.repository.HolidayRepository;
+import com.datacentric.timesense.utils.TimeoffManagementUtils;
+import com.datacentric.utils.imports.ColumnDescriptor;
+import com.datacentric.utils.imports.ColumnType;
+import com.datacentric.utils.imports.CsvImporter;
+import com.datacentric.utils.imports.CsvImporter.CsvImporterConfiguration;
+
+/**
+ * Import engine for the holidays CSV file.
+ *
+ * Holiday files hold at most a few dozen rows, and the new holidays change the work days
+ * of the absences they overlap, so the whole file is always imported in one transaction.
+ */
+@Service
+public class HolidayImportEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(HolidayImportEngine.class);
+
+    public static final String HOLIDAY_DATE = "holidayDate";
+    public static final String NAME = "name";
+
+    private HolidayRepository holidayRepository;
+    private TimeoffManagementUtils timeoffUtils;
+
+    @Autowired
+    public HolidayImportEngine(HolidayRepository holidayRepository,
+            TimeoffManagementUtils timeoffUtils) {
+        this.holidayRepository = holidayRepository;
+        this.timeoffUtils = timeoffUtils;
+    }
+
+    /**
+     * Import the holidays in the given CSV stream.
+     *
+     * Holidays whose date already exists are skipped and the absences overlapping the new
+     * holidays are recalculated. If any row is invalid nothing is imported and the result
+     * holds the row errors.
+     */
+    @Transactional(rollbackFor = DataCentricException.class)
+    public ImportResult importHolidays(InputStream input, ImportResult result)
+            throws IOException, DataCentricException {
+        final List<Holiday> holidaysList = new ArrayList<>();
+        final long[] rowNumber = {0};
+        CsvImporter csvImporter = new CsvImporter();
+        csvImporter.initialize(new CsvImporterConfiguration(",", true, data -> {
+            rowNumber[0]++;
+            @SuppressWarnings("unchecked")
+            Map<String, Object> row = (Map<String, Object>) data;
+            Date holidayDate = (Date) row.get(HOLIDAY_DATE);
+            String name = (String) row.get(NAME);
+            if (holidayDate != null && name != null) {
+                Holiday day = new Holiday();
+                day.setHolidayDate(holidayDate.toLocalDate());
+                day.setName(name);
+                holidaysList.add(day);
+            } else {
+                result.addError(rowNumber[0], "Invalid data in CSV file: " + row);
+            }
+        }).withColumnDescriptors(
+                new ColumnDescriptor(HOLIDAY_DATE, ColumnType.DATE, false),
+                new ColumnDescriptor(NAME, ColumnType.STRING, false)));
+
+        csvImporter.importData(input);
+        result.addRowsRead(rowNumber[0]);
+        if (result.hasErrors()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return result;
+        }
+
+        List<LocalDate> datesToCheck = new ArrayList<>();
+        for (Holiday holiday : holidaysList) {
+            datesToCheck.add(holiday.getHolidayDate());
+        }
+        Set<LocalDate> existingDates = datesToCheck.isEmpty() ? Set.of()
+                : new HashSet<>(holidayRepository.findAllExistingDates(datesToCheck));
+
+        List<Holiday> holidaysToSave = new ArrayList<>();
+        List<LocalDate> newHolidaysDates = new ArrayList<>();
+        for (Holiday holiday : holidaysList) {
+            if (existingDates.contains(holiday.getHolidayDate())) {
+                result.addRowsSkipped(1);
+                continue;
+            }
+            holidaysToSave.add(holiday);
+            newHolidaysDates.add(holiday.getHolidayDate());
+        }
+        if (holidaysToSave.isEmpty()) {
+            return result;
+        }
+
+        timeoffUtils.recalculateUsersAbsences(newHolidaysDates, null);
+        holidayRepository.saveAll(holidaysToSave);
+        result.addRowsImported(holidaysToSave.size());
+        log.info("Imported {} holidays, skipped {} existing dates", holidaysToSave.size(),
+                result.getRowsSkipped());
+        return result;
+    }
+}
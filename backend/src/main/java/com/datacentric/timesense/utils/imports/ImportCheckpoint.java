@@ -0,0 +1,15 @@
+package com.datacentric.timesense.utils.imports;
+
+/**
+ * Callback of the chunked imports, invoked at the end of each chunk inside the transaction
+ * that commits it. What the callback writes is committed or rolled back with the chunk.
+ */
+public interface ImportCheckpoint {
+
+    /**
+     * @param committedRows number of file rows, counted from the start of the file, that
+     *                      are committed with this chunk and can be skipped when resuming
+     * @param result        the import result so far
+     */
+    void chunkCommitted(long committedRows, ImportResult result);
+}
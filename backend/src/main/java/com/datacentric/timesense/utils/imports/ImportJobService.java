@@ -0,0 +1,266 @@
+package com.datacentric.timesense.utils.imports;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.datacentric.timesense.model.ImportJob;
+import com.datacentric.timesense.repository.ImportJobRepository;
+import com.datacentric.timesense.utils.security.UserSecurityData;
+import com.datacentric.timesense.utils.storage.IStorageProvider;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs the CSV imports in the background so that large files do not hold a web thread,
+ * a database connection and a transaction for the whole import.
+ *
+ * Uploads are spooled to the storage provider and processed by a bounded executor, once
+ * the queue is full new imports are refused. Projects and absences are committed chunk by
+ * chunk and the job counters are saved in the transaction of each chunk, which is the
+ * checkpoint used to resume the jobs interrupted by a restart. A chunk and its checkpoint
+ * are committed together, so a resumed job never imports a chunk twice.
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportJobService.class);
+
+    private static final int DEFAULT_THREADS = 2;
+    private static final int DEFAULT_QUEUE_CAPACITY = 20;
+    private static final int MAX_FAILURE_REASON_LENGTH = 255;
+    private static final String SPOOL_PREFIX = "imports-";
+
+    private Environment env;
+    private ImportJobRepository importJobRepository;
+    private IStorageProvider storageProvider;
+    private ProjectImportPipeline projectImportPipeline;
+    private AbsenceImportEngine absenceImportEngine;
+    private HolidayImportEngine holidayImportEngine;
+
+    private ThreadPoolExecutor executor;
+
+    // Live results of the running jobs, newer than the last checkpoint
+    private Map<Long, ImportResult> runningJobs = new ConcurrentHashMap<>();
+
+    // CHECKSTYLE.OFF: ParameterNumber
+    @Autowired
+    public ImportJobService(Environment env, ImportJobRepository importJobRepository,
+            IStorageProvider storageProvider, ProjectImportPipeline projectImportPipeline,
+            AbsenceImportEngine absenceImportEngine, HolidayImportEngine holidayImportEngine) {
+        this.env = env;
+        this.importJobRepository = importJobRepository;
+        this.storageProvider = storageProvider;
+        this.projectImportPipeline = projectImportPipeline;
+        this.absenceImportEngine = absenceImportEngine;
+        this.holidayImportEngine = holidayImportEngine;
+    }
+    // CHECKSTYLE.ON: ParameterNumber
+
+    @PostConstruct
+    public void init() {
+        int threads = env.getProperty("server.import.jobs.threads", Integer.class,
+                DEFAULT_THREADS);
+        int queueCapacity = env.getProperty("server.import.jobs.queue-capacity", Integer.class,
+                DEFAULT_QUEUE_CAPACITY);
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Resumes the jobs that were queued or running when the application stopped. Projects
+     * and absences continue after their last checkpoint.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        List<ImportJob> jobs = importJobRepository.findByStateIn(
+                List.of(ImportJob.STATE_QUEUED, ImportJob.STATE_RUNNING));
+        for (ImportJob job : jobs) {
+            log.info("Resuming import job {} from row {}", job.getId(), job.getCheckpointRow());
+            try {
+                executor.execute(() -> runJob(job.getId()));
+            } catch (RejectedExecutionException e) {
+                markFailed(job, "Import queue is full");
+            }
+        }
+    }
+
+    /**
+     * Spools the file and queues its import.
+     *
+     * @throws RejectedExecutionException when the import queue is full
+     */
+    public ImportJob submit(String importType, MultipartFile file, UserSecurityData currentUser)
+            throws Exception {
+        String objectId = SPOOL_PREFIX + UUID.randomUUID() + ".csv";
+        try (InputStream inputStream = file.getInputStream()) {
+            storageProvider.put(objectId, inputStream, file.getSize());
+        }
+
+        ImportJob job = new ImportJob();
+        job.setImportType(importType);
+        job.setFileName(file.getOriginalFilename());
+        job.setStorageObjectId(objectId);
+        job.setState(ImportJob.STATE_QUEUED);
+        currentUser.markCreatedBy(job);
+        currentUser.markUpdatedBy(job);
+        ImportJob savedJob = importJobRepository.save(job);
+
+        try {
+            executor.execute(() -> runJob(savedJob.getId()));
+        } catch (RejectedExecutionException e) {
+            markFailed(savedJob, "Import queue is full");
+            deleteSpooledFile(objectId);
+            throw e;
+        }
+        return savedJob;
+    }
+
+    /**
+     * Returns the job with the progress of the rows processed after its last checkpoint.
+     */
+    public Optional<ImportJob> getJob(Long id) {
+        Optional<ImportJob> job = importJobRepository.findById(id);
+        ImportResult live = runningJobs.get(id);
+        if (job.isPresent() && live != null) {
+            copyProgress(live, job.get());
+        }
+        return job;
+    }
+
+    private void runJob(Long jobId) {
+        ImportJob job = importJobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+
+        ImportResult result = new ImportResult();
+        result.restore(job.getRowsRead(), job.getRowsImported(), job.getRowsSkipped(),
+                job.getErrorCount(), job.getErrors());
+        runningJobs.put(jobId, result);
+
+        job.setState(ImportJob.STATE_RUNNING);
+        if (job.getStartedAt() == null) {
+            job.setStartedAt(new Timestamp(System.currentTimeMillis()));
+        }
+        job = importJobRepository.save(job);
+
+        Path localCopy = null;
+        try {
+            localCopy = Files.createTempFile(SPOOL_PREFIX + jobId, ".csv");
+            try (OutputStream out = Files.newOutputStream(localCopy)) {
+                storageProvider.get(job.getStorageObjectId(), out);
+            }
+
+            // The owner data is only used to fill the audit columns
+            UserSecurityData owner = new UserSecurityData(job.getCreatedBy().getId(),
+                    List.of(), List.of());
+            ImportCheckpoint checkpoint = (committedRows, progress) ->
+                    saveCheckpoint(jobId, committedRows, progress);
+
+            try (InputStream in = Files.newInputStream(localCopy)) {
+                if (ImportJob.TYPE_PROJECTS.equals(job.getImportType())) {
+                    projectImportPipeline.importProjectsInChunks(in, owner, result,
+                            job.getCheckpointRow(), checkpoint);
+                } else if (ImportJob.TYPE_ABSENCES.equals(job.getImportType())) {
+                    absenceImportEngine.importAbsencesInChunks(in, owner, result,
+                            job.getCheckpointRow(), checkpoint);
+                } else if (ImportJob.TYPE_HOLIDAYS.equals(job.getImportType())) {
+                    holidayImportEngine.importHolidays(in, result);
+                } else {
+                    throw new IllegalArgumentException("Unknown import type: "
+                            + job.getImportType());
+                }
+            }
+
+            finishJob(jobId, result, ImportJob.STATE_DONE, null);
+            deleteSpooledFile(job.getStorageObjectId());
+        } catch (Exception e) {
+            log.error("Import job {} failed", jobId, e);
+            finishJob(jobId, result, ImportJob.STATE_FAILED, e.getMessage());
+        } finally {
+            runningJobs.remove(jobId);
+            if (localCopy != null) {
+                try {
+                    Files.deleteIfExists(localCopy);
+                } catch (Exception e) {
+                    log.warn("Could not delete the local copy of import job {}", jobId);
+                }
+            }
+        }
+    }
+
+    private void saveCheckpoint(Long jobId, long committedRows, ImportResult result) {
+        importJobRepository.findById(jobId).ifPresent(job -> {
+            copyProgress(result, job);
+            job.setCheckpointRow(committedRows);
+            importJobRepository.save(job);
+        });
+    }
+
+    private void finishJob(Long jobId, ImportResult result, String state, String reason) {
+        importJobRepository.findById(jobId).ifPresent(job -> {
+            copyProgress(result, job);
+            job.setState(state);
+            job.setFailureReason(truncate(reason));
+            job.setFinishedAt(new Timestamp(System.currentTimeMillis()));
+            importJobRepository.save(job);
+        });
+    }
+
+    private void markFailed(ImportJob job, String reason) {
+        job.setState(ImportJob.STATE_FAILED);
+        job.setFailureReason(reason);
+        job.setFinishedAt(new Timestamp(System.currentTimeMillis()));
+        importJobRepository.save(job);
+    }
+
+    private void deleteSpooledFile(String objectId) {
+        try {
+            storageProvider.delete(objectId);
+        } catch (Exception e) {
+            log.error("Failed to delete spooled import file {}", objectId, e);
+        }
+    }
+
+    private static void copyProgress(ImportResult result, ImportJob job) {
+        job.setRowsRead(result.getRowsRead());
+        job.setRowsImported(result.getRowsImported());
+        job.setRowsSkipped(result.getRowsSkipped());
+        job.setErrorCount(result.getErrorCount());
+        job.setErrors(result.getErrors());
+    }
+
+    private static String truncate(String value) {
+        if (value == null || value.length() <= MAX_FAILURE_REASON_LENGTH) {
+            return value;
+        }
+        return value.substring(0, MAX_FAILURE_REASON_LENGTH);
+    }
+}
@@ -0,0 +1,78 @@
+package com.datacentric.timesense.utils.imports;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a CSV import. Keeps the row counters and the row errors found while
+ * processing the file. Only the first MAX_REPORTED_ERRORS errors are kept so a badly
+ * formatted file does not grow the report without bounds.
+ */
+public class ImportResult {
+
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsSkipped;
+    private long errorCount;
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * Restores the counters and errors of a previous run of the same import, used when an
+     * import job resumes from its last checkpoint.
+     */
+    public synchronized void restore(long read, long imported, long skipped, long errorsFound,
+            List<String> reportedErrors) {
+        rowsRead = read;
+        rowsImported = imported;
+        rowsSkipped = skipped;
+        errorCount = errorsFound;
+        errors.clear();
+        errors.addAll(reportedErrors);
+    }
+
+    public synchronized void addRowsRead(long count) {
+        rowsRead += count;
+    }
+
+    public synchronized void addRowsImported(long count) {
+        rowsImported += count;
+    }
+
+    public synchronized void addRowsSkipped(long count) {
+        rowsSkipped += count;
+    }
+
+    public synchronized void addError(long rowNumber, String error) {
+        errorCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add("Row " + rowNumber + ": " + error);
+        }
+    }
+
+    public synchronized long getRowsRead() {
+        return rowsRead;
+    }
+
+    public synchronized long getRowsImported() {
+        return rowsImported;
+    }
+
+    public synchronized long getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    public synchronized long getErrorCount() {
+        return errorCount;
+    }
+
+    public synchronized boolean hasErrors() {
+        return errorCount > 0;
+    }
+
+    public synchronized List<String> getErrors() {
+        return Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+}
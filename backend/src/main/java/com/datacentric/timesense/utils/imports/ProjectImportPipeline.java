@@ -0,0 +1,459 @@
+package com.datacentric.timesense.utils.imports;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.repository.ClientRepository;
+import com.datacentric.timesense.repository.ProjectRepository;
+import com.datacentric.timesense.repository.ProjectTypeRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.PooledIds;
+import com.datacentric.timesense.utils.security.UserSecurityData;
+import com.datacentric.utils.imports.ColumnDescriptor;
+import com.datacentric.utils.imports.ColumnType;
+import com.datacentric.utils.imports.CsvImporter;
+import com.datacentric.utils.imports.CsvImporter.CsvImporterConfiguration;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Import pipeline for the projects CSV file.
+ *
+ * The file is streamed and split in chunks of a fixed number of rows. For each chunk the
+ * referenced project types, managers and clients are resolved with a single IN query per
+ * reference, the rows are validated in parallel on a worker pool and the valid projects
+ * are written with one JDBC batch insert. Only the current chunk is kept in memory.
+ *
+ * When called from a request the whole file is imported in a single transaction, so any
+ * row error rolls back the projects of the previous chunks. Once an error is found the
+ * remaining rows are still validated to report every error in one go, but nothing else
+ * is written. Import jobs commit every chunk instead, see importProjectsInChunks.
+ */
+@Service
+public class ProjectImportPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectImportPipeline.class);
+
+    public static final String FIELD_PROJECT_CODE = "proj_code";
+    public static final String FIELD_PROJECT_NAME = "proj_name";
+    public static final String FIELD_PROJECT_TYPE = "proj_type";
+    public static final String FIELD_PROJECT_MANAGER = "manager";
+    public static final String FIELD_CLIENT = "client";
+    public static final String FIELD_START_DATE = "start_date";
+    public static final String FIELD_EXPECTED_DUE_DATE = "expected_due_date";
+    public static final String FIELD_BUDGET = "budget";
+
+    private static final String CSV_DELIMITER = ",";
+    private static final String OPEN_STATUS = "OPEN";
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final int DEFAULT_WORKER_THREADS = 4;
+    private static final String PROJECTS_ID_SEQ = "projects_id_seq";
+
+    private static final String INSERT_PROJECT_SQL = """
+            INSERT INTO projects (id, name, description, type_id, manager, client_id,
+                start_date, expected_due_date, status_id, real_budget, created_at, updated_at,
+                created_by, updated_by, deleted)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false)
+            """;
+
+    private static final int[] INSERT_TYPES = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR,
+        Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT,
+        Types.DOUBLE, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT, Types.BIGINT};
+
+    private Environment env;
+    private JdbcTemplate jdbcTemplate;
+    private ProjectRepository projectRepository;
+    private ProjectTypeRepository projectTypeRepository;
+    private UserRepository userRepository;
+    private ClientRepository clientRepository;
+    private StatusRepository statusRepository;
+    private PooledIds pooledIds;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int workerThreads = DEFAULT_WORKER_THREADS;
+    private ExecutorService workers;
+    private TransactionTemplate transactionTemplate;
+
+    // CHECKSTYLE.OFF: ParameterNumber
+    @Autowired
+    public ProjectImportPipeline(Environment env, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ProjectRepository projectRepository, ProjectTypeRepository projectTypeRepository,
+            UserRepository userRepository, ClientRepository clientRepository,
+            StatusRepository statusRepository, PooledIds pooledIds) {
+        this.env = env;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.projectRepository = projectRepository;
+        this.projectTypeRepository = projectTypeRepository;
+        this.userRepository = userRepository;
+        this.clientRepository = clientRepository;
+        this.statusRepository = statusRepository;
+        this.pooledIds = pooledIds;
+    }
+    // CHECKSTYLE.ON: ParameterNumber
+
+    @PostConstruct
+    public void init() {
+        String chunkSizeStr = env.getProperty("server.import.chunk-size");
+        if (chunkSizeStr != null) {
+            chunkSize = Integer.parseInt(chunkSizeStr);
+        }
+        String workerThreadsStr = env.getProperty("server.import.worker-threads");
+        if (workerThreadsStr != null) {
+            workerThreads = Integer.parseInt(workerThreadsStr);
+        }
+        workers = Executors.newFixedThreadPool(workerThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * Import the projects in the given CSV stream.
+     *
+     * Rows with a project code that already exists, in the database or earlier in the
+     * file, are skipped. If any row fails validation the transaction is rolled back and
+     * the returned result holds the row errors.
+     */
+    @Transactional
+    public ImportResult importProjects(InputStream input, UserSecurityData currentUser)
+            throws IOException {
+        ImportContext context = new ImportContext(currentUser,
+                statusRepository.findByName(OPEN_STATUS), new ImportResult(), 0, null);
+        runImport(input, context);
+
+        if (context.result.hasErrors()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
+        return context.result;
+    }
+
+    /**
+     * Import the projects in the given CSV stream committing each chunk in its own
+     * transaction, used by the import jobs.
+     *
+     * Invalid rows are reported in the result and the valid rows of the same chunk are
+     * still imported. The first skipRows rows are ignored, which allows resuming an
+     * import from its last checkpoint.
+     */
+    public ImportResult importProjectsInChunks(InputStream input, UserSecurityData currentUser,
+            ImportResult result, long skipRows, ImportCheckpoint checkpoint) throws IOException {
+        ImportContext context = new ImportContext(currentUser,
+                statusRepository.findByName(OPEN_STATUS), result, skipRows, checkpoint);
+        runImport(input, context);
+        return result;
+    }
+
+    private void runImport(InputStream input, ImportContext context) throws IOException {
+        CsvImporter importer = new CsvImporter();
+        CsvImporterConfiguration config = new CsvImporterConfiguration(CSV_DELIMITER, true, null)
+                .withColumnDescriptors(
+                        new ColumnDescriptor(FIELD_PROJECT_CODE, ColumnType.STRING, false),
+                        new ColumnDescriptor(FIELD_PROJECT_NAME, ColumnType.STRING, false),
+                        new ColumnDescriptor(FIELD_PROJECT_TYPE, ColumnType.STRING, false),
+                        new ColumnDescriptor(FIELD_START_DATE, ColumnType.STRING, false),
+                        new ColumnDescriptor(FIELD_PROJECT_MANAGER, ColumnType.STRING, false),
+                        new ColumnDescriptor(FIELD_CLIENT, ColumnType.STRING, false),
+                        new ColumnDescriptor(FIELD_EXPECTED_DUE_DATE, ColumnType.STRING, true),
+                        new ColumnDescriptor(FIELD_BUDGET, ColumnType.STRING, true));
+        importer.initialize(config);
+
+        List<ProjectRow> chunk = new ArrayList<>(chunkSize);
+        importer.importDataWithCustomCallback(input, data -> {
+            long rowNumber = ++context.rowNumber;
+            if (rowNumber <= context.skipRows) {
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> row = (Map<String, Object>) data;
+            chunk.add(ProjectRow.fromCsv(rowNumber, row));
+            if (chunk.size() >= chunkSize) {
+                commitChunk(chunk, context);
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            commitChunk(chunk, context);
+            chunk.clear();
+        }
+
+        log.info("Project import finished: {} rows read, {} imported, {} skipped, {} errors",
+                context.result.getRowsRead(), context.result.getRowsImported(),
+                context.result.getRowsSkipped(), context.result.getErrorCount());
+    }
+
+    private void commitChunk(List<ProjectRow> chunk, ImportContext context) {
+        if (context.checkpoint == null) {
+            processChunk(chunk, context);
+            return;
+        }
+        // The checkpoint is saved with the chunk, a chunk is never committed without it
+        transactionTemplate.executeWithoutResult(status -> {
+            processChunk(chunk, context);
+            context.checkpoint.chunkCommitted(context.rowNumber, context.result);
+        });
+    }
+
+    private void processChunk(List<ProjectRow> chunk, ImportContext context) {
+        context.result.addRowsRead(chunk.size());
+
+        // Drop the rows whose code already exists before resolving anything else
+        Set<String> codes = new HashSet<>();
+        for (ProjectRow row : chunk) {
+            codes.add(row.code);
+        }
+        codes.remove(null);
+        Set<String> existingCodes = codes.isEmpty() ? Set.of()
+                : new HashSet<>(projectRepository.findExistingCodes(codes));
+
+        List<ProjectRow> newRows = new ArrayList<>(chunk.size());
+        for (ProjectRow row : chunk) {
+            if (row.code != null
+                    && (existingCodes.contains(row.code) || !context.seenCodes.add(row.code))) {
+                context.result.addRowsSkipped(1);
+                continue;
+            }
+            newRows.add(row);
+        }
+        if (newRows.isEmpty()) {
+            return;
+        }
+
+        ReferenceIds references = resolveReferences(newRows);
+        List<Object[]> batch = validateInParallel(newRows, references, context);
+
+        // Without checkpoints a single error discards the whole file, so stop writing
+        boolean discarded = context.checkpoint == null && context.result.hasErrors();
+        if (!discarded && !batch.isEmpty()) {
+            long[] ids = pooledIds.next(PROJECTS_ID_SEQ, batch.size());
+            for (int i = 0; i < ids.length; i++) {
+                batch.get(i)[0] = ids[i];
+            }
+            jdbcTemplate.batchUpdate(INSERT_PROJECT_SQL, batch, INSERT_TYPES);
+            context.result.addRowsImported(batch.size());
+        }
+    }
+
+    private ReferenceIds resolveReferences(List<ProjectRow> rows) {
+        Set<String> typeNames = new HashSet<>();
+        Set<String> managerNames = new HashSet<>();
+        Set<String> clientNames = new HashSet<>();
+        for (ProjectRow row : rows) {
+            typeNames.add(row.typeName);
+            managerNames.add(row.managerName);
+            clientNames.add(row.clientName);
+        }
+        typeNames.remove(null);
+        managerNames.remove(null);
+        clientNames.remove(null);
+
+        return new ReferenceIds(
+                toIdMap(typeNames, projectTypeRepository::findIdsByNameIn),
+                toIdMap(managerNames, userRepository::findIdsByNameIn),
+                toIdMap(clientNames, clientRepository::findIdsByNameIn));
+    }
+
+    private static Map<String, Long> toIdMap(Set<String> names,
+            Function<Collection<String>, List<Object[]>> loader) {
+        Map<String, Long> ids = new HashMap<>();
+        if (names.isEmpty()) {
+            return ids;
+        }
+        for (Object[] nameAndId : loader.apply(names)) {
+            ids.put((String) nameAndId[0], ((Number) nameAndId[1]).longValue());
+        }
+        return ids;
+    }
+
+    /*
+     * Splits the rows in one slice per worker. Each slice returns the insert parameters of
+     * its valid rows, the slices are joined in order so the insert order follows the file.
+     */
+    private List<Object[]> validateInParallel(List<ProjectRow> rows, ReferenceIds references,
+            ImportContext context) {
+        int sliceSize = Math.max(1, (rows.size() + workerThreads - 1) / workerThreads);
+        List<Future<List<Object[]>>> slices = new ArrayList<>();
+        for (int start = 0; start < rows.size(); start += sliceSize) {
+            List<ProjectRow> slice = rows.subList(start, Math.min(rows.size(), start + sliceSize));
+            Callable<List<Object[]>> task = () -> validateSlice(slice, references, context);
+            slices.add(workers.submit(task));
+        }
+
+        List<Object[]> batch = new ArrayList<>(rows.size());
+        try {
+            for (Future<List<Object[]>> slice : slices) {
+                batch.addAll(slice.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Project import was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error validating projects to import", e.getCause());
+        }
+        return batch;
+    }
+
+    private List<Object[]> validateSlice(List<ProjectRow> slice, ReferenceIds references,
+            ImportContext context) {
+        List<Object[]> params = new ArrayList<>(slice.size());
+        for (ProjectRow row : slice) {
+            List<String> errors = new ArrayList<>();
+            if (isBlank(row.code)) {
+                errors.add("Project code is required");
+            }
+            Long typeId = resolve(row.typeName, references.types, "Project type", errors);
+            Long managerId = resolve(row.managerName, references.managers, "Manager", errors);
+            Long clientId = resolve(row.clientName, references.clients, "Client", errors);
+            Timestamp startDate = parseDate(row.startDate, FIELD_START_DATE, errors);
+            Timestamp dueDate = parseDate(row.expectedDueDate, FIELD_EXPECTED_DUE_DATE, errors);
+            Double budget = parseBudget(row.budget, errors);
+            if (context.openStatus == null) {
+                errors.add("Status not found: " + OPEN_STATUS);
+            }
+
+            if (!errors.isEmpty()) {
+                context.result.addError(row.rowNumber, String.join("; ", errors));
+                continue;
+            }
+            // The id is set when the chunk is written
+            params.add(new Object[] {null, row.code, row.description, typeId, managerId,
+                clientId, startDate, dueDate, context.openStatus.getId(), budget, context.now,
+                context.now, context.userId, context.userId});
+        }
+        return params;
+    }
+
+    private static Long resolve(String name, Map<String, Long> ids, String label,
+            List<String> errors) {
+        if (isBlank(name)) {
+            errors.add(label + " is required");
+            return null;
+        }
+        Long id = ids.get(name);
+        if (id == null) {
+            errors.add(label + " not found: " + name);
+        }
+        return id;
+    }
+
+    private static Timestamp parseDate(String date, String field, List<String> errors) {
+        if (isBlank(date)) {
+            return null;
+        }
+        try {
+            return Timestamp.valueOf(LocalDate.parse(date.trim()).atStartOfDay());
+        } catch (DateTimeParseException e) {
+            errors.add("Invalid " + field + ", expected yyyy-MM-dd: " + date);
+            return null;
+        }
+    }
+
+    private static Double parseBudget(String budget, List<String> errors) {
+        if (isBlank(budget)) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(budget.trim());
+        } catch (NumberFormatException e) {
+            errors.add("Invalid " + FIELD_BUDGET + ": " + budget);
+            return null;
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static final class ImportContext {
+        private final Set<String> seenCodes = new HashSet<>();
+        private final Timestamp now = new Timestamp(System.currentTimeMillis());
+        private final ImportResult result;
+        private final Long userId;
+        private final Status openStatus;
+        private final long skipRows;
+        private final ImportCheckpoint checkpoint;
+        private long rowNumber;
+
+        private ImportContext(UserSecurityData currentUser, Status openStatus,
+                ImportResult result, long skipRows, ImportCheckpoint checkpoint) {
+            this.userId = currentUser.getId();
+            this.openStatus = openStatus;
+            this.result = result;
+            this.skipRows = skipRows;
+            this.checkpoint = checkpoint;
+        }
+    }
+
+    private static final class ReferenceIds {
+        private final Map<String, Long> types;
+        private final Map<String, Long> managers;
+        private final Map<String, Long> clients;
+
+        private ReferenceIds(Map<String, Long> types, Map<String, Long> managers,
+                Map<String, Long> clients) {
+            this.types = types;
+            this.managers = managers;
+            this.clients = clients;
+        }
+    }
+
+    private static final class ProjectRow {
+        private long rowNumber;
+        private String code;
+        private String description;
+        private String typeName;
+        private String managerName;
+        private String clientName;
+        private String startDate;
+        private String expectedDueDate;
+        private String budget;
+
+        private static ProjectRow fromCsv(long rowNumber, Map<String, Object> row) {
+            ProjectRow projectRow = new ProjectRow();
+            projectRow.rowNumber = rowNumber;
+            projectRow.code = (String) row.get(FIELD_PROJECT_CODE);
+            projectRow.description = (String) row.get(FIELD_PROJECT_NAME);
+            projectRow.typeName = (String) row.get(FIELD_PROJECT_TYPE);
+            projectRow.managerName = (String) row.get(FIELD_PROJECT_MANAGER);
+            projectRow.clientName = (String) row.get(FIELD_CLIENT);
+            projectRow.startDate = (String) row.get(FIELD_START_DATE);
+            projectRow.expectedDueDate = (String) row.get(FIELD_EXPECTED_DUE_DATE);
+            projectRow.budget = (String) row.get(FIELD_BUDGET);
+            return projectRow;
+        }
+    }
+}
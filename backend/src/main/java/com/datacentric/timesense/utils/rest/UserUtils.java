@@ -1,8 +1,11 @@
 package com.datacentric.timesense.utils.rest;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,19 +13,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.datacentric.timesense.model.SystemSetting;
 import com.datacentric.timesense.model.SystemSettings;
 import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.model.UserGroup;
 import com.datacentric.timesense.model.UserRole;
 import com.datacentric.timesense.repository.SystemSettingRepository;
 import com.datacentric.timesense.repository.UserRepository;
 import com.datacentric.timesense.repository.UserRoleRepository;
 import com.datacentric.timesense.utils.SecurityUtils;
+import com.datacentric.timesense.utils.StripedLocks;
 import com.datacentric.timesense.utils.i18n.MessagesCodes;
 import com.datacentric.timesense.utils.security.UserSecurityCache;
 import com.datacentric.timesense.utils.security.UserSecurityData;
+import com.datacentric.utils.CollectionUtils;
 
 @Service
 public class UserUtils {
@@ -30,6 +38,7 @@ public class UserUtils {
     private static final String DEFAULT_ADMIN_USERS = "server.initial.admin.allowed-users";
 
     private static final Double DEFAULT_VACATION_DAYS = 23.0;
+    private static final int PROVISIONING_LOCK_STRIPES = 64;
 
     Logger logger = LoggerFactory.getLogger(UserUtils.class);
 
@@ -39,18 +48,23 @@ public class UserUtils {
     private SecurityUtils securityUtils;
     private UserSecurityCache userSecurityCache;
     private SystemSettingRepository systemSettingRepository;
+    private TransactionTemplate transactionTemplate;
+
+    private StripedLocks provisioningLocks = new StripedLocks(PROVISIONING_LOCK_STRIPES);
 
     @Autowired
     public UserUtils(Environment env, UserRepository userRepository,
             UserRoleRepository roleRepository, SecurityUtils securityUtils,
             UserSecurityCache userSecurityCache,
-            SystemSettingRepository systemSettingRepository) {
+            SystemSettingRepository systemSettingRepository,
+            PlatformTransactionManager transactionManager) {
         this.env = env;
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.securityUtils = securityUtils;
         this.userSecurityCache = userSecurityCache;
         this.systemSettingRepository = systemSettingRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
@@ -77,9 +91,7 @@ public class UserUtils {
 
             // re-check the userGroups that came from the jwt to catch differences
             try {
-                User user = userRepository.findById(userData.getId()).get();
-                securityUtils.updateUserGroups(user, userGroups);
-
+                return synchronizeUserGroups(userEmail, userData, userGroups);
             } catch (Exception e) {
                 logger.error("Error updating user groups", e);
             }
@@ -91,7 +103,48 @@ public class UserUtils {
         return createUser(userName, userEmail, userGroups);
     }
 
-    private synchronized UserSecurityData createUser(String userName, String userEmail,
+    /*
+     * The groups claim only changes when a new token is issued, so the groups are only
+     * synchronized when its fingerprint changes. The user is only loaded from the database
+     * when the claim differs from the groups synchronized before.
+     */
+    private UserSecurityData synchronizeUserGroups(String userEmail, UserSecurityData userData,
+            List<String> userGroups) {
+        String fingerprint = UserSecurityCache.getGroupsFingerprint(userGroups);
+        if (userSecurityCache.isGroupsClaimSynchronized(userEmail, fingerprint)) {
+            return userData;
+        }
+
+        Set<String> groupTokenIds = userSecurityCache.getSynchronizedGroupTokenIds(userEmail);
+        if (groupTokenIds == null || userGroups == null
+                || !groupTokenIds.equals(new HashSet<>(userGroups))) {
+            User user = userRepository.findById(userData.getId()).get();
+            if (securityUtils.updateUserGroups(user, userGroups)) {
+                // The user groups changed, so the cached security data is stale
+                userSecurityCache.invalidateUser(userEmail);
+                userData = userSecurityCache.getOrLoad(userEmail);
+            }
+            groupTokenIds = CollectionUtils.nullSafeList(user.getUserGroups()).stream()
+                    .map(UserGroup::getTokenId)
+                    .filter(tokenId -> tokenId != null)
+                    .collect(Collectors.toSet());
+        }
+        userSecurityCache.markGroupsClaimSynchronized(userEmail, fingerprint, groupTokenIds);
+        return userData;
+    }
+
+    /*
+     * Users are provisioned holding a lock on their email only, so the first logins of
+     * different users do not wait for each other. The unique email index covers the logins
+     * of the same user served by other instances.
+     */
+    private UserSecurityData createUser(String userName, String userEmail,
+            List<String> userGroups) {
+        return provisioningLocks.withLock(userEmail,
+                () -> provisionUser(userName, userEmail, userGroups));
+    }
+
+    private UserSecurityData provisionUser(String userName, String userEmail,
             List<String> userGroups) {
 
         // Just in case it has already been created in a different thread while
@@ -103,9 +156,8 @@ public class UserUtils {
 
         // if user does not exist create new one
         logger.info("Creating user with name: {} and email: {}", userName, userEmail);
-        User createUser = new User();
-        createUser.setName(userName);
-        createUser.setEmail(userEmail);
+        Double prevYearVacationDays;
+        Double currentYearVacationDays;
 
         // Only set the vacation days on user creation if the system setting
         // is enabled, otherwise leave them null
@@ -118,17 +170,41 @@ public class UserUtils {
 
             if (vacsDaysSetting != null) {
                 Double vacationDays = Double.valueOf(vacsDaysSetting.getValue());
-                createUser.setPrevYearVacationDays(vacationDays);
-                createUser.setCurrentYearVacationDays(vacationDays);
+                prevYearVacationDays = vacationDays;
+                currentYearVacationDays = vacationDays;
             } else {
-                createUser.setPrevYearVacationDays(DEFAULT_VACATION_DAYS);
-                createUser.setCurrentYearVacationDays(DEFAULT_VACATION_DAYS);
+                prevYearVacationDays = DEFAULT_VACATION_DAYS;
+                currentYearVacationDays = DEFAULT_VACATION_DAYS;
             }
         } else {
-            createUser.setPrevYearVacationDays(0.0);
-            createUser.setCurrentYearVacationDays(0.0);
+            prevYearVacationDays = 0.0;
+            currentYearVacationDays = 0.0;
         }
 
+        try {
+            // The user is inserted and completed in the same transaction so other requests
+            // never load it without its roles
+            transactionTemplate.executeWithoutResult(status -> {
+                int inserted = userRepository.insertUserIfAbsent(userName, userEmail,
+                        currentYearVacationDays, prevYearVacationDays);
+                if (inserted == 0) {
+                    // Created meanwhile by another instance
+                    return;
+                }
+                completeNewUser(userRepository.findByEmail(userEmail).get(), userGroups);
+            });
+
+            // Now that we created the user, we can load it from the database
+            return userSecurityCache.getOrLoad(userEmail);
+        } catch (Exception e) {
+            logger.error("Error creating user", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    MessagesCodes.USER_CREATED_ERROR);
+        }
+    }
+
+    private void completeNewUser(User createUser, List<String> userGroups) {
+        String userEmail = createUser.getEmail();
         if (userEmail.matches(env.getProperty(DEFAULT_ADMIN_USERS, ""))) {
             UserRole adminRole = roleRepository.findByName("Admin");
             List<UserRole> roles = new ArrayList<>();
@@ -142,16 +218,7 @@ public class UserUtils {
             createUser.setUserRoles(defaultUserRole);
         }
 
-        try {
-            securityUtils.updateUserGroups(createUser, userGroups);
-            userRepository.save(createUser);
-
-            // Now that we created the user, we can load it from the database
-            return userSecurityCache.getOrLoad(userEmail);
-        } catch (Exception e) {
-            logger.error("Error creating user", e);
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
-                    MessagesCodes.USER_CREATED_ERROR);
-        }
+        securityUtils.updateUserGroups(createUser, userGroups);
+        userRepository.save(createUser);
     }
 }
@@ -0,0 +1,177 @@
+package com.datacentric.timesense.utils.security;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import com.datacentric.security.GroupMetadataProvider;
+import com.datacentric.security.UserGroupData;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * The group metadata cache keeps the metadata of the groups downloaded from the
+ * directory service, so the token groups can be synchronized without calling the
+ * directory service for every group on every request.
+ *
+ * Stale entries are still returned and refreshed in the background, only groups never
+ * seen before are loaded while the caller waits. Concurrent loads of the same group
+ * share a single call to the directory service.
+ */
+@Service
+public class GroupMetadataCache {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupMetadataCache.class);
+
+    private static final long DEFAULT_CACHE_LIFETIME_MILLIS = 3_600_000L;
+    private static final int DEFAULT_LOADER_THREADS = 4;
+
+    private Environment env;
+    private GroupMetadataProvider groupMetadataProvider;
+
+    private long cacheTimeToLive = DEFAULT_CACHE_LIFETIME_MILLIS;
+    private ExecutorService loader;
+
+    private ConcurrentHashMap<String, CachedGroup> groupCache = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, CompletableFuture<UserGroupData>> loadsInFlight =
+            new ConcurrentHashMap<>();
+
+    @Autowired
+    public GroupMetadataCache(Environment env, GroupMetadataProvider groupMetadataProvider) {
+        this.env = env;
+        this.groupMetadataProvider = groupMetadataProvider;
+    }
+
+    @PostConstruct
+    public void init() {
+        String cacheTimeToLiveStr = env.getProperty("server.security.group-cache.time-to-live");
+        if (cacheTimeToLiveStr != null) {
+            cacheTimeToLive = Long.parseLong(cacheTimeToLiveStr);
+        }
+        int threads = env.getProperty("server.security.group-cache.loader-threads",
+                Integer.class, DEFAULT_LOADER_THREADS);
+        loader = Executors.newFixedThreadPool(threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * Get the metadata of a group, loading it from the directory service if it was never
+     * loaded before.
+     *
+     * @param tokenId
+     *                Id of the group in the access token
+     */
+    public UserGroupData getUserGroup(String tokenId) {
+        return getUserGroups(List.of(tokenId)).get(tokenId);
+    }
+
+    /**
+     * Get the metadata of the given groups. The groups missing from the cache are loaded
+     * in parallel and the stale ones are refreshed in the background.
+     *
+     * @param tokenIds
+     *                 Ids of the groups in the access token
+     * @return the metadata of the groups by token id, groups unknown to the directory
+     *         service are left out
+     */
+    public Map<String, UserGroupData> getUserGroups(Collection<String> tokenIds) {
+        Map<String, UserGroupData> groups = new HashMap<>();
+        Map<String, CompletableFuture<UserGroupData>> pendingLoads = new HashMap<>();
+        long now = System.currentTimeMillis();
+
+        for (String tokenId : new LinkedHashSet<>(tokenIds)) {
+            CachedGroup cached = groupCache.get(tokenId);
+            if (cached == null) {
+                pendingLoads.put(tokenId, load(tokenId));
+                continue;
+            }
+            if (now - cached.loadedTimestamp >= cacheTimeToLive) {
+                load(tokenId);
+            }
+            groups.put(tokenId, cached.group);
+        }
+
+        for (Map.Entry<String, CompletableFuture<UserGroupData>> load
+                : pendingLoads.entrySet()) {
+            try {
+                UserGroupData group = load.getValue().join();
+                if (group != null) {
+                    groups.put(load.getKey(), group);
+                }
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return groups;
+    }
+
+    public void invalidateUserGroup(String tokenId) {
+        groupCache.remove(tokenId);
+    }
+
+    public void invalidateAllUserGroups() {
+        groupCache.clear();
+    }
+
+    /*
+     * Starts loading the group unless it is already being loaded, in which case the load in
+     * progress is shared.
+     */
+    private CompletableFuture<UserGroupData> load(String tokenId) {
+        return loadsInFlight.computeIfAbsent(tokenId,
+                id -> CompletableFuture.supplyAsync(() -> fetch(id), loader));
+    }
+
+    private UserGroupData fetch(String tokenId) {
+        try {
+            UserGroupData group = groupMetadataProvider.getUserGroup(tokenId);
+            if (group != null) {
+                groupCache.put(tokenId, new CachedGroup(group));
+            }
+            return group;
+        } catch (RuntimeException e) {
+            // Keep serving the previous metadata when a refresh fails, and wait for another
+            // time to live before trying again
+            CachedGroup previous = groupCache.get(tokenId);
+            if (previous != null) {
+                log.warn("Failed to refresh the metadata of group {}", tokenId, e);
+                groupCache.put(tokenId, new CachedGroup(previous.group));
+                return previous.group;
+            }
+            throw e;
+        } finally {
+            loadsInFlight.remove(tokenId);
+        }
+    }
+
+    private static final class CachedGroup {
+
+        private final UserGroupData group;
+        private final long loadedTimestamp = System.currentTimeMillis();
+
+        private CachedGroup(UserGroupData group) {
+            this.group = group;
+        }
+    }
+}
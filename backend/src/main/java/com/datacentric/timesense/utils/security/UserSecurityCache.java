@@ -1,6 +1,10 @@
 package com.datacentric.timesense.utils.security;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -38,6 +42,7 @@ public class UserSecurityCache {
 
     private ConcurrentHashMap<String, UserSecurityData> userCache = new ConcurrentHashMap<>();
     private ConcurrentHashMap<Long, List<Long>> rolesPerUserGroup = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, GroupsClaim> groupsClaimPerUser = new ConcurrentHashMap<>();
 
     @Autowired
     public UserSecurityCache(Environment env, UserRepository userRepository,
@@ -97,10 +102,70 @@ public class UserSecurityCache {
 
     public void invalidateUser(String userEmail) {
         userCache.remove(userEmail);
+        groupsClaimPerUser.remove(userEmail);
     }
 
     public void invalidateAllUsers() {
         userCache.clear();
+        groupsClaimPerUser.clear();
+    }
+
+    /**
+     * Checks if the groups claim with the given fingerprint was already synchronized with
+     * the database for the user.
+     */
+    public boolean isGroupsClaimSynchronized(String userEmail, String fingerprint) {
+        GroupsClaim claim = getGroupsClaim(userEmail);
+        return claim != null && claim.fingerprint.equals(fingerprint);
+    }
+
+    /**
+     * Returns the token ids of the user groups after the last synchronization, or null
+     * if the groups of the user were not synchronized yet.
+     */
+    public Set<String> getSynchronizedGroupTokenIds(String userEmail) {
+        GroupsClaim claim = getGroupsClaim(userEmail);
+        return claim != null ? claim.groupTokenIds : null;
+    }
+
+    public void markGroupsClaimSynchronized(String userEmail, String fingerprint,
+            Set<String> groupTokenIds) {
+        groupsClaimPerUser.put(userEmail, new GroupsClaim(fingerprint, groupTokenIds));
+    }
+
+    /**
+     * Computes the fingerprint of the groups claim of an access token. The order of the
+     * groups in the claim does not change the fingerprint.
+     */
+    public static String getGroupsFingerprint(List<String> userGroups) {
+        if (userGroups == null) {
+            return "";
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String group : new TreeSet<>(userGroups)) {
+                digest.update(group.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * The claim synchronized last for the user, forgotten after the time to live of the
+     * users so the groups changed in the database are synchronized again
+     */
+    private GroupsClaim getGroupsClaim(String userEmail) {
+        GroupsClaim claim = groupsClaimPerUser.get(userEmail);
+        if (claim != null
+                && System.currentTimeMillis() - claim.loadedTimestamp >= cacheTimeToLive) {
+            groupsClaimPerUser.remove(userEmail, claim);
+            return null;
+        }
+        return claim;
     }
 
     public void invalidateUserGroup(long userGroupId) {
@@ -127,4 +192,15 @@ public class UserSecurityCache {
         return roles;
     }
 
+    private static final class GroupsClaim {
+
+        private final String fingerprint;
+        private final Set<String> groupTokenIds;
+        private final long loadedTimestamp = System.currentTimeMillis();
+
+        private GroupsClaim(String fingerprint, Set<String> groupTokenIds) {
+            this.fingerprint = fingerprint;
+            this.groupTokenIds = Set.copyOf(groupTokenIds);
+        }
+    }
 }
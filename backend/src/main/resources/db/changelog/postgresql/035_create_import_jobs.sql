@@ -0,0 +1,35 @@
+--liquibase formatted sql
+--changeset luis.passos:1.0.0.35 dbms:postgresql
+
+CREATE TABLE IF NOT EXISTS import_jobs (
+    id SERIAL,
+    import_type VARCHAR(20),
+    file_name VARCHAR(255),
+    storage_object_id VARCHAR(100),
+    state VARCHAR(20),
+    checkpoint_row BIGINT DEFAULT 0,
+    rows_read BIGINT DEFAULT 0,
+    rows_imported BIGINT DEFAULT 0,
+    rows_skipped BIGINT DEFAULT 0,
+    error_count BIGINT DEFAULT 0,
+    errors TEXT,
+    failure_reason VARCHAR(255),
+    started_at TIMESTAMP WITH TIME ZONE,
+    finished_at TIMESTAMP WITH TIME ZONE,
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    created_by BIGINT,
+    updated_by BIGINT
+);
+
+ALTER TABLE import_jobs ADD CONSTRAINT import_jobs_pk PRIMARY KEY (id);
+
+ALTER TABLE import_jobs ADD CONSTRAINT import_jobs_created_by_fk
+    FOREIGN KEY (created_by) REFERENCES users (id);
+
+ALTER TABLE import_jobs ADD CONSTRAINT import_jobs_updated_by_fk
+    FOREIGN KEY (updated_by) REFERENCES users (id);
+
+-- Used on startup to resume the interrupted jobs
+CREATE INDEX IF NOT EXISTS import_jobs_state_idx
+    ON import_jobs (state);
@@ -0,0 +1,10 @@
+--liquibase formatted sql
+--changeset luis.passos:1.0.0.36 dbms:postgresql
+
+-- Users and groups are created on the first login with INSERT ... ON CONFLICT DO NOTHING,
+-- so concurrent logins rely on these indexes to never create duplicates
+CREATE UNIQUE INDEX IF NOT EXISTS users_email_uk
+    ON users (email) WHERE deleted = false;
+
+CREATE UNIQUE INDEX IF NOT EXISTS user_groups_token_id_uk
+    ON user_groups (token_id) WHERE token_id IS NOT NULL AND deleted = false;
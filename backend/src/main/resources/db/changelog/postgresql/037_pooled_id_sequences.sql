@@ -0,0 +1,15 @@
+--liquibase formatted sql
+--changeset luis.passos:1.0.0.37 dbms:postgresql
+
+-- The entities written in bulk reserve blocks of 50 ids per call to their sequence, so
+-- Hibernate can batch the inserts (see IdGenerators.ALLOCATION_SIZE). Every value returned
+-- by the sequence is the last id of a new block, so the ids already in use and the ones
+-- taken by the column defaults never overlap with a block
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE projects_id_seq INCREMENT BY 50;
+ALTER SEQUENCE project_assignments_id_seq INCREMENT BY 50;
+ALTER SEQUENCE time_records_id_seq INCREMENT BY 50;
+ALTER SEQUENCE absences_id_seq INCREMENT BY 50;
+ALTER SEQUENCE absence_attachments_id_seq INCREMENT BY 50;
+ALTER SEQUENCE holidays_id_seq INCREMENT BY 50;
+ALTER SEQUENCE resource_permissions_id_seq INCREMENT BY 50;
@@ -0,0 +1,23 @@
+--liquibase formatted sql
+--changeset luis.passos:1.0.0.38 dbms:postgresql
+
+-- Approver of each time record, kept in step by the application (see TimeRecord): the line
+-- manager of the user on projects of line manager types, the project manager otherwise
+ALTER TABLE time_records ADD COLUMN approver_user_id BIGINT;
+ALTER TABLE time_records ADD COLUMN approval_kind VARCHAR(20);
+ALTER TABLE time_records ADD CONSTRAINT time_records_approver_user_id_fk
+    FOREIGN KEY (approver_user_id) REFERENCES users (id);
+
+UPDATE time_records t
+SET approver_user_id = CASE WHEN pt.line_manager AND u.line_manager IS NOT NULL
+                            THEN u.line_manager ELSE p.manager END,
+    approval_kind = CASE WHEN pt.line_manager AND u.line_manager IS NOT NULL
+                         THEN 'LINE_MANAGER' ELSE 'PROJECT_MANAGER' END
+FROM users u, projects p
+LEFT JOIN project_types pt ON pt.id = p.type_id
+WHERE u.id = t.user_id AND p.id = t.project_id;
+
+-- Approval inbox: the records of one approver in one status is a single range scan
+CREATE INDEX IF NOT EXISTS idx_time_records_approver_status
+    ON time_records (approver_user_id, status_id, start_date)
+    WHERE deleted = false;
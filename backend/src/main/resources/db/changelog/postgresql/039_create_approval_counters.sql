@@ -0,0 +1,39 @@
+--liquibase formatted sql
+--changeset luis.passos:1.0.0.39 dbms:postgresql
+
+-- Pending approvals per approver. Every write appends the change it made to the count
+-- (+1, -1, ...) and the nightly rebuild replaces the rows of each approver by their current
+-- count, so the writers never update the same row
+CREATE TABLE IF NOT EXISTS approval_counters (
+    id BIGINT NOT NULL,
+    approver_user_id BIGINT NOT NULL,
+    item_type VARCHAR(20) NOT NULL,
+    delta BIGINT NOT NULL
+);
+
+CREATE SEQUENCE IF NOT EXISTS approval_counters_id_seq INCREMENT BY 50;
+
+ALTER TABLE approval_counters ADD CONSTRAINT approval_counters_pk PRIMARY KEY (id);
+
+ALTER TABLE approval_counters ADD CONSTRAINT approval_counters_approver_user_id_fk
+    FOREIGN KEY (approver_user_id) REFERENCES users (id);
+
+CREATE INDEX IF NOT EXISTS idx_approval_counters_approver
+    ON approval_counters (approver_user_id, item_type);
+
+INSERT INTO approval_counters (id, approver_user_id, item_type, delta)
+SELECT nextval('approval_counters_id_seq'), pending.approver_user_id, pending.item_type,
+       pending.total
+FROM (
+    SELECT t.approver_user_id, 'TIME_RECORD' AS item_type, COUNT(*) AS total
+    FROM time_records t
+    JOIN status s ON s.id = t.status_id
+    WHERE s.name = 'PENDING' AND t.deleted = false AND t.approver_user_id IS NOT NULL
+    GROUP BY t.approver_user_id
+    UNION ALL
+    SELECT a.approver, 'ABSENCE', COUNT(*)
+    FROM absences a
+    JOIN status s ON s.id = a.status_id
+    WHERE s.name = 'PENDING' AND a.deleted = false AND a.approver IS NOT NULL
+    GROUP BY a.approver
+) pending;
@@ -0,0 +1,66 @@
+--liquibase formatted sql
+--changeset luis.passos:1.0.0.40 dbms:postgresql splitStatements:false
+
+-- Periods of the absences as ranges with both dates included. The lookups by date use the
+-- && and @> operators over the same expression (see PeriodFunctions), so they are answered
+-- by the GiST index instead of the btree on (start_date, end_date), which can only bound
+-- one of the two dates
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- The range of an absence ending before it starts can not be built. Those rows have to be
+-- fixed by hand, the migration stops until then
+DO $$
+DECLARE
+    reversed BIGINT;
+BEGIN
+    SELECT COUNT(*) INTO reversed
+    FROM absences
+    WHERE end_date < start_date;
+
+    IF reversed > 0 THEN
+        RAISE EXCEPTION '% absences end before they start, fix their dates and run the '
+            'migration again', reversed;
+    END IF;
+END $$;
+
+ALTER TABLE absences ADD CONSTRAINT absences_period_check CHECK (end_date >= start_date);
+
+CREATE INDEX IF NOT EXISTS idx_absences_period
+ON absences USING gist (tstzrange(start_date, end_date, '[]'))
+WHERE deleted = false;
+
+-- A user can not have two approved full day absences on the same days. The hourly absences
+-- may share a day. The overlapping absences have to be fixed by hand, the migration stops
+-- until then
+DO $$
+DECLARE
+    approved_ids BIGINT[];
+    overlapping BIGINT;
+BEGIN
+    SELECT array_agg(id) INTO approved_ids
+    FROM status
+    WHERE name IN ('APPROVED', 'DONE');
+
+    IF approved_ids IS NULL THEN
+        RAISE EXCEPTION 'No approved status, absences_approved_no_overlap can not be created';
+    END IF;
+
+    SELECT COUNT(*) INTO overlapping
+    FROM absences a
+    JOIN absences b ON b.user_id = a.user_id AND b.id > a.id
+    WHERE a.deleted = false AND b.deleted = false
+        AND a.record_type = 'Day' AND b.record_type = 'Day'
+        AND a.status_id = ANY (approved_ids) AND b.status_id = ANY (approved_ids)
+        AND tstzrange(a.start_date, a.end_date, '[]')
+            && tstzrange(b.start_date, b.end_date, '[]');
+
+    IF overlapping > 0 THEN
+        RAISE EXCEPTION '% pairs of approved absences overlap, fix them and run the '
+            'migration again', overlapping;
+    END IF;
+
+    EXECUTE format('ALTER TABLE absences ADD CONSTRAINT absences_approved_no_overlap '
+        'EXCLUDE USING gist (user_id WITH =, tstzrange(start_date, end_date, ''[]'') WITH &&) '
+        'WHERE (deleted = false AND record_type = ''Day'' AND status_id IN (%s))',
+        array_to_string(approved_ids, ', '));
+END $$;
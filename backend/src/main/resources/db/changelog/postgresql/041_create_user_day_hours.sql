@@ -0,0 +1,33 @@
+--liquibase formatted sql
+--changeset luis.passos:1.0.0.41 dbms:postgresql
+
+-- Hours recorded by each user per day (in Europe/Lisbon), kept by the time record writes to
+-- check the daily limit without adding up the records of the day
+CREATE TABLE IF NOT EXISTS user_day_hours (
+    id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    work_day DATE NOT NULL,
+    hours DOUBLE PRECISION NOT NULL
+);
+
+CREATE SEQUENCE IF NOT EXISTS user_day_hours_id_seq INCREMENT BY 50;
+
+ALTER TABLE user_day_hours ADD CONSTRAINT user_day_hours_pk PRIMARY KEY (id);
+
+ALTER TABLE user_day_hours ADD CONSTRAINT user_day_hours_user_id_fk
+    FOREIGN KEY (user_id) REFERENCES users (id);
+
+ALTER TABLE user_day_hours ADD CONSTRAINT user_day_hours_user_day_uk
+    UNIQUE (user_id, work_day);
+
+INSERT INTO user_day_hours (id, user_id, work_day, hours)
+SELECT nextval('user_day_hours_id_seq'), d.user_id, d.work_day, d.hours
+FROM (
+    SELECT user_id, CAST(start_date AT TIME ZONE 'Europe/Lisbon' AS DATE) AS work_day,
+        SUM(hours) AS hours
+    FROM time_records
+    WHERE deleted = false
+        AND user_id IS NOT NULL
+        AND start_date IS NOT NULL
+    GROUP BY user_id, CAST(start_date AT TIME ZONE 'Europe/Lisbon' AS DATE)
+) d;
@@ -0,0 +1,46 @@
+--liquibase formatted sql
+--changeset luis.passos:1.0.0.42 dbms:postgresql
+
+-- Closure of the line manager hierarchy, one row per manager and user below them at any
+-- depth (1 for direct reports), kept by the user writes that change the line manager
+CREATE TABLE IF NOT EXISTS user_hierarchy (
+    id BIGINT NOT NULL,
+    ancestor_id BIGINT NOT NULL,
+    descendant_id BIGINT NOT NULL,
+    depth INTEGER NOT NULL
+);
+
+CREATE SEQUENCE IF NOT EXISTS user_hierarchy_id_seq INCREMENT BY 50;
+
+ALTER TABLE user_hierarchy ADD CONSTRAINT user_hierarchy_pk PRIMARY KEY (id);
+
+ALTER TABLE user_hierarchy ADD CONSTRAINT user_hierarchy_ancestor_id_fk
+    FOREIGN KEY (ancestor_id) REFERENCES users (id);
+
+ALTER TABLE user_hierarchy ADD CONSTRAINT user_hierarchy_descendant_id_fk
+    FOREIGN KEY (descendant_id) REFERENCES users (id);
+
+-- Also serves the team lookups, which filter by ancestor and depth
+ALTER TABLE user_hierarchy ADD CONSTRAINT user_hierarchy_ancestor_descendant_uk
+    UNIQUE (ancestor_id, descendant_id);
+
+CREATE INDEX IF NOT EXISTS idx_user_hierarchy_descendant
+    ON user_hierarchy (descendant_id);
+
+-- Walks up from every user, stopping when a manager repeats so a cycle in the existing
+-- data cannot make the walk endless
+INSERT INTO user_hierarchy (id, ancestor_id, descendant_id, depth)
+WITH RECURSIVE chain (descendant_id, ancestor_id, depth, path) AS (
+    SELECT u.id, u.line_manager, 1, ARRAY[u.id, u.line_manager]
+    FROM users u
+    WHERE u.line_manager IS NOT NULL
+        AND u.line_manager <> u.id
+    UNION ALL
+    SELECT c.descendant_id, m.line_manager, c.depth + 1, c.path || m.line_manager
+    FROM chain c
+    JOIN users m ON m.id = c.ancestor_id
+    WHERE m.line_manager IS NOT NULL
+        AND NOT m.line_manager = ANY(c.path)
+)
+SELECT nextval('user_hierarchy_id_seq'), c.ancestor_id, c.descendant_id, c.depth
+FROM chain c;
@@ -0,0 +1,30 @@
+--liquibase formatted sql
+--changeset luis.passos:1.0.0.43 dbms:postgresql
+
+-- Append only ledger of the vacation balances, one row per change of the balance of a user
+-- for a business year
+CREATE TABLE IF NOT EXISTS vacation_balance_events (
+    id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    business_year VARCHAR(255) NOT NULL,
+    days DOUBLE PRECISION NOT NULL,
+    reason VARCHAR(255) NOT NULL,
+    absence_id BIGINT,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE SEQUENCE IF NOT EXISTS vacation_balance_events_id_seq INCREMENT BY 50;
+
+ALTER TABLE vacation_balance_events ADD CONSTRAINT vacation_balance_events_pk
+    PRIMARY KEY (id);
+
+ALTER TABLE vacation_balance_events ADD CONSTRAINT vacation_balance_events_user_id_fk
+    FOREIGN KEY (user_id) REFERENCES users (id);
+
+-- The events after the snapshot of a user are summed from the index alone
+CREATE INDEX IF NOT EXISTS idx_vacation_balance_events_user
+    ON vacation_balance_events (user_id, id) INCLUDE (business_year, days);
+
+-- The balances in the users row become the snapshot of the ledger, with every event after
+-- the one recorded here still to be added to them
+ALTER TABLE users ADD COLUMN IF NOT EXISTS vacation_balance_event_id BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,53 @@
+--liquibase formatted sql
+--changeset luis.passos:1.0.0.44 dbms:postgresql
+
+-- Rates of the job titles from a date on, the cost of a time record is its hours times the
+-- rate of the job title of its user on the day of the record
+CREATE TABLE IF NOT EXISTS job_title_rate_history (
+    id BIGINT NOT NULL,
+    job_title_id BIGINT NOT NULL,
+    rate DOUBLE PRECISION,
+    effective_from DATE NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    recalculated_at TIMESTAMP
+);
+
+CREATE SEQUENCE IF NOT EXISTS job_title_rate_history_id_seq INCREMENT BY 50;
+
+ALTER TABLE job_title_rate_history ADD CONSTRAINT job_title_rate_history_pk
+    PRIMARY KEY (id);
+
+ALTER TABLE job_title_rate_history ADD CONSTRAINT job_title_rate_history_job_title_id_fk
+    FOREIGN KEY (job_title_id) REFERENCES job_titles (id);
+
+CREATE INDEX IF NOT EXISTS idx_job_title_rate_history_job_title
+    ON job_title_rate_history (job_title_id, effective_from);
+
+-- The rates whose records are still to be recalculated, looked up by the recalculation job
+CREATE INDEX IF NOT EXISTS idx_job_title_rate_history_pending
+    ON job_title_rate_history (id) WHERE recalculated_at IS NULL;
+
+-- The current rates apply since always, the records written so far were costed with them
+INSERT INTO job_title_rate_history (id, job_title_id, rate, effective_from, recalculated_at)
+SELECT nextval('job_title_rate_history_id_seq'), j.id, j.rate, DATE '1970-01-01',
+    CURRENT_TIMESTAMP
+FROM job_titles j;
+
+ALTER TABLE time_records ADD COLUMN IF NOT EXISTS cost DOUBLE PRECISION;
+
+-- The job title the cost of a record was taken from, a rate change recalculates the records
+-- written with it whatever the current job title of their users
+ALTER TABLE time_records ADD COLUMN IF NOT EXISTS job_title_id BIGINT;
+
+ALTER TABLE time_records ADD CONSTRAINT time_records_job_title_id_fk
+    FOREIGN KEY (job_title_id) REFERENCES job_titles (id);
+
+UPDATE time_records t
+SET cost = t.hours * j.rate,
+    job_title_id = j.id
+FROM users u
+JOIN job_titles j ON j.id = u.job_title
+WHERE u.id = t.user_id;
+
+CREATE INDEX IF NOT EXISTS idx_time_records_job_title
+    ON time_records (job_title_id, start_date) WHERE deleted = false;
@@ -0,0 +1,41 @@
+--liquibase formatted sql
+--changeset luis.passos:1.0.0.45 dbms:postgresql
+
+-- Last time each user recorded time on each project, kept by the time record writes so the
+-- last used projects of the timesheet are read from the index on (user_id, last_used_at)
+CREATE TABLE IF NOT EXISTS user_recent_projects (
+    id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    project_id BIGINT NOT NULL,
+    last_used_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE SEQUENCE IF NOT EXISTS user_recent_projects_id_seq INCREMENT BY 50;
+
+ALTER TABLE user_recent_projects ADD CONSTRAINT user_recent_projects_pk PRIMARY KEY (id);
+
+ALTER TABLE user_recent_projects ADD CONSTRAINT user_recent_projects_user_id_fk
+    FOREIGN KEY (user_id) REFERENCES users (id);
+
+ALTER TABLE user_recent_projects ADD CONSTRAINT user_recent_projects_project_id_fk
+    FOREIGN KEY (project_id) REFERENCES projects (id);
+
+ALTER TABLE user_recent_projects ADD CONSTRAINT user_recent_projects_user_project_uk
+    UNIQUE (user_id, project_id);
+
+CREATE INDEX IF NOT EXISTS idx_user_recent_projects_user_last_used
+ON user_recent_projects (user_id, last_used_at DESC);
+
+-- The projects used in the last two weeks, as read by the previous query
+INSERT INTO user_recent_projects (id, user_id, project_id, last_used_at)
+SELECT nextval('user_recent_projects_id_seq'), r.user_id, r.project_id, r.last_used_at
+FROM (
+    SELECT user_id, project_id, GREATEST(MAX(created_at), MAX(updated_at)) AS last_used_at
+    FROM time_records
+    WHERE deleted = false
+        AND user_id IS NOT NULL
+        AND project_id IS NOT NULL
+        AND (created_at >= CURRENT_TIMESTAMP - INTERVAL '2 weeks'
+            OR updated_at >= CURRENT_TIMESTAMP - INTERVAL '2 weeks')
+    GROUP BY user_id, project_id
+) r;
@@ -0,0 +1,36 @@
+--liquibase formatted sql
+--changeset luis.passos:1.0.0.46 dbms:postgresql
+
+-- Rows moved out of the hot tables by the archive job (see Archives): the soft deleted time
+-- records, absences and project assignments, and the time records of the projects finished
+-- long ago. The archive tables have the columns of their hot table, rows are moved both ways
+-- with the column lists of Archives, so a column added to a hot table must be added to its
+-- archive table and to the list too. No foreign keys, the archived rows keep the ids they
+-- referenced
+CREATE TABLE IF NOT EXISTS time_records_archive (LIKE time_records);
+
+ALTER TABLE time_records_archive ADD CONSTRAINT time_records_archive_pk PRIMARY KEY (id);
+
+CREATE INDEX IF NOT EXISTS idx_time_records_archive_user
+ON time_records_archive (user_id, start_date);
+
+CREATE INDEX IF NOT EXISTS idx_time_records_archive_project
+ON time_records_archive (project_id, start_date);
+
+CREATE TABLE IF NOT EXISTS absences_archive (LIKE absences);
+
+ALTER TABLE absences_archive ADD CONSTRAINT absences_archive_pk PRIMARY KEY (id);
+
+CREATE INDEX IF NOT EXISTS idx_absences_archive_user
+ON absences_archive (user_id, start_date);
+
+CREATE TABLE IF NOT EXISTS project_assignments_archive (LIKE project_assignments);
+
+ALTER TABLE project_assignments_archive ADD CONSTRAINT project_assignments_archive_pk
+    PRIMARY KEY (id);
+
+CREATE INDEX IF NOT EXISTS idx_project_assignments_archive_user
+ON project_assignments_archive (user_id, start_date);
+
+CREATE INDEX IF NOT EXISTS idx_project_assignments_archive_project
+ON project_assignments_archive (project_id, start_date);
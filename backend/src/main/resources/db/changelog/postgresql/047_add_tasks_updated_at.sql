@@ -0,0 +1,6 @@
+--liquibase formatted sql
+--changeset luis.passos:1.0.0.47 dbms:postgresql
+
+-- Last change of each task, part of the version of the timesheet grids that show its name
+ALTER TABLE tasks ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP WITH TIME ZONE
+    DEFAULT CURRENT_TIMESTAMP;
@@ -277,6 +277,29 @@ class AbsenceControllerTests extends SecurityBaseClass {
                 .andExpect(jsonPath("$.data.status.name").value("PENDING"));
     }
 
+    @Test
+    @WithMockUser
+    void testUpdateAbsenceEndingBeforeStart() throws Exception {
+        absence.setType(absenceType);
+        absence.setSubType(absenceSubType);
+        absence.setUser(dummyUser);
+        absence.setRecordType("Day");
+        absence.setStartDate(Timestamp.valueOf("2025-12-13 00:00:00"));
+        absence.setEndDate(Timestamp.valueOf("2025-12-12 00:00:00"));
+        absence.setApprover(approver);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+        mockMvc.perform(put("/api/absences/" + absence.getId())
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(absence)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.messageCode").value(MessagesCodes.VALIDATION_FAILED));
+    }
+
     @Test
     @WithMockUser
     void testUpdateAbsenceByIdMissingVacationDays() throws Exception {
@@ -354,6 +377,8 @@ class AbsenceControllerTests extends SecurityBaseClass {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content.length()").value(2))
                 .andExpect(jsonPath("$.content[1].user.email").value("test@somewhere"))
+                // The balances of the snapshot are left out, they are not loaded here
+                .andExpect(jsonPath("$.content[1].user.currentYearVacationDays").doesNotExist())
                 .andExpect(jsonPath("$.content[1].name").value("test"))
                 .andExpect(jsonPath("$.content[1].type.name").value("VACATION"))
                 .andExpect(jsonPath("$.content[1].startDate").value("2025-12-23T00:00:00.000+00:00"))
@@ -0,0 +1,169 @@
+package com.datacentric.timesense;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.datacentric.timesense.model.AbsenceType;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.SystemSetting;
+import com.datacentric.timesense.model.SystemSettings;
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.repository.AbsenceTypeRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.SystemSettingRepository;
+import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.imports.AbsenceImportEngine;
+import com.datacentric.timesense.utils.imports.ImportResult;
+import com.datacentric.timesense.utils.security.UserSecurityData;
+
+/**
+ * The vacations import in chunks of two rows and the balance deltas it records. Runs on its
+ * own database in PostgreSQL mode, so the chunks of the import jobs are really committed.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:absenceImportDB;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;"
+        + "NON_KEYWORDS=KEY,VALUE",
+    "server.import.chunk-size=2"})
+class AbsenceImportEngineTests {
+
+    // RUN is replaced by the run number, so each test has its own user. The user of row 2
+    // does not exist, rows 3 and 4 are invalid and row 6 has no business days.
+    private static final String CSV = """
+            userEmail,year,name,startDate,endDate,businessDays,status
+            vacRUN@email.com,2025,Vacation1,2025-03-03 00:00:00,2025-03-04 00:00:00,2,approved
+            nobody@email.com,2025,Vacation2,2025-03-10 00:00:00,2025-03-10 00:00:00,1,approved
+            vacRUN@email.com,2025,Vacation3,2025-04-07 00:00:00,2025-04-07 00:00:00,x,approved
+            vacRUN@email.com,2025,Vacation4,2025-04-14 00:00:00,2025-04-14 00:00:00,1,unknown
+            vacRUN@email.com,2024,Vacation5,2025-05-05 00:00:00,2025-05-07 00:00:00,3,approved
+            vacRUN@email.com,2025,Vacation6,2025-06-02 00:00:00,2025-06-02 00:00:00,,approved
+            """;
+
+    private static final List<String> ERRORS = List.of("Row 3: Invalid businessDays: x",
+            "Row 4: Status not found: unknown");
+
+    private static final String BALANCE_SQL = "SELECT SUM(days) FROM vacation_balance_events "
+            + "WHERE user_id = ? AND business_year = ? AND reason = 'IMPORT'";
+
+    private static int run;
+
+    @Autowired
+    private AbsenceImportEngine absenceImportEngine;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AbsenceTypeRepository absenceTypeRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private SystemSettingRepository systemSettingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private UserSecurityData owner;
+
+    @BeforeEach
+    public void setup() {
+        run++;
+        if (systemSettingRepository.findByName(SystemSettings.CURRENT_YEAR) == null) {
+            SystemSetting systemSetting = new SystemSetting();
+            systemSetting.setName(SystemSettings.CURRENT_YEAR);
+            systemSetting.setValue("2025");
+            systemSettingRepository.save(systemSetting);
+
+            AbsenceType absenceType = new AbsenceType();
+            absenceType.setName("VACATION");
+            absenceTypeRepository.save(absenceType);
+
+            Status status = new Status();
+            status.setName("APPROVED");
+            statusRepository.save(status);
+        }
+
+        user = new User();
+        user.setName("Imported Vacations");
+        user.setEmail("vac" + run + "@email.com");
+        user.setCurrentYearVacationDays(23.0);
+        user.setPrevYearVacationDays(5.0);
+        userRepository.save(user);
+        owner = new UserSecurityData(user.getId(), List.of(), List.of());
+    }
+
+    @Test
+    void testChunksImportTheValidRows() throws Exception {
+        List<Long> checkpoints = new ArrayList<>();
+        ImportResult result = absenceImportEngine.importAbsencesInChunks(csv(), owner,
+                new ImportResult(), 0, (committedRows, progress) -> checkpoints.add(committedRows));
+
+        assertEquals(List.of(2L, 4L, 6L), checkpoints);
+        assertEquals(6, result.getRowsRead());
+        assertEquals(2, result.getRowsImported());
+        assertEquals(2, result.getRowsSkipped());
+        assertEquals(ERRORS, result.getErrors());
+        assertEquals(List.of("Vacation1", "Vacation5"), absenceNames());
+        // Each vacation is taken from the balance of its business year
+        assertEquals(-2.0, balanceDelta("2025"));
+        assertEquals(-3.0, balanceDelta("2024"));
+    }
+
+    @Test
+    void testResumeSkipsTheCheckpointRows() throws Exception {
+        ImportResult result = absenceImportEngine.importAbsencesInChunks(csv(), owner,
+                new ImportResult(), 4, (committedRows, progress) -> { });
+
+        assertEquals(2, result.getRowsRead());
+        assertEquals(1, result.getRowsImported());
+        assertEquals(1, result.getRowsSkipped());
+        assertEquals(List.of(), result.getErrors());
+        assertEquals(List.of("Vacation5"), absenceNames());
+        assertNull(balanceDelta("2025"));
+        assertEquals(-3.0, balanceDelta("2024"));
+    }
+
+    @Test
+    void testErrorsRollBackTheWholeFile() throws Exception {
+        ImportResult result = absenceImportEngine.importAbsences(csv(), owner,
+                new ImportResult());
+
+        assertEquals(6, result.getRowsRead());
+        assertEquals(ERRORS, result.getErrors());
+        // Neither the absences of the first chunk nor any balance delta are written
+        assertEquals(List.of(), absenceNames());
+        assertNull(balanceDelta("2025"));
+        assertNull(balanceDelta("2024"));
+    }
+
+    private List<String> absenceNames() {
+        return jdbcTemplate.queryForList("SELECT name FROM absences WHERE user_id = ? "
+                + "ORDER BY name", String.class, user.getId());
+    }
+
+    private Double balanceDelta(String businessYear) {
+        return jdbcTemplate.queryForObject(BALANCE_SQL, Double.class, user.getId(),
+                businessYear);
+    }
+
+    private static InputStream csv() {
+        return new ByteArrayInputStream(CSV.replace("RUN", String.valueOf(run))
+                .getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,217 @@
+package com.datacentric.timesense;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.datacentric.timesense.model.Absence;
+import com.datacentric.timesense.model.AbsenceType;
+import com.datacentric.timesense.model.Client;
+import com.datacentric.timesense.model.Project;
+import com.datacentric.timesense.model.ProjectType;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.TimeRecord;
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.repository.AbsenceRepository;
+import com.datacentric.timesense.repository.AbsenceTypeRepository;
+import com.datacentric.timesense.repository.ClientRepository;
+import com.datacentric.timesense.repository.ProjectRepository;
+import com.datacentric.timesense.repository.ProjectTypeRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.TimeRecordRepository;
+import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.ApprovalCounters;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * The counters moved by the time record and absence writes. The time record writes go through
+ * the upsert of the daily hours ledger, so the class runs on PostgreSQL.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@Testcontainers(disabledWithoutDocker = true)
+class ApprovalCountersTests extends SecurityBaseClass {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = PostgresContainers.create();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApprovalCounters approvalCounters;
+
+    @Autowired
+    private TimeRecordRepository timeRecordRepository;
+
+    @Autowired
+    private AbsenceRepository absenceRepository;
+
+    @Autowired
+    private AbsenceTypeRepository absenceTypeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ProjectTypeRepository projectTypeRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    private User user;
+    private Project project;
+    private Status pendingStatus;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        PostgresContainers.register(registry, POSTGRES);
+    }
+
+    @BeforeEach
+    public void setup() {
+        user = new User();
+        user.setName("Some User");
+        user.setEmail("user@email.com");
+        user.setCurrentYearVacationDays(23.0);
+        user.setPrevYearVacationDays(23.0);
+        user.setBirthdate(LocalDate.of(2000, 1, 1));
+        userRepository.save(user);
+
+        pendingStatus = new Status();
+        pendingStatus.setName("PENDING");
+        statusRepository.save(pendingStatus);
+
+        Status approvedStatus = new Status();
+        approvedStatus.setName("APPROVED");
+        statusRepository.save(approvedStatus);
+
+        ProjectType projectType = new ProjectType();
+        projectType.setName("Type1");
+        projectTypeRepository.save(projectType);
+
+        Client client = new Client();
+        client.setName("Client1");
+        clientRepository.save(client);
+
+        project = new Project();
+        project.setName("Proj1");
+        project.setProjectType(projectType);
+        project.setManager(dummyUser);
+        project.setClient(client);
+        project.setStatus(approvedStatus);
+        project.setStartDate(Timestamp.valueOf("2025-01-01 00:00:00"));
+        projectRepository.save(project);
+
+        savePermission("Project", project.getId(),
+                Project.ProjectPermission.RECORD_TIME_PROJECTS.toString(), "user",
+                dummyUser.getId());
+    }
+
+    @Test
+    @WithMockUser
+    void testCountersFollowCreateAndDelete() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+        mockMvc.perform(post("/api/time-records")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newTimeRecord())))
+                .andExpect(status().isCreated());
+
+        expectSummary(1, 0);
+
+        Long id = timeRecordRepository.findAll().get(0).getId();
+        mockMvc.perform(delete("/api/time-records/" + id)
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted());
+
+        expectSummary(0, 0);
+    }
+
+    @Test
+    @WithMockUser
+    void testRebuildCountsTheRecordsWrittenAround() throws Exception {
+        // Saved with the repositories, so the counters do not know about them
+        timeRecordRepository.saveAll(List.of(newTimeRecord(), newTimeRecord()));
+
+        AbsenceType absenceType = new AbsenceType();
+        absenceType.setName("VACATION");
+        absenceTypeRepository.save(absenceType);
+
+        Absence absence = new Absence();
+        absence.setUser(user);
+        absence.setName("Vacation");
+        absence.setType(absenceType);
+        absence.setStatus(pendingStatus);
+        absence.setApprover(dummyUser);
+        absence.setStartDate(Timestamp.valueOf("2025-03-10 00:00:00"));
+        absence.setEndDate(Timestamp.valueOf("2025-03-11 00:00:00"));
+        absenceRepository.save(absence);
+
+        expectSummary(0, 0);
+
+        approvalCounters.rebuild();
+        expectSummary(2, 1);
+
+        // Rebuilding again replaces the rows instead of adding to them
+        approvalCounters.rebuild();
+        expectSummary(2, 1);
+    }
+
+    private TimeRecord newTimeRecord() {
+        TimeRecord timeRecord = new TimeRecord();
+        timeRecord.setUser(user);
+        timeRecord.setProject(project);
+        timeRecord.setStatus(pendingStatus);
+        timeRecord.setHours(8.0);
+        timeRecord.setDescription("description");
+        timeRecord.setStartDate(Timestamp.valueOf("2025-03-10 09:00:00"));
+        timeRecord.setEndDate(Timestamp.valueOf("2025-03-10 17:00:00"));
+        timeRecord.setApprovedBy(user);
+        return timeRecord;
+    }
+
+    private void expectSummary(long pendingTimeRecords, long pendingAbsences) throws Exception {
+        mockMvc.perform(get("/api/approvals/summary")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pendingTimeRecords").value(pendingTimeRecords))
+                .andExpect(jsonPath("$.pendingAbsences").value(pendingAbsences));
+    }
+}
@@ -0,0 +1,80 @@
+package com.datacentric.timesense;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.datacentric.timesense.model.SystemAccessTypes;
+import com.datacentric.timesense.utils.i18n.MessagesCodes;
+
+/**
+ * The checks of the archive endpoints before any archive table is read, the moves and restores
+ * themselves run on PostgreSQL, see ArchivesPostgresTest.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class ArchiveControllerTests extends SecurityBaseClass {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() {
+        // The time records archive only, not the absences one
+        savePermission("System", 0L,
+                SystemAccessTypes.CREATE_PROJECTS, "user", dummyUser.getId());
+    }
+
+    @Test
+    @WithMockUser
+    void testGetUnknownArchive() throws Exception {
+        mockMvc.perform(get("/api/archive/users")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.messageCode").value(MessagesCodes.ARCHIVE_INVALID_TYPE));
+    }
+
+    @Test
+    @WithMockUser
+    void testRestoreUnknownArchive() throws Exception {
+        mockMvc.perform(post("/api/archive/users/1/restore")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.messageCode").value(MessagesCodes.ARCHIVE_INVALID_TYPE));
+    }
+
+    @Test
+    @WithMockUser
+    void testGetArchiveWithoutPermission() throws Exception {
+        mockMvc.perform(get("/api/archive/absences")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.messageCode").value(MessagesCodes.PERMISSIONS_DENIED));
+    }
+
+    @Test
+    @WithMockUser
+    void testRestoreWithoutPermission() throws Exception {
+        mockMvc.perform(post("/api/archive/absences/1/restore")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.messageCode").value(MessagesCodes.PERMISSIONS_DENIED));
+    }
+}
@@ -0,0 +1,350 @@
+package com.datacentric.timesense;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Timestamp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.datacentric.timesense.model.Absence;
+import com.datacentric.timesense.model.AbsenceAttachment;
+import com.datacentric.timesense.model.AbsenceType;
+import com.datacentric.timesense.model.Client;
+import com.datacentric.timesense.model.Project;
+import com.datacentric.timesense.model.ProjectAssignment;
+import com.datacentric.timesense.model.ProjectType;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.SystemAccessTypes;
+import com.datacentric.timesense.model.TimeRecord;
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.repository.AbsenceAttachmentRepository;
+import com.datacentric.timesense.repository.AbsenceRepository;
+import com.datacentric.timesense.repository.AbsenceTypeRepository;
+import com.datacentric.timesense.repository.ClientRepository;
+import com.datacentric.timesense.repository.ProjectAssignmentRepository;
+import com.datacentric.timesense.repository.ProjectRepository;
+import com.datacentric.timesense.repository.ProjectTypeRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.TimeRecordRepository;
+import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.Archives;
+import com.datacentric.timesense.utils.i18n.MessagesCodes;
+
+/**
+ * The moves of the archive job and the restores, which only run on PostgreSQL. The archive
+ * tables are created by their changelog on top of the schema of the entities. The rows are
+ * committed and every test archives all the rows left by the others, so each test checks
+ * where its own rows ended up.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+class ArchivesPostgresTests extends SecurityBaseClass {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = PostgresContainers.create();
+
+    private static final String ARCHIVE_TABLES_CHANGELOG =
+            "db/changelog/postgresql/046_create_archive_tables.sql";
+
+    // Small, so a few rows take several batches
+    private static final int MOVE_BATCH_SIZE = 2;
+
+    private static boolean archiveTablesCreated;
+    private static int run;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private Archives archives;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TimeRecordRepository timeRecordRepository;
+
+    @Autowired
+    private AbsenceRepository absenceRepository;
+
+    @Autowired
+    private AbsenceTypeRepository absenceTypeRepository;
+
+    @Autowired
+    private AbsenceAttachmentRepository absenceAttachmentRepository;
+
+    @Autowired
+    private ProjectAssignmentRepository projectAssignmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ProjectTypeRepository projectTypeRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    private User user;
+    private Status pendingStatus;
+    private Status approvedStatus;
+    private Project activeProject;
+    private Project finishedProject;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        PostgresContainers.register(registry, POSTGRES);
+        registry.add("server.archive.batch-size", () -> String.valueOf(MOVE_BATCH_SIZE));
+    }
+
+    @BeforeEach
+    public void setup() {
+        if (!archiveTablesCreated) {
+            new ResourceDatabasePopulator(new ClassPathResource(ARCHIVE_TABLES_CHANGELOG))
+                    .execute(jdbcTemplate.getDataSource());
+            archiveTablesCreated = true;
+        }
+        run++;
+
+        user = new User();
+        user.setName("Archived User");
+        user.setEmail("archived" + run + "@email.com");
+        user.setCurrentYearVacationDays(23.0);
+        user.setPrevYearVacationDays(0.0);
+        userRepository.save(user);
+
+        pendingStatus = newStatus("PENDING");
+        approvedStatus = newStatus("APPROVED");
+
+        ProjectType projectType = new ProjectType();
+        projectType.setName("Type" + run);
+        projectTypeRepository.save(projectType);
+
+        Client client = new Client();
+        client.setName("Client" + run);
+        clientRepository.save(client);
+
+        activeProject = newProject("Active" + run, approvedStatus, projectType, client);
+        finishedProject = newProject("Finished" + run, newStatus("FINISHED"), projectType,
+                client);
+        finishedProject.setEndDate(Timestamp.valueOf("2000-01-31 00:00:00"));
+        projectRepository.save(finishedProject);
+
+        savePermission("System", 0L, SystemAccessTypes.CREATE_PROJECTS, "user",
+                dummyUser.getId());
+    }
+
+    @Test
+    void testArchiveMovesTheInactiveRows() {
+        TimeRecord deleted = newTimeRecord(activeProject, approvedStatus);
+        TimeRecord active = newTimeRecord(activeProject, approvedStatus);
+        TimeRecord closed = newTimeRecord(finishedProject, approvedStatus);
+        TimeRecord pending = newTimeRecord(finishedProject, pendingStatus);
+        softDelete("time_records", deleted.getId());
+
+        AbsenceType absenceType = new AbsenceType();
+        absenceType.setName("VACATION" + run);
+        absenceTypeRepository.save(absenceType);
+        Absence deletedAbsence = newAbsence(absenceType);
+        Absence attachedAbsence = newAbsence(absenceType);
+        AbsenceAttachment attachment = new AbsenceAttachment();
+        attachment.setAbsence(attachedAbsence);
+        attachment.setOriginalFileName("note.pdf");
+        attachment.setStorageObjectId("note" + run);
+        absenceAttachmentRepository.save(attachment);
+        softDelete("absences", deletedAbsence.getId());
+        softDelete("absences", attachedAbsence.getId());
+
+        ProjectAssignment assignment = new ProjectAssignment();
+        assignment.setUser(user);
+        assignment.setProject(activeProject);
+        assignment.setAllocation(1.0);
+        assignment.setStartDate(Timestamp.valueOf("2025-01-01 00:00:00"));
+        assignment.setEndDate(Timestamp.valueOf("2025-06-30 00:00:00"));
+        projectAssignmentRepository.save(assignment);
+        softDelete("project_assignments", assignment.getId());
+
+        archives.archive();
+
+        expectArchived("time_records", deleted.getId());
+        expectArchived("time_records", closed.getId());
+        expectArchived("absences", deletedAbsence.getId());
+        expectArchived("project_assignments", assignment.getId());
+
+        // Active rows, pending records and absences with attachments stay in place
+        expectInPlace("time_records", active.getId());
+        expectInPlace("time_records", pending.getId());
+        expectInPlace("absences", attachedAbsence.getId());
+    }
+
+    @Test
+    void testArchiveMovesEveryBatch() {
+        int rows = MOVE_BATCH_SIZE * 2 + 1;
+        Long[] ids = new Long[rows];
+        for (int i = 0; i < rows; i++) {
+            ids[i] = newTimeRecord(activeProject, approvedStatus).getId();
+            softDelete("time_records", ids[i]);
+        }
+
+        archives.archive();
+        for (Long id : ids) {
+            expectArchived("time_records", id);
+        }
+    }
+
+    @Test
+    @WithMockUser
+    void testRestoreMovesTheRowBack() throws Exception {
+        TimeRecord deleted = newTimeRecord(activeProject, approvedStatus);
+        softDelete("time_records", deleted.getId());
+        archives.archive();
+
+        mockMvc.perform(get("/api/archive/time-records?userId=" + user.getId())
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(deleted.getId()));
+
+        mockMvc.perform(post("/api/archive/time-records/" + deleted.getId() + "/restore")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.messageCode").value(MessagesCodes.ARCHIVE_RESTORED_OK));
+
+        // Back as it was when archived, still soft deleted
+        expectInPlace("time_records", deleted.getId());
+        assertEquals(Boolean.TRUE, jdbcTemplate.queryForObject(
+                "SELECT deleted FROM time_records WHERE id = ?", Boolean.class,
+                deleted.getId()));
+        assertEquals(8.0, jdbcTemplate.queryForObject(
+                "SELECT hours FROM time_records WHERE id = ?", Double.class, deleted.getId()));
+    }
+
+    @Test
+    @WithMockUser
+    void testRestoreOverAnExistingRowConflicts() throws Exception {
+        TimeRecord deleted = newTimeRecord(activeProject, approvedStatus);
+        softDelete("time_records", deleted.getId());
+        archives.archive();
+        // The archive table has the columns of the hot table, in the same order
+        jdbcTemplate.update("INSERT INTO time_records "
+                + "SELECT * FROM time_records_archive WHERE id = ?", deleted.getId());
+        // Active, so the next runs of the archive job leave the copy alone
+        jdbcTemplate.update("UPDATE time_records SET deleted = false WHERE id = ?",
+                deleted.getId());
+
+        mockMvc.perform(post("/api/archive/time-records/" + deleted.getId() + "/restore")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.messageCode")
+                        .value(MessagesCodes.ARCHIVE_RESTORE_CONFLICT));
+
+        // The failed restore leaves the archived row in place
+        assertEquals(1L, count("time_records_archive", deleted.getId()));
+    }
+
+    @Test
+    @WithMockUser
+    void testRestoreNotArchived() throws Exception {
+        TimeRecord active = newTimeRecord(activeProject, approvedStatus);
+
+        mockMvc.perform(post("/api/archive/time-records/" + active.getId() + "/restore")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.messageCode").value(MessagesCodes.ARCHIVE_NOT_FOUND));
+    }
+
+    private void expectArchived(String table, Long id) {
+        assertEquals(0L, count(table, id));
+        assertEquals(1L, count(table + "_archive", id));
+    }
+
+    private void expectInPlace(String table, Long id) {
+        assertEquals(1L, count(table, id));
+        assertEquals(0L, count(table + "_archive", id));
+    }
+
+    private long count(String table, Long id) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE id = ?",
+                Long.class, id);
+    }
+
+    private void softDelete(String table, Long id) {
+        jdbcTemplate.update("UPDATE " + table + " SET deleted = true WHERE id = ?", id);
+    }
+
+    private Status newStatus(String name) {
+        Status status = statusRepository.findByName(name);
+        if (status == null) {
+            status = new Status();
+            status.setName(name);
+            statusRepository.save(status);
+        }
+        return status;
+    }
+
+    private Project newProject(String name, Status projectStatus, ProjectType projectType,
+            Client client) {
+        Project project = new Project();
+        project.setName(name);
+        project.setProjectType(projectType);
+        project.setManager(user);
+        project.setClient(client);
+        project.setStatus(projectStatus);
+        project.setStartDate(Timestamp.valueOf("1999-01-01 00:00:00"));
+        return projectRepository.save(project);
+    }
+
+    private TimeRecord newTimeRecord(Project project, Status recordStatus) {
+        TimeRecord timeRecord = new TimeRecord();
+        timeRecord.setUser(user);
+        timeRecord.setProject(project);
+        timeRecord.setStatus(recordStatus);
+        timeRecord.setHours(8.0);
+        timeRecord.setDescription("description");
+        timeRecord.setStartDate(Timestamp.valueOf("1999-03-10 09:00:00"));
+        timeRecord.setEndDate(Timestamp.valueOf("1999-03-10 17:00:00"));
+        return timeRecordRepository.save(timeRecord);
+    }
+
+    private Absence newAbsence(AbsenceType absenceType) {
+        Absence absence = new Absence();
+        absence.setUser(user);
+        absence.setName("Vacation");
+        absence.setType(absenceType);
+        absence.setStatus(approvedStatus);
+        absence.setApprover(user);
+        absence.setStartDate(Timestamp.valueOf("1999-03-10 00:00:00"));
+        absence.setEndDate(Timestamp.valueOf("1999-03-11 00:00:00"));
+        return absenceRepository.save(absence);
+    }
+}
@@ -0,0 +1,148 @@
+package com.datacentric.timesense;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.datacentric.timesense.model.Client;
+import com.datacentric.timesense.model.IdGenerators;
+import com.datacentric.timesense.model.Project;
+import com.datacentric.timesense.model.ProjectType;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.TimeRecord;
+import com.datacentric.timesense.repository.ClientRepository;
+import com.datacentric.timesense.repository.ProjectRepository;
+import com.datacentric.timesense.repository.ProjectTypeRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.TimeRecordRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Bulk insert of time records flushed row by row against the batched inserts allowed by
+ * the pooled sequences. Both runs take their ids from the pooled sequence, the row by row
+ * run only reproduces the one insert round trip per row that identity ids forced. The
+ * timings are only logged, the number of statements is what the test checks.
+ */
+@SpringBootTest
+@Transactional
+@ExtendWith(QueryBudget.class)
+class BulkInsertBenchmarkTests extends SecurityBaseClass {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkInsertBenchmarkTests.class);
+
+    private static final int ROWS = 1000;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    // One insert and one sequence call per block of ids, plus some slack
+    private static final int MAX_BATCHED_STATEMENTS =
+            2 * ROWS / IdGenerators.ALLOCATION_SIZE + 4;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TimeRecordRepository timeRecordRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ProjectTypeRepository projectTypeRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    private Project project;
+    private Status status;
+
+    @BeforeEach
+    public void setup() {
+        ProjectType projectType = new ProjectType();
+        projectType.setName("Type1");
+        projectTypeRepository.save(projectType);
+
+        status = new Status();
+        status.setName("PENDING");
+        statusRepository.save(status);
+
+        Client client = new Client();
+        client.setName("Client1");
+        clientRepository.save(client);
+
+        project = new Project();
+        project.setName("Proj1");
+        project.setProjectType(projectType);
+        project.setManager(dummyUser);
+        project.setClient(client);
+        project.setStatus(status);
+        project.setStartDate(Timestamp.valueOf("2025-01-01 00:00:00"));
+        projectRepository.save(project);
+
+        entityManager.flush();
+    }
+
+    @Test
+    void testBulkInsertIsBatched() {
+        // Row by row: a flush per row sends every insert on its own
+        SqlStatementRecorder.start();
+        long start = System.nanoTime();
+        for (TimeRecord timeRecord : newTimeRecords()) {
+            timeRecordRepository.save(timeRecord);
+            entityManager.flush();
+        }
+        long rowByRowNanos = System.nanoTime() - start;
+        int rowByRowStatements = SqlStatementRecorder.stop().size();
+
+        // Batched: a single flush sends the inserts in JDBC batches
+        SqlStatementRecorder.start();
+        start = System.nanoTime();
+        timeRecordRepository.saveAll(newTimeRecords());
+        entityManager.flush();
+        long batchedNanos = System.nanoTime() - start;
+        int batchedStatements = SqlStatementRecorder.stop().size();
+
+        log.info("Inserted {} time records with a flush per row: {} statements, {} rows/s", ROWS,
+                rowByRowStatements, rowsPerSecond(rowByRowNanos));
+        log.info("Inserted {} time records in batches: {} statements, {} rows/s", ROWS,
+                batchedStatements, rowsPerSecond(batchedNanos));
+
+        assertTrue(batchedStatements <= MAX_BATCHED_STATEMENTS,
+                "Batched insert ran " + batchedStatements + " statements");
+        assertTrue(batchedStatements < rowByRowStatements);
+    }
+
+    private List<TimeRecord> newTimeRecords() {
+        List<TimeRecord> timeRecords = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            TimeRecord timeRecord = new TimeRecord();
+            timeRecord.setUser(dummyUser);
+            timeRecord.setProject(project);
+            timeRecord.setStatus(status);
+            timeRecord.setHours(8.0);
+            timeRecord.setDescription("Bulk record " + i);
+            timeRecord.setStartDate(Timestamp.valueOf("2025-03-10 09:00:00"));
+            timeRecord.setEndDate(Timestamp.valueOf("2025-03-10 17:00:00"));
+            timeRecords.add(timeRecord);
+        }
+        return timeRecords;
+    }
+
+    private static long rowsPerSecond(long nanos) {
+        return Math.round(ROWS / (nanos / NANOS_PER_SECOND));
+    }
+}
@@ -0,0 +1,126 @@
+package com.datacentric.timesense;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.repository.UserDayHoursRepository;
+import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.DailyHoursExceededException;
+import com.datacentric.timesense.utils.DailyHoursLedger;
+
+/**
+ * The upsert of the daily hours ledger on the (user_id, work_day) key. The writes commit in
+ * their own transactions, as the time record writes do.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class DailyHoursLedgerPostgresTests {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = PostgresContainers.create();
+
+    private static final double MAX_HOURS = 8.0;
+    private static final int WRITERS = 2;
+
+    private static int run;
+
+    @Autowired
+    private DailyHoursLedger dailyHoursLedger;
+
+    @Autowired
+    private UserDayHoursRepository userDayHoursRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        PostgresContainers.register(registry, POSTGRES);
+    }
+
+    @BeforeEach
+    public void setup() {
+        run++;
+        user = new User();
+        user.setName("Ledger User");
+        user.setEmail("ledger" + run + "@email.com");
+        user.setCurrentYearVacationDays(23.0);
+        user.setPrevYearVacationDays(0.0);
+        userRepository.save(user);
+    }
+
+    @Test
+    void testConcurrentFirstWritesOfADayAddUp() throws Exception {
+        Timestamp startDate = Timestamp.valueOf("2025-03-10 12:00:00");
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                writes.add(executor.submit(() -> {
+                    start.await();
+                    dailyHoursLedger.apply(new DailyHoursLedger.Changes()
+                            .add(user.getId(), startDate, 3.0), MAX_HOURS);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> write : writes) {
+                write.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // A single row for the day, with the hours of both writes
+        assertEquals(6.0, userDayHoursRepository
+                .findByUserIdAndDay(user.getId(), LocalDate.of(2025, 3, 10)).getHours());
+    }
+
+    @Test
+    void testWritesOverTheLimitAreRefused() {
+        LocalDate day = LocalDate.of(2025, 3, 11);
+        Timestamp startDate = Timestamp.valueOf("2025-03-11 12:00:00");
+        dailyHoursLedger.apply(new DailyHoursLedger.Changes()
+                .add(user.getId(), startDate, 6.0), MAX_HOURS);
+
+        DailyHoursExceededException exceeded = assertThrows(DailyHoursExceededException.class,
+                () -> dailyHoursLedger.apply(new DailyHoursLedger.Changes()
+                        .add(user.getId(), startDate, 3.0), MAX_HOURS));
+        assertEquals(9.0, exceeded.getHours());
+        assertEquals(6.0, userDayHoursRepository.findByUserIdAndDay(user.getId(), day)
+                .getHours());
+
+        // A first write of a day over the limit inserts nothing
+        LocalDate nextDay = LocalDate.of(2025, 3, 12);
+        assertThrows(DailyHoursExceededException.class,
+                () -> dailyHoursLedger.apply(new DailyHoursLedger.Changes()
+                        .add(user.getId(), Timestamp.valueOf("2025-03-12 12:00:00"), 9.0),
+                        MAX_HOURS));
+        assertNull(userDayHoursRepository.findByUserIdAndDay(user.getId(), nextDay));
+    }
+}
@@ -0,0 +1,320 @@
+package com.datacentric.timesense;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.datacentric.timesense.model.Absence;
+import com.datacentric.timesense.model.AbsenceSubType;
+import com.datacentric.timesense.model.AbsenceType;
+import com.datacentric.timesense.model.Client;
+import com.datacentric.timesense.model.Holiday;
+import com.datacentric.timesense.model.JobTitle;
+import com.datacentric.timesense.model.Project;
+import com.datacentric.timesense.model.ProjectAssignment;
+import com.datacentric.timesense.model.ProjectTask;
+import com.datacentric.timesense.model.ProjectType;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.SystemSetting;
+import com.datacentric.timesense.model.TimeRecord;
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.model.UserGroup;
+import com.datacentric.timesense.model.UserRole;
+import com.datacentric.timesense.repository.AbsenceRepository;
+import com.datacentric.timesense.repository.AbsenceSubTypeRepository;
+import com.datacentric.timesense.repository.AbsenceTypeRepository;
+import com.datacentric.timesense.repository.ClientRepository;
+import com.datacentric.timesense.repository.HolidayRepository;
+import com.datacentric.timesense.repository.JobTitleRepository;
+import com.datacentric.timesense.repository.ProjectAssignmentRepository;
+import com.datacentric.timesense.repository.ProjectRepository;
+import com.datacentric.timesense.repository.ProjectTaskRepository;
+import com.datacentric.timesense.repository.ProjectTypeRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.SystemSettingRepository;
+import com.datacentric.timesense.repository.TimeRecordRepository;
+import com.datacentric.timesense.repository.UserGroupRepository;
+import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.repository.UserRoleRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * SQL statement budgets of the list and report endpoints.
+ *
+ * Every table has ROWS rows pointing to different rows of the related tables, so an
+ * association loaded once per row always goes over the budget of its endpoint.
+ *
+ * The project cost reports and /time-records/filtered are not listed, their native
+ * queries use PostgreSQL functions and types that the H2 test database does not have.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@ExtendWith(QueryBudget.class)
+class EndpointQueryBudgetTests extends SecurityBaseClass {
+
+    private static final int ROWS = 25;
+    private static final String PROJECT_ID = "{projectId}";
+    private static final String YEAR = "2025";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserRoleRepository userRoleRepository;
+
+    @Autowired
+    private UserGroupRepository userGroupRepository;
+
+    @Autowired
+    private JobTitleRepository jobTitleRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ProjectTypeRepository projectTypeRepository;
+
+    @Autowired
+    private ProjectTaskRepository projectTaskRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ProjectAssignmentRepository projectAssignmentRepository;
+
+    @Autowired
+    private TimeRecordRepository timeRecordRepository;
+
+    @Autowired
+    private AbsenceTypeRepository absenceTypeRepository;
+
+    @Autowired
+    private AbsenceSubTypeRepository absenceSubTypeRepository;
+
+    @Autowired
+    private AbsenceRepository absenceRepository;
+
+    @Autowired
+    private HolidayRepository holidayRepository;
+
+    @Autowired
+    private SystemSettingRepository systemSettingRepository;
+
+    private Project mainProject;
+
+    static Stream<Arguments> endpointBudgets() {
+        return Stream.of(
+                Arguments.of("/api/time-records", 10),
+                Arguments.of("/api/time-records/user-page?startDate=2025-01-01 00:00:00", 10),
+                Arguments.of("/api/time-records/grid?startDate=2025-01-06&endDate=2025-01-12", 10),
+                Arguments.of("/api/time-records/byUser?startDate=2025-01-01 00:00:00"
+                        + "&endDate=2025-12-31 00:00:00", 10),
+                Arguments.of("/api/absences", 10),
+                Arguments.of("/api/absences/user", 10),
+                Arguments.of("/api/absences/byDate/" + YEAR, 6),
+                Arguments.of("/api/absences/byDateDetails?date=2025-03-10 12:00:00", 10),
+                Arguments.of("/api/projects", 10),
+                Arguments.of("/api/projects/last-used", 10),
+                Arguments.of("/api/projects/" + PROJECT_ID + "/projectTasks", 6),
+                Arguments.of("/api/projects/" + PROJECT_ID + "/budget", 10),
+                Arguments.of("/api/projects/" + PROJECT_ID + "/budget/monthly", 10),
+                Arguments.of("/api/projects/" + PROJECT_ID + "/user-allocations", 6),
+                Arguments.of("/api/project-assignments", 10),
+                Arguments.of("/api/project-assignments/capacity?startDate=2025-01-01"
+                        + "&endDate=2025-03-31", 10),
+                Arguments.of("/api/project-tasks", 6),
+                Arguments.of("/api/project-types", 4),
+                Arguments.of("/api/clients", 4),
+                Arguments.of("/api/status", 4),
+                Arguments.of("/api/job-titles", 6),
+                Arguments.of("/api/users", 10),
+                Arguments.of("/api/user-groups", 4),
+                Arguments.of("/api/user-roles", 4),
+                Arguments.of("/api/holidays", 2),
+                Arguments.of("/api/holidays/HolidaysPage", 4),
+                Arguments.of("/api/absence-types", 4),
+                Arguments.of("/api/absence-sub-types", 4),
+                Arguments.of("/api/system-settings", 4),
+                Arguments.of("/api/permissions/user", 4));
+    }
+
+    @BeforeEach
+    public void setup() {
+        // Admins see the rows of every user
+        UserRole adminRole = new UserRole();
+        adminRole.setName("Admin");
+        userRoleRepository.save(adminRole);
+        dummyUser.getUserRoles().add(adminRole);
+        userRepository.save(dummyUser);
+
+        for (int i = 0; i < ROWS; i++) {
+            addRow(i);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("endpointBudgets")
+    @WithMockUser
+    void testEndpointStatementBudget(String url, int budget) throws Exception {
+        String resolvedUrl = url.replace(PROJECT_ID, mainProject.getId().toString());
+
+        QueryBudget.assertAtMost(entityManager, budget, "GET " + url, () ->
+                mockMvc.perform(get(resolvedUrl)
+                        .param("numRows", String.valueOf(ROWS))
+                        .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                        .contentType(MediaType.APPLICATION_JSON))
+                        .andExpect(status().is2xxSuccessful()));
+    }
+
+    private void addRow(int i) {
+        Timestamp lastWeek = Timestamp.valueOf(LocalDateTime.now().minusWeeks(1));
+
+        JobTitle jobTitle = new JobTitle();
+        jobTitle.setName("JobTitle" + i);
+        jobTitle.setRate(10.0);
+        jobTitleRepository.save(jobTitle);
+
+        User user = new User();
+        user.setName("User" + i);
+        user.setEmail("budget.user" + i + "@email.com");
+        user.setCurrentYearVacationDays(23.0);
+        user.setPrevYearVacationDays(23.0);
+        user.setBirthdate(LocalDate.of(2000, 1, 1));
+        user.setLineManagerId(dummyUser.getId());
+        user.setJobTitle(jobTitle);
+        userRepository.save(user);
+
+        UserRole role = new UserRole();
+        role.setName("Role" + i);
+        userRoleRepository.save(role);
+
+        UserGroup group = new UserGroup();
+        group.setName("Group" + i);
+        group.setTokenId("token" + i);
+        userGroupRepository.save(group);
+
+        Status status = new Status();
+        status.setName("PENDING" + i);
+        statusRepository.save(status);
+
+        Client client = new Client();
+        client.setName("Client" + i);
+        clientRepository.save(client);
+
+        ProjectType projectType = new ProjectType();
+        projectType.setName("Type" + i);
+        projectTypeRepository.save(projectType);
+
+        ProjectTask task = new ProjectTask();
+        task.setName("Task" + i);
+        task.setProjectTypes(new ArrayList<>(List.of(projectType)));
+        projectTaskRepository.save(task);
+
+        Project project = new Project();
+        project.setName("Proj" + i);
+        project.setProjectType(projectType);
+        project.setManager(dummyUser);
+        project.setClient(client);
+        project.setStatus(status);
+        project.setStartDate(Timestamp.valueOf("2025-01-01 00:00:00"));
+        project.setExpectedDueDate(Timestamp.valueOf("2025-12-31 00:00:00"));
+        project.setProjectTasks(new ArrayList<>(List.of(task)));
+        projectRepository.save(project);
+        if (mainProject == null) {
+            mainProject = project;
+        }
+
+        savePermission("Project", project.getId(),
+                Project.ProjectPermission.RECORD_TIME_PROJECTS.toString(), "user",
+                dummyUser.getId());
+
+        // All the assignments are in the same project, for the project reports
+        ProjectAssignment assignment = new ProjectAssignment();
+        assignment.setUser(user);
+        assignment.setProject(mainProject);
+        assignment.setAllocation(50.0);
+        assignment.setStartDate(Timestamp.valueOf("2025-02-03 00:00:00"));
+        assignment.setEndDate(Timestamp.valueOf("2025-03-28 00:00:00"));
+        projectAssignmentRepository.save(assignment);
+
+        for (User reporter : List.of(user, dummyUser)) {
+            TimeRecord timeRecord = new TimeRecord();
+            timeRecord.setUser(reporter);
+            timeRecord.setProject(project);
+            timeRecord.setTask(task);
+            timeRecord.setStatus(status);
+            timeRecord.setHours(8.0);
+            timeRecord.setDescription("description");
+            timeRecord.setStartDate(Timestamp.valueOf("2025-03-10 09:00:00"));
+            timeRecord.setEndDate(Timestamp.valueOf("2025-03-10 17:00:00"));
+            timeRecord.setApprovedAt(lastWeek);
+            timeRecord.setApprovedBy(user);
+            timeRecordRepository.save(timeRecord);
+        }
+
+        AbsenceType absenceType = new AbsenceType();
+        absenceType.setName("AbsenceType" + i);
+        absenceTypeRepository.save(absenceType);
+
+        AbsenceSubType absenceSubType = new AbsenceSubType();
+        absenceSubType.setName("AbsenceSubType" + i);
+        absenceSubTypeRepository.save(absenceSubType);
+
+        Absence absence = new Absence();
+        absence.setUser(dummyUser);
+        absence.setName("Absence" + i);
+        absence.setType(absenceType);
+        absence.setSubType(absenceSubType);
+        absence.setStatus(status);
+        absence.setRecordType("Day");
+        absence.setBusinessYear(YEAR);
+        absence.setStartDate(Timestamp.valueOf("2025-03-10 00:00:00"));
+        absence.setEndDate(Timestamp.valueOf("2025-03-11 00:00:00"));
+        absence.setApprover(user);
+        absence.setApprovedBy(user);
+        absence.setApprovedDate(lastWeek);
+        absenceRepository.save(absence);
+
+        Holiday holiday = new Holiday();
+        holiday.setName("Holiday" + i);
+        holiday.setHolidayDate(LocalDate.of(2025, 1, 1).plusDays(i));
+        holidayRepository.save(holiday);
+
+        SystemSetting setting = new SystemSetting();
+        setting.setName("SETTING_" + i);
+        setting.setValue(String.valueOf(i));
+        systemSettingRepository.save(setting);
+    }
+}
@@ -0,0 +1,210 @@
+package com.datacentric.timesense;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.datacentric.timesense.model.Absence;
+import com.datacentric.timesense.model.AbsenceSubType;
+import com.datacentric.timesense.model.AbsenceType;
+import com.datacentric.timesense.model.Client;
+import com.datacentric.timesense.model.Project;
+import com.datacentric.timesense.model.ProjectType;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.TimeRecord;
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.repository.AbsenceRepository;
+import com.datacentric.timesense.repository.AbsenceSubTypeRepository;
+import com.datacentric.timesense.repository.AbsenceTypeRepository;
+import com.datacentric.timesense.repository.ClientRepository;
+import com.datacentric.timesense.repository.ProjectRepository;
+import com.datacentric.timesense.repository.ProjectTypeRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.TimeRecordRepository;
+import com.datacentric.timesense.repository.UserRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * The list endpoints fetch the associations they serialize with the page instead of one
+ * by one, so the number of statements does not grow with the number of rows. The
+ * statements are counted by QueryBudget, as in EndpointQueryBudgetTests.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@ExtendWith(QueryBudget.class)
+class FetchPlanQueryCountTests extends SecurityBaseClass {
+
+    private static final int FEW_ROWS = 2;
+    private static final int MANY_ROWS = 20;
+
+    // Current user and roles, the page and the batched collections
+    private static final int MAX_STATEMENTS_PER_REQUEST = 8;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ProjectTypeRepository projectTypeRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private TimeRecordRepository timeRecordRepository;
+
+    @Autowired
+    private AbsenceTypeRepository absenceTypeRepository;
+
+    @Autowired
+    private AbsenceSubTypeRepository absenceSubTypeRepository;
+
+    @Autowired
+    private AbsenceRepository absenceRepository;
+
+    private int rows;
+
+    @BeforeEach
+    public void setup() {
+        rows = 0;
+    }
+
+    @Test
+    @WithMockUser
+    void testGetAllTimeRecordsStatementCount() throws Exception {
+        addTimeRecords(FEW_ROWS);
+        int fewRowsStatements = countStatements("/api/time-records");
+
+        addTimeRecords(MANY_ROWS - FEW_ROWS);
+        int manyRowsStatements = countStatements("/api/time-records");
+
+        assertEquals(fewRowsStatements, manyRowsStatements);
+    }
+
+    @Test
+    @WithMockUser
+    void testGetAllAbsencesStatementCount() throws Exception {
+        addAbsences(FEW_ROWS);
+        int fewRowsStatements = countStatements("/api/absences");
+
+        addAbsences(MANY_ROWS - FEW_ROWS);
+        int manyRowsStatements = countStatements("/api/absences");
+
+        assertEquals(fewRowsStatements, manyRowsStatements);
+    }
+
+    private int countStatements(String url) throws Exception {
+        return QueryBudget.assertAtMost(entityManager, MAX_STATEMENTS_PER_REQUEST, "GET " + url,
+                () -> mockMvc.perform(get(url)
+                        .param("numRows", String.valueOf(MANY_ROWS))
+                        .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                        .contentType(MediaType.APPLICATION_JSON))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.content.length()").value(rows)))
+                .size();
+    }
+
+    private void addTimeRecords(int count) {
+        for (int i = 0; i < count; i++, rows++) {
+            Status status = new Status();
+            status.setName("Active" + rows);
+            statusRepository.save(status);
+
+            ProjectType projectType = new ProjectType();
+            projectType.setName("Type" + rows);
+            projectTypeRepository.save(projectType);
+
+            Client client = new Client();
+            client.setName("Client" + rows);
+            clientRepository.save(client);
+
+            Project project = new Project();
+            project.setName("Proj" + rows);
+            project.setProjectType(projectType);
+            project.setManager(dummyUser);
+            project.setClient(client);
+            project.setStartDate(Timestamp.valueOf("2018-12-12 01:02:03.123456789"));
+            project.setStatus(status);
+            projectRepository.save(project);
+
+            TimeRecord timeRecord = new TimeRecord();
+            timeRecord.setUser(newUser("user" + rows));
+            timeRecord.setProject(project);
+            timeRecord.setHours(8.0);
+            timeRecord.setDescription("description");
+            timeRecord.setStatus(status);
+            timeRecord.setStartDate(Timestamp.valueOf("2018-12-12 01:02:03.123456789"));
+            timeRecord.setEndDate(Timestamp.valueOf("2018-12-12 09:02:03.123456789"));
+            timeRecordRepository.save(timeRecord);
+        }
+    }
+
+    private void addAbsences(int count) {
+        for (int i = 0; i < count; i++, rows++) {
+            Status status = new Status();
+            status.setName("PENDING" + rows);
+            statusRepository.save(status);
+
+            AbsenceType absenceType = new AbsenceType();
+            absenceType.setName("AbsenceType" + rows);
+            absenceTypeRepository.save(absenceType);
+
+            AbsenceSubType absenceSubType = new AbsenceSubType();
+            absenceSubType.setName("AbsenceSubType" + rows);
+            absenceSubTypeRepository.save(absenceSubType);
+
+            User approver = newUser("approver" + rows);
+
+            Absence absence = new Absence();
+            absence.setType(absenceType);
+            absence.setSubType(absenceSubType);
+            absence.setUser(dummyUser);
+            absence.setName("Absence" + rows);
+            absence.setStartDate(Timestamp.valueOf("2025-12-12 01:02:03.123456789"));
+            absence.setEndDate(Timestamp.valueOf("2025-12-13 01:02:03.123456789"));
+            absence.setApprover(approver);
+            absence.setApprovedBy(approver);
+            absence.setStatus(status);
+            absenceRepository.save(absence);
+        }
+    }
+
+    private User newUser(String name) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(name + "@email.com");
+        user.setCurrentYearVacationDays(23.0);
+        user.setPrevYearVacationDays(23.0);
+        user.setBirthdate(LocalDate.of(2000, 1, 1));
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,162 @@
+package com.datacentric.timesense;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.datacentric.timesense.model.AbsenceType;
+import com.datacentric.timesense.model.ImportJob;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.SystemSetting;
+import com.datacentric.timesense.model.SystemSettings;
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.repository.AbsenceTypeRepository;
+import com.datacentric.timesense.repository.ImportJobRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.SystemSettingRepository;
+import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.imports.AbsenceImportEngine;
+import com.datacentric.timesense.utils.imports.ImportCheckpoint;
+import com.datacentric.timesense.utils.imports.ImportResult;
+import com.datacentric.timesense.utils.security.UserSecurityData;
+
+/**
+ * An absence import job killed after a chunk was written and resumed from its checkpoint.
+ * Runs on its own database in PostgreSQL mode, so the chunks are really committed.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:importResumeDB;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;"
+        + "NON_KEYWORDS=KEY,VALUE",
+    "server.import.chunk-size=2"})
+class ImportJobResumeTests {
+
+    private static final String EMAIL = "resume@email.com";
+
+    // Three rows, so the second and last chunk is committed after the file is read
+    private static final String CSV = """
+            userEmail,year,name,startDate,endDate,businessDays,status
+            resume@email.com,2025,Vacation1,2025-03-03 00:00:00,2025-03-04 00:00:00,2,approved
+            resume@email.com,2025,Vacation2,2025-04-07 00:00:00,2025-04-09 00:00:00,3,approved
+            resume@email.com,2025,Vacation3,2025-05-05 00:00:00,2025-05-05 00:00:00,1,approved
+            """;
+
+    @Autowired
+    private AbsenceImportEngine absenceImportEngine;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AbsenceTypeRepository absenceTypeRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private SystemSettingRepository systemSettingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private ImportJob job;
+
+    @BeforeEach
+    public void setup() {
+        if (systemSettingRepository.findByName(SystemSettings.CURRENT_YEAR) == null) {
+            SystemSetting systemSetting = new SystemSetting();
+            systemSetting.setName(SystemSettings.CURRENT_YEAR);
+            systemSetting.setValue("2025");
+            systemSettingRepository.save(systemSetting);
+
+            AbsenceType absenceType = new AbsenceType();
+            absenceType.setName("VACATION");
+            absenceTypeRepository.save(absenceType);
+
+            Status status = new Status();
+            status.setName("APPROVED");
+            statusRepository.save(status);
+        }
+
+        user = new User();
+        user.setName("Resumed Import");
+        user.setEmail(EMAIL);
+        user.setCurrentYearVacationDays(23.0);
+        user.setPrevYearVacationDays(0.0);
+        userRepository.save(user);
+
+        job = new ImportJob();
+        job.setImportType(ImportJob.TYPE_ABSENCES);
+        job.setFileName("absences.csv");
+        job.setState(ImportJob.STATE_RUNNING);
+        importJobRepository.save(job);
+    }
+
+    @Test
+    void testResumeAfterKilledChunkImportsEveryRowOnce() throws Exception {
+        UserSecurityData owner = new UserSecurityData(user.getId(), List.of(), List.of());
+
+        // The job dies after the second chunk and its checkpoint were written, before the
+        // transaction commits
+        AtomicInteger chunks = new AtomicInteger();
+        ImportCheckpoint killedAfterFirstChunk = (committedRows, progress) -> {
+            saveCheckpoint(committedRows);
+            if (chunks.incrementAndGet() == 2) {
+                throw new IllegalStateException("Import job killed");
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> absenceImportEngine
+                .importAbsencesInChunks(csv(), owner, new ImportResult(), 0,
+                        killedAfterFirstChunk));
+
+        long checkpointRow = importJobRepository.findById(job.getId()).get().getCheckpointRow();
+        assertEquals(2, checkpointRow);
+        assertEquals(2, countAbsences());
+
+        // The restarted job skips the rows of its checkpoint
+        absenceImportEngine.importAbsencesInChunks(csv(), owner, new ImportResult(),
+                checkpointRow, (committedRows, progress) -> saveCheckpoint(committedRows));
+
+        assertEquals(3, importJobRepository.findById(job.getId()).get().getCheckpointRow());
+        assertEquals(3, countAbsences());
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT name) FROM absences WHERE user_id = ?", Long.class,
+                user.getId()));
+        // Each imported vacation is taken from the balance once
+        assertEquals(-6.0, jdbcTemplate.queryForObject(
+                "SELECT SUM(days) FROM vacation_balance_events WHERE user_id = ? "
+                        + "AND reason = 'IMPORT'", Double.class, user.getId()));
+    }
+
+    // Same as the checkpoint of the import jobs
+    private void saveCheckpoint(long committedRows) {
+        ImportJob current = importJobRepository.findById(job.getId()).get();
+        current.setCheckpointRow(committedRows);
+        importJobRepository.save(current);
+    }
+
+    private long countAbsences() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM absences WHERE user_id = ?",
+                Long.class, user.getId());
+    }
+
+    private static InputStream csv() {
+        return new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,31 @@
+package com.datacentric.timesense;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * PostgreSQL containers for the tests of the statements that only run on PostgreSQL, such as
+ * the upserts of the time record writes. The schema is created from the entities as on H2,
+ * and the test classes are skipped without Docker.
+ */
+final class PostgresContainers {
+
+    private static final String IMAGE = "postgres:16-alpine";
+
+    private PostgresContainers() {
+    }
+
+    static PostgreSQLContainer<?> create() {
+        return new PostgreSQLContainer<>(IMAGE);
+    }
+
+    static void register(DynamicPropertyRegistry registry, PostgreSQLContainer<?> postgres) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", postgres::getDriverClassName);
+        registry.add("spring.jpa.properties.hibernate.dialect",
+                () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.liquibase.enabled", () -> "false");
+    }
+}
@@ -3,6 +3,8 @@ package com.datacentric.timesense;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +14,7 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
@@ -21,6 +24,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import org.springframework.transaction.annotation.Transactional;
 
 import com.datacentric.timesense.model.Client;
+import com.datacentric.timesense.model.JobTitle;
 import com.datacentric.timesense.model.Project;
 import com.datacentric.timesense.model.ProjectAssignment;
 import com.datacentric.timesense.model.ProjectType;
@@ -28,12 +32,14 @@ import com.datacentric.timesense.model.Status;
 import com.datacentric.timesense.model.SystemAccessTypes;
 import com.datacentric.timesense.model.User;
 import com.datacentric.timesense.repository.ClientRepository;
+import com.datacentric.timesense.repository.JobTitleRepository;
 import com.datacentric.timesense.repository.ProjectAssignmentRepository;
 import com.datacentric.timesense.repository.ProjectRepository;
 import com.datacentric.timesense.repository.ProjectTypeRepository;
 import com.datacentric.timesense.repository.StatusRepository;
 import com.datacentric.timesense.repository.UserRepository;
 import com.datacentric.timesense.utils.i18n.MessagesCodes;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -64,6 +70,9 @@ class ProjectAssignmentControllerTests extends SecurityBaseClass {
     @Autowired
     private ProjectTypeRepository projectTypeRepository;
 
+    @Autowired
+    private JobTitleRepository jobTitleRepository;
+
     private User user;
     private Status status;
     private Client client;
@@ -259,6 +268,75 @@ class ProjectAssignmentControllerTests extends SecurityBaseClass {
                 .andExpect(jsonPath("$.data.endDate").value("2020-12-12T01:02:03.123+00:00")).andReturn();
     }
 
+    @Test
+    @WithMockUser
+    void testProjectBudgetFollowsAssignmentChanges() throws Exception {
+        JobTitle jobTitle = new JobTitle();
+        jobTitle.setName("Consultant");
+        jobTitle.setRate(10.0);
+        jobTitleRepository.save(jobTitle);
+        user.setJobTitle(jobTitle);
+        userRepository.save(user);
+
+        // A week of 5 business days at half time
+        projectAssignment.setStartDate(Timestamp.valueOf("2024-01-01 10:00:00"));
+        projectAssignment.setEndDate(Timestamp.valueOf("2024-01-05 10:00:00"));
+        projectAssignmentRepository.save(projectAssignment);
+
+        mockMvc.perform(get("/api/projects/" + project.getId() + "/budget"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(200.0));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+        projectAssignment.setAllocation(100.0);
+        mockMvc.perform(put("/api/project-assignments/" + projectAssignment.getId())
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(projectAssignment)))
+                .andExpect(status().isAccepted());
+
+        mockMvc.perform(get("/api/projects/" + project.getId() + "/budget"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(400.0));
+        mockMvc.perform(get("/api/projects/" + project.getId() + "/budget/monthly"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].month").value("2024-01"))
+                .andExpect(jsonPath("$[0].budgetHours").value(40.0));
+    }
+
+    @Test
+    @WithMockUser
+    void testGetCapacity() throws Exception {
+        ProjectAssignment otherAssignment = new ProjectAssignment();
+        otherAssignment.setUser(user);
+        otherAssignment.setProject(project);
+        otherAssignment.setAllocation(60.0);
+        otherAssignment.setStartDate(Timestamp.valueOf("2019-01-01 10:00:00"));
+        otherAssignment.setEndDate(Timestamp.valueOf("2019-01-31 10:00:00"));
+        projectAssignmentRepository.save(otherAssignment);
+
+        MvcResult result = mockMvc.perform(get("/api/project-assignments/capacity")
+                .param("startDate", "2019-01-09")
+                .param("endDate", "2019-01-13")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.weeks[0]").value("2019-01-07"))
+                .andReturn();
+
+        JsonNode matrix = new ObjectMapper().readTree(result.getResponse().getContentAsString());
+        int row = -1;
+        for (int i = 0; i < matrix.get("userIds").size(); i++) {
+            if (matrix.get("userIds").get(i).asLong() == user.getId()) {
+                row = i;
+            }
+        }
+        assertEquals(110.0, matrix.get("allocation").get(row).get(0).asDouble(), 1e-9);
+        assertTrue(matrix.get("overAllocated").get(row).get(0).asBoolean());
+    }
+
     @Test
     @WithMockUser
     void testUpdateProjectAssignmentNotFound() throws Exception {
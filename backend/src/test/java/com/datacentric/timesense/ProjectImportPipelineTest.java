@@ -0,0 +1,185 @@
+package com.datacentric.timesense;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.datacentric.timesense.model.Client;
+import com.datacentric.timesense.model.Project;
+import com.datacentric.timesense.model.ProjectType;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.repository.ClientRepository;
+import com.datacentric.timesense.repository.ProjectRepository;
+import com.datacentric.timesense.repository.ProjectTypeRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.imports.ImportCheckpoint;
+import com.datacentric.timesense.utils.imports.ImportResult;
+import com.datacentric.timesense.utils.imports.ProjectImportPipeline;
+import com.datacentric.timesense.utils.security.UserSecurityData;
+
+/**
+ * The projects import in chunks of two rows. Runs on its own database in PostgreSQL mode, so
+ * the chunks of the import jobs are really committed.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:projectImportDB;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;"
+        + "NON_KEYWORDS=KEY,VALUE",
+    "server.import.chunk-size=2"})
+class ProjectImportPipelineTests {
+
+    // RUN is replaced by the run number, so each test has its own codes and references.
+    // Row 2 repeats a code of its chunk, row 4 a code of a previous chunk, row 5 has
+    // references that do not exist and the code of row 7 is already in the database.
+    private static final String CSV = """
+            proj_code,proj_name,proj_type,start_date,manager,client,expected_due_date,budget
+            RUN-1,Project 1,Type RUN,2025-01-01,Manager RUN,Client RUN,2025-12-31,1000
+            RUN-1,Project 1 again,Type RUN,2025-01-01,Manager RUN,Client RUN,,
+            RUN-2,Project 2,Type RUN,2025-02-01,Manager RUN,Client RUN,,
+            RUN-1,Project 1 again,Type RUN,2025-01-01,Manager RUN,Client RUN,,
+            RUN-3,Project 3,No Type,2025-03-01,Nobody,Client RUN,,
+            RUN-4,Project 4,Type RUN,2025-04-01,Manager RUN,Client RUN,,2500.5
+            RUN-0,Project 0,Type RUN,2025-05-01,Manager RUN,Client RUN,,
+            """;
+
+    private static final String UNRESOLVED_ERROR =
+            "Row 5: Project type not found: No Type; Manager not found: Nobody";
+
+    private static int run;
+
+    @Autowired
+    private ProjectImportPipeline projectImportPipeline;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ProjectTypeRepository projectTypeRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UserSecurityData owner;
+
+    @BeforeEach
+    public void setup() {
+        run++;
+        Status open = statusRepository.findByName("OPEN");
+        if (open == null) {
+            open = new Status();
+            open.setName("OPEN");
+            statusRepository.save(open);
+        }
+
+        User manager = new User();
+        manager.setName("Manager " + run);
+        manager.setEmail("import" + run + "@email.com");
+        manager.setCurrentYearVacationDays(23.0);
+        manager.setPrevYearVacationDays(0.0);
+        userRepository.save(manager);
+        owner = new UserSecurityData(manager.getId(), List.of(), List.of());
+
+        ProjectType projectType = new ProjectType();
+        projectType.setName("Type " + run);
+        projectTypeRepository.save(projectType);
+
+        Client client = new Client();
+        client.setName("Client " + run);
+        clientRepository.save(client);
+
+        Project existing = new Project();
+        existing.setName(run + "-0");
+        existing.setProjectType(projectType);
+        existing.setManager(manager);
+        existing.setClient(client);
+        existing.setStatus(open);
+        existing.setStartDate(Timestamp.valueOf("2025-01-01 00:00:00"));
+        projectRepository.save(existing);
+    }
+
+    @Test
+    void testChunksImportTheValidRows() throws Exception {
+        List<Long> checkpoints = new ArrayList<>();
+        ImportResult result = projectImportPipeline.importProjectsInChunks(csv(), owner,
+                new ImportResult(), 0, (committedRows, progress) -> checkpoints.add(committedRows));
+
+        assertEquals(List.of(2L, 4L, 6L, 7L), checkpoints);
+        assertEquals(7, result.getRowsRead());
+        assertEquals(3, result.getRowsImported());
+        assertEquals(3, result.getRowsSkipped());
+        // The valid row of the chunk with the error is still imported
+        assertEquals(List.of(UNRESOLVED_ERROR), result.getErrors());
+        assertEquals(List.of(run + "-0", run + "-1", run + "-2", run + "-4"), projectCodes());
+        assertEquals(2500.5, jdbcTemplate.queryForObject(
+                "SELECT real_budget FROM projects WHERE name = ?", Double.class, run + "-4"));
+    }
+
+    @Test
+    void testResumeSkipsTheCheckpointRows() throws Exception {
+        // The job dies while committing the second chunk, so only the first one is kept
+        ImportCheckpoint killedOnSecondChunk = (committedRows, progress) -> {
+            if (committedRows == 4) {
+                throw new IllegalStateException("Import job killed");
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> projectImportPipeline
+                .importProjectsInChunks(csv(), owner, new ImportResult(), 0,
+                        killedOnSecondChunk));
+        assertEquals(List.of(run + "-0", run + "-1"), projectCodes());
+
+        // The code of row 4 was committed before the checkpoint, it is found in the database
+        ImportResult result = projectImportPipeline.importProjectsInChunks(csv(), owner,
+                new ImportResult(), 2, (committedRows, progress) -> { });
+
+        assertEquals(5, result.getRowsRead());
+        assertEquals(2, result.getRowsImported());
+        assertEquals(2, result.getRowsSkipped());
+        assertEquals(List.of(UNRESOLVED_ERROR), result.getErrors());
+        assertEquals(List.of(run + "-0", run + "-1", run + "-2", run + "-4"), projectCodes());
+    }
+
+    @Test
+    void testErrorsRollBackTheWholeFile() throws Exception {
+        ImportResult result = projectImportPipeline.importProjects(csv(), owner);
+
+        assertEquals(7, result.getRowsRead());
+        assertEquals(1, result.getErrorCount());
+        assertEquals(List.of(UNRESOLVED_ERROR), result.getErrors());
+        // The chunks written before the error are rolled back too
+        assertEquals(List.of(run + "-0"), projectCodes());
+    }
+
+    private List<String> projectCodes() {
+        return jdbcTemplate.queryForList("SELECT name FROM projects WHERE name LIKE ? "
+                + "ORDER BY name", String.class, run + "-%");
+    }
+
+    private static InputStream csv() {
+        return new ByteArrayInputStream(CSV.replace("RUN", String.valueOf(run))
+                .getBytes(StandardCharsets.UTF_8));
+    }
+}
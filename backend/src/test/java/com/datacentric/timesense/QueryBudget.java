@@ -0,0 +1,64 @@
+package com.datacentric.timesense;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.List;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Checks how many SQL statements a piece of code runs, so lazy loads issued once per row
+ * (N+1 queries) fail the build instead of slowing down production.
+ *
+ * Register it with @ExtendWith(QueryBudget.class) so the recording is always stopped
+ * after each test.
+ */
+public class QueryBudget implements AfterEachCallback {
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        SqlStatementRecorder.stop();
+    }
+
+    /**
+     * Runs the action and fails, listing the statements, when it runs more than maxStatements
+     * SQL statements.
+     *
+     * The persistence context is flushed and cleared first, so pending writes of the test
+     * setup are not counted and the action can not read entities from memory that would
+     * have been loaded from the database in a real request.
+     */
+    public static List<String> assertAtMost(EntityManager entityManager, int maxStatements,
+            String description, Action action) throws Exception {
+        entityManager.flush();
+        entityManager.clear();
+
+        SqlStatementRecorder.start();
+        List<String> statements;
+        try {
+            action.run();
+        } finally {
+            statements = SqlStatementRecorder.stop();
+        }
+
+        if (statements.size() > maxStatements) {
+            StringBuilder message = new StringBuilder()
+                    .append(description).append(" ran ").append(statements.size())
+                    .append(" SQL statements, the budget is ").append(maxStatements)
+                    .append(':');
+            for (int i = 0; i < statements.size(); i++) {
+                message.append('\n').append(i + 1).append(". ").append(statements.get(i));
+            }
+            fail(message.toString());
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,167 @@
+package com.datacentric.timesense;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.datacentric.timesense.model.Client;
+import com.datacentric.timesense.model.Project;
+import com.datacentric.timesense.model.ProjectType;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.TimeRecord;
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.repository.ClientRepository;
+import com.datacentric.timesense.repository.ProjectRepository;
+import com.datacentric.timesense.repository.ProjectTypeRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.RecentProjects;
+
+/**
+ * The upsert of the recent projects on the (user_id, project_id) key. The writes commit in
+ * their own transactions, as the time record writes do.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class RecentProjectsPostgresTests {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = PostgresContainers.create();
+
+    private static final int WRITERS = 2;
+
+    private static final String COUNT_ROWS_SQL = "SELECT COUNT(*) FROM user_recent_projects "
+            + "WHERE user_id = ? AND project_id = ?";
+
+    private static int run;
+
+    @Autowired
+    private RecentProjects recentProjects;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ProjectTypeRepository projectTypeRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    private User user;
+    private Project project;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        PostgresContainers.register(registry, POSTGRES);
+    }
+
+    @BeforeEach
+    public void setup() {
+        run++;
+        user = new User();
+        user.setName("Recent User");
+        user.setEmail("recent" + run + "@email.com");
+        user.setCurrentYearVacationDays(23.0);
+        user.setPrevYearVacationDays(0.0);
+        userRepository.save(user);
+
+        ProjectType projectType = new ProjectType();
+        projectType.setName("Type" + run);
+        projectTypeRepository.save(projectType);
+
+        Client client = new Client();
+        client.setName("Client" + run);
+        clientRepository.save(client);
+
+        Status status = new Status();
+        status.setName("Active" + run);
+        statusRepository.save(status);
+
+        project = new Project();
+        project.setName("Recent" + run);
+        project.setProjectType(projectType);
+        project.setManager(user);
+        project.setClient(client);
+        project.setStatus(status);
+        project.setStartDate(Timestamp.valueOf("2025-01-01 00:00:00"));
+        projectRepository.save(project);
+    }
+
+    @Test
+    void testConcurrentFirstUsesKeepOneRow() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                writes.add(executor.submit(() -> {
+                    start.await();
+                    recentProjects.touch(List.of(newTimeRecord()));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> write : writes) {
+                write.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1L, jdbcTemplate.queryForObject(COUNT_ROWS_SQL, Long.class,
+                user.getId(), project.getId()));
+        assertEquals(List.of(project.getId()), recentProjects.getLastUsed(user.getId())
+                .stream().map(Project::getId).toList());
+    }
+
+    @Test
+    void testUsingAgainMovesTheLastUse() {
+        recentProjects.touch(List.of(newTimeRecord()));
+        Timestamp old = Timestamp.valueOf("2020-01-01 00:00:00");
+        jdbcTemplate.update("UPDATE user_recent_projects SET last_used_at = ? "
+                + "WHERE user_id = ?", old, user.getId());
+        assertTrue(recentProjects.getLastUsed(user.getId()).isEmpty());
+
+        recentProjects.touch(List.of(newTimeRecord()));
+
+        assertEquals(1L, jdbcTemplate.queryForObject(COUNT_ROWS_SQL, Long.class,
+                user.getId(), project.getId()));
+        assertEquals(List.of(project.getId()), recentProjects.getLastUsed(user.getId())
+                .stream().map(Project::getId).toList());
+    }
+
+    private TimeRecord newTimeRecord() {
+        TimeRecord timeRecord = new TimeRecord();
+        timeRecord.setUser(user);
+        timeRecord.setProject(project);
+        return timeRecord;
+    }
+}
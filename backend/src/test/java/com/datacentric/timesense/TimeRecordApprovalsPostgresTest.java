@@ -0,0 +1,258 @@
+package com.datacentric.timesense;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.datacentric.timesense.controller.payloads.TimeRecordPatchResult;
+import com.datacentric.timesense.model.ApprovalCounter;
+import com.datacentric.timesense.model.Client;
+import com.datacentric.timesense.model.Project;
+import com.datacentric.timesense.model.ProjectType;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.TimeRecord;
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.repository.ClientRepository;
+import com.datacentric.timesense.repository.ProjectRepository;
+import com.datacentric.timesense.repository.ProjectTypeRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.TimeRecordRepository;
+import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.ApprovalCounters;
+import com.datacentric.timesense.utils.TimeRecordApprovals;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * The single approval statement of TimeRecordApprovals, which only runs on PostgreSQL. The
+ * schema is created from the entities on a PostgreSQL container, skipped without Docker.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@Testcontainers(disabledWithoutDocker = true)
+class TimeRecordApprovalsPostgresTests extends SecurityBaseClass {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = PostgresContainers.create();
+
+    private static int run;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TimeRecordApprovals timeRecordApprovals;
+
+    @Autowired
+    private ApprovalCounters approvalCounters;
+
+    @Autowired
+    private TimeRecordRepository timeRecordRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ProjectTypeRepository projectTypeRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    private User manager;
+    private User otherManager;
+    private Status pendingStatus;
+    private Status approvedStatus;
+    private Project project;
+    private Project otherProject;
+    private Project ownProject;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        PostgresContainers.register(registry, POSTGRES);
+    }
+
+    @BeforeEach
+    public void setup() {
+        run++;
+        manager = newUser("manager" + run + "@email.com");
+        otherManager = newUser("other.manager" + run + "@email.com");
+
+        pendingStatus = newStatus("PENDING");
+        approvedStatus = newStatus("APPROVED");
+
+        ProjectType projectType = new ProjectType();
+        projectType.setName("Type" + run);
+        projectTypeRepository.save(projectType);
+
+        Client client = new Client();
+        client.setName("Client" + run);
+        clientRepository.save(client);
+
+        project = newProject("Managed" + run, manager, projectType, client);
+        otherProject = newProject("Other" + run, otherManager, projectType, client);
+        ownProject = newProject("Own" + run, dummyUser, projectType, client);
+
+        savePermission("Project", ownProject.getId(),
+                Project.ProjectPermission.RECORD_TIME_PROJECTS.toString(), "user",
+                dummyUser.getId());
+    }
+
+    @Test
+    void testManagerOnlyApprovesTheRecordsOfTheirProjects() {
+        TimeRecord managed = newTimeRecord(project);
+        TimeRecord other = newTimeRecord(otherProject);
+        timeRecordRepository.saveAll(List.of(managed, other));
+        long missingId = other.getId() + 1000;
+        approvalCounters.rebuild();
+
+        TimeRecordPatchResult result = timeRecordApprovals.setStatus("approve",
+                List.of(managed.getId(), other.getId(), missingId), approvedStatus, "ok",
+                manager, false);
+
+        assertEquals(List.of(managed.getId()), result.getUpdated());
+        assertEquals(List.of(other.getId()), result.getForbidden());
+        assertEquals(List.of(missingId), result.getNotFound());
+
+        assertEquals(approvedStatus.getId(),
+                timeRecordRepository.findById(managed.getId()).get().getStatus().getId());
+        assertEquals(pendingStatus.getId(),
+                timeRecordRepository.findById(other.getId()).get().getStatus().getId());
+
+        assertEquals(0L, pendingTimeRecords(manager));
+        assertEquals(1L, pendingTimeRecords(otherManager));
+    }
+
+    @Test
+    void testAdminApprovesAnyRecordOnce() {
+        TimeRecord managed = newTimeRecord(project);
+        TimeRecord other = newTimeRecord(otherProject);
+        timeRecordRepository.saveAll(List.of(managed, other));
+        approvalCounters.rebuild();
+
+        TimeRecordPatchResult result = timeRecordApprovals.setStatus("approve",
+                List.of(managed.getId(), other.getId()), approvedStatus, null, manager, true);
+        assertEquals(List.of(managed.getId(), other.getId()), result.getUpdated());
+        assertEquals(0L, pendingTimeRecords(otherManager));
+
+        // Approving again finds the records no longer pending and leaves the counts alone
+        result = timeRecordApprovals.setStatus("approve", List.of(other.getId()),
+                approvedStatus, null, manager, true);
+        assertEquals(List.of(other.getId()), result.getUpdated());
+        assertEquals(0L, pendingTimeRecords(otherManager));
+    }
+
+    @Test
+    @WithMockUser
+    void testCountersFollowCreateAndApprove() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+        mockMvc.perform(post("/api/time-records")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newTimeRecord(ownProject))))
+                .andExpect(status().isCreated());
+
+        expectPendingTimeRecords(1);
+
+        Long id = timeRecordRepository.findAll().stream()
+                .filter(timeRecord -> timeRecord.getProject().getId().equals(ownProject.getId()))
+                .findFirst().get().getId();
+        mockMvc.perform(patch("/api/time-records")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"command\": \"approve\", \"data\": {\"ids\": [" + id + "]}}]"))
+                .andExpect(status().isAccepted());
+
+        expectPendingTimeRecords(0);
+    }
+
+    private void expectPendingTimeRecords(long pendingTimeRecords) throws Exception {
+        mockMvc.perform(get("/api/approvals/summary")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pendingTimeRecords").value(pendingTimeRecords));
+    }
+
+    private long pendingTimeRecords(User approver) {
+        Map<String, Long> counts = approvalCounters.getPendingCounts(approver.getId());
+        return counts.getOrDefault(ApprovalCounter.TIME_RECORDS, 0L);
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setName(email);
+        user.setEmail(email);
+        user.setCurrentYearVacationDays(23.0);
+        user.setPrevYearVacationDays(0.0);
+        return userRepository.save(user);
+    }
+
+    private Status newStatus(String name) {
+        Status status = statusRepository.findByName(name);
+        if (status == null) {
+            status = new Status();
+            status.setName(name);
+            statusRepository.save(status);
+        }
+        return status;
+    }
+
+    private Project newProject(String name, User projectManager, ProjectType projectType,
+            Client client) {
+        Project newProject = new Project();
+        newProject.setName(name);
+        newProject.setProjectType(projectType);
+        newProject.setManager(projectManager);
+        newProject.setClient(client);
+        newProject.setStatus(approvedStatus);
+        newProject.setStartDate(Timestamp.valueOf("2025-01-01 00:00:00"));
+        return projectRepository.save(newProject);
+    }
+
+    private TimeRecord newTimeRecord(Project recordProject) {
+        TimeRecord timeRecord = new TimeRecord();
+        timeRecord.setUser(manager);
+        timeRecord.setProject(recordProject);
+        timeRecord.setStatus(pendingStatus);
+        timeRecord.setHours(8.0);
+        timeRecord.setDescription("description");
+        timeRecord.setStartDate(Timestamp.valueOf("2025-03-10 09:00:00"));
+        timeRecord.setEndDate(Timestamp.valueOf("2025-03-10 17:00:00"));
+        timeRecord.setApprovedBy(manager);
+        return timeRecord;
+    }
+}
@@ -0,0 +1,62 @@
+package com.datacentric.timesense;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.datacentric.timesense.controller.payloads.TimeRecordPatchResult;
+import com.datacentric.timesense.utils.TimeRecordApprovals;
+import com.datacentric.timesense.utils.TimeRecordApprovals.RequestedRecord;
+
+/**
+ * Outcome of the approval statement for each requested id and the pending counts it moves.
+ */
+class TimeRecordApprovalsTests {
+
+    private static final long APPROVER = 10L;
+    private static final long OTHER_APPROVER = 11L;
+
+    @Test
+    void testRowsAreUpdatedForbiddenOrNotFound() {
+        List<RequestedRecord> rows = List.of(
+                new RequestedRecord(1L, APPROVER, true, true),
+                new RequestedRecord(2L, APPROVER, true, false),
+                new RequestedRecord(4L, null, false, true));
+
+        TimeRecordPatchResult result = TimeRecordApprovals.toResult("approve",
+                List.of(1L, 2L, 3L, 4L), rows);
+
+        assertEquals("approve", result.getCommand());
+        assertEquals(List.of(1L, 4L), result.getUpdated());
+        assertEquals(List.of(2L), result.getForbidden());
+        assertEquals(List.of(3L), result.getNotFound());
+    }
+
+    @Test
+    void testNoRowsMeansEveryIdNotFound() {
+        TimeRecordPatchResult result = TimeRecordApprovals.toResult("deny", List.of(5L, 6L),
+                List.of());
+
+        assertEquals(List.of(), result.getUpdated());
+        assertEquals(List.of(), result.getForbidden());
+        assertEquals(List.of(5L, 6L), result.getNotFound());
+    }
+
+    @Test
+    void testOnlyUpdatedPendingRecordsLeaveTheCounts() {
+        List<RequestedRecord> rows = List.of(
+                new RequestedRecord(1L, APPROVER, true, true),
+                new RequestedRecord(2L, APPROVER, true, true),
+                // Already approved, it was not counted
+                new RequestedRecord(3L, OTHER_APPROVER, false, true),
+                // Forbidden, it stays pending
+                new RequestedRecord(4L, OTHER_APPROVER, true, false),
+                // Pending without an approver, it was not counted
+                new RequestedRecord(5L, null, true, true));
+
+        assertEquals(Map.of(APPROVER, 2L), TimeRecordApprovals.pendingBefore(rows));
+    }
+}
@@ -3,45 +3,70 @@ package com.datacentric.timesense;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
 
 import com.datacentric.timesense.model.Client;
 import com.datacentric.timesense.model.Project;
+import com.datacentric.timesense.model.ProjectTask;
 import com.datacentric.timesense.model.ProjectType;
 import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.SystemAccessTypes;
+import com.datacentric.timesense.model.SystemSetting;
+import com.datacentric.timesense.model.SystemSettings;
 import com.datacentric.timesense.model.TimeRecord;
 import com.datacentric.timesense.model.User;
 import com.datacentric.timesense.repository.ClientRepository;
 import com.datacentric.timesense.repository.ProjectRepository;
+import com.datacentric.timesense.repository.ProjectTaskRepository;
 import com.datacentric.timesense.repository.ProjectTypeRepository;
 import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.SystemSettingRepository;
 import com.datacentric.timesense.repository.TimeRecordRepository;
 import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.TimeRecordCosts;
 import com.datacentric.timesense.utils.i18n.MessagesCodes;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+/**
+ * The writes of time records go through the upserts of the daily hours ledger and of the
+ * recent projects, so the class runs on PostgreSQL.
+ */
 @SpringBootTest
 @AutoConfigureMockMvc
 @Transactional
+@Testcontainers(disabledWithoutDocker = true)
 class TimeRecordControllerTests extends SecurityBaseClass {
 
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = PostgresContainers.create();
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -62,6 +87,15 @@ class TimeRecordControllerTests extends SecurityBaseClass {
     
     @Autowired
     private ProjectTypeRepository projectTypeRepository;
+
+    @Autowired
+    private ProjectTaskRepository projectTaskRepository;
+
+    @Autowired
+    private SystemSettingRepository systemSettingRepository;
+
+    @Autowired
+    private TimeRecordCosts timeRecordCosts;
     
     private User user;
     private ProjectType projectType;
@@ -70,6 +104,11 @@ class TimeRecordControllerTests extends SecurityBaseClass {
     private Project project;
     private TimeRecord timeRecord;
 
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        PostgresContainers.register(registry, POSTGRES);
+    }
+
     @BeforeEach
     public void setup() {
 
@@ -169,6 +208,44 @@ class TimeRecordControllerTests extends SecurityBaseClass {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @WithMockUser
+    void testGetTeamTimeRecordsFollowsProjectTypeChanges() throws Exception {
+        savePermission("System", 0L,
+                SystemAccessTypes.CREATE_PROJECTS, "user", dummyUser.getId());
+        user.setLineManagerId(dummyUser.getId());
+        userRepository.save(user);
+        putProjectType(true);
+
+        mockMvc.perform(get("/api/time-records")
+                .param("scope", "my_teams")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1));
+
+        putProjectType(false);
+
+        mockMvc.perform(get("/api/time-records")
+                .param("scope", "my_teams")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0));
+    }
+
+    private void putProjectType(boolean lineManager) throws Exception {
+        ProjectType changedType = new ProjectType();
+        changedType.setName(projectType.getName());
+        changedType.setLineManager(lineManager);
+
+        mockMvc.perform(put("/api/project-types/" + projectType.getId())
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(changedType)))
+                .andExpect(status().isAccepted());
+    }
+
     // ------------------------------ POST ------------------------------
     @Test
     @WithMockUser
@@ -198,6 +275,196 @@ class TimeRecordControllerTests extends SecurityBaseClass {
                 .andExpect(status().isCreated()).andReturn();
     }
 
+    @Test
+    @WithMockUser
+    void testPostTimeRecordCost() throws Exception {
+        Long jobTitleId = dummyUser.getJobTitle().getId();
+        timeRecordCosts.changeRate(jobTitleId, 20.0, LocalDate.of(2018, 1, 1));
+        timeRecordCosts.changeRate(jobTitleId, 30.0, LocalDate.of(2019, 1, 1));
+
+        TimeRecord newTimeRecord = new TimeRecord();
+        newTimeRecord.setProject(project);
+        newTimeRecord.setHours(4.0);
+        newTimeRecord.setDescription("description");
+        newTimeRecord.setStatus(status);
+        newTimeRecord.setStartDate(Timestamp.valueOf("2018-12-12 10:00:00"));
+        newTimeRecord.setEndDate(Timestamp.valueOf("2018-12-12 14:00:00"));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+        mockMvc.perform(post("/api/time-records")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newTimeRecord)))
+                .andExpect(status().isCreated());
+
+        // The rate in effect on the day of the record, not the latest one
+        TimeRecord saved = timeRecordRepository.findAll().stream()
+                .filter(t -> t.getUser().getId().equals(dummyUser.getId()))
+                .findFirst().orElseThrow();
+        assertEquals(80.0, saved.getCost());
+    }
+
+    @Test
+    @WithMockUser
+    void testPostTimeRecordMarksProjectAsUsed() throws Exception {
+        TimeRecord newTimeRecord = new TimeRecord();
+        newTimeRecord.setProject(project);
+        newTimeRecord.setHours(4.0);
+        newTimeRecord.setDescription("description");
+        newTimeRecord.setStatus(status);
+        newTimeRecord.setStartDate(Timestamp.valueOf("2018-12-12 10:00:00"));
+        newTimeRecord.setEndDate(Timestamp.valueOf("2018-12-12 14:00:00"));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+        mockMvc.perform(post("/api/time-records")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newTimeRecord)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/projects/last-used")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(project.getId()));
+    }
+
+    @Test
+    @WithMockUser
+    void testGetTimesheetGrid() throws Exception {
+        ProjectTask task = new ProjectTask();
+        task.setName("Grid Task");
+        projectTaskRepository.save(task);
+
+        TimeRecord newTimeRecord = new TimeRecord();
+        newTimeRecord.setProject(project);
+        newTimeRecord.setTask(task);
+        newTimeRecord.setHours(4.0);
+        newTimeRecord.setDescription("description");
+        newTimeRecord.setStatus(status);
+        newTimeRecord.setStartDate(Timestamp.valueOf("2018-12-12 10:00:00"));
+        newTimeRecord.setEndDate(Timestamp.valueOf("2018-12-12 14:00:00"));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+        mockMvc.perform(post("/api/time-records")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newTimeRecord)))
+                .andExpect(status().isCreated());
+
+        MvcResult result = mockMvc.perform(get("/api/time-records/grid")
+                .param("startDate", "2018-12-10")
+                .param("endDate", "2018-12-16")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read"))))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.days.length()").value(7))
+                .andExpect(jsonPath("$.rows.length()").value(1))
+                .andExpect(jsonPath("$.rows[0].projectId").value(project.getId()))
+                .andExpect(jsonPath("$.rows[0].taskName").value("Grid Task"))
+                .andExpect(jsonPath("$.rows[0].hours[2]").value(4.0))
+                .andExpect(jsonPath("$.totals[2]").value(4.0))
+                .andReturn();
+        String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Nothing changed, the grid is revalidated
+        mockMvc.perform(get("/api/time-records/grid")
+                .param("startDate", "2018-12-10")
+                .param("endDate", "2018-12-16")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read"))))
+                .andExpect(status().isNotModified());
+
+        // The grid shows the task name, so renaming the task changes the version
+        task.setName("Renamed Task");
+        projectTaskRepository.saveAndFlush(task);
+        result = mockMvc.perform(get("/api/time-records/grid")
+                .param("startDate", "2018-12-10")
+                .param("endDate", "2018-12-16")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows[0].taskName").value("Renamed Task"))
+                .andReturn();
+        assertNotEquals(etag, result.getResponse().getHeader(HttpHeaders.ETAG));
+        etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+
+        // So does a new record on one of the days
+        newTimeRecord.setStartDate(Timestamp.valueOf("2018-12-13 10:00:00"));
+        newTimeRecord.setEndDate(Timestamp.valueOf("2018-12-13 12:00:00"));
+        newTimeRecord.setHours(2.0);
+        mockMvc.perform(post("/api/time-records")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newTimeRecord)))
+                .andExpect(status().isCreated());
+        result = mockMvc.perform(get("/api/time-records/grid")
+                .param("startDate", "2018-12-10")
+                .param("endDate", "2018-12-16")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totals[3]").value(2.0))
+                .andReturn();
+        assertNotEquals(etag, result.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @WithMockUser
+    void testPostTimeRecordOverDailyHours() throws Exception {
+        SystemSetting maxHours = new SystemSetting();
+        maxHours.setName(SystemSettings.PROJ_DAILLY_MAX_HOURS);
+        maxHours.setValue("8");
+        systemSettingRepository.save(maxHours);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+        mockMvc.perform(post("/api/time-records")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newTimeRecordOnDay(6.0))))
+                .andExpect(status().isCreated());
+
+        // Over the limit with the hours already recorded on the day
+        mockMvc.perform(post("/api/time-records")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newTimeRecordOnDay(4.0))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.messageCode")
+                        .value(MessagesCodes.TIME_RECORD_INVALID_HOURS));
+
+        mockMvc.perform(post("/api/time-records")
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newTimeRecordOnDay(2.0))))
+                .andExpect(status().isCreated());
+    }
+
+    private TimeRecord newTimeRecordOnDay(double hours) {
+        TimeRecord newTimeRecord = new TimeRecord();
+        newTimeRecord.setUser(user);
+        newTimeRecord.setProject(project);
+        newTimeRecord.setHours(hours);
+        newTimeRecord.setDescription("description");
+        newTimeRecord.setStatus(status);
+        newTimeRecord.setStartDate(Timestamp.valueOf("2025-03-10 09:00:00"));
+        newTimeRecord.setEndDate(Timestamp.valueOf("2025-03-10 17:00:00"));
+        newTimeRecord.setApprovedBy(user);
+        return newTimeRecord;
+    }
+
     /*
     // ------------------------------ DELETE ------------------------------
 
@@ -268,6 +535,29 @@ class TimeRecordControllerTests extends SecurityBaseClass {
                 .andExpect(jsonPath("$.data.approvedBy.name").value("Some User"));
     }
 
+    @Test
+    @WithMockUser
+    void testUpdateTimeRecordMissingReferences() throws Exception {
+        User approvedBy = timeRecord.getApprovedBy();
+        User missingUser = new User();
+        missingUser.setId(9999L);
+        timeRecord.setApprovedBy(missingUser);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        String content = objectMapper.writeValueAsString(timeRecord);
+        timeRecord.setApprovedBy(approvedBy);
+
+        mockMvc.perform(put("/api/time-records/" + timeRecord.getId())
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(content))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.messageCode").value(MessagesCodes.USER_NOT_FOUND))
+                .andExpect(jsonPath("$.data.missing.User[0]").value(9999));
+    }
+
     @Test
     @WithMockUser
     void testUpdateTimeRecordNotFound() throws Exception {
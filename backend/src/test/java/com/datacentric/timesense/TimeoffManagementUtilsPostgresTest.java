@@ -0,0 +1,165 @@
+package com.datacentric.timesense;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.datacentric.timesense.model.Absence;
+import com.datacentric.timesense.model.AbsenceType;
+import com.datacentric.timesense.model.Status;
+import com.datacentric.timesense.model.SystemSetting;
+import com.datacentric.timesense.model.SystemSettings;
+import com.datacentric.timesense.model.User;
+import com.datacentric.timesense.repository.AbsenceRepository;
+import com.datacentric.timesense.repository.AbsenceTypeRepository;
+import com.datacentric.timesense.repository.StatusRepository;
+import com.datacentric.timesense.repository.SystemSettingRepository;
+import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.TimeoffManagementUtils;
+
+/**
+ * The single recalculation statement of the absences on holiday changes, which only runs on
+ * PostgreSQL. The absence spans the week of 2025-03-10, Monday to Friday.
+ */
+@SpringBootTest
+@Transactional
+@Testcontainers(disabledWithoutDocker = true)
+class TimeoffManagementUtilsPostgresTests {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = PostgresContainers.create();
+
+    private static final String WORK_DAYS_SQL = "SELECT work_days FROM absences WHERE id = ?";
+    private static final String EVENT_DAYS_SQL = "SELECT days FROM vacation_balance_events "
+            + "WHERE absence_id = ? AND reason = 'HOLIDAYS' ORDER BY id";
+
+    // Two weekdays within the absence, a Saturday within it and a weekday after it
+    private static final List<LocalDate> HOLIDAYS = List.of(LocalDate.of(2025, 3, 11),
+            LocalDate.of(2025, 3, 12), LocalDate.of(2025, 3, 15), LocalDate.of(2025, 3, 20));
+
+    @Autowired
+    private TimeoffManagementUtils timeoffManagementUtils;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AbsenceRepository absenceRepository;
+
+    @Autowired
+    private AbsenceTypeRepository absenceTypeRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private SystemSettingRepository systemSettingRepository;
+
+    private Absence vacation;
+    private Absence deniedVacation;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        PostgresContainers.register(registry, POSTGRES);
+    }
+
+    @BeforeEach
+    public void setup() {
+        SystemSetting currentYear = new SystemSetting();
+        currentYear.setName(SystemSettings.CURRENT_YEAR);
+        currentYear.setValue("2025");
+        systemSettingRepository.save(currentYear);
+
+        User user = new User();
+        user.setName("Holidays User");
+        user.setEmail("holidays@email.com");
+        user.setCurrentYearVacationDays(23.0);
+        user.setPrevYearVacationDays(0.0);
+        userRepository.save(user);
+
+        AbsenceType vacationType = new AbsenceType();
+        vacationType.setName("VACATION");
+        absenceTypeRepository.save(vacationType);
+
+        Status approved = new Status();
+        approved.setName("APPROVED");
+        statusRepository.save(approved);
+
+        Status denied = new Status();
+        denied.setName("DENIED");
+        statusRepository.save(denied);
+
+        vacation = newVacation(user, vacationType, approved);
+        deniedVacation = newVacation(user, vacationType, denied);
+        absenceRepository.flush();
+    }
+
+    @Test
+    void testNewHolidaysGiveASingleDeltaPerAbsence() throws Exception {
+        timeoffManagementUtils.recalculateUsersAbsences(HOLIDAYS, List.of());
+
+        assertEquals(3.0, workDays(vacation));
+        assertEquals(List.of(2.0), eventDays(vacation));
+
+        // Denied vacations were already given back, so the balance is not touched
+        assertEquals(3.0, workDays(deniedVacation));
+        assertEquals(List.of(), eventDays(deniedVacation));
+    }
+
+    @Test
+    void testRemovedHolidaysReverseTheDelta() throws Exception {
+        timeoffManagementUtils.recalculateUsersAbsences(HOLIDAYS, List.of());
+        timeoffManagementUtils.recalculateUsersAbsences(List.of(), HOLIDAYS);
+
+        assertEquals(5.0, workDays(vacation));
+        assertEquals(List.of(2.0, -2.0), eventDays(vacation));
+        assertEquals(5.0, workDays(deniedVacation));
+        assertEquals(List.of(), eventDays(deniedVacation));
+    }
+
+    @Test
+    void testHolidayAddedAndRemovedIsIgnored() throws Exception {
+        timeoffManagementUtils.recalculateUsersAbsences(HOLIDAYS, HOLIDAYS);
+
+        assertEquals(5.0, workDays(vacation));
+        assertEquals(List.of(), eventDays(vacation));
+    }
+
+    private Absence newVacation(User user, AbsenceType type, Status status) {
+        Absence absence = new Absence();
+        absence.setType(type);
+        absence.setUser(user);
+        absence.setName("Vacation");
+        absence.setStartDate(Timestamp.valueOf("2025-03-10 09:00:00"));
+        absence.setEndDate(Timestamp.valueOf("2025-03-14 18:00:00"));
+        absence.setStatus(status);
+        absence.setWorkDays(5.0);
+        absence.setBusinessYear("2025");
+        return absenceRepository.save(absence);
+    }
+
+    private Double workDays(Absence absence) {
+        return jdbcTemplate.queryForObject(WORK_DAYS_SQL, Double.class, absence.getId());
+    }
+
+    private List<Double> eventDays(Absence absence) {
+        return jdbcTemplate.queryForList(EVENT_DAYS_SQL, Double.class, absence.getId());
+    }
+}
@@ -2,6 +2,8 @@ package com.datacentric.timesense;
 
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +13,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.context.support.WithMockUser;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 import org.springframework.test.web.servlet.MockMvc;
@@ -19,13 +22,18 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.datacentric.timesense.model.ResourcePermission;
 import com.datacentric.timesense.model.SystemAccessTypes;
+import com.datacentric.timesense.model.SystemSetting;
+import com.datacentric.timesense.model.SystemSettings;
 import com.datacentric.timesense.model.User;
 import com.datacentric.timesense.repository.ResourcePermissionRepository;
+import com.datacentric.timesense.repository.SystemSettingRepository;
 import com.datacentric.timesense.repository.UserRepository;
+import com.datacentric.timesense.utils.OrgHierarchy;
 import com.datacentric.timesense.utils.i18n.MessagesCodes;
 import com.datacentric.timesense.utils.rest.UserUtils;
 import com.datacentric.timesense.utils.security.UserSecurityData;
@@ -33,6 +41,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import jakarta.persistence.EntityManager;
+
 @SpringBootTest
 @AutoConfigureMockMvc
 @Transactional
@@ -50,6 +60,18 @@ class UserControllerTests {
     @Autowired
     private ResourcePermissionRepository resourcePermissionRepository;
 
+    @Autowired
+    private OrgHierarchy orgHierarchy;
+
+    @Autowired
+    private SystemSettingRepository systemSettingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
     private User adminUser;
     private User user;
 
@@ -204,4 +226,84 @@ class UserControllerTests {
                 .andExpect(jsonPath("$.messageCode").value(MessagesCodes.USER_NOT_FOUND));
     }
 
+    @Test
+    @WithMockUser
+    void testUpdateUserManagerCycle() throws Exception {
+        User member = new User();
+        member.setName("Team Member");
+        member.setEmail("member@email.com");
+        member.setCurrentYearVacationDays(23.0);
+        member.setPrevYearVacationDays(23.0);
+        member.setLineManagerId(user.getId());
+        userRepository.save(member);
+
+        orgHierarchy.moveUser(user.getId(), adminUser.getId());
+        orgHierarchy.moveUser(member.getId(), user.getId());
+        userRepository.flush();
+        assertEquals(Set.of(user.getId()),
+                orgHierarchy.getTeam(adminUser.getId(), OrgHierarchy.Scope.DIRECT));
+        assertEquals(Set.of(user.getId(), member.getId()),
+                orgHierarchy.getTeam(adminUser.getId(), OrgHierarchy.Scope.ALL));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+        // The admin cannot report to someone two levels below them
+        User update = new User();
+        update.setName(adminUser.getName());
+        update.setEmail(adminUser.getEmail());
+        update.setCurrentYearVacationDays(23.0);
+        update.setPrevYearVacationDays(23.0);
+        update.setLineManagerId(member.getId());
+        mockMvc.perform(put("/api/users/" + adminUser.getId())
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "write")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(update)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.messageCode").value(MessagesCodes.USER_MANAGER_CYCLE));
+    }
+
+    @Test
+    @WithMockUser
+    void testUpdateUserVacationBalances() throws Exception {
+        SystemSetting currentYear = new SystemSetting();
+        currentYear.setName(SystemSettings.CURRENT_YEAR);
+        currentYear.setValue("2025");
+        systemSettingRepository.save(currentYear);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+        User update = new User();
+        update.setName(user.getName());
+        update.setEmail(user.getEmail());
+        update.setLineManagerId(user.getLineManagerId());
+        update.setCurrentYearVacationDays(20.0);
+        update.setPrevYearVacationDays(23.0);
+        mockMvc.perform(put("/api/users/" + user.getId())
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "write")))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(update)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.data.currentYearVacationDays").value(20.0));
+
+        // Only the change is written, as an event on top of the snapshot in the users row
+        List<Double> events = jdbcTemplate.queryForList(
+                "SELECT days FROM vacation_balance_events WHERE user_id = ? "
+                        + "AND business_year = '2025' AND reason = 'ADJUSTMENT'",
+                Double.class, user.getId());
+        assertEquals(List.of(-3.0), events);
+
+        entityManager.flush();
+        entityManager.clear();
+        mockMvc.perform(get("/api/users/" + user.getId())
+                .with(jwt().jwt(jwt -> jwt.claim("scope", "read")))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.currentYearVacationDays").value(20.0))
+                .andExpect(jsonPath("$.prevYearVacationDays").value(23.0));
+    }
+
 }
@@ -0,0 +1,127 @@
+package com.datacentric.timesense;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.context.TestPropertySource;
+
+import com.datacentric.timesense.model.UserRole;
+import com.datacentric.timesense.repository.UserRoleRepository;
+import com.datacentric.timesense.utils.rest.UserUtils;
+import com.datacentric.timesense.utils.security.UserSecurityData;
+
+/**
+ * First logins of many users at the same time. Runs on its own database in PostgreSQL
+ * mode, so the users are committed by the provisioning threads and the inserts use the
+ * same ON CONFLICT clause as in production.
+ */
+@SpringBootTest
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:provisioningDB;"
+        + "MODE=PostgreSQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=KEY,VALUE")
+class UserProvisioningConcurrencyTests {
+
+    private static final int USERS = 500;
+    private static final int LOGINS_PER_USER = 2;
+    private static final int THREADS = 32;
+    private static final int TIMEOUT_SECONDS = 120;
+    private static final String EMAIL_PREFIX = "new.employee";
+
+    @Autowired
+    private UserUtils userUtils;
+
+    @Autowired
+    private UserRoleRepository roleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setup() {
+        if (roleRepository.findByName("User") == null) {
+            UserRole role = new UserRole();
+            role.setName("User");
+            roleRepository.save(role);
+        }
+        // Same unique email index as the database changelog
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS users_email_uk ON users (email)");
+    }
+
+    @Test
+    void testProvisionUsersInParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<String, List<Future<UserSecurityData>>> loginsPerUser = new HashMap<>();
+
+        try {
+            for (int i = 0; i < USERS; i++) {
+                String email = EMAIL_PREFIX + i + "@email.com";
+                List<Future<UserSecurityData>> logins = new ArrayList<>();
+                for (int j = 0; j < LOGINS_PER_USER; j++) {
+                    logins.add(executor.submit(() -> {
+                        start.await();
+                        return loginAs(email);
+                    }));
+                }
+                loginsPerUser.put(email, logins);
+            }
+            start.countDown();
+
+            for (Map.Entry<String, List<Future<UserSecurityData>>> user
+                    : loginsPerUser.entrySet()) {
+                Long userId = null;
+                for (Future<UserSecurityData> login : user.getValue()) {
+                    UserSecurityData userData = login.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    assertNotNull(userData, "No user returned for " + user.getKey());
+                    assertFalse(userData.getRoles().isEmpty());
+                    if (userId == null) {
+                        userId = userData.getId();
+                    }
+                    // Every login of the same user sees the same user
+                    assertEquals(userId, userData.getId());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(executor.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        Long provisionedUsers = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE email LIKE ?", Long.class,
+                EMAIL_PREFIX + "%");
+        assertEquals(USERS, provisionedUsers.longValue());
+    }
+
+    private UserSecurityData loginAs(String email) {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .claim("email", email)
+                .claim("name", "New Employee")
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+        try {
+            return userUtils.getOrCreateUser();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}